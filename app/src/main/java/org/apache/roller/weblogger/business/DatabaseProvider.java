@@ -27,6 +27,7 @@ import java.util.Properties;
 import javax.naming.InitialContext;
 import javax.naming.NamingException;
 import javax.sql.DataSource;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.roller.weblogger.business.startup.StartupException;
@@ -56,6 +57,12 @@ import org.apache.roller.weblogger.config.WebloggerConfig;
  * database.jdbc.connectionURL=
  * database.jdbc.username=
  * database.jdbc.password=
+ * 
+ * # Optional read-only replica, of the same configuration type
+ * database.replica.jndi.name=
+ * database.replica.jdbc.connectionURL=
+ * database.replica.jdbc.username=
+ * database.replica.jdbc.password=
  * </pre>
  */
 public class DatabaseProvider  {
@@ -73,6 +80,10 @@ public class DatabaseProvider  {
     private String jdbcConnectionURL = null;
     private String jdbcPassword = null;
     private String jdbcUsername = null;
+    private String replicaJndiName = null;
+    private String replicaJdbcConnectionURL = null;
+    private String replicaJdbcPassword = null;
+    private String replicaJdbcUsername = null;
     private Properties props = null;
     
     
@@ -93,6 +104,13 @@ public class DatabaseProvider  {
         jdbcUsername =      WebloggerConfig.getProperty("database.jdbc.username");
         jdbcPassword =      WebloggerConfig.getProperty("database.jdbc.password");
         
+        replicaJndiName =          WebloggerConfig.getProperty("database.replica.jndi.name");
+        replicaJdbcConnectionURL = WebloggerConfig.getProperty("database.replica.jdbc.connectionURL");
+        replicaJdbcUsername =      StringUtils.defaultIfEmpty(
+                WebloggerConfig.getProperty("database.replica.jdbc.username"), jdbcUsername);
+        replicaJdbcPassword =      StringUtils.defaultIfEmpty(
+                WebloggerConfig.getProperty("database.replica.jdbc.password"), jdbcPassword);
+        
         successMessage("SUCCESS: Got parameters. Using configuration type " + type);
 
         // If we're doing JDBC then attempt to load JDBC driver class
@@ -150,6 +168,11 @@ public class DatabaseProvider  {
             errorMessage(errorMsg);
             throw new StartupException(errorMsg, e, startupLog);
         }
+        
+        if (hasReplica()) {
+            successMessage("-- Using read replica " + (getType() == ConfigurationType.JDBC_PROPERTIES
+                    ? getReplicaJdbcConnectionURL() : getFullReplicaJndiName()));
+        }
     }
     
     
@@ -214,4 +237,33 @@ public class DatabaseProvider  {
         return "java:comp/env/" + jndiName;
     }
 
+    /**
+     * True if a read-only replica of the database is configured.
+     */
+    public boolean hasReplica() {
+        if (getType() == ConfigurationType.JDBC_PROPERTIES) {
+            return StringUtils.isNotEmpty(replicaJdbcConnectionURL);
+        }
+        return StringUtils.isNotEmpty(replicaJndiName);
+    }
+
+    public String getReplicaJdbcConnectionURL() {
+        return replicaJdbcConnectionURL;
+    }
+
+    public String getReplicaJdbcPassword() {
+        return replicaJdbcPassword;
+    }
+
+    public String getReplicaJdbcUsername() {
+        return replicaJdbcUsername;
+    }
+
+    public String getFullReplicaJndiName() {
+        if (null != replicaJndiName && replicaJndiName.startsWith("java:")) {
+            return replicaJndiName;
+        }
+        return "java:comp/env/" + replicaJndiName;
+    }
+
 }
@@ -18,9 +18,7 @@
 
 package org.apache.roller.weblogger.business;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.Map;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.roller.util.RollerConstants;
@@ -48,7 +46,7 @@ public final class HitCountQueue {
     private static HitCountQueue instance = null;
     
     private WorkerThread worker = null;
-    private List<String> queue = null;
+    private final HitCounterStore counters = new HitCounterStore();
     
     
     static {
@@ -68,9 +66,6 @@ public final class HitCountQueue {
             log.warn("Invalid sleep time ["+sleep+"], using default");
         }
         
-        // create the hits queue
-        this.queue = Collections.synchronizedList(new ArrayList<String>());
-        
         // start up a worker to process the hits at intervals
         HitCountProcessingJob job = new HitCountProcessingJob();
         worker = new ContinuousWorkerThread("HitCountQueueProcessor", job, sleepTime);
@@ -85,24 +80,18 @@ public final class HitCountQueue {
     
     public void processHit(Weblog weblog) {
         
-        // if the weblog isn't null then just drop its handle in the queue
-        // each entry in the queue is a weblog handle and indicates a single hit
+        // if the weblog isn't null then just count a hit against its id
         if(weblog != null) {
-            this.queue.add(weblog.getHandle());
+            this.counters.increment(weblog.getId());
         }
     }
     
     
-    public List<String> getHits() {
-        return new ArrayList<>(this.queue);
-    }
-    
-    
     /**
-     * Reset the queued hits.
+     * Take the hits queued since the last call, keyed by weblog id.
      */
-    public synchronized void resetHits() {
-        this.queue = Collections.synchronizedList(new ArrayList<String>());
+    public Map<String, Long> drainHits() {
+        return this.counters.drain();
     }
     
     
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.business;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Hit counters keyed by weblog id.
+ *
+ * Counting a hit is a map lookup and a LongAdder increment, so concurrent
+ * page views of the same weblog don't contend on a lock.  Counters are never
+ * removed from the map, so a hit counted while the counters are being drained
+ * is either included in that drain or left for the next one, never lost.
+ * There is one counter per weblog that has had a hit since startup.
+ */
+public final class HitCounterStore {
+
+    private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+
+    /**
+     * Count a single hit for a weblog.
+     */
+    public void increment(String weblogId) {
+        LongAdder counter = counters.get(weblogId);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(weblogId, k -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+
+    /**
+     * Get the hits counted for a weblog since the last drain.
+     */
+    public long get(String weblogId) {
+        LongAdder counter = counters.get(weblogId);
+        return (counter != null) ? counter.sum() : 0;
+    }
+
+
+    /**
+     * Take the hits counted since the last drain, resetting the counters.
+     *
+     * @return hits keyed by weblog id, only for weblogs with hits.
+     */
+    public Map<String, Long> drain() {
+        Map<String, Long> hits = new HashMap<>();
+        for (Map.Entry<String, LongAdder> counter : counters.entrySet()) {
+            long count = counter.getValue().sumThenReset();
+            if (count > 0) {
+                hits.put(counter.getKey(), count);
+            }
+        }
+        return hits;
+    }
+
+}
@@ -18,6 +18,7 @@
 
 package org.apache.roller.weblogger.business;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -116,6 +117,17 @@ public interface UserManager {
     User getUserByUserName(String userName, Boolean enabled)
         throws WebloggerException;
 
+    /**
+     * Lookup the enabled users of the given User Names all at once, so that
+     * following lookups of any of them by User Name don't query again.
+     *
+     * @param userNames User Names of users to lookup.
+     * @return The users found and enabled.
+     * @throws WebloggerException If there is a problem.
+     */
+    List<User> getUsersByUserNames(Collection<String> userNames)
+        throws WebloggerException;
+
     /**
      * Lookup a user by Open ID URL.
      *
@@ -18,6 +18,7 @@
 
 package org.apache.roller.weblogger.business;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -28,8 +29,10 @@ import org.apache.roller.weblogger.pojos.TagStat;
 import org.apache.roller.weblogger.pojos.Weblog;
 import org.apache.roller.weblogger.pojos.WeblogCategory;
 import org.apache.roller.weblogger.pojos.WeblogEntry;
+import org.apache.roller.weblogger.pojos.WeblogEntry.PubStatus;
 import org.apache.roller.weblogger.pojos.WeblogEntryComment;
 import org.apache.roller.weblogger.pojos.WeblogEntryComment.ApprovalStatus;
+import org.apache.roller.weblogger.pojos.WeblogEntryDayCount;
 import org.apache.roller.weblogger.pojos.WeblogEntrySearchCriteria;
 import org.apache.roller.weblogger.pojos.WeblogHitCount;
 
@@ -43,6 +46,12 @@ public interface WeblogEntryManager {
      * Save weblog entry.
      */
     void saveWeblogEntry(WeblogEntry entry) throws WebloggerException;
+    
+    /**
+     * Save several weblog entries at once, such as when publishing scheduled
+     * entries or importing, updating the tag counts for all of them together.
+     */
+    void saveWeblogEntries(List<WeblogEntry> entries) throws WebloggerException;
        
     /**
      * Remove weblog entry.
@@ -53,6 +62,29 @@ public interface WeblogEntryManager {
      * Get weblog entry by id.
      */
     WeblogEntry getWeblogEntry(String id) throws WebloggerException;
+
+    /**
+     * Get the weblog entries of the given ids all at once, along with what
+     * rendering them touches.
+     *
+     * @param ids Ids of the entries to get.
+     * @return The entries found, in no particular order.
+     */
+    List<WeblogEntry> getWeblogEntriesByIds(Collection<String> ids)
+        throws WebloggerException;
+
+    /**
+     * Get the ids of weblog entries of a status a page at a time, in order
+     * of id, so that every entry can be gone through without counting off
+     * the entries of all pages before.
+     *
+     * @param status Status of the entries.
+     * @param afterId Id after which the page starts, empty for the first page.
+     * @param length Most ids in the page.
+     * @return The ids of the page, fewer than length on the last page.
+     */
+    List<String> getWeblogEntryIds(PubStatus status, String afterId, int length)
+        throws WebloggerException;
     
     /** 
      * Get weblog entry by anchor. 
@@ -89,6 +121,17 @@ public interface WeblogEntryManager {
      */
     Map<Date, String> getWeblogEntryStringMap(WeblogEntrySearchCriteria wesc)
             throws WebloggerException;
+
+    /**
+     * Get the number of weblog entries on each calendar day having one or
+     * more, and the anchor of the first of them.  Only the publication time
+     * and anchor of the entries are read, not the entries themselves.
+     * @param wesc WeblogEntrySearchCriteria object listing desired search parameters
+     * @return Map of day counts keyed by Date, like getWeblogEntryStringMap
+     * @throws WebloggerException
+     */
+    Map<Date, WeblogEntryDayCount> getWeblogEntryDayCounts(WeblogEntrySearchCriteria wesc)
+            throws WebloggerException;
     
     /**
      * Get weblog entries ordered by descending number of comments.
@@ -198,6 +241,15 @@ public interface WeblogEntryManager {
      */
     List<WeblogEntryComment> getComments(CommentSearchCriteria csc) throws WebloggerException;
 
+    /**
+     * Get the comments of a status of the given entries all at once.
+     * @param entryIds Ids of the entries.
+     * @param status Status of the comments.
+     * @return The comments, in no particular order.
+     */
+    List<WeblogEntryComment> getComments(Collection<String> entryIds, ApprovalStatus status)
+        throws WebloggerException;
+
     /**
      * Deletes comments that match paramters.
      * @param website    Website or null for all comments on site
@@ -357,6 +409,20 @@ public interface WeblogEntryManager {
         throws WebloggerException;
     
     
+    /**
+     * Increment the hit counts of many weblogs at once.
+     *
+     * Unlike incrementHitCount() this doesn't load the weblogs or their hit
+     * counts, existing counts are updated in bulk.  Ids of weblogs which no
+     * longer exist are ignored.
+     *
+     * @param hitsByWeblogId How much to increment by, keyed by weblog id.
+     * @throws WebloggerException If there was a problem with the backend.
+     */
+    void incrementHitCounts(Map<String, Long> hitsByWeblogId)
+        throws WebloggerException;
+    
+    
     /**
      * Reset the hit counts for all weblogs.  This sets the counts back to 0.
      *
@@ -385,6 +451,18 @@ public interface WeblogEntryManager {
      */    
     long getCommentCount(Weblog websiteData) throws WebloggerException;
 
+
+    /**
+     * Count the approved comments of entries and weblogs whose counts are not
+     * known yet, as after upgrading, so that they no longer need to be
+     * counted on every read.
+     *
+     * @param max Maximum number of entries, and of weblogs, to count.
+     * @return Number of entries and weblogs counted, 0 once all are counted.
+     * @throws WebloggerException If there was a problem with the backend.
+     */
+    int backfillCommentCounts(int max) throws WebloggerException;
+
     
     /**
      * Get site-wide entry count 
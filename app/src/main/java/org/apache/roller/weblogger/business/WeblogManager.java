@@ -195,6 +195,13 @@ public interface WeblogManager {
     long getWeblogCount() throws WebloggerException;
     
     
+    /**
+     * Get the most recent last modified time of any weblog, or null if
+     * there are no weblogs.
+     */
+    Date getWeblogsLastModified() throws WebloggerException;
+    
+    
     /**
      * Release any resources held by manager.
      */
@@ -145,6 +145,13 @@ public interface Weblogger {
     void release();
     
     
+    /**
+     * Read from the read replica, if one is configured, for the rest of the
+     * Weblogger session.  Only for sessions which don't change anything.
+     */
+    void useReadReplica();
+    
+    
     /**
      * Initialize any resources necessary for this instance of Weblogger.
      */
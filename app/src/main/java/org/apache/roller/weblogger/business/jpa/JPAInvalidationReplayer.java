@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.business.jpa;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.roller.weblogger.WebloggerException;
+import org.apache.roller.weblogger.business.BookmarkManager;
+import org.apache.roller.weblogger.business.Weblogger;
+import org.apache.roller.weblogger.business.WeblogEntryManager;
+import org.apache.roller.weblogger.business.WeblogManager;
+import org.apache.roller.weblogger.config.WebloggerRuntimeConfig;
+import org.apache.roller.weblogger.pojos.RuntimeConfigProperty;
+import org.apache.roller.weblogger.pojos.User;
+import org.apache.roller.weblogger.pojos.Weblog;
+import org.apache.roller.weblogger.pojos.WeblogBookmark;
+import org.apache.roller.weblogger.pojos.WeblogBookmarkFolder;
+import org.apache.roller.weblogger.pojos.WeblogCategory;
+import org.apache.roller.weblogger.pojos.WeblogEntry;
+import org.apache.roller.weblogger.pojos.WeblogEntryComment;
+import org.apache.roller.weblogger.pojos.WeblogTemplate;
+import org.apache.roller.weblogger.util.cache.CacheManager;
+import org.apache.roller.weblogger.util.cache.InvalidationJournal;
+import org.apache.roller.weblogger.util.cache.InvalidationJournal.Invalidation;
+import org.apache.roller.weblogger.util.cache.JournalingCacheHandler;
+
+
+/**
+ * Replays invalidations made by other nodes of a cluster.
+ *
+ * The objects involved, and their weblogs, are first evicted from the shared
+ * JPA cache so that this node sees the changes made by the other node,
+ * including the new last modified time of the weblog which the rendering
+ * caches check entries against.  The objects are then reloaded and passed
+ * to the CacheManager to be invalidated as if the change had been made here,
+ * changed runtime configuration properties updating WebloggerRuntimeConfig.
+ * Objects which no longer exist invalidate their weblog instead.
+ */
+class JPAInvalidationReplayer implements JournalingCacheHandler.Replayer {
+
+    private static final Log log = LogFactory.getLog(JPAInvalidationReplayer.class);
+
+    private final JPAPersistenceStrategy strategy;
+    private final Weblogger roller;
+
+
+    JPAInvalidationReplayer(JPAPersistenceStrategy strategy, Weblogger roller) {
+        this.strategy = strategy;
+        this.roller = roller;
+    }
+
+
+    @Override
+    public void replay(List<Invalidation> invalidations) throws WebloggerException {
+
+        WeblogManager weblogMgr = roller.getWeblogManager();
+        try {
+            Set<String> handles = new LinkedHashSet<>();
+            for (Invalidation inv : invalidations) {
+                Class<?> clazz = getObjectClass(inv.getType());
+                if (clazz != null) {
+                    strategy.evict(clazz, inv.getObjectId());
+                }
+                if (inv.getHandle() != null) {
+                    handles.add(inv.getHandle());
+                }
+            }
+            for (String handle : handles) {
+                Weblog weblog = weblogMgr.getWeblogByHandle(handle, null);
+                if (weblog != null) {
+                    strategy.evict(Weblog.class, weblog.getId());
+                }
+            }
+
+            // drop any copies held by this thread's session too
+            roller.release();
+
+            for (Invalidation inv : invalidations) {
+                if (!invalidate(inv) && inv.getHandle() != null) {
+                    Weblog weblog = weblogMgr.getWeblogByHandle(inv.getHandle(), null);
+                    if (weblog != null) {
+                        CacheManager.invalidate(weblog);
+                    }
+                }
+            }
+        } finally {
+            roller.release();
+        }
+    }
+
+
+    /**
+     * Load the object of the given invalidation and invalidate it.
+     *
+     * @return false if the object no longer exists
+     */
+    private boolean invalidate(Invalidation inv) throws WebloggerException {
+
+        String id = inv.getObjectId();
+        WeblogEntryManager entryMgr = roller.getWeblogEntryManager();
+        BookmarkManager bookmarkMgr = roller.getBookmarkManager();
+
+        switch (inv.getType()) {
+            case InvalidationJournal.TYPE_ENTRY:
+                WeblogEntry entry = entryMgr.getWeblogEntry(id);
+                if (entry != null) {
+                    CacheManager.invalidate(entry);
+                    return true;
+                }
+                break;
+            case InvalidationJournal.TYPE_WEBLOG:
+                Weblog weblog = roller.getWeblogManager().getWeblog(id);
+                if (weblog != null) {
+                    CacheManager.invalidate(weblog);
+                    return true;
+                }
+                break;
+            case InvalidationJournal.TYPE_BOOKMARK:
+                WeblogBookmark bookmark = bookmarkMgr.getBookmark(id);
+                if (bookmark != null) {
+                    CacheManager.invalidate(bookmark);
+                    return true;
+                }
+                break;
+            case InvalidationJournal.TYPE_FOLDER:
+                WeblogBookmarkFolder folder = bookmarkMgr.getFolder(id);
+                if (folder != null) {
+                    CacheManager.invalidate(folder);
+                    return true;
+                }
+                break;
+            case InvalidationJournal.TYPE_COMMENT:
+                WeblogEntryComment comment = entryMgr.getComment(id);
+                if (comment != null) {
+                    CacheManager.invalidate(comment);
+                    return true;
+                }
+                break;
+            case InvalidationJournal.TYPE_USER:
+                User user = roller.getUserManager().getUser(id);
+                if (user != null) {
+                    CacheManager.invalidate(user);
+                    return true;
+                }
+                break;
+            case InvalidationJournal.TYPE_CATEGORY:
+                WeblogCategory category = entryMgr.getWeblogCategory(id);
+                if (category != null) {
+                    CacheManager.invalidate(category);
+                    return true;
+                }
+                break;
+            case InvalidationJournal.TYPE_TEMPLATE:
+                WeblogTemplate template = roller.getWeblogManager().getTemplate(id);
+                if (template != null) {
+                    CacheManager.invalidate(template);
+                    return true;
+                }
+                break;
+            case InvalidationJournal.TYPE_PROPERTY:
+                RuntimeConfigProperty property = roller.getPropertiesManager().getProperty(id);
+                if (property != null) {
+                    WebloggerRuntimeConfig.updateProperties(List.of(property));
+                    CacheManager.invalidate(property);
+                    return true;
+                }
+                break;
+            default:
+                log.warn("Unknown invalidation type " + inv.getType());
+        }
+        return false;
+    }
+
+
+    private static Class<?> getObjectClass(String type) {
+        switch (type) {
+            case InvalidationJournal.TYPE_ENTRY:
+                return WeblogEntry.class;
+            case InvalidationJournal.TYPE_WEBLOG:
+                return Weblog.class;
+            case InvalidationJournal.TYPE_BOOKMARK:
+                return WeblogBookmark.class;
+            case InvalidationJournal.TYPE_FOLDER:
+                return WeblogBookmarkFolder.class;
+            case InvalidationJournal.TYPE_COMMENT:
+                return WeblogEntryComment.class;
+            case InvalidationJournal.TYPE_USER:
+                return User.class;
+            case InvalidationJournal.TYPE_CATEGORY:
+                return WeblogCategory.class;
+            case InvalidationJournal.TYPE_TEMPLATE:
+                return WeblogTemplate.class;
+            case InvalidationJournal.TYPE_PROPERTY:
+                return RuntimeConfigProperty.class;
+            default:
+                return null;
+        }
+    }
+
+}
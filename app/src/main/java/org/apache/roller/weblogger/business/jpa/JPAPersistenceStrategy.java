@@ -18,11 +18,17 @@
 
 package org.apache.roller.weblogger.business.jpa;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.roller.util.RollerConstants;
 import org.apache.roller.weblogger.WebloggerException;
 import org.apache.roller.weblogger.config.WebloggerConfig;
 import jakarta.persistence.EntityManagerFactory;
@@ -52,11 +58,42 @@ public class JPAPersistenceStrategy {
      */
     private final ThreadLocal<EntityManager> threadLocalEntityManager = new ThreadLocal<>();
     
+    /**
+     * Actions waiting for the changes of the thread's session to be committed.
+     */
+    private final ThreadLocal<List<Runnable>> threadLocalAfterCommit = new ThreadLocal<>();
+    
     /**
      * The EntityManagerFactory for this Roller instance.
      */
     private EntityManagerFactory emf = null;
     
+    /**
+     * The EntityManagerFactory of the read replica, if there is one.
+     */
+    private EntityManagerFactory replicaEmf = null;
+    
+    /**
+     * The thread local EntityManager reading from the replica, for threads
+     * which were allowed to.
+     */
+    private final ThreadLocal<EntityManager> threadLocalReplicaEntityManager = new ThreadLocal<>();
+    private final ThreadLocal<Boolean> threadLocalReadReplica = new ThreadLocal<>();
+    
+    /**
+     * How long after a change the replica may not have it yet, so reads
+     * stay on the primary database, and when the last change was seen.
+     */
+    private long replicaLagTolerance = 0;
+    private volatile long lastChangeTime = 0;
+    
+    /**
+     * Names of the queries registered for dynamic query strings, by string.
+     */
+    private final Map<String, String> queryShapes = new ConcurrentHashMap<>();
+    private final AtomicInteger queryShapeCount = new AtomicInteger();
+    private final int maxQueryShapes = WebloggerConfig.getIntProperty("jpa.queryShapes.max", 500);
+    
             
     /**
      * Construct by finding JPA EntityManagerFactory.
@@ -91,24 +128,98 @@ public class JPAPersistenceStrategy {
                 }
             }
 
+            Properties replicaEmfProps = null;
+            if (dbProvider.hasReplica()) {
+                replicaEmfProps = new Properties();
+                replicaEmfProps.putAll(emfProps);
+            }
+
             if (dbProvider.getType() == DatabaseProvider.ConfigurationType.JNDI_NAME) {
                 emfProps.setProperty("jakarta.persistence.nonJtaDataSource", dbProvider.getFullJndiName());
+                if (replicaEmfProps != null) {
+                    replicaEmfProps.setProperty("jakarta.persistence.nonJtaDataSource", dbProvider.getFullReplicaJndiName());
+                }
             } else {
                 emfProps.setProperty("jakarta.persistence.jdbc.driver", dbProvider.getJdbcDriverClass());
                 emfProps.setProperty("jakarta.persistence.jdbc.url", dbProvider.getJdbcConnectionURL());
                 emfProps.setProperty("jakarta.persistence.jdbc.user", dbProvider.getJdbcUsername());
                 emfProps.setProperty("jakarta.persistence.jdbc.password", dbProvider.getJdbcPassword());
+                if (replicaEmfProps != null) {
+                    replicaEmfProps.setProperty("jakarta.persistence.jdbc.driver", dbProvider.getJdbcDriverClass());
+                    replicaEmfProps.setProperty("jakarta.persistence.jdbc.url", dbProvider.getReplicaJdbcConnectionURL());
+                    replicaEmfProps.setProperty("jakarta.persistence.jdbc.user", dbProvider.getReplicaJdbcUsername());
+                    replicaEmfProps.setProperty("jakarta.persistence.jdbc.password", dbProvider.getReplicaJdbcPassword());
+                }
             }
 
-            try {
-                this.emf = Persistence.createEntityManagerFactory("RollerPU", emfProps);
+            createEntityManagerFactories(emfProps, replicaEmfProps,
+                    WebloggerConfig.getIntProperty("database.replica.lagTolerance", 10));
+        }
+    }
+    
+    /**
+     * Construct with the given EntityManagerFactory properties.
+     * @param emfProps properties of the primary database
+     * @param replicaEmfProps properties of the read replica, or null for none
+     * @param lagTolerance seconds after a change during which reads stay
+     * on the primary database
+     * @throws org.apache.roller.weblogger.WebloggerException on any error
+     */
+    JPAPersistenceStrategy(Properties emfProps, Properties replicaEmfProps, int lagTolerance)
+            throws WebloggerException {
+        createEntityManagerFactories(emfProps, replicaEmfProps, lagTolerance);
+    }
+    
+    private void createEntityManagerFactories(Properties emfProps, Properties replicaEmfProps,
+            int lagTolerance) throws WebloggerException {
+        try {
+            this.emf = Persistence.createEntityManagerFactory("RollerPU", emfProps);
 
+        } catch (Exception pe) {
+            logger.error("ERROR: creating entity manager", pe);
+            throw new WebloggerException(pe);
+        }
+        
+        if (replicaEmfProps != null) {
+            // changes are made through the primary, so a shared cache of
+            // the replica would never learn of them
+            Properties props = new Properties();
+            props.putAll(replicaEmfProps);
+            props.setProperty("eclipselink.cache.shared.default", "false");
+            try {
+                this.replicaEmf = Persistence.createEntityManagerFactory("RollerPU", props);
+                this.replicaLagTolerance = lagTolerance * (long) RollerConstants.SEC_IN_MS;
+                logger.info("Reading from replica when allowed, except for "
+                        + lagTolerance + " seconds after changes");
             } catch (Exception pe) {
-                logger.error("ERROR: creating entity manager", pe);
+                logger.error("ERROR: creating replica entity manager", pe);
                 throw new WebloggerException(pe);
             }
         }
     }
+    
+    /**
+     * Let the current thread read from the replica, if there is one, until
+     * released.  Only for threads which won't change anything, as objects
+     * read from the replica can't be saved.  Changes are still made to the
+     * primary database, as are reads within the lag tolerance of a change.
+     */
+    public void useReadReplica() {
+        if (replicaEmf != null
+                && System.currentTimeMillis() - lastChangeTime >= replicaLagTolerance) {
+            threadLocalReadReplica.set(Boolean.TRUE);
+        }
+    }
+    
+    /**
+     * Note a change to the database, made here or seen made by another node,
+     * so reads stay on the primary database while the replica may lag.
+     */
+    private void changed() {
+        if (replicaEmf != null) {
+            lastChangeTime = System.currentTimeMillis();
+        }
+    }
     /**
      * Refresh changes to the current object.
      * 
@@ -133,9 +244,35 @@ public class JPAPersistenceStrategy {
         try {
             EntityManager em = getEntityManager(true);
             em.getTransaction().commit();
+            changed();
         } catch (PersistenceException pe) {
             throw new WebloggerException(pe);
         }
+        
+        List<Runnable> actions = threadLocalAfterCommit.get();
+        threadLocalAfterCommit.remove();
+        if (actions != null) {
+            for (Runnable action : actions) {
+                try {
+                    action.run();
+                } catch (RuntimeException e) {
+                    logger.error("error running action after commit", e);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Run an action once the changes of the current session are committed
+     * by flush(), or never if the session is released without committing.
+     */
+    public void afterCommit(Runnable action) {
+        List<Runnable> actions = threadLocalAfterCommit.get();
+        if (actions == null) {
+            actions = new ArrayList<>();
+            threadLocalAfterCommit.set(actions);
+        }
+        actions.add(action);
     }
     
     /**
@@ -159,9 +296,27 @@ public class JPAPersistenceStrategy {
                 }
             }
             threadLocalEntityManager.remove();
+            threadLocalAfterCommit.remove();
+            releaseReplica();
         }
     }
     
+    /**
+     * Release the replica session of the current thread, if any.
+     */
+    private void releaseReplica() {
+        EntityManager em = threadLocalReplicaEntityManager.get();
+        if (em != null) {
+            try {
+                em.close();
+            } catch (Exception e) {
+                logger.debug("error during closing replica EntityManager", e);
+            }
+            threadLocalReplicaEntityManager.remove();
+        }
+        threadLocalReadReplica.remove();
+    }
+    
     /**
      * Store object using an existing transaction.
      * @param obj the object to persist
@@ -223,6 +378,17 @@ public class JPAPersistenceStrategy {
         return em.find(clazz, id);
     }
     
+    /**
+     * Evict an object from the shared cache, so that the next time it is
+     * loaded by any session its state comes fresh from the database.
+     * @param clazz the class of object to evict
+     * @param id the id of the object to evict
+     */
+    public void evict(Class<?> clazz, String id) {
+        emf.getCache().evict(clazz, id);
+        changed();
+    }
+    
     /**
      * Return true if a transaction is active on the current EntityManager.
      * @param em the persistence manager
@@ -240,6 +406,14 @@ public class JPAPersistenceStrategy {
      * @return the EntityManager
      */
     public EntityManager getEntityManager(boolean isTransactionRequired) {
+        if (threadLocalReadReplica.get() != null) {
+            if (!isTransactionRequired) {
+                return getThreadLocalReplicaEntityManager();
+            }
+            // writing after all, so make the rest of the session consistent
+            logger.debug("Change made while reading from replica, reading from primary now");
+            threadLocalReadReplica.remove();
+        }
         EntityManager em = getThreadLocalEntityManager();
         if (isTransactionRequired && !em.getTransaction().isActive()) {
             em.getTransaction().begin();
@@ -259,6 +433,18 @@ public class JPAPersistenceStrategy {
         return em;
     }
     
+    /**
+     * Get the ThreadLocal EntityManager reading from the replica
+     */
+    private EntityManager getThreadLocalReplicaEntityManager() {
+        EntityManager em = threadLocalReplicaEntityManager.get();
+        if (em == null) {
+            em = replicaEmf.createEntityManager();
+            threadLocalReplicaEntityManager.set(em);
+        }
+        return em;
+    }
+    
     /**
      * Get named query that won't commit changes to DB first (FlushModeType.COMMIT)
      * @param queryName the name of the query
@@ -337,6 +523,71 @@ public class JPAPersistenceStrategy {
         return q;
     }
 
+    /**
+     * Create query from queryString that won't commit changes to DB first
+     * (FlushModeType.COMMIT), reusing the query parsed and prepared for the
+     * same string before.  For queries built from whichever criteria are
+     * set, with all values passed as parameters, so that there are only as
+     * many distinct strings as combinations of criteria.
+     * @param queryString the query
+     * @throws org.apache.roller.weblogger.WebloggerException on any error
+     */
+    public Query getTemplateQuery(String queryString)
+            throws WebloggerException {
+        String name = getQueryShapeName(queryString);
+        if (name == null) {
+            return getDynamicQuery(queryString);
+        }
+        return getNamedQuery(name);
+    }
+
+    /**
+     * Create TypedQuery from queryString that won't commit changes to DB
+     * first (FlushModeType.COMMIT), reusing the query parsed and prepared
+     * for the same string before.
+     * @see #getTemplateQuery(String)
+     * @param queryString the query
+     * @param resultClass return type of query
+     * @throws org.apache.roller.weblogger.WebloggerException on any error
+     */
+    public <T> TypedQuery<T> getTemplateQuery(String queryString, Class<T> resultClass)
+            throws WebloggerException {
+        String name = getQueryShapeName(queryString);
+        if (name == null) {
+            return getDynamicQuery(queryString, resultClass);
+        }
+        return getNamedQuery(name, resultClass);
+    }
+
+    /**
+     * Get the name of the query registered for a query string, registering
+     * it if it's new, or null once there are as many as allowed.
+     */
+    private String getQueryShapeName(String queryString) {
+        String name = queryShapes.get(queryString);
+        if (name == null && queryShapes.size() < maxQueryShapes) {
+            name = queryShapes.computeIfAbsent(queryString, qs -> {
+                String shapeName = "Roller.queryShape" + queryShapeCount.incrementAndGet();
+                EntityManager em = emf.createEntityManager();
+                try {
+                    emf.addNamedQuery(shapeName, em.createQuery(qs));
+                } finally {
+                    em.close();
+                }
+                if (replicaEmf != null) {
+                    em = replicaEmf.createEntityManager();
+                    try {
+                        replicaEmf.addNamedQuery(shapeName, em.createQuery(qs));
+                    } finally {
+                        em.close();
+                    }
+                }
+                return shapeName;
+            });
+        }
+        return name;
+    }
+
     /**
      * Get named update query with default flush mode (usually FlushModeType.AUTO)
      * FlushModeType.AUTO commits changes to DB prior to running statement
@@ -353,5 +604,8 @@ public class JPAPersistenceStrategy {
         if (emf != null) {
             emf.close();
         }
+        if (replicaEmf != null) {
+            replicaEmf.close();
+        }
     }
 }
@@ -18,6 +18,7 @@
  */
 package org.apache.roller.weblogger.business.jpa;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -34,6 +35,7 @@ import org.apache.roller.weblogger.config.runtime.DisplayGroup;
 import org.apache.roller.weblogger.config.runtime.PropertyDef;
 import org.apache.roller.weblogger.config.runtime.RuntimeConfigDefs;
 import org.apache.roller.weblogger.pojos.RuntimeConfigProperty;
+import org.apache.roller.weblogger.util.cache.CacheManager;
 
 
 /*
@@ -76,6 +78,7 @@ public class JPAPropertiesManagerImpl implements PropertiesManager {
             // if any default props missing from the properties DB table,
             // initialize them and save them to that table.
             initializeMissingProps(props);
+            WebloggerRuntimeConfig.setProperties(props.values());
             this.saveProperties(props);
 
         } catch (Exception e) {
@@ -130,6 +133,7 @@ public class JPAPropertiesManagerImpl implements PropertiesManager {
     public void saveProperty(RuntimeConfigProperty property) 
             throws WebloggerException {
         this.strategy.store(property);
+        propertiesChanged(List.of(property));
     }
 
 
@@ -143,6 +147,22 @@ public class JPAPropertiesManagerImpl implements PropertiesManager {
         for (Object prop : properties.values()) {
             this.strategy.store(prop);
         }
+        propertiesChanged(properties.values());
+    }
+    
+    
+    /**
+     * Once saved, update the values WebloggerRuntimeConfig hands out, and let
+     * other nodes of a cluster know about those which changed.  Values which
+     * fail to commit are never handed out.
+     */
+    private void propertiesChanged(Collection<RuntimeConfigProperty> properties) {
+        List<RuntimeConfigProperty> saved = List.copyOf(properties);
+        strategy.afterCommit(() -> {
+            for (RuntimeConfigProperty prop : WebloggerRuntimeConfig.updateProperties(saved)) {
+                CacheManager.invalidate(prop);
+            }
+        });
     }
     
 
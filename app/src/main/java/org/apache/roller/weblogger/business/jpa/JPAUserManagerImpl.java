@@ -26,9 +26,11 @@ import org.apache.roller.weblogger.WebloggerException;
 import org.apache.roller.weblogger.business.UserManager;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -47,6 +49,9 @@ import org.apache.roller.weblogger.pojos.WeblogPermission;
 public class JPAUserManagerImpl implements UserManager {
     private static final Log log = LogFactory.getLog(JPAUserManagerImpl.class);
 
+    // most user names to put in one IN list, well inside every database's limit
+    private static final int MAX_IN_LIST = 500;
+
     private final JPAPersistenceStrategy strategy;
     
     // cached mapping of userNames -> userIds
@@ -210,6 +215,43 @@ public class JPAUserManagerImpl implements UserManager {
         return user;
     }
 
+    @Override
+    public List<User> getUsersByUserNames(Collection<String> userNames)
+            throws WebloggerException {
+
+        if (userNames == null) {
+            throw new WebloggerException("userNames cannot be null");
+        }
+
+        // only look up those not mapped yet, the mapped ones are one find away
+        List<User> users = new ArrayList<>();
+        List<String> unmapped = new ArrayList<>();
+        for (String userName : new LinkedHashSet<>(userNames)) {
+            String id = this.userNameToIdMap.get(userName);
+            User user = (id != null) ? this.getUser(id) : null;
+            if (user != null) {
+                if (Boolean.TRUE.equals(user.getEnabled())) {
+                    users.add(user);
+                }
+            } else if (userName != null) {
+                unmapped.add(userName);
+            }
+        }
+
+        for (int i = 0; i < unmapped.size(); i += MAX_IN_LIST) {
+            TypedQuery<User> query = strategy.getNamedQuery(
+                    "User.getByUserNames&Enabled", User.class);
+            query.setParameter(1, unmapped.subList(i, Math.min(i + MAX_IN_LIST, unmapped.size())));
+            query.setParameter(2, Boolean.TRUE);
+            for (User user : query.getResultList()) {
+                this.userNameToIdMap.put(user.getUserName(), user.getId());
+                users.add(user);
+            }
+        }
+
+        return users;
+    }
+
     @Override
     public List<User> getUsers(Boolean enabled, Date startDate, Date endDate,
             int offset, int length)
@@ -19,6 +19,7 @@
 package org.apache.roller.weblogger.business.jpa;
 
 import java.util.*;
+import java.util.function.Function;
 import java.text.SimpleDateFormat;
 import java.sql.Timestamp;
 import jakarta.persistence.NoResultException;
@@ -35,6 +36,7 @@ import org.apache.roller.weblogger.business.Weblogger;
 import org.apache.roller.weblogger.pojos.CommentSearchCriteria;
 import org.apache.roller.weblogger.pojos.WeblogEntryComment;
 import org.apache.roller.weblogger.pojos.WeblogEntryComment.ApprovalStatus;
+import org.apache.roller.weblogger.pojos.WeblogEntryDayCount;
 import org.apache.roller.weblogger.pojos.WeblogEntrySearchCriteria;
 import org.apache.roller.weblogger.pojos.WeblogHitCount;
 import org.apache.roller.weblogger.pojos.StatCount;
@@ -78,6 +80,17 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
     private static final Comparator<StatCount> STAT_COUNT_COUNT_REVERSE_COMPARATOR =
             Collections.reverseOrder(StatCountCountComparator.getInstance());
     
+    // most ids to put in one IN list, well inside every database's limit
+    private static final int MAX_IN_LIST = 500;
+    
+    // EclipseLink batch fetching hints, ignored by other JPA providers
+    private static final String BATCH_HINT = "eclipselink.batch";
+    private static final String BATCH_TYPE_HINT = "eclipselink.batch.type";
+    
+    // associations of the entries used by rendering
+    private static final List<String> DISPLAY_ASSOCIATIONS =
+            List.of("e.website", "e.category", "e.tags", "e.entryAttributes");
+    
     
     @com.google.inject.Inject
     protected JPAWeblogEntryManagerImpl(Weblogger roller, JPAPersistenceStrategy strategy) {
@@ -159,6 +172,11 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
     public void saveComment(WeblogEntryComment comment) throws WebloggerException {
         this.strategy.store(comment);
         
+        int change = (isApproved(comment.getStatus()) ? 1 : 0)
+                - (isApproved(comment.getSavedStatus()) ? 1 : 0);
+        updateCommentCounts(comment.getWeblogEntry().getWebsite(), comment.getWeblogEntry(), change);
+        comment.markStatusSaved();
+        
         // update weblog last modified date.  date updated by saveWebsite()
         roller.getWeblogManager().saveWeblog(comment.getWeblogEntry().getWebsite());
     }
@@ -170,16 +188,68 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
     public void removeComment(WeblogEntryComment comment) throws WebloggerException {
         this.strategy.remove(comment);
         
+        if (isApproved(comment.getSavedStatus())) {
+            updateCommentCounts(comment.getWeblogEntry().getWebsite(), comment.getWeblogEntry(), -1);
+        }
+        
         // update weblog last modified date.  date updated by saveWebsite()
         roller.getWeblogManager().saveWeblog(comment.getWeblogEntry().getWebsite());
     }
     
+    private static boolean isApproved(ApprovalStatus status) {
+        return status == ApprovalStatus.APPROVED;
+    }
+    
+    /**
+     * Change the approved comment counts of a weblog and one of its entries,
+     * unless not counted yet.  Counts are changed in the database rather
+     * than in the objects, so concurrent changes add up.
+     */
+    private void updateCommentCounts(Weblog weblog, WeblogEntry entry, int change)
+    throws WebloggerException {
+        if (change == 0) {
+            return;
+        }
+        if (entry != null) {
+            Query q = strategy.getNamedUpdate("WeblogEntry.updateApprovedCommentCountIncrementById");
+            q.setParameter(1, change);
+            q.setParameter(2, entry.getId());
+            q.executeUpdate();
+        }
+        Query q = strategy.getNamedUpdate("Weblog.updateApprovedCommentCountIncrementById");
+        q.setParameter(1, (long) change);
+        q.setParameter(2, weblog.getId());
+        q.executeUpdate();
+    }
+    
     /**
      * @inheritDoc
      */
     // TODO: perhaps the createAnchor() and queuePings() items should go outside this method?
     @Override
     public void saveWeblogEntry(WeblogEntry entry) throws WebloggerException {
+        TagAggregateBatch tagCounts = new TagAggregateBatch(strategy);
+        saveWeblogEntry(entry, tagCounts);
+        tagCounts.apply();
+    }
+    
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void saveWeblogEntries(List<WeblogEntry> entries) throws WebloggerException {
+        TagAggregateBatch tagCounts = new TagAggregateBatch(strategy);
+        for (WeblogEntry entry : entries) {
+            saveWeblogEntry(entry, tagCounts);
+        }
+        tagCounts.apply();
+    }
+    
+    /**
+     * Save an entry, collecting the changes to tag counts it makes.
+     */
+    private void saveWeblogEntry(WeblogEntry entry, TagAggregateBatch tagCounts)
+    throws WebloggerException {
 
         if (entry.getCategory() == null) {
             // Entry is invalid without category, so use weblog client cat
@@ -206,25 +276,25 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
             if (entry.getRefreshAggregates()) {
                 // blog entry wasn't published before, so all tags need to be incremented
                 for (WeblogEntryTag tag : entry.getTags()) {
-                    updateTagCount(tag.getName(), entry.getWebsite(), 1);
+                    tagCounts.add(entry.getWebsite(), tag.getName(), 1);
                 }
             } else {
                 // only new tags need to be incremented
                 for (WeblogEntryTag tag : entry.getAddedTags()) {
-                    updateTagCount(tag.getName(), entry.getWebsite(), 1);
+                    tagCounts.add(entry.getWebsite(), tag.getName(), 1);
                 }
             }
         } else {
             if (entry.getRefreshAggregates()) {
                 // blog entry no longer published so need to reduce aggregate count
                 for (WeblogEntryTag tag : entry.getTags()) {
-                    updateTagCount(tag.getName(), entry.getWebsite(), -1);
+                    tagCounts.add(entry.getWebsite(), tag.getName(), -1);
                 }
             }
         }
 
         for (WeblogEntryTag tag : entry.getRemovedTags()) {
-            removeWeblogEntryTag(tag);
+            removeWeblogEntryTag(tag, tagCounts);
         }
 
         // if the entry was published to future, set status as SCHEDULED
@@ -263,15 +333,22 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
 
         // remove comments
         List<WeblogEntryComment> comments = getComments(csc);
+        int approved = 0;
         for (WeblogEntryComment comment : comments) {
             this.strategy.remove(comment);
+            if (isApproved(comment.getSavedStatus())) {
+                approved++;
+            }
         }
+        updateCommentCounts(weblog, null, -approved);
         
         // remove tag & tag aggregates
         if (entry.getTags() != null) {
+            TagAggregateBatch tagCounts = new TagAggregateBatch(strategy);
             for (WeblogEntryTag tag : entry.getTags()) {
-                removeWeblogEntryTag(tag);
+                removeWeblogEntryTag(tag, tagCounts);
             }
+            tagCounts.apply();
         }
         
         // remove attributes
@@ -349,7 +426,7 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
         } else {
             whereClause.append(" ORDER BY e.pubTime DESC");
         }
-        query = strategy.getDynamicQuery(queryString + whereClause.toString(), WeblogEntry.class);
+        query = strategy.getTemplateQuery(queryString + whereClause.toString(), WeblogEntry.class);
         for (int i=0; i<params.size(); i++) {
             query.setParameter(i+1, params.get(i));
         }
@@ -379,6 +456,49 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
      */
     @Override
     public List<WeblogEntry> getWeblogEntries(WeblogEntrySearchCriteria wesc) throws WebloggerException {
+        TypedQuery<WeblogEntry> query = getWeblogEntriesQuery(wesc, "e", WeblogEntry.class);
+        boolean display = wesc.getFetchPlan() == WeblogEntrySearchCriteria.FetchPlan.DISPLAY;
+        if (display) {
+            setDisplayHints(query);
+        }
+        List<WeblogEntry> entries = query.getResultList();
+        if (display) {
+            loadCreators(entries);
+        }
+        return entries;
+    }
+
+    /**
+     * Load what rendering touches of all entries found by the query with
+     * one query per association, by the ids of the entries, instead of one
+     * per entry when each is first rendered.
+     */
+    private static void setDisplayHints(TypedQuery<WeblogEntry> query) {
+        query.setHint(BATCH_TYPE_HINT, "IN");
+        for (String association : DISPLAY_ASSOCIATIONS) {
+            query.setHint(BATCH_HINT, association);
+        }
+    }
+
+    /**
+     * Load the creators of the given entries all at once.
+     */
+    private void loadCreators(List<WeblogEntry> entries) throws WebloggerException {
+        if (!entries.isEmpty()) {
+            Set<String> creators = new HashSet<>();
+            for (WeblogEntry entry : entries) {
+                creators.add(entry.getCreatorUserName());
+            }
+            roller.getUserManager().getUsersByUserNames(creators);
+        }
+    }
+
+    /**
+     * Build the query of weblog entries matching the given criteria.
+     * @param selection What to select of each entry e
+     */
+    private <T> TypedQuery<T> getWeblogEntriesQuery(WeblogEntrySearchCriteria wesc,
+            String selection, Class<T> resultClass) throws WebloggerException {
 
         WeblogCategory cat = null;
         if (StringUtils.isNotEmpty(wesc.getCatName()) && wesc.getWeblog() != null) {
@@ -390,9 +510,9 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
         StringBuilder queryString = new StringBuilder();
         
         if (wesc.getTags() == null || wesc.getTags().isEmpty()) {
-            queryString.append("SELECT e FROM WeblogEntry e WHERE ");
+            queryString.append("SELECT ").append(selection).append(" FROM WeblogEntry e WHERE ");
         } else {
-            queryString.append("SELECT e FROM WeblogEntry e JOIN e.tags t WHERE ");
+            queryString.append("SELECT ").append(selection).append(" FROM WeblogEntry e JOIN e.tags t WHERE ");
             queryString.append("(");
             for (int i = 0; i < wesc.getTags().size(); i++) {
                 if (i != 0) {
@@ -452,26 +572,37 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
             queryString.append(") ");
         }
 
+        String sortField;
         if (wesc.getSortBy() != null && wesc.getSortBy().equals(WeblogEntrySearchCriteria.SortBy.UPDATE_TIME)) {
-            queryString.append(" ORDER BY e.updateTime ");
+            sortField = "e.updateTime";
         } else {
-            queryString.append(" ORDER BY e.pubTime ");
+            sortField = "e.pubTime";
         }
-        
+        String sortOrder;
         if (wesc.getSortOrder() != null && wesc.getSortOrder().equals(WeblogEntrySearchCriteria.SortOrder.ASCENDING)) {
-            queryString.append("ASC ");
+            sortOrder = "ASC";
         } else {
-            queryString.append("DESC ");
+            sortOrder = "DESC";
         }
+
+        // seek past the given entry instead of skipping an offset, the id
+        // ordering entries of the same time
+        boolean seek = wesc.getSeekTime() != null && wesc.getSeekId() != null;
+        if (seek) {
+            queryString.append(" AND ").append(getSeekCondition(params, sortField, "e.id",
+                    "ASC".equals(sortOrder), wesc.getSeekTime(), wesc.getSeekId()));
+        }
+
+        queryString.append(" ORDER BY ").append(sortField).append(' ').append(sortOrder);
+        queryString.append(", e.id ").append(sortOrder);
         
-        
-        TypedQuery<WeblogEntry> query = strategy.getDynamicQuery(queryString.toString(), WeblogEntry.class);
+        TypedQuery<T> query = strategy.getTemplateQuery(queryString.toString(), resultClass);
         for (int i=0; i<params.size(); i++) {
             query.setParameter(i+1, params.get(i));
         }
         
-        setFirstMax( query, wesc.getOffset(), wesc.getMaxResults() );
-        return query.getResultList();
+        setFirstMax( query, seek ? 0 : wesc.getOffset(), wesc.getMaxResults() );
+        return query;
     }
     
     /**
@@ -509,9 +640,10 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
         }
     }
     
-    private void removeWeblogEntryTag(WeblogEntryTag tag) throws WebloggerException {
+    private void removeWeblogEntryTag(WeblogEntryTag tag, TagAggregateBatch tagCounts)
+    throws WebloggerException {
         if (tag.getWeblogEntry().isPublished()) {
-            updateTagCount(tag.getName(), tag.getWeblogEntry().getWebsite(), -1);
+            tagCounts.add(tag.getWeblogEntry().getWebsite(), tag.getName(), -1);
         }
         this.strategy.remove(tag);
     }
@@ -623,6 +755,28 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
         return entryCount > 0;
     }
     
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public List<WeblogEntryComment> getComments(Collection<String> entryIds, ApprovalStatus status)
+    throws WebloggerException {
+        if (entryIds == null) {
+            throw new WebloggerException("entryIds cannot be null");
+        }
+        
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(entryIds));
+        List<WeblogEntryComment> comments = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += MAX_IN_LIST) {
+            TypedQuery<WeblogEntryComment> query = strategy.getNamedQuery(
+                    "WeblogEntryComment.getByEntryIds&Status", WeblogEntryComment.class);
+            query.setParameter(1, ids.subList(i, Math.min(i + MAX_IN_LIST, ids.size())));
+            query.setParameter(2, status);
+            comments.addAll(query.getResultList());
+        }
+        return comments;
+    }
+    
     /**
      * @inheritDoc
      */
@@ -665,17 +819,24 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
             appendConjuctionToWhereclause(whereClause, "c.status = ?").append(size);
         }
         
+        // seek past the given comment instead of skipping an offset
+        boolean seek = csc.getSeekTime() != null && csc.getSeekId() != null;
+        if (seek) {
+            appendConjuctionToWhereclause(whereClause, getSeekCondition(params, "c.postTime", "c.id",
+                    !csc.isReverseChrono(), csc.getSeekTime(), csc.getSeekId()));
+        }
+        
         if(whereClause.length() != 0) {
             queryString.append(" WHERE ").append(whereClause);
         }
         if (csc.isReverseChrono()) {
-            queryString.append(" ORDER BY c.postTime DESC");
+            queryString.append(" ORDER BY c.postTime DESC, c.id DESC");
         } else {
-            queryString.append(" ORDER BY c.postTime ASC");
+            queryString.append(" ORDER BY c.postTime ASC, c.id ASC");
         }
         
-        TypedQuery<WeblogEntryComment> query = strategy.getDynamicQuery(queryString.toString(), WeblogEntryComment.class);
-        setFirstMax( query, csc.getOffset(), csc.getMaxResults());
+        TypedQuery<WeblogEntryComment> query = strategy.getTemplateQuery(queryString.toString(), WeblogEntryComment.class);
+        setFirstMax( query, seek ? 0 : csc.getOffset(), csc.getMaxResults());
         for (int i=0; i<params.size(); i++) {
             query.setParameter(i+1, params.get(i));
         }
@@ -762,6 +923,43 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
     public WeblogEntry getWeblogEntry(String id) throws WebloggerException {
         return (WeblogEntry)strategy.load(WeblogEntry.class, id);
     }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public List<WeblogEntry> getWeblogEntriesByIds(Collection<String> ids)
+    throws WebloggerException {
+        if (ids == null) {
+            throw new WebloggerException("ids cannot be null");
+        }
+        
+        List<String> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<WeblogEntry> entries = new ArrayList<>(distinctIds.size());
+        for (int i = 0; i < distinctIds.size(); i += MAX_IN_LIST) {
+            TypedQuery<WeblogEntry> query = strategy.getNamedQuery(
+                    "WeblogEntry.getByIds", WeblogEntry.class);
+            query.setParameter(1, distinctIds.subList(i, Math.min(i + MAX_IN_LIST, distinctIds.size())));
+            setDisplayHints(query);
+            entries.addAll(query.getResultList());
+        }
+        loadCreators(entries);
+        return entries;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public List<String> getWeblogEntryIds(PubStatus status, String afterId, int length)
+    throws WebloggerException {
+        TypedQuery<String> query = strategy.getNamedQuery(
+                "WeblogEntry.getIdsByStatus&IdGreaterThanOrderByIdAsc", String.class);
+        query.setParameter(1, status);
+        query.setParameter(2, afterId != null ? afterId : "");
+        query.setMaxResults(length);
+        return query.getResultList();
+    }
     
     /**
      * @inheritDoc
@@ -811,6 +1009,38 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
         return map;
     }
 
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public Map<Date, WeblogEntryDayCount> getWeblogEntryDayCounts(WeblogEntrySearchCriteria wesc)
+            throws WebloggerException {
+        TreeMap<Date, WeblogEntryDayCount> map = new TreeMap<>(Collections.reverseOrder());
+
+        // days begin and end at different times in each weblog's time zone,
+        // which queries can't group by portably, so entries are grouped here
+        List<Object[]> rows = getWeblogEntriesQuery(wesc, "e.pubTime, e.anchor", Object[].class).getResultList();
+
+        Calendar cal = Calendar.getInstance();
+        SimpleDateFormat formatter = DateUtil.get8charDateFormat();
+        if (wesc.getWeblog() != null) {
+            TimeZone tz = wesc.getWeblog().getTimeZoneInstance();
+            cal.setTimeZone(tz);
+            formatter.setTimeZone(tz);
+        }
+
+        for (Object[] row : rows) {
+            Date pubTime = (Date) row[0];
+            if (pubTime == null) {
+                continue;
+            }
+            Date sDate = DateUtil.getNoonOfDay(pubTime, cal);
+            map.computeIfAbsent(sDate, k -> new WeblogEntryDayCount(k, formatter.format(k)))
+                    .add(pubTime, (String) row[1]);
+        }
+        return map;
+    }
+
     /**
      * @inheritDoc
      */
@@ -1029,7 +1259,7 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
         }
         queryString.append(" GROUP BY w.name, w.total ORDER BY ").append(sortBy);
 
-        query = strategy.getDynamicQuery(queryString.toString());
+        query = strategy.getTemplateQuery(queryString.toString());
         for (int i=0; i<params.size(); i++) {
             query.setParameter(i+1, params.get(i));
         }
@@ -1094,7 +1324,7 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
             queryString.append(" AND w.weblog IS NULL");
         }
         
-        TypedQuery<String> q = strategy.getDynamicQuery(queryString.toString(), String.class);
+        TypedQuery<String> q = strategy.getTemplateQuery(queryString.toString(), String.class);
         for (int j=0; j<params.size(); j++) {
             q.setParameter(j+1, params.get(j));
         }
@@ -1106,84 +1336,6 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
         return (results != null && results.size() == tags.size());
     }
 
-    /**
-     * This method maintains the tag aggregate table up-to-date with total counts. More
-     * specifically every time this method is called it will act upon exactly two rows
-     * in the database (tag,website,count), one with website matching the argument passed
-     * and one where website is null. If the count ever reaches zero, the row must be deleted.
-     *
-     * @param name      The tag name
-     * @param website   The website to used when updating the stats.
-     * @param amount    The amount to increment the tag count (it can be positive or negative).
-     * @throws WebloggerException
-     */
-    private void updateTagCount(String name, Weblog website, int amount)
-    throws WebloggerException {
-        if (amount == 0) {
-            throw new WebloggerException("Tag increment amount cannot be zero.");
-        }
-        
-        if (website == null) {
-            throw new WebloggerException("Website cannot be NULL.");
-        }
-        
-        // The reason why add order lastUsed desc is to make sure we keep picking the most recent
-        // one in the case where we have multiple rows (clustered environment)
-        // eventually that second entry will have a very low total (most likely 1) and
-        // won't matter
-        TypedQuery<WeblogEntryTagAggregate> weblogQuery = strategy.getNamedQuery(
-                "WeblogEntryTagAggregate.getByName&WebsiteOrderByLastUsedDesc", WeblogEntryTagAggregate.class);
-        weblogQuery.setParameter(1, name);
-        weblogQuery.setParameter(2, website);
-        WeblogEntryTagAggregate weblogTagData;
-        try {
-            weblogTagData = weblogQuery.getSingleResult();
-        } catch (NoResultException e) {
-            weblogTagData = null;
-        }
-
-        TypedQuery<WeblogEntryTagAggregate> siteQuery = strategy.getNamedQuery(
-                "WeblogEntryTagAggregate.getByName&WebsiteNullOrderByLastUsedDesc", WeblogEntryTagAggregate.class);
-        siteQuery.setParameter(1, name);
-        WeblogEntryTagAggregate siteTagData;
-        try {
-            siteTagData = siteQuery.getSingleResult();
-        } catch (NoResultException e) {
-            siteTagData = null;
-        }
-        Timestamp lastUsed = new Timestamp((new Date()).getTime());
-        
-        // create it only if we are going to need it.
-        if (weblogTagData == null && amount > 0) {
-            weblogTagData = new WeblogEntryTagAggregate(null, website, name, amount);
-            weblogTagData.setLastUsed(lastUsed);
-            strategy.store(weblogTagData);
-            
-        } else if (weblogTagData != null) {
-            weblogTagData.setTotal(weblogTagData.getTotal() + amount);
-            weblogTagData.setLastUsed(lastUsed);
-            strategy.store(weblogTagData);
-        }
-        
-        // create it only if we are going to need it.
-        if (siteTagData == null && amount > 0) {
-            siteTagData = new WeblogEntryTagAggregate(null, null, name, amount);
-            siteTagData.setLastUsed(lastUsed);
-            strategy.store(siteTagData);
-            
-        } else if (siteTagData != null) {
-            siteTagData.setTotal(siteTagData.getTotal() + amount);
-            siteTagData.setLastUsed(lastUsed);
-            strategy.store(siteTagData);
-        }
-        
-        // delete all bad counts
-        Query removeq = strategy.getNamedUpdate(
-                "WeblogEntryTagAggregate.removeByTotalLessEqual");
-        removeq.setParameter(1, 0);
-        removeq.executeUpdate();
-    }
-    
     /**
      * @inheritDoc
      */
@@ -1239,6 +1391,23 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
     }
 
 
+    /**
+     * Add the parameters of a seek past the given time and id, and return
+     * the condition selecting only what follows them in the given order.
+     */
+    private static String getSeekCondition(List<Object> params, String timeField, String idField,
+            boolean ascending, Date time, String id) {
+        String comparison = ascending ? " > ?" : " < ?";
+        params.add(new Timestamp(time.getTime()));
+        int timeParam = params.size();
+        params.add(id);
+        int idParam = params.size();
+        return "(" + timeField + comparison + timeParam
+                + " OR (" + timeField + " = ?" + timeParam
+                + " AND " + idField + comparison + idParam + "))";
+    }
+
+
     public static Date getStartDateNow(int sinceDays) {
         Calendar cal = Calendar.getInstance();
         cal.setTime(new Date());
@@ -1301,6 +1470,60 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
         }
     }
     
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public void incrementHitCounts(Map<String, Long> hitsByWeblogId)
+    throws WebloggerException {
+        
+        if (hitsByWeblogId.isEmpty()) {
+            return;
+        }
+        
+        // find which weblogs already have a hit count
+        List<String> weblogIds = new ArrayList<>(hitsByWeblogId.keySet());
+        Set<String> counted = new HashSet<>();
+        for (int i = 0; i < weblogIds.size(); i += MAX_IN_LIST) {
+            TypedQuery<String> q = strategy.getNamedQuery(
+                    "WeblogHitCount.getWeblogIdsByWeblogIds", String.class);
+            q.setParameter(1, weblogIds.subList(i, Math.min(i + MAX_IN_LIST, weblogIds.size())));
+            counted.addAll(q.getResultList());
+        }
+        
+        // group existing counts by increment, most weblogs only get a
+        // handful of hits between runs so there are few distinct amounts
+        Map<Integer, List<String>> weblogIdsByAmount = new TreeMap<>();
+        for (Map.Entry<String, Long> hits : hitsByWeblogId.entrySet()) {
+            int amount = (int) Math.min(Integer.MAX_VALUE, hits.getValue());
+            if (amount <= 0) {
+                continue;
+            }
+            if (counted.contains(hits.getKey())) {
+                weblogIdsByAmount.computeIfAbsent(amount, k -> new ArrayList<>()).add(hits.getKey());
+            } else {
+                // first hits for this weblog, so create its count
+                Weblog weblog = (Weblog) strategy.load(Weblog.class, hits.getKey());
+                if (weblog != null) {
+                    WeblogHitCount hitCount = new WeblogHitCount();
+                    hitCount.setWeblog(weblog);
+                    hitCount.setDailyHits(amount);
+                    strategy.store(hitCount);
+                }
+            }
+        }
+        
+        for (Map.Entry<Integer, List<String>> group : weblogIdsByAmount.entrySet()) {
+            List<String> ids = group.getValue();
+            for (int i = 0; i < ids.size(); i += MAX_IN_LIST) {
+                Query q = strategy.getNamedUpdate("WeblogHitCount.updateDailyHitCountIncrementByWeblogIds");
+                q.setParameter(1, group.getKey());
+                q.setParameter(2, ids.subList(i, Math.min(i + MAX_IN_LIST, ids.size())));
+                q.executeUpdate();
+            }
+        }
+    }
+    
     /**
      * @inheritDoc
      */
@@ -1351,6 +1574,65 @@ public class JPAWeblogEntryManagerImpl implements WeblogEntryManager {
         return q.getResultList().get(0);
     }
     
+    /**
+     * @inheritDoc
+     */
+    @Override
+    public int backfillCommentCounts(int max) throws WebloggerException {
+        
+        TypedQuery<String> q = strategy.getNamedQuery(
+                "WeblogEntry.getIdsByNullApprovedCommentCount", String.class);
+        q.setMaxResults(max);
+        List<String> entryIds = q.getResultList();
+        if (!entryIds.isEmpty()) {
+            backfillCommentCounts(entryIds,
+                    "WeblogEntryComment.getCountByEntryIds&StatusGroupByEntry",
+                    "WeblogEntry.updateApprovedCommentCountByIds", Long::intValue);
+        }
+        
+        q = strategy.getNamedQuery("Weblog.getIdsByNullApprovedCommentCount", String.class);
+        q.setMaxResults(max);
+        List<String> weblogIds = q.getResultList();
+        if (!weblogIds.isEmpty()) {
+            backfillCommentCounts(weblogIds,
+                    "WeblogEntryComment.getCountByWebsiteIds&StatusGroupByWebsite",
+                    "Weblog.updateApprovedCommentCountByIds", Long::longValue);
+        }
+        
+        return entryIds.size() + weblogIds.size();
+    }
+    
+    /**
+     * Count approved comments grouped by entry or weblog id, and store the
+     * counts with one update per distinct count.
+     */
+    private void backfillCommentCounts(List<String> ids, String countQuery,
+            String updateQuery, Function<Long, Object> countType)
+    throws WebloggerException {
+        
+        Query q = strategy.getNamedQuery(countQuery);
+        q.setParameter(1, ids);
+        q.setParameter(2, ApprovalStatus.APPROVED);
+        Map<String, Long> counts = new HashMap<>();
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = q.getResultList();
+        for (Object[] row : rows) {
+            counts.put((String) row[0], (Long) row[1]);
+        }
+        
+        // ids without approved comments are left out of the counts
+        Map<Long, List<String>> idsByCount = new TreeMap<>();
+        for (String id : ids) {
+            idsByCount.computeIfAbsent(counts.getOrDefault(id, 0L), k -> new ArrayList<>()).add(id);
+        }
+        for (Map.Entry<Long, List<String>> group : idsByCount.entrySet()) {
+            Query update = strategy.getNamedUpdate(updateQuery);
+            update.setParameter(1, countType.apply(group.getKey()));
+            update.setParameter(2, group.getValue());
+            update.executeUpdate();
+        }
+    }
+    
     /**
      * @inheritDoc
      */
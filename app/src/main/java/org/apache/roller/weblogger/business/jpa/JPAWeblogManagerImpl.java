@@ -60,7 +60,6 @@ import org.apache.roller.weblogger.pojos.WeblogBookmarkFolder;
 import org.apache.roller.weblogger.pojos.WeblogCategory;
 import org.apache.roller.weblogger.pojos.WeblogEntry;
 import org.apache.roller.weblogger.pojos.WeblogEntryTag;
-import org.apache.roller.weblogger.pojos.WeblogEntryTagAggregate;
 import org.apache.roller.weblogger.pojos.WeblogPermission;
 import org.apache.roller.weblogger.pojos.WeblogTemplate;
 
@@ -141,7 +140,11 @@ public class JPAWeblogManagerImpl implements WeblogManager {
         
         // remove site tag aggregates
         List<TagStat> tags = emgr.getTags(weblog, null, null, 0, -1);
-        updateTagAggregates(tags);
+        TagAggregateBatch tagCounts = new TagAggregateBatch(strategy);
+        for (TagStat stat : tags) {
+            tagCounts.add(weblog, stat.getName(), -stat.getCount());
+        }
+        tagCounts.apply();
         
         // delete all weblog tag aggregates
         Query removeAggs= strategy.getNamedUpdate(
@@ -149,12 +152,6 @@ public class JPAWeblogManagerImpl implements WeblogManager {
         removeAggs.setParameter(1, weblog);
         removeAggs.executeUpdate();
         
-        // delete all bad counts
-        Query removeCounts = strategy.getNamedUpdate(
-                "WeblogEntryTagAggregate.removeByTotalLessEqual");
-        removeCounts.setParameter(1, 0);
-        removeCounts.executeUpdate();
-        
         // Remove the weblog's ping queue entries
         TypedQuery<PingQueueEntry> q = strategy.getNamedQuery("PingQueueEntry.getByWebsite", PingQueueEntry.class);
         q.setParameter(1, weblog);
@@ -223,20 +220,6 @@ public class JPAWeblogManagerImpl implements WeblogManager {
         this.strategy.flush();        
     }
     
-    protected void updateTagAggregates(List<TagStat> tags) throws WebloggerException {
-        for (TagStat stat : tags) {
-            TypedQuery<WeblogEntryTagAggregate> query = strategy.getNamedQueryCommitFirst(
-                    "WeblogEntryTagAggregate.getByName&WebsiteNullOrderByLastUsedDesc", WeblogEntryTagAggregate.class);
-            query.setParameter(1, stat.getName());
-            try {
-                WeblogEntryTagAggregate agg = query.getSingleResult();
-                agg.setTotal(agg.getTotal() - stat.getCount());
-            } catch (NoResultException ignored) {
-                // nothing to update
-            }
-        }
-    }
-    
     /**
      * @see org.apache.roller.weblogger.business.WeblogManager#saveTemplate(WeblogTemplate)
      */
@@ -705,6 +688,13 @@ public class JPAWeblogManagerImpl implements WeblogManager {
         return results.get(0);
     }
 
+    @Override
+    public Date getWeblogsLastModified() throws WebloggerException {
+        List<Date> results = strategy.getNamedQuery(
+                "Weblog.getMaxLastModified", Date.class).getResultList();
+        return results.isEmpty() ? null : results.get(0);
+    }
+
     /**
      * Returns true if alphanumeric or '_'.
      */
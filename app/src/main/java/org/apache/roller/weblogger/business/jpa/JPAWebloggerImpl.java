@@ -17,9 +17,12 @@
  */
 package org.apache.roller.weblogger.business.jpa;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.roller.planet.business.PlanetManager;
 import org.apache.roller.planet.business.PlanetURLStrategy;
 import org.apache.roller.planet.business.fetcher.FeedFetcher;
+import org.apache.roller.util.RollerConstants;
 import org.apache.roller.weblogger.WebloggerException;
 import org.apache.roller.weblogger.business.*;
 import org.apache.roller.weblogger.business.pings.AutoPingManager;
@@ -28,7 +31,12 @@ import org.apache.roller.weblogger.business.pings.PingTargetManager;
 import org.apache.roller.weblogger.business.plugins.PluginManager;
 import org.apache.roller.weblogger.business.runnable.ThreadManager;
 import org.apache.roller.weblogger.business.search.IndexManager;
+import org.apache.roller.weblogger.business.startup.WebloggerStartup;
 import org.apache.roller.weblogger.business.themes.ThemeManager;
+import org.apache.roller.weblogger.config.WebloggerConfig;
+import org.apache.roller.weblogger.util.cache.CacheManager;
+import org.apache.roller.weblogger.util.cache.InvalidationJournal;
+import org.apache.roller.weblogger.util.cache.JournalingCacheHandler;
 
 /**
  * A JPA specific implementation of the Weblogger business layer.
@@ -36,9 +44,14 @@ import org.apache.roller.weblogger.business.themes.ThemeManager;
 @com.google.inject.Singleton
 public class JPAWebloggerImpl extends WebloggerImpl {
 
+    private static final Log log = LogFactory.getLog(JPAWebloggerImpl.class);
+
     // a persistence utility class
     private final JPAPersistenceStrategy strategy;
     
+    // shares cache invalidations with other nodes, if clustered
+    private JournalingCacheHandler cacheJournal = null;
+    
     
     /**
      * Single constructor.
@@ -92,6 +105,32 @@ public class JPAWebloggerImpl extends WebloggerImpl {
     }
     
     
+    @Override
+    public void initialize() throws InitializationException {
+        super.initialize();
+        
+        if (WebloggerConfig.getBooleanProperty("cache.journal.enabled")) {
+            int interval = WebloggerConfig.getIntProperty("cache.journal.pollInterval", 5);
+            int lookback = WebloggerConfig.getIntProperty("cache.journal.lookback", 60);
+            int retention = WebloggerConfig.getIntProperty("cache.journal.retention", 3600);
+            
+            InvalidationJournal journal = new InvalidationJournal(
+                    () -> WebloggerStartup.getDatabaseProvider().getConnection());
+            cacheJournal = new JournalingCacheHandler(journal,
+                    new JPAInvalidationReplayer(strategy, this),
+                    lookback * (long) RollerConstants.SEC_IN_MS,
+                    retention * (long) RollerConstants.SEC_IN_MS);
+            
+            CacheManager.registerHandler(cacheJournal);
+            CacheManager.registerStats("cache.journal", cacheJournal::getStats);
+            cacheJournal.start(interval * (long) RollerConstants.SEC_IN_MS);
+            
+            log.info("Sharing cache invalidations through journal as node "
+                    + cacheJournal.getNodeId());
+        }
+    }
+    
+    
     @Override
     public void flush() throws WebloggerException {
         this.strategy.flush();
@@ -104,11 +143,25 @@ public class JPAWebloggerImpl extends WebloggerImpl {
         // tell JPA to close down
         this.strategy.release();
     }
+    
+    
+    @Override
+    public void useReadReplica() {
+        this.strategy.useReadReplica();
+    }
+    
+    
+    JPAPersistenceStrategy getStrategy() {
+        return strategy;
+    }
 
 
     @Override
     public void shutdown() {
         // do our own shutdown first
+        if (cacheJournal != null) {
+            cacheJournal.shutdown();
+        }
         this.release();
 
         // then let parent do its thing
@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.business.jpa;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import jakarta.persistence.Query;
+import org.apache.roller.weblogger.WebloggerException;
+import org.apache.roller.weblogger.pojos.Weblog;
+import org.apache.roller.weblogger.pojos.WeblogEntryTagAggregate;
+
+
+/**
+ * Changes to tag aggregate counts, collected and then applied together.
+ *
+ * Every change to the count of a tag in a weblog changes the site-wide count
+ * of the tag too.  Applying the changes reads the existing aggregate rows of
+ * all tags involved at once, updates them with one statement per distinct
+ * change, creates the missing ones and deletes those of the tags involved
+ * whose count dropped to zero.
+ */
+final class TagAggregateBatch {
+
+    // keeps IN lists within what all supported databases accept
+    private static final int MAX_IN_LIST = 500;
+
+    private final JPAPersistenceStrategy strategy;
+
+    // changes to counts by weblog id, then tag name
+    private final Map<String, Map<String, Integer>> changes = new LinkedHashMap<>();
+    private final Map<String, Weblog> weblogs = new HashMap<>();
+
+
+    TagAggregateBatch(JPAPersistenceStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+
+    /**
+     * Change the count of a tag in a weblog, and site-wide.
+     */
+    void add(Weblog weblog, String name, int amount) throws WebloggerException {
+
+        if (weblog == null) {
+            throw new WebloggerException("Website cannot be NULL.");
+        }
+        weblogs.putIfAbsent(weblog.getId(), weblog);
+        changes.computeIfAbsent(weblog.getId(), k -> new LinkedHashMap<>())
+                .merge(name, amount, Integer::sum);
+    }
+
+
+    boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+
+    /**
+     * Apply the changes collected so far, and forget them.
+     */
+    void apply() throws WebloggerException {
+
+        // changes by aggregate, the null weblog id standing for site-wide
+        Map<String, Map<String, Integer>> byAggregate = new LinkedHashMap<>();
+        Map<String, Integer> siteChanges = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, Integer>> weblogChanges : changes.entrySet()) {
+            Map<String, Integer> nonZero = new LinkedHashMap<>();
+            for (Map.Entry<String, Integer> change : weblogChanges.getValue().entrySet()) {
+                if (change.getValue() != 0) {
+                    nonZero.put(change.getKey(), change.getValue());
+                    siteChanges.merge(change.getKey(), change.getValue(), Integer::sum);
+                }
+            }
+            byAggregate.put(weblogChanges.getKey(), nonZero);
+        }
+        siteChanges.values().removeIf(amount -> amount == 0);
+        byAggregate.put(null, siteChanges);
+
+        Set<String> names = new LinkedHashSet<>();
+        Set<String> decremented = new LinkedHashSet<>();
+        for (Map<String, Integer> aggregateChanges : byAggregate.values()) {
+            for (Map.Entry<String, Integer> change : aggregateChanges.entrySet()) {
+                names.add(change.getKey());
+                if (change.getValue() < 0) {
+                    decremented.add(change.getKey());
+                }
+            }
+        }
+        if (names.isEmpty()) {
+            clear();
+            return;
+        }
+
+        Map<String, Map<String, String>> existing = getAggregateIds(
+                new ArrayList<>(names), new ArrayList<>(changes.keySet()));
+
+        // update the rows there are, grouped by change, and create the rest
+        Timestamp lastUsed = new Timestamp(System.currentTimeMillis());
+        Map<Integer, List<String>> idsByAmount = new TreeMap<>();
+        for (Map.Entry<String, Map<String, Integer>> aggregateChanges : byAggregate.entrySet()) {
+            String weblogId = aggregateChanges.getKey();
+            Map<String, String> ids = existing.getOrDefault(weblogId, Map.of());
+            for (Map.Entry<String, Integer> change : aggregateChanges.getValue().entrySet()) {
+                String id = ids.get(change.getKey());
+                if (id != null) {
+                    idsByAmount.computeIfAbsent(change.getValue(), k -> new ArrayList<>()).add(id);
+                } else if (change.getValue() > 0) {
+                    WeblogEntryTagAggregate aggregate = new WeblogEntryTagAggregate(null,
+                            (weblogId != null) ? weblogs.get(weblogId) : null,
+                            change.getKey(), change.getValue());
+                    aggregate.setLastUsed(lastUsed);
+                    strategy.store(aggregate);
+                }
+            }
+        }
+        for (Map.Entry<Integer, List<String>> group : idsByAmount.entrySet()) {
+            List<String> ids = group.getValue();
+            for (int i = 0; i < ids.size(); i += MAX_IN_LIST) {
+                Query q = strategy.getNamedUpdate("WeblogEntryTagAggregate.updateTotalIncrementByIds");
+                q.setParameter(1, group.getKey());
+                q.setParameter(2, lastUsed);
+                q.setParameter(3, ids.subList(i, Math.min(i + MAX_IN_LIST, ids.size())));
+                q.executeUpdate();
+            }
+        }
+
+        // only counts which went down can have dropped to zero
+        List<String> removable = new ArrayList<>(decremented);
+        for (int i = 0; i < removable.size(); i += MAX_IN_LIST) {
+            Query q = strategy.getNamedUpdate("WeblogEntryTagAggregate.removeByNames&TotalLessEqual");
+            q.setParameter(1, removable.subList(i, Math.min(i + MAX_IN_LIST, removable.size())));
+            q.setParameter(2, 0);
+            q.executeUpdate();
+        }
+
+        clear();
+    }
+
+
+    private void clear() {
+        changes.clear();
+        weblogs.clear();
+    }
+
+
+    /**
+     * Get the ids of the aggregate rows of the given tags, in the given
+     * weblogs and site-wide.  Where there is more than one row, as can
+     * happen in a cluster, the most recently used one is picked.
+     *
+     * @return ids by weblog id, null for site-wide, then by tag name.
+     */
+    private Map<String, Map<String, String>> getAggregateIds(List<String> names, List<String> weblogIds)
+            throws WebloggerException {
+
+        Map<String, Map<String, String>> ids = new HashMap<>();
+        for (int i = 0; i < names.size(); i += MAX_IN_LIST) {
+            for (int j = 0; j < weblogIds.size(); j += MAX_IN_LIST) {
+                Query q = strategy.getNamedQuery("WeblogEntryTagAggregate.getIdsByNames&WebsiteIdsOrNull");
+                q.setParameter(1, names.subList(i, Math.min(i + MAX_IN_LIST, names.size())));
+                q.setParameter(2, weblogIds.subList(j, Math.min(j + MAX_IN_LIST, weblogIds.size())));
+                @SuppressWarnings("unchecked")
+                List<Object[]> rows = q.getResultList();
+                for (Object[] row : rows) {
+                    // rows are ordered by last use, so keep the first one
+                    ids.computeIfAbsent((String) row[2], k -> new HashMap<>())
+                            .putIfAbsent((String) row[1], (String) row[0]);
+                }
+            }
+        }
+        return ids;
+    }
+
+}
@@ -154,8 +154,8 @@ public class ScheduledEntriesTask extends RollerTaskWithLeasing {
             for (WeblogEntry entry : scheduledEntries) {
                 entry.setStatus(PubStatus.PUBLISHED);
                 entry.setRefreshAggregates(true);
-                wMgr.saveWeblogEntry(entry);
             }
+            wMgr.saveWeblogEntries(scheduledEntries);
 
             // commit the changes
             WebloggerFactory.getWeblogger().flush();
@@ -29,6 +29,14 @@ import org.apache.roller.weblogger.pojos.WeblogEntry;
  */
 public interface IndexManager {
 
+    /** What search results are made of */
+    enum ResultsMode {
+        /** Entries made up of the fields kept in the index, read without the database */
+        INDEX,
+        /** The entries themselves, loaded from the database in one batch */
+        ENTRIES
+    }
+
     /**
      * Initialize the search system.
      * @throws InitializationException If there is a problem during initialization.
@@ -62,6 +70,10 @@ public interface IndexManager {
     /** Remove entry from index, returns immediately and operates in background */
     void removeEntryIndexOperation(WeblogEntry entry) throws WebloggerException;
 
+    /**
+     * Search the index for published entries, newest first.
+     * @param mode Whether to render the results from the index or from the entries
+     */
     SearchResultList search(
         String term,
         String weblogHandle,
@@ -69,7 +81,8 @@ public interface IndexManager {
         String locale,
         int pageNum,
         int entryCount,
-        URLStrategy urlStrategy
+        URLStrategy urlStrategy,
+        ResultsMode mode
     ) throws WebloggerException;
 }
 
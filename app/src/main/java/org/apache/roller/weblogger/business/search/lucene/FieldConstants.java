@@ -31,10 +31,13 @@ public final class FieldConstants {
     public static final String ID = "id";
     public static final String USERNAME = "username";
     public static final String CATEGORY = "cat";
+    public static final String CATEGORY_NAME = "cat_name";
     public static final String TITLE = "title";
     public static final String PUBLISHED = "published";
     public static final String CONTENT = "content";
     public static final String CONTENT_STORED = "content_stored";
+    public static final String SUMMARY = "summary";
+    public static final String STATUS = "status";
     public static final String C_CONTENT = "comment";
     public static final String C_EMAIL = "email";
     public static final String C_NAME = "name";
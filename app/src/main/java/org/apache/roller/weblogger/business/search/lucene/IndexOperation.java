@@ -20,24 +20,25 @@
 
 package org.apache.roller.weblogger.business.search.lucene;
 
-import java.io.IOException;
 import java.util.List;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.apache.lucene.analysis.miscellaneous.LimitTokenCountAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
 import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.IndexWriter;
-import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.util.BytesRef;
 import org.apache.roller.weblogger.config.WebloggerConfig;
 import org.apache.roller.weblogger.pojos.WeblogCategory;
 import org.apache.roller.weblogger.pojos.WeblogEntry;
 import org.apache.roller.weblogger.pojos.WeblogEntryComment;
+import org.apache.roller.weblogger.util.Utilities;
 
 /**
  * This is the base class for all index operation. These operations include:<br>
@@ -56,7 +57,6 @@ public abstract class IndexOperation implements Runnable {
     // ~ Instance fields
     // ========================================================
     protected LuceneIndexManager manager;
-    private IndexWriter writer;
 
     // ~ Constructors
     // ===========================================================
@@ -67,40 +67,50 @@ public abstract class IndexOperation implements Runnable {
     // ~ Methods
     // ================================================================
     protected Document getDocument(WeblogEntry data) {
+        return getDocument(data, isIndexComments() ? data.getComments() : null);
+    }
 
-        // Actual comment content is indexed only if search.index.comments
-        // is true or absent from the (static) configuration properties.
-        // If false in the configuration, comments are treated as if empty.
-        boolean indexComments = WebloggerConfig.getBooleanProperty(
-                "search.index.comments", true);
+    /**
+     * Actual comment content is indexed only if search.index.comments
+     * is true or absent from the (static) configuration properties.
+     * If false in the configuration, comments are treated as if empty.
+     */
+    protected static boolean isIndexComments() {
+        return WebloggerConfig.getBooleanProperty("search.index.comments", true);
+    }
+
+    /**
+     * Create the document of an entry with the given approved comments of
+     * it, loaded along with those of other entries.
+     *
+     * @param comments the comments to index, or null if not indexed
+     */
+    protected Document getDocument(WeblogEntry data, List<WeblogEntryComment> comments) {
 
         String commentContent = "";
         String commentEmail = "";
         String commentName = "";
-        if (indexComments) {
-            List<WeblogEntryComment> comments = data.getComments();
-            if (comments != null) {
-                StringBuilder commentEmailBld = new StringBuilder();
-                StringBuilder commentContentBld = new StringBuilder();
-                StringBuilder commentNameBld = new StringBuilder();
-                for (WeblogEntryComment comment : comments) {
-                    if (comment.getContent() != null) {
-                        commentContentBld.append(comment.getContent());
-                        commentContentBld.append(",");
-                    }
-                    if (comment.getEmail() != null) {
-                        commentEmailBld.append(comment.getEmail());
-                        commentEmailBld.append(",");
-                    }
-                    if (comment.getName() != null) {
-                        commentNameBld.append(comment.getName());
-                        commentNameBld.append(",");
-                    }
+        if (comments != null) {
+            StringBuilder commentEmailBld = new StringBuilder();
+            StringBuilder commentContentBld = new StringBuilder();
+            StringBuilder commentNameBld = new StringBuilder();
+            for (WeblogEntryComment comment : comments) {
+                if (comment.getContent() != null) {
+                    commentContentBld.append(comment.getContent());
+                    commentContentBld.append(",");
+                }
+                if (comment.getEmail() != null) {
+                    commentEmailBld.append(comment.getEmail());
+                    commentEmailBld.append(",");
+                }
+                if (comment.getName() != null) {
+                    commentNameBld.append(comment.getName());
+                    commentNameBld.append(",");
                 }
-                commentEmail = commentEmailBld.toString();
-                commentContent = commentContentBld.toString();
-                commentName = commentNameBld.toString();
             }
+            commentEmail = commentEmailBld.toString();
+            commentContent = commentContentBld.toString();
+            commentName = commentNameBld.toString();
         }
 
         Document doc = new Document();
@@ -131,6 +141,25 @@ public abstract class IndexOperation implements Runnable {
         doc.add(new TextField(FieldConstants.CONTENT, data.getText(),
                 Field.Store.NO));
 
+        // stored only, search results can be rendered from it
+        String summary = StringUtils.isNotEmpty(data.getSummary()) ? data.getSummary() : data.getText();
+        if (summary != null) {
+            int summaryLength = WebloggerConfig.getIntProperty("search.index.summaryLength", 255);
+            doc.add(new StoredField(FieldConstants.SUMMARY,
+                    Utilities.truncate(summary, summaryLength / 2, summaryLength, "...")));
+        }
+
+        // stored only, for the permalink of search results
+        if (data.getAnchor() != null) {
+            doc.add(new StoredField(FieldConstants.ANCHOR, data.getAnchor()));
+        }
+
+        // keyword, searches only find published entries
+        if (data.getStatus() != null) {
+            doc.add(new StringField(FieldConstants.STATUS, data.getStatus().name(),
+                    Field.Store.NO));
+        }
+
         // keyword
         doc.add(new StringField(FieldConstants.UPDATED, data.getUpdateTime()
                 .toString(), Field.Store.YES));
@@ -139,6 +168,9 @@ public abstract class IndexOperation implements Runnable {
         if (data.getPubTime() != null) {
             // SearchOperation sorts results by date
             doc.add(new SortedDocValuesField(FieldConstants.PUBLISHED, new BytesRef(data.getPubTime().toString())));
+            // and leaves out entries to be published in the future
+            doc.add(new LongPoint(FieldConstants.PUBLISHED, data.getPubTime().getTime()));
+            doc.add(new StoredField(FieldConstants.PUBLISHED, data.getPubTime().getTime()));
         }
 
         // index Category, needs to be in lower case as it is used in a term
@@ -146,6 +178,7 @@ public abstract class IndexOperation implements Runnable {
         if (categorydata != null) {
             doc.add(new StringField(FieldConstants.CATEGORY, categorydata
                     .getName().toLowerCase(), Field.Store.YES));
+            doc.add(new StoredField(FieldConstants.CATEGORY_NAME, categorydata.getName()));
         }
 
         // index Comments, unstored
@@ -166,37 +199,22 @@ public abstract class IndexOperation implements Runnable {
     /**
      * Begin writing.
      * 
-     * @return the index writer
+     * @return the index writer, shared by all operations and left open
      */
     protected IndexWriter beginWriting() {
-        try {
-
-            LimitTokenCountAnalyzer analyzer = new LimitTokenCountAnalyzer(
-                    LuceneIndexManager.getAnalyzer(),
-                    WebloggerConfig.getIntProperty("lucene.analyzer.maxTokenCount"));
-
-            IndexWriterConfig config = new IndexWriterConfig(analyzer);
-
-            writer = new IndexWriter(manager.getIndexDirectory(), config);
-
-        } catch (IOException e) {
-            logger.error("ERROR creating writer", e);
+        IndexWriter writer = manager.getIndexWriter();
+        if (writer == null) {
+            logger.error("ERROR index writer is not open");
         }
-
         return writer;
     }
 
     /**
-     * End writing.
+     * End writing.  The shared writer stays open, what was written shows in
+     * searches after the next refresh and is committed to disk periodically.
      */
     protected void endWriting() {
-        if (writer != null) {
-            try {
-                writer.close();
-            } catch (IOException e) {
-                logger.error("ERROR closing writer", e);
-            }
-        }
+        // no-op
     }
 
     /**
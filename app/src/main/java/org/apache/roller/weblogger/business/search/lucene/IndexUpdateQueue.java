@@ -0,0 +1,242 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.business.search.lucene;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.roller.util.RollerConstants;
+import org.apache.roller.weblogger.WebloggerException;
+import org.apache.roller.weblogger.business.Weblogger;
+import org.apache.roller.weblogger.business.runnable.ContinuousWorkerThread;
+import org.apache.roller.weblogger.business.runnable.Job;
+
+/**
+ * Queue of updates of entries in the index, applied in batches by a single
+ * indexer thread.
+ *
+ * Updates of an entry still pending are collapsed into one, the last queued
+ * winning, and the entry being indexed as it is when the update is applied.
+ * An entry to index that is gone or no longer published by then is removed
+ * from the index instead.
+ * The queue holds a bounded number of entries; should it fill up, what is
+ * pending is dropped and the whole index rebuilt instead.
+ */
+final class IndexUpdateQueue {
+
+    private static final Log log = LogFactory.getLog(IndexUpdateQueue.class);
+
+    private final Weblogger roller;
+    private final LuceneIndexManager manager;
+
+    private final int capacity;
+    private final int batchSize;
+
+    // pending updates by entry id, in the order first queued
+    private final Map<String, Update> pending = new LinkedHashMap<>();
+
+    private ContinuousWorkerThread worker = null;
+
+    // for metrics
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+    private volatile long lastLag = 0;
+
+
+    private static final class Update {
+        private boolean remove;
+        private final long time = System.currentTimeMillis();
+
+        private Update(boolean remove) {
+            this.remove = remove;
+        }
+    }
+
+
+    /**
+     * @param capacity most entries to hold updates of
+     * @param batchSize most entries to update in one go
+     */
+    IndexUpdateQueue(Weblogger roller, LuceneIndexManager manager, int capacity, int batchSize) {
+        this.roller = roller;
+        this.manager = manager;
+        this.capacity = Math.max(capacity, 1);
+        this.batchSize = Math.max(batchSize, 1);
+    }
+
+
+    /**
+     * Start the indexer thread, pausing for the given time between batches
+     * so that updates made meanwhile are collapsed.
+     */
+    synchronized void start(long delay) {
+        if (worker == null) {
+            worker = new ContinuousWorkerThread("SearchIndexer", new IndexerJob(), delay);
+            worker.start();
+        }
+    }
+
+
+    /**
+     * Stop the indexer thread, applying all updates still pending.
+     */
+    void shutdown() {
+        ContinuousWorkerThread stopping;
+        synchronized (this) {
+            stopping = worker;
+            worker = null;
+        }
+        if (stopping != null) {
+            log.info("stopping worker " + stopping.getName());
+            stopping.interrupt();
+            try {
+                stopping.join(RollerConstants.GRACEFUL_SHUTDOWN_WAIT_IN_MILLISECONDS);
+            } catch (InterruptedException e) {
+                log.debug(e.getMessage(), e);
+            }
+        }
+
+        Map<String, Boolean> batch;
+        while (!(batch = nextBatch()).isEmpty()) {
+            apply(batch);
+        }
+    }
+
+
+    /**
+     * Queue an update of the given entry.
+     * @param remove true to remove the entry from the index, false to index it
+     */
+    void add(String entryId, boolean remove) {
+        boolean overflow = false;
+        synchronized (this) {
+            queued.increment();
+            Update update = pending.get(entryId);
+            if (update != null) {
+                coalesced.increment();
+                update.remove = remove;
+            } else if (pending.size() < capacity) {
+                pending.put(entryId, new Update(remove));
+                notifyAll();
+            } else {
+                overflows.increment();
+                pending.clear();
+                overflow = true;
+            }
+        }
+        if (overflow) {
+            log.warn("Search index update queue full, rebuilding the index instead");
+            try {
+                manager.rebuildWeblogIndex();
+            } catch (WebloggerException ex) {
+                log.error("ERROR: scheduling re-index operation", ex);
+            }
+        }
+    }
+
+
+    /**
+     * Wait for updates to be queued, then take a batch of them.
+     */
+    private synchronized Map<String, Boolean> takeBatch() throws InterruptedException {
+        while (pending.isEmpty()) {
+            wait();
+        }
+        return nextBatch();
+    }
+
+
+    /**
+     * Take the oldest pending updates, up to a batch of them.
+     * @return entry ids, mapped to true for entries to remove from the index
+     */
+    synchronized Map<String, Boolean> nextBatch() {
+        Map<String, Boolean> batch = new LinkedHashMap<>();
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, Update>> it = pending.entrySet().iterator();
+        while (it.hasNext() && batch.size() < batchSize) {
+            Map.Entry<String, Update> entry = it.next();
+            if (batch.isEmpty()) {
+                lastLag = now - entry.getValue().time;
+            }
+            batch.put(entry.getKey(), entry.getValue().remove);
+            it.remove();
+        }
+        return batch;
+    }
+
+
+    private void apply(Map<String, Boolean> batch) {
+        new UpdateEntriesOperation(roller, manager, batch).run();
+        applied.add(batch.size());
+        batches.increment();
+    }
+
+
+    Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        synchronized (this) {
+            stats.put("pending", pending.size());
+            stats.put("lag", pending.isEmpty() ? 0L
+                    : System.currentTimeMillis() - pending.values().iterator().next().time);
+        }
+        stats.put("lastLag", lastLag);
+        stats.put("queued", queued.sum());
+        stats.put("coalesced", coalesced.sum());
+        stats.put("applied", applied.sum());
+        stats.put("batches", batches.sum());
+        stats.put("overflows", overflows.sum());
+        return stats;
+    }
+
+
+    private class IndexerJob implements Job {
+
+        @Override
+        public void execute() {
+            Map<String, Boolean> batch;
+            try {
+                batch = takeBatch();
+            } catch (InterruptedException e) {
+                // shutting down, let the worker see it
+                Thread.currentThread().interrupt();
+                return;
+            }
+            apply(batch);
+        }
+
+        @Override
+        public void input(Map<String, Object> input) {
+            // no-op
+        }
+
+        @Override
+        public Map<String, Object> output() {
+            return null;
+        }
+    }
+
+}
@@ -25,10 +25,13 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.sql.Timestamp;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.apache.commons.beanutils.ConstructorUtils;
@@ -39,26 +42,34 @@ import org.apache.lucene.analysis.miscellaneous.LimitTokenCountAnalyzer;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.DirectoryReader;
-import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.search.TopFieldDocs;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.roller.util.RollerConstants;
 import org.apache.roller.weblogger.WebloggerException;
 import org.apache.roller.weblogger.business.InitializationException;
 import org.apache.roller.weblogger.business.URLStrategy;
 import org.apache.roller.weblogger.business.WeblogEntryManager;
+import org.apache.roller.weblogger.business.WeblogManager;
 import org.apache.roller.weblogger.business.Weblogger;
 import org.apache.roller.weblogger.business.WebloggerFactory;
+import org.apache.roller.weblogger.business.runnable.ContinuousWorkerThread;
+import org.apache.roller.weblogger.business.runnable.Job;
 import org.apache.roller.weblogger.business.search.IndexManager;
 import org.apache.roller.weblogger.business.search.SearchResultList;
 import org.apache.roller.weblogger.config.WebloggerConfig;
 import org.apache.roller.weblogger.config.WebloggerRuntimeConfig;
 import org.apache.roller.weblogger.pojos.Weblog;
+import org.apache.roller.weblogger.pojos.WeblogCategory;
 import org.apache.roller.weblogger.pojos.WeblogEntry;
 import org.apache.roller.weblogger.pojos.wrapper.WeblogEntryWrapper;
+import org.apache.roller.weblogger.util.cache.CacheManager;
 
 /**
  * Lucene implementation of IndexManager. This is the central entry point into
@@ -70,7 +81,6 @@ import org.apache.roller.weblogger.pojos.wrapper.WeblogEntryWrapper;
 @com.google.inject.Singleton
 public class LuceneIndexManager implements IndexManager {
 
-    private IndexReader reader;
     private final Weblogger roller;
 
     private final static Log logger = LogFactory.getFactory().getInstance(LuceneIndexManager.class);
@@ -85,6 +95,36 @@ public class LuceneIndexManager implements IndexManager {
 
     private final ReadWriteLock rwl = new ReentrantReadWriteLock();
 
+    // recorded with each commit of the index, an index of documents with
+    // other fields than those searches now rely on is emptied and rebuilt
+    private static final String INDEX_FORMAT_KEY = "roller.index.format";
+    private static final String INDEX_FORMAT = "2";
+
+    // the one writer of the index, kept open, and the searchers reading
+    // what it has written, committed to disk or not
+    private Directory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+
+    // documents found by searches of the current version of the index
+    private final SearchResultsCache resultsCache = new SearchResultsCache();
+
+    // refresh searchers and commit changes to disk in the background
+    private ContinuousWorkerThread refresher;
+    private ContinuousWorkerThread committer;
+    private final long refreshInterval;
+    private final long commitInterval;
+
+    // updates of entries, applied in batches by a single indexer thread
+    private volatile IndexUpdateQueue updateQueue;
+
+    // full rebuilds into a side index, and the updates of entries queued
+    // while one runs, which are applied again once it has replaced the index
+    private final int rebuildThreads;
+    private final int rebuildChunkSize;
+    private volatile RebuildSiteIndexOperation rebuild;
+    private volatile Map<String, Boolean> rebuildUpdates;
+
 
     /**
      * Creates a new lucene index manager. This should only be created once.
@@ -115,6 +155,12 @@ public class LuceneIndexManager implements IndexManager {
 
         String test = indexDir + File.separator + ".index-inconsistent";
         indexConsistencyMarker = new File(test);
+
+        this.refreshInterval = WebloggerConfig.getIntProperty("search.index.refreshInterval", 500);
+        this.commitInterval = WebloggerConfig.getIntProperty("search.index.commitInterval", 60)
+                * (long) RollerConstants.SEC_IN_MS;
+        this.rebuildThreads = WebloggerConfig.getIntProperty("search.index.rebuild.threads", 4);
+        this.rebuildChunkSize = WebloggerConfig.getIntProperty("search.index.rebuild.chunkSize", 200);
     }
 
     /**
@@ -145,25 +191,41 @@ public class LuceneIndexManager implements IndexManager {
                 }
             }
 
-            if (indexExists()) {
-
-                // test if the index is readable, if the version is outdated or it fails we rebuild.
-                try {
-                    synchronized(this) {
-                        reader = DirectoryReader.open(getIndexDirectory());
-                    }
-                } catch (IOException | IllegalArgumentException ex) {  // IAE for incompatible codecs
-                    logger.warn("Failed to open search index, scheduling rebuild.", ex);
-                    inconsistentAtStartup = true;
-                    deleteIndex();
-                }
-            } else {
+            if (!indexExists()) {
                 logger.debug("Creating index");
                 inconsistentAtStartup = true;
                 deleteIndex();
-                createIndex(getIndexDirectory());
             }
 
+            // test if the index is readable, if the version is outdated or it fails we rebuild.
+            try {
+                openIndex();
+            } catch (IOException | IllegalArgumentException ex) {  // IAE for incompatible codecs
+                logger.warn("Failed to open search index, scheduling rebuild.", ex);
+                inconsistentAtStartup = true;
+                closeIndex(false);
+                deleteIndex();
+                try {
+                    openIndex();
+                } catch (IOException e) {
+                    throw new InitializationException("Unable to create search index", e);
+                }
+            }
+
+            refresher = new ContinuousWorkerThread("SearchIndexRefresher",
+                    new IndexJob(this::refreshSearcher), refreshInterval);
+            refresher.start();
+            committer = new ContinuousWorkerThread("SearchIndexCommitter",
+                    new IndexJob(this::commit), commitInterval);
+            committer.start();
+
+            updateQueue = new IndexUpdateQueue(roller, this,
+                    WebloggerConfig.getIntProperty("search.index.queueSize", 5000),
+                    WebloggerConfig.getIntProperty("search.index.batchSize", 100));
+            updateQueue.start(WebloggerConfig.getIntProperty("search.index.batchDelay", 100));
+            CacheManager.registerStats("search.queue", updateQueue::getStats);
+            CacheManager.registerStats("search.rebuild", this::getRebuildStats);
+
             if (inconsistentAtStartup) {
                 logger.info("Index was inconsistent. Rebuilding index in the background...");
                 try {
@@ -180,7 +242,12 @@ public class LuceneIndexManager implements IndexManager {
 
     @Override
     public void rebuildWeblogIndex() throws WebloggerException {
-        scheduleIndexOperation(new RebuildWebsiteIndexOperation(roller, this, null));
+        if (rebuildThreads > 0) {
+            scheduleIndexOperation(new RebuildSiteIndexOperation(
+                    roller, this, rebuildThreads, rebuildChunkSize));
+        } else {
+            scheduleIndexOperation(new RebuildWebsiteIndexOperation(roller, this, null));
+        }
     }
 
     @Override
@@ -195,17 +262,95 @@ public class LuceneIndexManager implements IndexManager {
 
     @Override
     public void addEntryIndexOperation(WeblogEntry entry) throws WebloggerException {
-        scheduleIndexOperation(new AddEntryOperation(roller, this, entry));
+        queueEntryUpdate(entry, false);
     }
 
     @Override
     public void addEntryReIndexOperation(WeblogEntry entry) throws WebloggerException {
-        scheduleIndexOperation(new ReIndexEntryOperation(roller, this, entry));
+        queueEntryUpdate(entry, false);
     }
 
     @Override
     public void removeEntryIndexOperation(WeblogEntry entry) throws WebloggerException {
-        executeIndexOperationNow(new RemoveEntryOperation(roller, this, entry));
+        queueEntryUpdate(entry, true);
+    }
+
+    private void queueEntryUpdate(WeblogEntry entry, boolean remove) {
+        // only if search is enabled
+        if (this.searchEnabled && updateQueue != null) {
+            Map<String, Boolean> updates = rebuildUpdates;
+            if (updates != null) {
+                updates.put(entry.getId(), remove);
+            }
+            updateQueue.add(entry.getId(), remove);
+        }
+    }
+
+    /**
+     * Start keeping the updates of entries queued from now on, for a full
+     * rebuild to apply again once done.
+     *
+     * @return false if a full rebuild is running already
+     */
+    synchronized boolean beginRebuild(RebuildSiteIndexOperation operation) {
+        if (rebuildUpdates != null) {
+            return false;
+        }
+        rebuildUpdates = new ConcurrentHashMap<>();
+        rebuild = operation;
+        return true;
+    }
+
+    /**
+     * Stop keeping the updates of entries for a full rebuild, done or not.
+     */
+    synchronized void endRebuild() {
+        rebuildUpdates = null;
+    }
+
+    /**
+     * Where full rebuilds write their side index, next to the index.
+     */
+    Path getRebuildPath() {
+        return Path.of(indexDir + "-rebuild");
+    }
+
+    /**
+     * Replace all documents of the index with those of the side index of a
+     * full rebuild.  Searches see the documents of one or the other, and
+     * entries updated while the side index was written are indexed again.
+     */
+    void replaceIndex(Directory side) throws IOException {
+        Map<String, Boolean> updates;
+        rwl.writeLock().lock();
+        try {
+            IndexWriter indexWriter = getIndexWriter();
+            if (indexWriter == null) {
+                throw new IOException("Search index is not open");
+            }
+            indexWriter.deleteAll();
+            indexWriter.addIndexes(side);
+            indexWriter.commit();
+            synchronized (this) {
+                updates = rebuildUpdates;
+                rebuildUpdates = null;
+            }
+        } finally {
+            rwl.writeLock().unlock();
+        }
+        refreshSearcher();
+
+        IndexUpdateQueue queue = updateQueue;
+        if (updates != null && queue != null) {
+            for (Map.Entry<String, Boolean> update : updates.entrySet()) {
+                queue.add(update.getKey(), update.getValue());
+            }
+        }
+    }
+
+    private Map<String, Object> getRebuildStats() {
+        RebuildSiteIndexOperation operation = rebuild;
+        return (operation != null) ? operation.getStats() : Collections.emptyMap();
     }
 
     @Override
@@ -216,7 +361,8 @@ public class LuceneIndexManager implements IndexManager {
         String locale,
         int pageNum,
         int entryCount,
-        URLStrategy urlStrategy) throws WebloggerException {
+        URLStrategy urlStrategy,
+        ResultsMode mode) throws WebloggerException {
 
         SearchOperation search = new SearchOperation(this);
         search.setTerm(term);
@@ -232,17 +378,22 @@ public class LuceneIndexManager implements IndexManager {
         }
 
         executeIndexOperationNow(search);
-        if (search.getResultsCount() >= 0) {
-            TopFieldDocs docs = search.getResults();
-            ScoreDoc[] hitsArr = docs.scoreDocs;
-            return convertHitsToEntryList(
-                hitsArr,
-                search,
-                pageNum,
-                entryCount,
-                weblogHandle,
-                weblogSpecific,
-                urlStrategy);
+        try {
+            if (search.getResultsCount() >= 0) {
+                TopFieldDocs docs = search.getResults();
+                ScoreDoc[] hitsArr = docs.scoreDocs;
+                return convertHitsToEntryList(
+                    hitsArr,
+                    search,
+                    pageNum,
+                    entryCount,
+                    weblogHandle,
+                    weblogSpecific,
+                    urlStrategy,
+                    mode);
+            }
+        } finally {
+            releaseSearcher(search.getSearcher());
         }
         throw new WebloggerException("Error executing search");
     }
@@ -311,20 +462,184 @@ public class LuceneIndexManager implements IndexManager {
         }
     }
 
-    public synchronized void resetSharedReader() {
-        reader = null;
+    /**
+     * Open the writer of the index, creating the index if there is none,
+     * and the manager of searchers reading from it.
+     */
+    private synchronized void openIndex() throws IOException {
+
+        IndexWriterConfig config = newIndexWriterConfig();
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+
+        directory = FSDirectory.open(Path.of(indexDir));
+        writer = new IndexWriter(directory, config);
+        if (!INDEX_FORMAT.equals(getIndexFormat())) {
+            if (writer.getDocStats().numDocs > 0) {
+                logger.info("Index has documents of an older format, rebuilding it.");
+                inconsistentAtStartup = true;
+            }
+            writer.deleteAll();
+            writer.setLiveCommitData(Map.of(INDEX_FORMAT_KEY, INDEX_FORMAT).entrySet());
+        }
+        // make sure a new index exists on disk for readers
+        writer.commit();
+        searcherManager = new SearcherManager(writer, null);
+        searcherManager.addListener(resultsCache);
+        resultsCache.clear();
+    }
+
+    /**
+     * Configuration of writers of the index, or of side indexes to replace it.
+     */
+    IndexWriterConfig newIndexWriterConfig() {
+        LimitTokenCountAnalyzer analyzer = new LimitTokenCountAnalyzer(
+                LuceneIndexManager.getAnalyzer(),
+                WebloggerConfig.getIntProperty("lucene.analyzer.maxTokenCount"));
+        return new IndexWriterConfig(analyzer);
+    }
+
+    /**
+     * The format of the documents of the index as of its last commit.
+     */
+    private String getIndexFormat() {
+        Iterable<Map.Entry<String, String>> commitData = writer.getLiveCommitData();
+        if (commitData != null) {
+            for (Map.Entry<String, String> data : commitData) {
+                if (INDEX_FORMAT_KEY.equals(data.getKey())) {
+                    return data.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Close the searchers, then the writer of the index, committing what it
+     * has written if asked to.
+     *
+     * @return true if the index was closed cleanly
+     */
+    private synchronized boolean closeIndex(boolean commit) {
+        boolean clean = true;
+        if (searcherManager != null) {
+            try {
+                searcherManager.close();
+            } catch (IOException ex) {
+                logger.error("Unable to close searchers.", ex);
+                clean = false;
+            }
+            searcherManager = null;
+        }
+        if (writer != null) {
+            try {
+                if (commit) {
+                    writer.close();
+                } else {
+                    writer.rollback();
+                }
+            } catch (IOException ex) {
+                logger.error("Unable to close IndexWriter.", ex);
+                clean = false;
+            }
+            writer = null;
+        }
+        if (directory != null) {
+            try {
+                directory.close();
+            } catch (IOException ex) {
+                logger.warn("Unable to close index directory.", ex);
+            }
+            directory = null;
+        }
+        return clean;
+    }
+
+    /**
+     * The writer of the index, shared by all operations writing to it.
+     * Changes are seen by searches after the next refresh, and committed to
+     * disk periodically and on shutdown.
+     */
+    public synchronized IndexWriter getIndexWriter() {
+        return writer;
+    }
+
+    /**
+     * The cache of documents found by searches, by query and version of the
+     * index searched.
+     */
+    SearchResultsCache getSearchResultsCache() {
+        return resultsCache;
     }
 
-    public synchronized IndexReader getSharedIndexReader() {
-        if (reader == null) {
+    /**
+     * Acquire a searcher of the index as of the last refresh, which must be
+     * released with releaseSearcher() when done with.
+     */
+    public IndexSearcher acquireSearcher() throws IOException {
+        SearcherManager manager;
+        synchronized (this) {
+            manager = searcherManager;
+        }
+        if (manager == null) {
+            throw new IOException("Search index is not open");
+        }
+        return manager.acquire();
+    }
+
+    /**
+     * Release a searcher acquired with acquireSearcher().
+     */
+    public void releaseSearcher(IndexSearcher searcher) {
+        SearcherManager manager;
+        synchronized (this) {
+            manager = searcherManager;
+        }
+        if (manager != null && searcher != null) {
             try {
-                reader = DirectoryReader.open(getIndexDirectory());
+                manager.release(searcher);
             } catch (IOException ex) {
-                logger.error("Error opening DirectoryReader", ex);
-                throw new RuntimeException(ex);
+                logger.error("Unable to release searcher.", ex);
+            }
+        }
+    }
+
+    /**
+     * Make changes written since the last refresh visible to searches.
+     * Skipped while an operation is writing, so that searches do not see
+     * its changes half made, such as an index emptied and not yet refilled.
+     */
+    void refreshSearcher() {
+        SearcherManager manager;
+        synchronized (this) {
+            manager = searcherManager;
+        }
+        if (manager != null && rwl.readLock().tryLock()) {
+            try {
+                manager.maybeRefresh();
+            } catch (IOException | IllegalStateException ex) {
+                logger.error("Error refreshing index searcher", ex);
+            } finally {
+                rwl.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Commit changes written since the last commit to disk, unless an
+     * operation is writing.
+     */
+    void commit() {
+        IndexWriter indexWriter = getIndexWriter();
+        if (indexWriter != null && indexWriter.hasUncommittedChanges()
+                && rwl.readLock().tryLock()) {
+            try {
+                indexWriter.commit();
+            } catch (IOException | IllegalStateException ex) {
+                logger.error("Error committing index changes", ex);
+            } finally {
+                rwl.readLock().unlock();
             }
         }
-        return reader;
     }
 
     /**
@@ -344,8 +659,8 @@ public class LuceneIndexManager implements IndexManager {
     }
 
     private boolean indexExists() {
-        try {
-            return DirectoryReader.indexExists(getIndexDirectory());
+        try (Directory dir = FSDirectory.open(Path.of(indexDir))) {
+            return DirectoryReader.indexExists(dir);
         } catch (IOException e) {
             logger.error("Problem accessing index directory", e);
         }
@@ -367,46 +682,63 @@ public class LuceneIndexManager implements IndexManager {
 
     }
 
-    private void createIndex(Directory dir) {
-        IndexWriter writer = null;
-
-        try {
+    @Override
+    public void release() {
+        // no-op
+    }
 
-            IndexWriterConfig config = new IndexWriterConfig(
-                    new LimitTokenCountAnalyzer(
-                            LuceneIndexManager.getAnalyzer(), 128));
+    @Override
+    public void shutdown() {
 
-            writer = new IndexWriter(dir, config);
+        if (updateQueue != null) {
+            updateQueue.shutdown();
+            updateQueue = null;
+        }
 
-        } catch (IOException e) {
-            logger.error("Error creating index", e);
-        } finally {
-            if (writer != null) {
+        for (ContinuousWorkerThread worker : new ContinuousWorkerThread[] {refresher, committer}) {
+            if (worker != null) {
+                worker.interrupt();
                 try {
-                    writer.close();
-                } catch (IOException ex) {
-                    logger.warn("Unable to close IndexWriter.", ex);
+                    worker.join(RollerConstants.GRACEFUL_SHUTDOWN_WAIT_IN_MILLISECONDS);
+                } catch (InterruptedException e) {
+                    logger.debug(e.getMessage(), e);
                 }
             }
         }
-    }
+        refresher = null;
+        committer = null;
 
-    @Override
-    public void release() {
-        // no-op
+        // the index is only known to be consistent once all changes are
+        // committed, otherwise it is rebuilt on the next startup
+        if (closeIndex(true)) {
+            indexConsistencyMarker.delete();
+        }
     }
 
-    @Override
-    public void shutdown() {
-        
-        indexConsistencyMarker.delete();
+    /**
+     * Runs one of the background tasks of the index manager.
+     */
+    private static class IndexJob implements Job {
 
-        if (reader != null) {
-            try {
-                reader.close();
-            } catch (IOException ex) {
-                logger.error("Unable to close reader.", ex);
-            }
+        private final Runnable task;
+
+        IndexJob(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void execute() {
+            task.run();
+        }
+
+        @Override
+        public void input(Map<String, Object> input) {
+            // no-op
+        }
+
+        @Override
+        public Map<String, Object> output() {
+            return null;
         }
     }
 
@@ -427,7 +759,8 @@ public class LuceneIndexManager implements IndexManager {
         int entryCount,
         String weblogHandle,
         boolean websiteSpecificSearch,
-        URLStrategy urlStrategy)
+        URLStrategy urlStrategy,
+        ResultsMode mode)
         throws WebloggerException {
 
         List<WeblogEntryWrapper> results = new ArrayList<>();
@@ -447,29 +780,25 @@ public class LuceneIndexManager implements IndexManager {
         try {
             Set<String> categories = new TreeSet<>();
             TreeSet<String> categorySet = new TreeSet<>();
-            Weblogger roller = WebloggerFactory.getWeblogger();
-            WeblogEntryManager weblogMgr = roller.getWeblogEntryManager();
 
-            WeblogEntry entry;
-            Document doc;
-            String handle;
-            Timestamp now = new Timestamp(new Date().getTime());
+            // the query has left out entries not published yet, so the
+            // documents on the page are all there is to show
+            List<Document> docs = new ArrayList<>(limit);
             for (int i = offset; i < offset + limit; i++) {
-                doc = search.getSearcher().doc(hits[i].doc);
-                handle = doc.getField(FieldConstants.WEBSITE_HANDLE).stringValue();
-                entry = weblogMgr.getWeblogEntry(doc.getField(FieldConstants.ID).stringValue());
+                Document doc = search.getSearcher().doc(hits[i].doc);
+                String handle = doc.get(FieldConstants.WEBSITE_HANDLE);
 
                 if (!(websiteSpecificSearch && handle.equals(weblogHandle))
-                    && doc.getField(FieldConstants.CATEGORY) != null) {
-                    categorySet.add(doc.getField(FieldConstants.CATEGORY).stringValue());
+                    && doc.get(FieldConstants.CATEGORY) != null) {
+                    categorySet.add(doc.get(FieldConstants.CATEGORY));
                 }
+                docs.add(doc);
+            }
 
-                // maybe null if search result returned inactive user
-                // or entry's user is not the requested user.
-                // but don't return future posts
-                if (entry != null && entry.getPubTime().before(now)) {
-                    results.add(WeblogEntryWrapper.wrap(entry, urlStrategy));
-                }
+            List<WeblogEntry> entries = (mode == ResultsMode.INDEX)
+                ? toEntries(docs) : loadEntries(docs);
+            for (WeblogEntry entry : entries) {
+                results.add(WeblogEntryWrapper.wrap(entry, urlStrategy));
             }
 
             if (!categorySet.isEmpty()) {
@@ -482,4 +811,79 @@ public class LuceneIndexManager implements IndexManager {
             throw new WebloggerException(e);
         }
     }
+
+    /**
+     * Load the entries of the given documents with one query, in the order
+     * of the documents.  Entries gone since they were indexed are left out.
+     */
+    private static List<WeblogEntry> loadEntries(List<Document> docs) throws WebloggerException {
+        List<String> ids = new ArrayList<>(docs.size());
+        for (Document doc : docs) {
+            ids.add(doc.get(FieldConstants.ID));
+        }
+        Map<String, WeblogEntry> entriesById = new HashMap<>();
+        if (!ids.isEmpty()) {
+            WeblogEntryManager weblogMgr = WebloggerFactory.getWeblogger().getWeblogEntryManager();
+            for (WeblogEntry entry : weblogMgr.getWeblogEntriesByIds(ids)) {
+                entriesById.put(entry.getId(), entry);
+            }
+        }
+        List<WeblogEntry> entries = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            WeblogEntry entry = entriesById.get(id);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Make up entries of what the index keeps of them: title, summary,
+     * anchor, weblog, category and times.  These are not persistent and
+     * have no text or creator; entries of weblogs no longer visible are
+     * left out.
+     */
+    private static List<WeblogEntry> toEntries(List<Document> docs) throws WebloggerException {
+        WeblogManager weblogMgr = WebloggerFactory.getWeblogger().getWeblogManager();
+        Map<String, Weblog> weblogs = new HashMap<>();
+        List<WeblogEntry> entries = new ArrayList<>(docs.size());
+        for (Document doc : docs) {
+            String handle = doc.get(FieldConstants.WEBSITE_HANDLE);
+            if (!weblogs.containsKey(handle)) {
+                weblogs.put(handle, weblogMgr.getWeblogByHandle(handle));
+            }
+            Weblog weblog = weblogs.get(handle);
+            if (weblog == null) {
+                continue;
+            }
+
+            WeblogEntry entry = new WeblogEntry();
+            entry.setId(doc.get(FieldConstants.ID));
+            entry.setWebsite(weblog);
+            entry.setTitle(doc.get(FieldConstants.TITLE));
+            entry.setSummary(doc.get(FieldConstants.SUMMARY));
+            entry.setAnchor(doc.get(FieldConstants.ANCHOR));
+            entry.setStatus(WeblogEntry.PubStatus.PUBLISHED);
+
+            IndexableField published = doc.getField(FieldConstants.PUBLISHED);
+            if (published != null && published.numericValue() != null) {
+                entry.setPubTime(new Timestamp(published.numericValue().longValue()));
+            }
+            String updated = doc.get(FieldConstants.UPDATED);
+            if (updated != null) {
+                entry.setUpdateTime(Timestamp.valueOf(updated));
+            }
+
+            String categoryName = doc.get(FieldConstants.CATEGORY_NAME);
+            if (categoryName != null) {
+                WeblogCategory category = new WeblogCategory();
+                category.setWeblog(weblog);
+                category.setName(categoryName);
+                entry.setCategory(category);
+            }
+            entries.add(entry);
+        }
+        return entries;
+    }
 }
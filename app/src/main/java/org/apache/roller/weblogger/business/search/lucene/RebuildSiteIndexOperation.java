@@ -0,0 +1,252 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.business.search.lucene;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.roller.util.RollerConstants;
+import org.apache.roller.weblogger.business.WeblogEntryManager;
+import org.apache.roller.weblogger.business.Weblogger;
+import org.apache.roller.weblogger.pojos.WeblogEntry;
+import org.apache.roller.weblogger.pojos.WeblogEntry.PubStatus;
+import org.apache.roller.weblogger.pojos.WeblogEntryComment;
+import org.apache.roller.weblogger.pojos.WeblogEntryComment.ApprovalStatus;
+
+/**
+ * An index operation that rebuilds the index of the whole site into a side
+ * index, which then replaces the documents of the index searched.  The ids of
+ * published entries are paged through in order, and each page of entries is
+ * loaded and made into documents on a pool of threads, so neither all
+ * entries are held at once nor are searches held up until the replacement.
+ */
+public class RebuildSiteIndexOperation extends IndexOperation {
+
+    private static Log logger = LogFactory.getFactory().getInstance(
+            RebuildSiteIndexOperation.class);
+
+    private final Weblogger roller;
+    private final int threads;
+    private final int chunkSize;
+
+    // progress, reported along with the cache stats
+    private volatile String state = "pending";
+    private volatile long startTime;
+    private volatile long endTime;
+    private volatile long total;
+    private final AtomicLong indexed = new AtomicLong();
+
+    /**
+     * @param threads   threads to make documents on
+     * @param chunkSize most entries each thread loads at once
+     */
+    public RebuildSiteIndexOperation(Weblogger roller, LuceneIndexManager mgr,
+            int threads, int chunkSize) {
+        super(mgr);
+        this.roller = roller;
+        this.threads = Math.max(1, threads);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    @Override
+    public void doRun() {
+
+        if (!manager.beginRebuild(this)) {
+            logger.info("Index of the site is being rebuilt already");
+            return;
+        }
+
+        startTime = System.currentTimeMillis();
+        state = "running";
+        logger.info("Rebuilding index of the site in the background");
+
+        Path sidePath = manager.getRebuildPath();
+        boolean replaced = false;
+        try {
+            deleteFiles(sidePath);
+            try (Directory side = FSDirectory.open(sidePath)) {
+                buildIndex(side);
+                manager.replaceIndex(side);
+                replaced = true;
+            }
+        } catch (Exception e) {
+            logger.error("ERROR rebuilding index of the site", e);
+        } finally {
+            manager.endRebuild();
+            endTime = System.currentTimeMillis();
+            state = replaced ? "done" : "failed";
+            try {
+                deleteFiles(sidePath);
+            } catch (IOException ex) {
+                logger.warn("Unable to delete side index " + sidePath, ex);
+            }
+            roller.release();
+        }
+
+        if (replaced) {
+            double length = (endTime - startTime) / (double) RollerConstants.SEC_IN_MS;
+            logger.info("Completed rebuilding index of " + indexed.get()
+                    + " entries of the site in '" + length + "' secs");
+        }
+    }
+
+    /**
+     * Write the documents of all published entries to the side index.
+     */
+    private void buildIndex(Directory side) throws Exception {
+
+        WeblogEntryManager weblogManager = roller.getWeblogEntryManager();
+        total = weblogManager.getEntryCount();
+
+        IndexWriterConfig config = manager.newIndexWriterConfig();
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "SearchIndexRebuilder-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // at most two pages per thread are loaded or waiting at once
+        Semaphore pages = new Semaphore(threads * 2);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        boolean withComments = isIndexComments();
+
+        try (IndexWriter sideWriter = new IndexWriter(side, config)) {
+            try {
+                String lastId = "";
+                List<String> ids;
+                do {
+                    ids = weblogManager.getWeblogEntryIds(PubStatus.PUBLISHED, lastId, chunkSize);
+                    // only ids are held by this thread, release them page by page
+                    roller.release();
+                    if (!ids.isEmpty()) {
+                        lastId = ids.get(ids.size() - 1);
+                        List<String> page = ids;
+                        pages.acquire();
+                        pool.execute(() -> {
+                            try {
+                                indexEntries(sideWriter, page, withComments);
+                            } catch (Exception e) {
+                                failure.compareAndSet(null, e);
+                            } finally {
+                                pages.release();
+                            }
+                        });
+                    }
+                    if (manager.getIndexWriter() == null) {
+                        throw new IOException("Search index was closed during rebuild");
+                    }
+                } while (ids.size() == chunkSize && failure.get() == null);
+
+                pool.shutdown();
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } finally {
+                // on failure stop what is left before the side writer closes
+                pool.shutdownNow();
+                pool.awaitTermination(1, TimeUnit.MINUTES);
+            }
+
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+            sideWriter.commit();
+        }
+    }
+
+    /**
+     * Load a page of entries and their comments, and write their documents.
+     * Run on the pool, each page with its own persistence session.
+     */
+    private void indexEntries(IndexWriter sideWriter, List<String> ids, boolean withComments)
+            throws Exception {
+        try {
+            WeblogEntryManager weblogManager = roller.getWeblogEntryManager();
+            List<WeblogEntry> entries = weblogManager.getWeblogEntriesByIds(ids);
+
+            Map<String, List<WeblogEntryComment>> comments = new HashMap<>();
+            if (withComments) {
+                for (WeblogEntryComment comment
+                        : weblogManager.getComments(ids, ApprovalStatus.APPROVED)) {
+                    comments.computeIfAbsent(comment.getWeblogEntry().getId(),
+                            id -> new ArrayList<>()).add(comment);
+                }
+            }
+
+            for (WeblogEntry entry : entries) {
+                sideWriter.addDocument(getDocument(entry, withComments
+                        ? comments.getOrDefault(entry.getId(), Collections.emptyList()) : null));
+            }
+
+            long done = indexed.addAndGet(entries.size());
+            if (logger.isDebugEnabled()) {
+                logger.debug("Indexed " + done + " of " + total + " entries");
+            }
+        } finally {
+            roller.release();
+        }
+    }
+
+    private static void deleteFiles(Path dir) throws IOException {
+        if (Files.isDirectory(dir)) {
+            try (FSDirectory directory = FSDirectory.open(dir)) {
+                for (String file : directory.listAll()) {
+                    Files.delete(dir.resolve(file));
+                }
+            }
+        }
+    }
+
+    /**
+     * How far along the rebuild is.
+     */
+    Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        long indexedCount = indexed.get();
+        long elapsed = (startTime == 0) ? 0
+                : ((endTime != 0) ? endTime : System.currentTimeMillis()) - startTime;
+        stats.put("state", state);
+        stats.put("started", startTime);
+        stats.put("indexed", indexedCount);
+        stats.put("total", total);
+        stats.put("percent", (total > 0) ? Math.min(100, indexedCount * 100 / total) : 0L);
+        stats.put("elapsed", elapsed);
+        stats.put("rate", (elapsed > 0) ? indexedCount * RollerConstants.SEC_IN_MS / elapsed : 0L);
+        return stats;
+    }
+}
@@ -22,7 +22,7 @@ import java.io.IOException;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.document.LongPoint;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
 import org.apache.lucene.queryparser.classic.ParseException;
@@ -35,6 +35,7 @@ import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopFieldDocs;
 import org.apache.roller.weblogger.business.search.IndexManager;
+import org.apache.roller.weblogger.pojos.WeblogEntry.PubStatus;
 
 /**
  * An operation that searches the index.
@@ -101,44 +102,60 @@ public class SearchOperation extends ReadFromIndexOperation {
         searcher = null;
 
         try {
-            IndexReader reader = manager.getSharedIndexReader();
-            searcher = new IndexSearcher(reader);
-
-            MultiFieldQueryParser multiParser = new MultiFieldQueryParser(
-                    SEARCH_FIELDS, LuceneIndexManager.getAnalyzer());
-
-            // Make it an AND by default. Comment this out for an or (default)
-            multiParser.setDefaultOperator(MultiFieldQueryParser.Operator.AND);
-
-            // Create a query object out of our term
-            Query query = multiParser.parse(term);
-
-            Term handleTerm = IndexUtil.getTerm(FieldConstants.WEBSITE_HANDLE, weblogHandle);
-            if (handleTerm != null) {
+            // released by the caller once done with the results
+            searcher = manager.acquireSearcher();
+
+            // the same query of the same version of the index finds the
+            // same documents, as when paging through results
+            SearchResultsCache cache = manager.getSearchResultsCache();
+            String cacheKey = cache.generateKey(searcher, term, weblogHandle, category, locale);
+            searchresults = cache.get(cacheKey, SORTER.getSort());
+            if (searchresults == null) {
+                MultiFieldQueryParser multiParser = new MultiFieldQueryParser(
+                        SEARCH_FIELDS, LuceneIndexManager.getAnalyzer());
+
+                // Make it an AND by default. Comment this out for an or (default)
+                multiParser.setDefaultOperator(MultiFieldQueryParser.Operator.AND);
+
+                // Create a query object out of our term
+                Query query = multiParser.parse(term);
+
+                Term handleTerm = IndexUtil.getTerm(FieldConstants.WEBSITE_HANDLE, weblogHandle);
+                if (handleTerm != null) {
+                    query = new BooleanQuery.Builder()
+                        .add(query, BooleanClause.Occur.MUST)
+                        .add(new TermQuery(handleTerm), BooleanClause.Occur.MUST)
+                        .build();
+                }
+
+                if (category != null) {
+                    Term catTerm = new Term(FieldConstants.CATEGORY, category.toLowerCase());
+                    query = new BooleanQuery.Builder()
+                        .add(query, BooleanClause.Occur.MUST)
+                        .add(new TermQuery(catTerm), BooleanClause.Occur.MUST)
+                        .build();
+                }
+
+                Term localeTerm = IndexUtil.getTerm(FieldConstants.LOCALE, locale);
+                if (localeTerm != null) {
+                    query = new BooleanQuery.Builder()
+                        .add(query, BooleanClause.Occur.MUST)
+                        .add(new TermQuery(localeTerm), BooleanClause.Occur.MUST)
+                        .build();
+                }
+
+                // only entries published by now, whatever else is in the index
                 query = new BooleanQuery.Builder()
                     .add(query, BooleanClause.Occur.MUST)
-                    .add(new TermQuery(handleTerm), BooleanClause.Occur.MUST)
+                    .add(new TermQuery(new Term(FieldConstants.STATUS, PubStatus.PUBLISHED.name())),
+                        BooleanClause.Occur.FILTER)
+                    .add(LongPoint.newRangeQuery(FieldConstants.PUBLISHED,
+                        Long.MIN_VALUE, System.currentTimeMillis()), BooleanClause.Occur.FILTER)
                     .build();
-            }
 
-            if (category != null) {
-                Term catTerm = new Term(FieldConstants.CATEGORY, category.toLowerCase());
-                query = new BooleanQuery.Builder()
-                    .add(query, BooleanClause.Occur.MUST)
-                    .add(new TermQuery(catTerm), BooleanClause.Occur.MUST)
-                    .build();
+                searchresults = searcher.search(query, docLimit, SORTER);
+                cache.put(cacheKey, searchresults);
             }
-
-            Term localeTerm = IndexUtil.getTerm(FieldConstants.LOCALE, locale);
-            if (localeTerm != null) {
-                query = new BooleanQuery.Builder()
-                    .add(query, BooleanClause.Occur.MUST)
-                    .add(new TermQuery(localeTerm), BooleanClause.Occur.MUST)
-                    .build();
-            }
-
-            searchresults = searcher.search(query, docLimit, SORTER);
-
         } catch (IOException e) {
             logger.error("Error searching index", e);
             parseError = e.getMessage();
@@ -147,7 +164,7 @@ public class SearchOperation extends ReadFromIndexOperation {
             // who cares?
             parseError = e.getMessage();
         }
-        // don't need to close the reader, since we didn't do any writing!
+        // the searcher is released once the results have been read
     }
 
     /**
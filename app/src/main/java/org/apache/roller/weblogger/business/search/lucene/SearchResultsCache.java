@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.business.search.lucene;
+
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.roller.weblogger.config.WebloggerConfig;
+import org.apache.roller.weblogger.util.cache.Cache;
+import org.apache.roller.weblogger.util.cache.CacheManager;
+
+/**
+ * Cache of the documents found by searches of the index, so that paging
+ * through results or searching again for popular terms does not parse and
+ * run the same query again.
+ *
+ * Document numbers only hold for the reader they were found with, so found
+ * documents are keyed by the version of the reader searched, and all are
+ * dropped once searchers are refreshed.  Entries coming due since a search
+ * show once its cached documents time out.
+ */
+final class SearchResultsCache implements ReferenceManager.RefreshListener {
+
+    private static final Log log = LogFactory.getLog(SearchResultsCache.class);
+
+    // a unique identifier for this cache, this is used as the prefix for
+    // roller config properties that apply to this cache
+    public static final String CACHE_ID = "cache.search";
+
+    // keep cached content
+    private boolean cacheEnabled = true;
+    private Cache contentCache = null;
+
+
+    SearchResultsCache() {
+
+        cacheEnabled = WebloggerConfig.getBooleanProperty(CACHE_ID+".enabled");
+
+        Map<String, String> cacheProps = new HashMap<>();
+        cacheProps.put("id", CACHE_ID);
+        Enumeration<Object> allProps = WebloggerConfig.keys();
+        String prop;
+        while(allProps.hasMoreElements()) {
+            prop = (String) allProps.nextElement();
+
+            // we are only interested in props for this cache
+            if(prop.startsWith(CACHE_ID+".")) {
+                cacheProps.put(prop.substring(CACHE_ID.length()+1),
+                        WebloggerConfig.getProperty(prop));
+            }
+        }
+
+        log.info(cacheProps);
+
+        if (cacheEnabled) {
+            contentCache = CacheManager.constructCache(null, cacheProps);
+        } else {
+            log.warn("Caching has been DISABLED");
+        }
+    }
+
+
+    /**
+     * The documents found by a search, sorted as they were found.
+     */
+    public TopFieldDocs get(String key, SortField[] sortFields) {
+
+        if (!cacheEnabled || key == null) {
+            return null;
+        }
+
+        Hits hits = (Hits) contentCache.get(key);
+
+        if(hits == null) {
+            log.debug("MISS "+key);
+            return null;
+        }
+        log.debug("HIT "+key);
+
+        ScoreDoc[] scoreDocs = new ScoreDoc[hits.docs.length];
+        for (int i = 0; i < scoreDocs.length; i++) {
+            scoreDocs[i] = new ScoreDoc(hits.docs[i], Float.NaN);
+        }
+        return new TopFieldDocs(hits.totalHits, scoreDocs, sortFields);
+    }
+
+
+    public void put(String key, TopFieldDocs value) {
+
+        if (!cacheEnabled || key == null || value == null) {
+            return;
+        }
+
+        // only the document numbers are needed to page through results
+        int[] docs = new int[value.scoreDocs.length];
+        for (int i = 0; i < docs.length; i++) {
+            docs[i] = value.scoreDocs[i].doc;
+        }
+        contentCache.put(key, new Hits(docs, value.totalHits));
+        log.debug("PUT "+key);
+    }
+
+
+    public void clear() {
+
+        if (!cacheEnabled) {
+            return;
+        }
+
+        contentCache.clear();
+        log.debug("CLEAR");
+    }
+
+
+    /**
+     * Generate a cache key for a search of the index by a searcher, or null
+     * if what it searches has no version to key it by.
+     */
+    public String generateKey(IndexSearcher searcher, String term,
+            String weblogHandle, String category, String locale) {
+
+        IndexReader reader = searcher.getIndexReader();
+        if (!(reader instanceof DirectoryReader) || term == null) {
+            return null;
+        }
+
+        // terms are case sensitive for the query parser's operators, such
+        // as AND and OR, so only spacing is normalized.  Each part is
+        // prefixed by its length, so no term can pass for another part.
+        StringBuilder key = new StringBuilder();
+        key.append(CACHE_ID).append(':');
+        key.append(((DirectoryReader) reader).getVersion());
+        appendPart(key, "term", term.trim().replaceAll("\\s+", " "));
+        appendPart(key, "handle", weblogHandle);
+        appendPart(key, "cat", (category != null) ? category.toLowerCase(Locale.ROOT) : null);
+        appendPart(key, "locale", locale);
+        return key.toString();
+    }
+
+
+    private static void appendPart(StringBuilder key, String name, String value) {
+        if (value != null) {
+            key.append('/').append(name).append('=');
+            key.append(value.length()).append(':').append(value);
+        }
+    }
+
+
+    @Override
+    public void beforeRefresh() {
+        // no-op
+    }
+
+
+    /**
+     * Searchers now read a newer version of the index, so the documents
+     * found in older ones are of no more use.
+     */
+    @Override
+    public void afterRefresh(boolean didRefresh) {
+        if (didRefresh) {
+            clear();
+        }
+    }
+
+
+    // the documents found by a search and how many were found in all
+    private static final class Hits {
+
+        private final int[] docs;
+        private final TotalHits totalHits;
+
+        private Hits(int[] docs, TotalHits totalHits) {
+            this.docs = docs;
+            this.totalHits = totalHits;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.business.search.lucene;
+
+import java.io.IOException;
+import java.util.Map;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.roller.weblogger.WebloggerException;
+import org.apache.roller.weblogger.business.Weblogger;
+import org.apache.roller.weblogger.pojos.WeblogEntry;
+
+/**
+ * An operation that brings the index up to date with a batch of entries,
+ * replacing the document of each entry with one of its current state or
+ * removing it.
+ */
+public class UpdateEntriesOperation extends WriteToIndexOperation {
+
+    private static Log logger =
+            LogFactory.getFactory().getInstance(UpdateEntriesOperation.class);
+
+    private final Weblogger roller;
+
+    // entry ids, true for those to remove from the index
+    private final Map<String, Boolean> updates;
+
+    /**
+     * @param updates entry ids, mapped to true for entries to remove from
+     *                the index and false for those to (re)index.
+     */
+    public UpdateEntriesOperation(Weblogger roller, LuceneIndexManager mgr, Map<String, Boolean> updates) {
+        super(mgr);
+        this.roller = roller;
+        this.updates = updates;
+    }
+
+    @Override
+    public void doRun() {
+        IndexWriter writer = beginWriting();
+        if (writer == null) {
+            return;
+        }
+        try {
+            for (Map.Entry<String, Boolean> update : updates.entrySet()) {
+                Term term = new Term(FieldConstants.ID, update.getKey());
+
+                // since this operation is run on a separate thread the
+                // entry is looked up here, and may be gone or unpublished
+                // by now
+                WeblogEntry entry = null;
+                if (!update.getValue()) {
+                    try {
+                        entry = roller.getWeblogEntryManager().getWeblogEntry(update.getKey());
+                    } catch (WebloggerException ex) {
+                        logger.error("Error getting weblogentry object", ex);
+                        continue;
+                    }
+                }
+
+                try {
+                    if (entry != null && entry.isPublished()) {
+                        writer.updateDocument(term, getDocument(entry));
+                    } else {
+                        writer.deleteDocuments(term);
+                    }
+                } catch (IOException e) {
+                    logger.error("Problems updating doc of entry " + update.getKey() + " in index", e);
+                }
+            }
+        } finally {
+            if (roller != null) {
+                roller.release();
+            }
+            endWriting();
+        }
+    }
+}
@@ -250,6 +250,10 @@ public class DatabaseInstaller {
                 upgradeTo610(con, runScripts);
                 dbversion = 610;
             }
+            if(dbversion < 620) {
+                upgradeTo620(con, runScripts);
+                dbversion = 620;
+            }
 
             // make sure the database version is the exact version
             // we are upgrading too.
@@ -736,6 +740,13 @@ public class DatabaseInstaller {
     private void upgradeTo610(Connection con, boolean runScripts) throws StartupException {
         simpleUpgrade(con, 520, 610, runScripts);
     }
+
+    /**
+     * Upgrade database to Roller 6.2
+     */
+    private void upgradeTo620(Connection con, boolean runScripts) throws StartupException {
+        simpleUpgrade(con, 610, 620, runScripts);
+    }
     
     /**
      * Simple upgrade using single SQL migration script.
@@ -21,6 +21,12 @@ package org.apache.roller.weblogger.config;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.roller.util.RollerConstants;
@@ -38,6 +44,11 @@ import org.apache.roller.weblogger.pojos.RuntimeConfigProperty;
  * thus the caller doesn't need the full RuntimeConfigProperty object.
  * 
  * We also provide some methods for converting to different data types.
+ *
+ * Property values are read from an immutable snapshot of all properties,
+ * loaded from the PropertiesManager on first use and replaced as a whole
+ * whenever properties are saved, here or on another node of a cluster, so
+ * reading a property does not touch the database.
  */
 public final class WebloggerRuntimeConfig {
     
@@ -50,6 +61,9 @@ public final class WebloggerRuntimeConfig {
     private static String relativeContextURL = null;
     private static String absoluteContextURL = null;
     
+    // values of all properties, null until first loaded
+    private static volatile Snapshot snapshot = null;
+    
     
     // prevent instantiations
     private WebloggerRuntimeConfig() {}
@@ -61,19 +75,12 @@ public final class WebloggerRuntimeConfig {
      **/
     public static String getProperty(String name) {
         
-        String value = null;
+        Snapshot current = getSnapshot();
+        String value = (current != null) ? current.values.get(name) : null;
         
-        try {
-            PropertiesManager pmgr = WebloggerFactory.getWeblogger().getPropertiesManager();
-            RuntimeConfigProperty prop = pmgr.getProperty(name);
-            if(prop != null) {
-                value = prop.getValue();
-            }
-        } catch(Exception e) {
-            log.warn("Trouble accessing property: "+name, e);
+        if (log.isDebugEnabled()) {
+            log.debug("fetched property ["+name+"="+value+"]");
         }
-        
-        log.debug("fetched property ["+name+"="+value+"]");
 
         return value;
     }
@@ -84,14 +91,10 @@ public final class WebloggerRuntimeConfig {
      **/
     public static boolean getBooleanProperty(String name) {
         
-        // get the value first, then convert
-        String value = WebloggerRuntimeConfig.getProperty(name);
+        Snapshot current = getSnapshot();
+        Boolean value = (current != null) ? current.booleans.get(name) : null;
         
-        if (value == null) {
-            return false;
-        }
-
-        return Boolean.valueOf(value);
+        return value != null && value;
     }
     
     
@@ -100,21 +103,78 @@ public final class WebloggerRuntimeConfig {
      **/
     public static int getIntProperty(String name) {
         
-        // get the value first, then convert
-        String value = WebloggerRuntimeConfig.getProperty(name);
+        Snapshot current = getSnapshot();
+        if (current == null || current.values.get(name) == null) {
+            return -1;
+        }
         
+        Integer value = current.ints.get(name);
         if (value == null) {
+            log.warn("Trouble converting to int: "+name);
             return -1;
         }
         
-        int intval = -1;
-        try {
-            intval = Integer.parseInt(value);
-        } catch(Exception e) {
-            log.warn("Trouble converting to int: "+name, e);
+        return value;
+    }
+    
+    
+    /**
+     * Replace the values of all properties, as loaded from the database.
+     */
+    public static synchronized void setProperties(Collection<RuntimeConfigProperty> props) {
+        Map<String, String> values = new HashMap<>();
+        for (RuntimeConfigProperty prop : props) {
+            values.put(prop.getName(), prop.getValue());
+        }
+        snapshot = new Snapshot(values);
+    }
+    
+    
+    /**
+     * Change the values of the given properties, leaving the others be.
+     * Nothing changes if the properties have not been loaded yet, as they
+     * will be loaded from the database when first used.
+     *
+     * @return the properties whose values changed, all of them if the
+     *         properties have not been loaded yet
+     */
+    public static synchronized List<RuntimeConfigProperty> updateProperties(
+            Collection<RuntimeConfigProperty> props) {
+        
+        Snapshot current = snapshot;
+        if (current == null) {
+            return new ArrayList<>(props);
         }
         
-        return intval;
+        List<RuntimeConfigProperty> changed = new ArrayList<>();
+        Map<String, String> values = new HashMap<>(current.values);
+        for (RuntimeConfigProperty prop : props) {
+            if (!values.containsKey(prop.getName())
+                    || !Objects.equals(values.get(prop.getName()), prop.getValue())) {
+                values.put(prop.getName(), prop.getValue());
+                changed.add(prop);
+            }
+        }
+        if (!changed.isEmpty()) {
+            snapshot = new Snapshot(values);
+        }
+        return changed;
+    }
+    
+    
+    private static Snapshot getSnapshot() {
+        
+        Snapshot current = snapshot;
+        if (current == null) {
+            try {
+                PropertiesManager pmgr = WebloggerFactory.getWeblogger().getPropertiesManager();
+                setProperties(pmgr.getProperties().values());
+                current = snapshot;
+            } catch(Exception e) {
+                log.warn("Trouble loading properties", e);
+            }
+        }
+        return current;
     }
     
     
@@ -235,4 +295,31 @@ public final class WebloggerRuntimeConfig {
         return (isFrontPageWeblog(weblogHandle) && siteWide);
     }
     
+    
+    /**
+     * Values of all properties at one point in time, with those which are
+     * booleans and ints already converted.
+     */
+    private static final class Snapshot {
+        
+        private final Map<String, String> values;
+        private final Map<String, Boolean> booleans = new HashMap<>();
+        private final Map<String, Integer> ints = new HashMap<>();
+        
+        Snapshot(Map<String, String> values) {
+            this.values = values;
+            for (Map.Entry<String, String> value : values.entrySet()) {
+                if (value.getValue() == null) {
+                    continue;
+                }
+                booleans.put(value.getKey(), Boolean.valueOf(value.getValue()));
+                try {
+                    ints.put(value.getKey(), Integer.parseInt(value.getValue()));
+                } catch (NumberFormatException e) {
+                    // not an int
+                }
+            }
+        }
+    }
+    
 }
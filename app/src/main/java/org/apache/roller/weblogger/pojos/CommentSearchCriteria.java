@@ -38,6 +38,10 @@ public class CommentSearchCriteria {
     private boolean reverseChrono = false;
     // Offset into results for paging
     private int offset = 0;
+    // Post time and id of the comment to seek past, so only those following
+    // it in the sort order are returned, or null to page by offset
+    private Date seekTime;
+    private String seekId;
     // Max comments to return (or -1 for no limit)
     private int maxResults = -1;
 
@@ -105,6 +109,19 @@ public class CommentSearchCriteria {
         this.offset = offset;
     }
 
+    public Date getSeekTime() {
+        return seekTime;
+    }
+
+    public String getSeekId() {
+        return seekId;
+    }
+
+    public void setSeek(Date seekTime, String seekId) {
+        this.seekTime = seekTime;
+        this.seekId = seekId;
+    }
+
     public int getMaxResults() {
         return maxResults;
     }
@@ -85,6 +85,7 @@ public class Weblog implements Serializable {
     private String  about            = null;
     private String  creator          = null;
     private String  analyticsCode    = null;
+    private Long    approvedCommentCount = 0L;
 
     // Associated objects
     private WeblogCategory bloggerCategory = null;
@@ -508,6 +509,19 @@ public class Weblog implements Serializable {
     public void setLastModified(Date lastModified) {
         this.lastModified = lastModified;
     }
+    
+    
+    /**
+     * Number of approved comments in this weblog, as kept up to date by
+     * the WeblogEntryManager, or null if not counted yet.
+     */
+    public Long getApprovedCommentCount() {
+        return approvedCommentCount;
+    }
+
+    public void setApprovedCommentCount(Long approvedCommentCount) {
+        this.approvedCommentCount = approvedCommentCount;
+    }
   
     
     /**
@@ -787,6 +801,10 @@ public class Weblog implements Serializable {
     }      
 
     public long getCommentCount() {
+        if (approvedCommentCount != null) {
+            return approvedCommentCount;
+        }
+        // not counted yet, see CommentCountsTask
         long count = 0;
         try {
             Weblogger roller = WebloggerFactory.getWeblogger();
@@ -85,6 +85,7 @@ public class WeblogEntry implements Serializable {
     private Integer   commentDays   = 7;
     private Boolean   rightToLeft   = Boolean.FALSE;
     private Boolean   pinnedToMain  = Boolean.FALSE;
+    private Integer   approvedCommentCount = 0;
     private PubStatus status        = PubStatus.DRAFT;
     private String    locale        = null;
     private String    creatorUserName = null;      
@@ -486,6 +487,18 @@ public class WeblogEntry implements Serializable {
         this.commentDays = commentDays;
     }
     
+    /**
+     * Number of approved comments on this weblog entry, as kept up to date
+     * by the WeblogEntryManager, or null if not counted yet.
+     */
+    public Integer getApprovedCommentCount() {
+        return approvedCommentCount;
+    }
+    
+    public void setApprovedCommentCount(Integer approvedCommentCount) {
+        this.approvedCommentCount = approvedCommentCount;
+    }
+    
     /**
      * True if this entry should be rendered right to left.
      */
@@ -735,6 +748,10 @@ public class WeblogEntry implements Serializable {
     }
     
     public int getCommentCount() {
+        if (approvedCommentCount != null) {
+            return approvedCommentCount;
+        }
+        // not counted yet, see CommentCountsTask
         return getComments().size();
     }
     
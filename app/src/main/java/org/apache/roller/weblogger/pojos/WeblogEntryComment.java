@@ -52,6 +52,9 @@ public class WeblogEntryComment implements Serializable {
 
     // associations
     private WeblogEntry weblogEntry = null;
+
+    // status as last loaded or saved, null for new comments
+    private transient ApprovalStatus savedStatus = null;
     
     
     public WeblogEntryComment() {}
@@ -176,6 +179,21 @@ public class WeblogEntryComment implements Serializable {
         this.status = status;
     }
     
+    /**
+     * Status of the comment as last loaded or saved, null if never saved.
+     * Used to keep approved comment counts up to date.
+     */
+    public ApprovalStatus getSavedStatus() {
+        return savedStatus;
+    }
+
+    /**
+     * Mark the current status as saved, called after loading and saving.
+     */
+    public void markStatusSaved() {
+        this.savedStatus = status;
+    }
+    
     
     /**
      * True if person who wrote comment wishes to be notified of new comments
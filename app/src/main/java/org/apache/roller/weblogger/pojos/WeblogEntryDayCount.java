@@ -0,0 +1,81 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one or more
+*  contributor license agreements.  The ASF licenses this file to You
+* under the Apache License, Version 2.0 (the "License"); you may not
+* use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.  For additional information regarding
+* copyright in this work, please see the NOTICE file in the top level
+* directory of this distribution.
+*/
+
+package org.apache.roller.weblogger.pojos;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Number of weblog entries published on a calendar day, and the first of them.
+ */
+public class WeblogEntryDayCount implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Noon of the day, in the time zone of the weblog */
+    private final Date day;
+
+    /** The day as a YYYYMMDD string */
+    private final String dateString;
+
+    /** Number of entries on the day */
+    private int count = 0;
+
+    /** Anchor and publication time of the first entry of the day */
+    private String firstAnchor = null;
+    private Date firstPubTime = null;
+
+    public WeblogEntryDayCount(Date day, String dateString) {
+        this.day = new Date(day.getTime());
+        this.dateString = dateString;
+    }
+
+    /**
+     * Count an entry published on the day.
+     */
+    public void add(Date pubTime, String anchor) {
+        count++;
+        if (firstPubTime == null || pubTime.before(firstPubTime)) {
+            firstPubTime = new Date(pubTime.getTime());
+            firstAnchor = anchor;
+        }
+    }
+
+    public Date getDay() {
+        return new Date(day.getTime());
+    }
+
+    public String getDateString() {
+        return dateString;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public String getFirstAnchor() {
+        return firstAnchor;
+    }
+
+    @Override
+    public String toString() {
+        return dateString + "=" + count;
+    }
+
+}
@@ -25,6 +25,8 @@ public class WeblogEntrySearchCriteria {
 
     public enum SortOrder {ASCENDING, DESCENDING}
     public enum SortBy {PUBLICATION_TIME, UPDATE_TIME}
+    // DISPLAY also loads what rendering an entry touches, for all entries at once
+    public enum FetchPlan {DEFAULT, DISPLAY}
 
     // TODO: See if can switch from name of Category to Category object
 
@@ -52,8 +54,14 @@ public class WeblogEntrySearchCriteria {
     private String locale;
     // Offset into results for paging
     private int offset = 0;
+    // Sort date and id of the entry to seek past, so only those following
+    // it in the sort order are returned, or null to page by offset
+    private Date seekTime;
+    private String seekId;
 
     private int maxResults = -1;
+    // Associations to load along with the entries
+    private FetchPlan fetchPlan = FetchPlan.DEFAULT;
 
     public Weblog getWeblog() {
         return weblog;
@@ -151,6 +159,19 @@ public class WeblogEntrySearchCriteria {
         this.offset = offset;
     }
 
+    public Date getSeekTime() {
+        return seekTime;
+    }
+
+    public String getSeekId() {
+        return seekId;
+    }
+
+    public void setSeek(Date seekTime, String seekId) {
+        this.seekTime = seekTime;
+        this.seekId = seekId;
+    }
+
     public int getMaxResults() {
         return maxResults;
     }
@@ -159,4 +180,11 @@ public class WeblogEntrySearchCriteria {
         this.maxResults = maxResults;
     }
 
+    public FetchPlan getFetchPlan() {
+        return fetchPlan;
+    }
+
+    public void setFetchPlan(FetchPlan fetchPlan) {
+        this.fetchPlan = fetchPlan;
+    }
 }
@@ -23,6 +23,7 @@ import java.util.stream.Collectors;
 import org.apache.roller.weblogger.WebloggerException;
 import org.apache.roller.weblogger.business.URLStrategy;
 import org.apache.roller.weblogger.pojos.WeblogCategory;
+import org.apache.roller.weblogger.util.cache.RenderDependencies;
 
 
 /**
@@ -78,6 +79,7 @@ public final class WeblogCategoryWrapper {
     }
 
     public List<WeblogEntryWrapper> retrieveWeblogEntries(boolean publishedOnly) throws WebloggerException {
+        RenderDependencies.recordEntryQuery(this.pojo.getWeblog(), this.pojo.getName(), null, null, null);
         return this.pojo.retrieveWeblogEntries(publishedOnly).stream()
                 .map(entry -> WeblogEntryWrapper.wrap(entry, urlStrategy))
                 .collect(Collectors.toList());
@@ -27,6 +27,7 @@ import org.apache.roller.weblogger.WebloggerException;
 import org.apache.roller.weblogger.business.URLStrategy;
 import org.apache.roller.weblogger.pojos.TagStat;
 import org.apache.roller.weblogger.util.HTMLSanitizer;
+import org.apache.roller.weblogger.util.cache.RenderDependencies;
 
 import java.util.stream.Collectors;
 import org.apache.roller.weblogger.pojos.ThemeTemplate.ComponentType;
@@ -54,6 +55,7 @@ public final class WeblogWrapper {
     // wrap the given pojo if it is not null with detected type
     public static WeblogWrapper wrap(Weblog toWrap, URLStrategy strat) {
         if (toWrap != null) {
+            RenderDependencies.recordWeblog(toWrap);
             return new WeblogWrapper(toWrap, strat);
         }
         return null;
@@ -274,7 +276,12 @@ public final class WeblogWrapper {
     
     
     public WeblogEntryWrapper getWeblogEntry(String anchor) {
-        return WeblogEntryWrapper.wrap(this.pojo.getWeblogEntry(anchor), urlStrategy);
+        WeblogEntryWrapper entry = WeblogEntryWrapper.wrap(this.pojo.getWeblogEntry(anchor), urlStrategy);
+        if (entry == null) {
+            // it may not have been posted yet
+            RenderDependencies.recordEntryQuery(this.pojo, null, null, null, null);
+        }
+        return entry;
     }
 
 
@@ -290,6 +297,7 @@ public final class WeblogWrapper {
 
     
     public List<WeblogEntryWrapper> getRecentWeblogEntries(String cat, int length) {
+        RenderDependencies.recordEntryQuery(this.pojo, cat, null, null, null);
         return this.pojo.getRecentWeblogEntries(cat, length).stream()
                 .map(entry -> WeblogEntryWrapper.wrap(entry, urlStrategy))
                 .collect(Collectors.toList());
@@ -297,6 +305,8 @@ public final class WeblogWrapper {
     
     
     public List<WeblogEntryWrapper> getRecentWeblogEntriesByTag(String tag, int length) {
+        RenderDependencies.recordEntryQuery(this.pojo, null,
+                (tag != null) ? List.of(tag) : null, null, null);
         return this.pojo.getRecentWeblogEntriesByTag(tag, length).stream()
                 .map(entry -> WeblogEntryWrapper.wrap(entry, urlStrategy))
                 .collect(Collectors.toList());
@@ -304,6 +314,7 @@ public final class WeblogWrapper {
     
     
     public List<WeblogEntryCommentWrapper> getRecentComments(int length) {
+        RenderDependencies.recordComments(this.pojo);
         return this.pojo.getRecentComments(length).stream()
                 .map(wec -> WeblogEntryCommentWrapper.wrap(wec, urlStrategy))
                 .collect(Collectors.toList());
@@ -319,16 +330,19 @@ public final class WeblogWrapper {
     }
     
     public List<TagStat> getPopularTags(int sinceDays,int length) {
+        RenderDependencies.recordTagStats(this.pojo);
         return this.pojo.getPopularTags(sinceDays,length);
     }
     
     
     public long getCommentCount() {
+        RenderDependencies.recordComments(this.pojo);
         return this.pojo.getCommentCount();
     }
     
     
     public long getEntryCount() {
+        RenderDependencies.recordEntryQuery(this.pojo, null, null, null, null);
         return this.pojo.getEntryCount();
     }
     
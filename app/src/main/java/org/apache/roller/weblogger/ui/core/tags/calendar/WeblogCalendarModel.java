@@ -36,10 +36,13 @@ import org.apache.roller.weblogger.business.WebloggerFactory;
 import org.apache.roller.weblogger.business.WeblogEntryManager;
 import org.apache.roller.weblogger.pojos.WeblogEntry;
 import org.apache.roller.weblogger.pojos.WeblogEntry.PubStatus;
+import org.apache.roller.weblogger.pojos.WeblogEntryDayCount;
 import org.apache.roller.weblogger.pojos.Weblog;
 import org.apache.roller.weblogger.pojos.WeblogEntrySearchCriteria;
 import org.apache.roller.weblogger.ui.rendering.util.WeblogPageRequest;
+import org.apache.roller.weblogger.ui.rendering.util.cache.CalendarCache;
 import org.apache.roller.util.DateUtil;
+import org.apache.roller.weblogger.util.cache.RenderDependencies;
 
 
 /**
@@ -100,6 +103,8 @@ public class WeblogCalendarModel implements CalendarModel {
         Calendar cal = (Calendar)calendar.clone();
         Date startDate = DateUtil.getStartOfMonth(month,cal);
         Date endDate = DateUtil.getEndOfMonth(month,cal);
+        WeblogEntry prevEntry = null;
+        WeblogEntry nextEntry = null;
         
         // Determine previous non-empty month
         // Get entries before startDate, using category restriction limit 1
@@ -118,7 +123,7 @@ public class WeblogCalendarModel implements CalendarModel {
             List<WeblogEntry> prevEntries = mgr.getWeblogEntries(wesc);
 
             if (!prevEntries.isEmpty()) {
-                WeblogEntry prevEntry = prevEntries.get(0);
+                prevEntry = prevEntries.get(0);
                 prevMonth = DateUtil.getStartOfMonth(new Date(prevEntry.getPubTime().getTime()),getCalendar());
             }
         } catch (WebloggerException e) {
@@ -141,13 +146,21 @@ public class WeblogCalendarModel implements CalendarModel {
             wesc.setMaxResults(1);
             List<WeblogEntry> nextEntries = mgr.getWeblogEntries(wesc);
             if (!nextEntries.isEmpty()) {
-                WeblogEntry nextEntry = nextEntries.get(0);
+                nextEntry = nextEntries.get(0);
                 nextMonth = DateUtil.getStartOfMonth(new Date(nextEntry.getPubTime().getTime()),getCalendar());
             }
         } catch (WebloggerException e) {
             log.error("ERROR determining next non-empty month");
         }  
         
+        // the month shown, and where the links to the months around it go,
+        // only change with the entries from the previous one to the next one
+        RenderDependencies.recordEntry(prevEntry);
+        RenderDependencies.recordEntry(nextEntry);
+        RenderDependencies.recordEntryQuery(weblog, cat, null,
+                (prevEntry != null) ? prevEntry.getPubTime() : null,
+                (nextEntry != null) ? nextEntry.getPubTime() : null);
+        
         // Fix for ROL-840 Don't include future entries
         Date now = new Date();
         if (endDate.after(now)) {
@@ -168,7 +181,21 @@ public class WeblogCalendarModel implements CalendarModel {
             wesc.setCatName(catName);
             wesc.setStatus(PubStatus.PUBLISHED);
             wesc.setLocale(locale);
-            monthMap = mgr.getWeblogEntryStringMap(wesc);
+            
+            // only which days have entries matters, so counts will do
+            CalendarCache cache = CalendarCache.getInstance();
+            String key = cache.generateKey(weblog, format6chars(startDate, getCalendar()), catName, locale);
+            Map<Date, WeblogEntryDayCount> dayCounts = cache.get(key);
+            if (dayCounts == null) {
+                dayCounts = mgr.getWeblogEntryDayCounts(wesc);
+                cache.put(key, dayCounts);
+            }
+            
+            Map<Date, String> dateStrings = new HashMap<>();
+            for (WeblogEntryDayCount dayCount : dayCounts.values()) {
+                dateStrings.put(dayCount.getDay(), dayCount.getDateString());
+            }
+            monthMap = dateStrings;
         } catch (WebloggerException e) {
             log.error(e);
             monthMap = new HashMap<>();
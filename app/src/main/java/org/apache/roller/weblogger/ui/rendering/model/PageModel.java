@@ -299,7 +299,8 @@ public class PageModel implements Model {
                     pageRequest.getWeblogDate(),
                     cat,
                     tags,
-                    pageRequest.getPageNum());
+                    pageRequest.getPageNum(),
+                    pageRequest.getPageCursor());
         }
     }
         
@@ -121,7 +121,8 @@ public class SearchResultsFeedModel implements Model {
 				feedRequest.getLocale(),
 				feedRequest.getPage(),
 				entryCount,
-				urlStrategy
+				urlStrategy,
+				SearchResultsModel.getResultsMode()
 			);
 			this.hits = searchResult.getResults().size();
 			this.offset = searchResult.getOffset();
@@ -18,7 +18,6 @@
 
 package org.apache.roller.weblogger.ui.rendering.model;
 
-import java.sql.Timestamp;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Map;
@@ -32,6 +31,7 @@ import org.apache.roller.weblogger.business.URLStrategy;
 import org.apache.roller.weblogger.business.WebloggerFactory;
 import org.apache.roller.weblogger.business.search.IndexManager;
 import org.apache.roller.weblogger.business.search.SearchResultList;
+import org.apache.roller.weblogger.config.WebloggerConfig;
 import org.apache.roller.weblogger.pojos.WeblogEntryWrapperComparator;
 import org.apache.roller.weblogger.pojos.wrapper.WeblogCategoryWrapper;
 import org.apache.roller.weblogger.pojos.wrapper.WeblogEntryWrapper;
@@ -98,18 +98,16 @@ public class SearchResultsModel extends PageModel {
 				searchRequest.getLocale(),
 				searchRequest.getPageNum(),
 				RESULTS_PER_PAGE,
-				urlStrategy
+				urlStrategy,
+				getResultsMode()
 			);
 			hits = searchResultList.getResults().size();
 			offset = searchResultList.getOffset();
 			limit = searchResultList.getLimit();
 			categories = searchResultList.getCategories();
 
-			Timestamp now = new Timestamp(new Date().getTime());
 			for (WeblogEntryWrapper entry : searchResultList.getResults()) {
-				if (entry.getPubTime().before(now)) {
-					addEntryToResults(results, entry);
-				}
+				addEntryToResults(results, entry);
 			}
 
 		} catch (WebloggerException we) {
@@ -139,6 +137,15 @@ public class SearchResultsModel extends PageModel {
 		set.add(entry);
 	}
 
+	/**
+	 * Search results are rendered from what the index keeps of the entries
+	 * if so configured, for themes that show no more than that of them.
+	 */
+	static IndexManager.ResultsMode getResultsMode() {
+		return WebloggerConfig.getBooleanProperty("search.results.fromIndex", false)
+			? IndexManager.ResultsMode.INDEX : IndexManager.ResultsMode.ENTRIES;
+	}
+
 	/**
 	 * Is this page showing search results?
 	 */
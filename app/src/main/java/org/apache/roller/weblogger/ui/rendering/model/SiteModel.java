@@ -54,6 +54,8 @@ import org.apache.roller.weblogger.ui.rendering.pagers.WeblogsPager;
 import org.apache.roller.weblogger.ui.rendering.util.WeblogFeedRequest;
 import org.apache.roller.weblogger.ui.rendering.util.WeblogPageRequest;
 import org.apache.roller.weblogger.ui.rendering.util.WeblogRequest;
+import org.apache.roller.weblogger.util.PageCursor;
+import org.apache.roller.weblogger.util.cache.RenderDependencies;
 
 
 /**
@@ -69,6 +71,7 @@ public class SiteModel implements Model {
     private List<String> tags = Collections.emptyList();
     private String pageLink = null;
     private int pageNum = 0;
+    private PageCursor pageCursor = null;
     
     private URLStrategy urlStrategy = null;
     
@@ -91,6 +94,7 @@ public class SiteModel implements Model {
             ThemeTemplate weblogPage = ((WeblogPageRequest)weblogRequest).getWeblogPage();
             pageLink = (weblogPage != null) ? weblogPage.getLink() : null;
             pageNum = ((WeblogPageRequest)weblogRequest).getPageNum();
+            pageCursor = ((WeblogPageRequest)weblogRequest).getPageCursor();
             tags = ((WeblogPageRequest)weblogRequest).getTags();
         } else if (weblogRequest instanceof WeblogFeedRequest) {
             this.feedRequest = (WeblogFeedRequest) weblogRequest;
@@ -224,7 +228,8 @@ public class SiteModel implements Model {
             null,
             sinceDays,
             pageNum, 
-            length);
+            length,
+            pageCursor);
     }     
     
     
@@ -303,6 +308,7 @@ public class SiteModel implements Model {
      * names start with each letter.
      */
     public Map<String, Long> getWeblogHandleLetterMap() {
+        RenderDependencies.recordWeblogList();
         try {
             return WebloggerFactory.getWeblogger().getWeblogManager().getWeblogHandleLetterMap();
         } catch (Exception e) {
@@ -316,6 +322,7 @@ public class SiteModel implements Model {
      * Return list of weblogs that user belongs to.
      */
     public List<WeblogWrapper> getUsersWeblogs(String userName) {
+        RenderDependencies.recordWeblogList();
         List<WeblogWrapper> results = new ArrayList<>();
         try {
             Weblogger roller = WebloggerFactory.getWeblogger();
@@ -390,6 +397,7 @@ public class SiteModel implements Model {
      * @param len      Max number of results to return
      */
     public List<WeblogWrapper> getNewWeblogs(int sinceDays, int length) {
+        RenderDependencies.recordWeblogList();
         List<WeblogWrapper> results = new ArrayList<>();
         Date startDate = JPAWeblogEntryManagerImpl.getStartDateNow(sinceDays);
         try {            
@@ -433,6 +441,7 @@ public class SiteModel implements Model {
      */
     public List<StatCount> getHotWeblogs(int sinceDays, int length) {
         
+        RenderDependencies.recordWeblogList();
         List<StatCount> results = new ArrayList<>();
         try {
             WeblogEntryManager mgr = WebloggerFactory.getWeblogger().getWeblogEntryManager();
@@ -464,6 +473,8 @@ public class SiteModel implements Model {
      * @param length   Max number of results to return
      */
     public List<StatCount> getMostCommentedWeblogs(int sinceDays , int length) {
+        RenderDependencies.recordComments(null);
+        RenderDependencies.recordWeblogList();
         Date startDate = JPAWeblogEntryManagerImpl.getStartDateNow(sinceDays);
         try {
             return WebloggerFactory.getWeblogger().getWeblogManager().getMostCommentedWeblogs(
@@ -483,6 +494,7 @@ public class SiteModel implements Model {
      * @param length      Max number of results to return
      */
     public List<StatCount> getMostCommentedWeblogEntries(List<String> cats, int sinceDays, int length) {
+        RenderDependencies.recordComments(null);
         Date startDate = JPAWeblogEntryManagerImpl.getStartDateNow(sinceDays);
         try {
             Weblogger roller = WebloggerFactory.getWeblogger();
@@ -500,6 +512,7 @@ public class SiteModel implements Model {
      * @param length    Max number of results to return
      */
     public List<WeblogEntryWrapper> getPinnedWeblogEntries(int length) {
+        RenderDependencies.recordAllEntriesQuery(true);
         List<WeblogEntryWrapper> results = new ArrayList<>();
         try {            
             Weblogger roller = WebloggerFactory.getWeblogger();
@@ -529,6 +542,7 @@ public class SiteModel implements Model {
             startDate = cal.getTime();     
         }
         
+        RenderDependencies.recordTagStats(null);
         try {            
             Weblogger roller = WebloggerFactory.getWeblogger();
             WeblogEntryManager wmgr = roller.getWeblogEntryManager();
@@ -541,6 +555,7 @@ public class SiteModel implements Model {
     
     
     public long getCommentCount() {
+        RenderDependencies.recordComments(null);
         long count = 0;
         try {
             Weblogger roller = WebloggerFactory.getWeblogger();
@@ -554,6 +569,7 @@ public class SiteModel implements Model {
     
     
     public long getEntryCount() {
+        RenderDependencies.recordAllEntriesQuery(false);
         long count = 0;
         try {
             Weblogger roller = WebloggerFactory.getWeblogger();
@@ -567,6 +583,7 @@ public class SiteModel implements Model {
     
     
     public long getWeblogCount() {
+        RenderDependencies.recordWeblogList();
         long count = 0;
         try {
             count = WebloggerFactory.getWeblogger().getWeblogManager().getWeblogCount();            
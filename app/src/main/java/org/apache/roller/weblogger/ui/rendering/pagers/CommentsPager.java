@@ -21,6 +21,7 @@ package org.apache.roller.weblogger.ui.rendering.pagers;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import org.apache.commons.logging.Log;
@@ -34,6 +35,8 @@ import org.apache.roller.weblogger.pojos.WeblogEntryComment;
 import org.apache.roller.weblogger.pojos.WeblogEntryComment.ApprovalStatus;
 import org.apache.roller.weblogger.pojos.Weblog;
 import org.apache.roller.weblogger.pojos.wrapper.WeblogEntryCommentWrapper;
+import org.apache.roller.weblogger.util.PageCursor;
+import org.apache.roller.weblogger.util.cache.RenderDependencies;
 
 
 /**
@@ -56,6 +59,13 @@ public class CommentsPager extends AbstractPager<WeblogEntryCommentWrapper> {
     // most recent update time of current set of entries
     private Date lastUpdated = null;        
     
+    // position of the page, or null to page by offset
+    private PageCursor cursor = null;
+    
+    // first and last comments shown, which the prev and next links seek past
+    private WeblogEntryComment firstComment = null;
+    private WeblogEntryComment lastComment = null;
+    
     public CommentsPager(
             URLStrategy    strat,
             String         baseUrl,
@@ -64,12 +74,30 @@ public class CommentsPager extends AbstractPager<WeblogEntryCommentWrapper> {
             int            page,
             int            length) {
         
+        this(strat, baseUrl, weblog, sinceDays, page, length, null);
+    }
+    
+    
+    public CommentsPager(
+            URLStrategy    strat,
+            String         baseUrl,
+            Weblog         weblog,
+            int            sinceDays,
+            int            page,
+            int            length,
+            PageCursor     cursor) {
+        
         super(strat, baseUrl, page);
         
         this.weblog = weblog;
         this.sinceDays = sinceDays;
         this.length = length;
         
+        // the first page is always the most recent comments
+        if (getPage() > 0) {
+            this.cursor = cursor;
+        }
+        
         // initialize the collection
         getItems();
     }
@@ -101,16 +129,37 @@ public class CommentsPager extends AbstractPager<WeblogEntryCommentWrapper> {
                 csc.setStartDate(startDate);
                 csc.setStatus(ApprovalStatus.APPROVED);
                 csc.setReverseChrono(true);
-                csc.setOffset(offset);
-                csc.setMaxResults(length + 1);
+                if (cursor == null) {
+                    csc.setOffset(offset);
+                    csc.setMaxResults(length + 1);
+                } else if (cursor.isBefore()) {
+                    // the comments closest to the cursor come first going
+                    // back up, and the page we came from follows
+                    csc.setSeek(cursor.getTime(), cursor.getId());
+                    csc.setReverseChrono(false);
+                    csc.setMaxResults(length);
+                    more = true;
+                } else {
+                    csc.setSeek(cursor.getTime(), cursor.getId());
+                    csc.setMaxResults(length + 1);
+                }
 
                 List<WeblogEntryComment> commentsList = wmgr.getComments(csc);
+                RenderDependencies.recordComments(weblog);
+                if (!csc.isReverseChrono()) {
+                    commentsList = new ArrayList<>(commentsList);
+                    Collections.reverse(commentsList);
+                }
                 
                 // wrap the results
                 int count = 0;
                 for (WeblogEntryComment comment : commentsList) {
                     if (count++ < length) {
                         results.add(WeblogEntryCommentWrapper.wrap(comment, urlStrategy));
+                        if (firstComment == null) {
+                            firstComment = comment;
+                        }
+                        lastComment = comment;
                     } else {
                         more = true;
                     }
@@ -132,6 +181,33 @@ public class CommentsPager extends AbstractPager<WeblogEntryCommentWrapper> {
         return more;
     }
     
+    
+    @Override
+    public String getNextLink() {
+        String link = super.getNextLink();
+        if (link != null && lastComment != null) {
+            PageCursor next = PageCursor.after(lastComment.getPostTime(), lastComment.getId());
+            if (next != null) {
+                return next.appendTo(link);
+            }
+        }
+        return link;
+    }
+    
+    
+    @Override
+    public String getPrevLink() {
+        String link = super.getPrevLink();
+        // no cursor back to the first page, so it stays the same url
+        if (link != null && getPage() > 1 && firstComment != null) {
+            PageCursor prev = PageCursor.before(firstComment.getPostTime(), firstComment.getId());
+            if (prev != null) {
+                return prev.appendTo(link);
+            }
+        }
+        return link;
+    }
+    
     /** Get last updated time from items in pager */
     public Date getLastUpdated() {
         if (lastUpdated == null) {
@@ -32,6 +32,8 @@ import org.apache.roller.weblogger.pojos.WeblogEntry;
 import org.apache.roller.weblogger.pojos.Weblog;
 import org.apache.roller.weblogger.pojos.WeblogEntrySearchCriteria;
 import org.apache.roller.weblogger.pojos.wrapper.WeblogEntryWrapper;
+import org.apache.roller.weblogger.util.PageCursor;
+import org.apache.roller.weblogger.util.cache.RenderDependencies;
 
 
 /**
@@ -47,6 +49,13 @@ public class WeblogEntriesLatestPager extends AbstractWeblogEntriesPager {
     // are there more pages?
     private boolean more = false;
     
+    // position of the page, or null to page by offset
+    private final PageCursor cursor;
+    
+    // first and last entries shown, which the prev and next links seek past
+    private WeblogEntry firstEntry = null;
+    private WeblogEntry lastEntry = null;
+    
     
     public WeblogEntriesLatestPager(
             URLStrategy        strat,
@@ -59,8 +68,27 @@ public class WeblogEntriesLatestPager extends AbstractWeblogEntriesPager {
             List<String>       tags,
             int                page) {
         
+        this(strat, weblog, locale, pageLink, entryAnchor, dateString, catName, tags, page, null);
+    }
+    
+    
+    public WeblogEntriesLatestPager(
+            URLStrategy        strat,
+            Weblog             weblog,
+            String             locale,
+            String             pageLink,
+            String             entryAnchor,
+            String             dateString,
+            String             catName,
+            List<String>       tags,
+            int                page,
+            PageCursor         cursor) {
+        
         super(strat, weblog, locale, pageLink, entryAnchor, dateString, catName, tags, page);
         
+        // the first page is always the most recent entries
+        this.cursor = (this.page > 0) ? cursor : null;
+        
         // initialize the pager collection
         getEntries();
     }
@@ -78,9 +106,25 @@ public class WeblogEntriesLatestPager extends AbstractWeblogEntriesPager {
                 wesc.setCatName(catName);
                 wesc.setTags(tags);
                 wesc.setStatus(WeblogEntry.PubStatus.PUBLISHED);
+                wesc.setFetchPlan(WeblogEntrySearchCriteria.FetchPlan.DISPLAY);
                 wesc.setLocale(locale);
-                wesc.setOffset(offset);
-                wesc.setMaxResults(length+1);
+                boolean before = cursor != null && cursor.isBefore();
+                if (cursor == null) {
+                    wesc.setOffset(offset);
+                    wesc.setMaxResults(length+1);
+                } else if (before) {
+                    // the entries closest to the cursor come first going
+                    // back up, and the page we came from follows
+                    wesc.setSeek(cursor.getTime(), cursor.getId());
+                    wesc.setSortOrder(WeblogEntrySearchCriteria.SortOrder.ASCENDING);
+                    wesc.setMaxResults(length);
+                    more = true;
+                } else {
+                    wesc.setSeek(cursor.getTime(), cursor.getId());
+                    wesc.setMaxResults(length+1);
+                }
+                // no end date, as scheduled entries show up once published
+                RenderDependencies.recordEntryQuery(weblog, catName, tags, null, null);
                 Map<Date, List<WeblogEntry>> mmap = WebloggerFactory.getWeblogger().getWeblogEntryManager().getWeblogEntryObjectMap(wesc);
 
                 // need to wrap pojos
@@ -89,9 +133,16 @@ public class WeblogEntriesLatestPager extends AbstractWeblogEntriesPager {
                     // now we need to go through each entry in a day and wrap
                     List<WeblogEntryWrapper> wrapped = new ArrayList<>();
                     List<WeblogEntry> unwrapped = entry.getValue();
+                    if (before) {
+                        Collections.reverse(unwrapped);
+                    }
                     for (int i=0; i < unwrapped.size(); i++) {
                         if (count++ < length) {
                             wrapped.add(i,WeblogEntryWrapper.wrap(unwrapped.get(i), urlStrategy));
+                            if (firstEntry == null) {
+                                firstEntry = unwrapped.get(i);
+                            }
+                            lastEntry = unwrapped.get(i);
                         } else {
                             more = true;
                         }
@@ -116,4 +167,31 @@ public class WeblogEntriesLatestPager extends AbstractWeblogEntriesPager {
         return more;
     }
     
+    
+    @Override
+    public String getNextLink() {
+        String link = super.getNextLink();
+        if (link != null && lastEntry != null) {
+            PageCursor next = PageCursor.after(lastEntry.getPubTime(), lastEntry.getId());
+            if (next != null) {
+                return next.appendTo(link);
+            }
+        }
+        return link;
+    }
+    
+    
+    @Override
+    public String getPrevLink() {
+        String link = super.getPrevLink();
+        // no cursor back to the first page, so it stays the same url
+        if (link != null && page > 1 && firstEntry != null) {
+            PageCursor prev = PageCursor.before(firstEntry.getPubTime(), firstEntry.getId());
+            if (prev != null) {
+                return prev.appendTo(link);
+            }
+        }
+        return link;
+    }
+    
 }
@@ -32,6 +32,7 @@ import org.apache.roller.weblogger.pojos.WeblogEntry;
 import org.apache.roller.weblogger.pojos.Weblog;
 import org.apache.roller.weblogger.pojos.WeblogEntrySearchCriteria;
 import org.apache.roller.weblogger.pojos.wrapper.WeblogEntryWrapper;
+import org.apache.roller.weblogger.util.cache.RenderDependencies;
 
 
 /**
@@ -113,9 +114,11 @@ public class WeblogEntriesListPager extends AbstractPager<WeblogEntryWrapper> {
                 wesc.setCatName(queryCat);
                 wesc.setTags(queryTags);
                 wesc.setStatus(WeblogEntry.PubStatus.PUBLISHED);
+                wesc.setFetchPlan(WeblogEntrySearchCriteria.FetchPlan.DISPLAY);
                 wesc.setLocale(locale);
                 wesc.setOffset(offset);
                 wesc.setMaxResults(length+1);
+                RenderDependencies.recordEntryQuery(queryWeblog, queryCat, queryTags, startDate, null);
                 List<WeblogEntry> rawEntries = WebloggerFactory.getWeblogger()
                         .getWeblogEntryManager().getWeblogEntries(wesc);
 
@@ -30,6 +30,7 @@ import org.apache.roller.weblogger.pojos.WeblogEntrySearchCriteria;
 import org.apache.roller.weblogger.pojos.wrapper.WeblogEntryWrapper;
 import org.apache.roller.util.DateUtil;
 import org.apache.roller.weblogger.business.URLStrategy;
+import org.apache.roller.weblogger.util.cache.RenderDependencies;
 
 
 /**
@@ -115,9 +116,11 @@ public class WeblogEntriesMonthPager extends AbstractWeblogEntriesPager {
                 wesc.setCatName(catName);
                 wesc.setTags(tags);
                 wesc.setStatus(WeblogEntry.PubStatus.PUBLISHED);
+                wesc.setFetchPlan(WeblogEntrySearchCriteria.FetchPlan.DISPLAY);
                 wesc.setLocale(locale);
                 wesc.setOffset(offset);
                 wesc.setMaxResults(length+1);
+                RenderDependencies.recordEntryQuery(weblog, catName, tags, startDate, endDate);
                 Map<Date, List<WeblogEntry>> mmap = WebloggerFactory.getWeblogger()
                         .getWeblogEntryManager().getWeblogEntryObjectMap(wesc);
 
@@ -33,6 +33,7 @@ import org.apache.roller.weblogger.pojos.WeblogEntry.PubStatus;
 import org.apache.roller.weblogger.pojos.Weblog;
 import org.apache.roller.weblogger.pojos.wrapper.WeblogEntryWrapper;
 import org.apache.roller.weblogger.util.Utilities;
+import org.apache.roller.weblogger.util.cache.RenderDependencies;
 
 
 /**
@@ -74,6 +75,12 @@ public class WeblogEntriesPermalinkPager extends AbstractWeblogEntriesPager {
                 Weblogger roller = WebloggerFactory.getWeblogger();
                 WeblogEntryManager wmgr = roller.getWeblogEntryManager();
                 currEntry = wmgr.getWeblogEntryByAnchor(weblog, entryAnchor);
+                if (currEntry != null) {
+                    RenderDependencies.recordEntry(currEntry);
+                } else {
+                    // it may not have been posted yet
+                    RenderDependencies.recordEntryQuery(weblog, null, null, null, null);
+                }
                 if (currEntry != null && currEntry.getStatus().equals(PubStatus.PUBLISHED)) {
                     entries = Map.of(new Date(currEntry.getPubTime().getTime()), List.of(WeblogEntryWrapper.wrap(currEntry, urlStrategy)));
                 }
@@ -142,6 +149,10 @@ public class WeblogEntriesPermalinkPager extends AbstractWeblogEntriesPager {
                 Weblogger roller = WebloggerFactory.getWeblogger();
                 WeblogEntryManager wmgr = roller.getWeblogEntryManager();
                 nextEntry = wmgr.getNextEntry(currEntry, null, locale);
+                // entries published in between would become the next one
+                RenderDependencies.recordEntry(nextEntry);
+                RenderDependencies.recordEntryQuery(weblog, null, null, currEntry.getPubTime(),
+                        (nextEntry != null) ? nextEntry.getPubTime() : null);
                 // make sure that entry is published and not to future
                 if (nextEntry != null && nextEntry.getPubTime().after(new Date())
                         && nextEntry.getStatus().equals(PubStatus.PUBLISHED)) {
@@ -162,6 +173,9 @@ public class WeblogEntriesPermalinkPager extends AbstractWeblogEntriesPager {
                 Weblogger roller = WebloggerFactory.getWeblogger();
                 WeblogEntryManager wmgr = roller.getWeblogEntryManager();
                 prevEntry = wmgr.getPreviousEntry(currEntry, null, locale);
+                RenderDependencies.recordEntry(prevEntry);
+                RenderDependencies.recordEntryQuery(weblog, null, null,
+                        (prevEntry != null) ? prevEntry.getPubTime() : null, currEntry.getPubTime());
                 // make sure that entry is published and not to future
                 if (prevEntry != null && prevEntry.getPubTime().after(new Date())
                         && prevEntry.getStatus().equals(PubStatus.PUBLISHED)) {
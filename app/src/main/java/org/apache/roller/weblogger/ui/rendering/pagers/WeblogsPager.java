@@ -31,6 +31,7 @@ import org.apache.roller.weblogger.business.WebloggerFactory;
 import org.apache.roller.weblogger.business.WeblogManager;
 import org.apache.roller.weblogger.pojos.Weblog;
 import org.apache.roller.weblogger.pojos.wrapper.WeblogWrapper;
+import org.apache.roller.weblogger.util.cache.RenderDependencies;
 
 
 /**
@@ -143,6 +144,7 @@ public class WeblogsPager extends AbstractPager<WeblogWrapper> {
                 } else {
                     rawWeblogs = wmgr.getWeblogsByLetter(letter.charAt(0), offset, length + 1);
                 }
+                RenderDependencies.recordWeblogList();
                 
                 // wrap the results
                 int count = 0;
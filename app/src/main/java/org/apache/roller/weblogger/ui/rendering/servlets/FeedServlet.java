@@ -38,14 +38,20 @@ import org.apache.roller.weblogger.pojos.StaticTemplate;
 import org.apache.roller.weblogger.pojos.Template;
 import org.apache.roller.weblogger.pojos.TemplateRendition.TemplateLanguage;
 import org.apache.roller.weblogger.pojos.Weblog;
+import org.apache.roller.weblogger.ui.rendering.util.ContentEncodingUtil;
+import org.apache.roller.weblogger.ui.rendering.util.DetachedResponse;
 import org.apache.roller.weblogger.ui.rendering.util.WeblogFeedRequest;
 import org.apache.roller.weblogger.util.cache.CachedContent;
+import org.apache.roller.weblogger.util.cache.LazyExpiringCacheEntry;
+import org.apache.roller.weblogger.util.cache.RenderDependencies;
 import org.apache.roller.weblogger.ui.rendering.Renderer;
 import org.apache.roller.weblogger.ui.rendering.RendererManager;
 import org.apache.roller.weblogger.ui.rendering.mobile.MobileDeviceRepository;
 import org.apache.roller.weblogger.ui.rendering.model.ModelLoader;
 import org.apache.roller.weblogger.ui.rendering.model.SearchResultsFeedModel;
+import org.apache.roller.weblogger.ui.rendering.util.cache.RenderCoalescer;
 import org.apache.roller.weblogger.ui.rendering.util.cache.SiteWideCache;
+import org.apache.roller.weblogger.ui.rendering.util.cache.StaleContentRefresher;
 import org.apache.roller.weblogger.ui.rendering.util.cache.WeblogFeedCache;
 import org.apache.roller.weblogger.ui.rendering.util.ModDateHeaderUtil;
 
@@ -88,6 +94,9 @@ public class FeedServlet extends HttpServlet {
 
         log.debug("Entering");
 
+        // rendering only reads, so it may read from the replica
+        WebloggerFactory.getWeblogger().useReadReplica();
+
         Weblog weblog;
         boolean isSiteWide;
 
@@ -166,17 +175,111 @@ public class FeedServlet extends HttpServlet {
                     lastModified);
         }
 
+        // if this feed is already being rendered then wait for it
+        RenderCoalescer.Flight flight = null;
+        if (cachedContent == null) {
+            // recently stale content may be served while it is refreshed
+            LazyExpiringCacheEntry staleEntry;
+            StaleContentRefresher refresher;
+            if (isSiteWide) {
+                staleEntry = siteWideCache.getStale(cacheKey);
+                refresher = siteWideCache.getStaleRefresher();
+            } else {
+                staleEntry = weblogFeedCache.getStale(cacheKey, lastModified);
+                refresher = weblogFeedCache.getStaleRefresher();
+            }
+
+            if (staleEntry != null) {
+                log.debug("STALE " + cacheKey);
+
+                // date the content by when it was rendered, so clients
+                // don't keep this copy once the fresh one is available
+                response.setDateHeader("Last-Modified", staleEntry.getTimeCached());
+
+                ContentEncodingUtil.writeContent(request, response,
+                        (CachedContent) staleEntry.getStaleValue());
+
+                // the client has everything, so refresh on our own time
+                if (refresher.tryStartRefresh(cacheKey)) {
+                    response.flushBuffer();
+                    try {
+                        renderFeed(request, new DetachedResponse(response),
+                                weblog, isSiteWide, feedRequest, cacheKey, null);
+                    } finally {
+                        refresher.refreshDone(cacheKey);
+                    }
+                }
+                return;
+            }
+
+            log.debug("MISS " + cacheKey);
+
+            if (isSiteWide) {
+                flight = siteWideCache.getRenderCoalescer().join(cacheKey);
+            } else {
+                flight = weblogFeedCache.getRenderCoalescer().join(cacheKey);
+            }
+            if (!flight.isLeader()) {
+                cachedContent = flight.await();
+            }
+        }
+
         if (cachedContent != null) {
             log.debug("HIT " + cacheKey);
 
-            response.setContentLength(cachedContent.getContent().length);
-            response.getOutputStream().write(cachedContent.getContent());
+            ContentEncodingUtil.writeContent(request, response, cachedContent);
             return;
+        }
 
-        } else {
-            log.debug("MISS " + cacheKey);
+        try {
+            renderFeed(request, response, weblog, isSiteWide, feedRequest,
+                    cacheKey, flight);
+        } finally {
+            // let anyone waiting on us know we are done, even if we failed
+            if (flight != null) {
+                flight.complete(null);
+            }
+        }
+
+        log.debug("Exiting");
+    }
+
+
+    /**
+     * Render a feed which was not found in the cache, and cache it.
+     *
+     * @param flight the coalesced render we lead, or null if not coalescing.
+     */
+    private void renderFeed(HttpServletRequest request,
+            HttpServletResponse response, Weblog weblog, boolean isSiteWide,
+            WeblogFeedRequest feedRequest, String cacheKey,
+            RenderCoalescer.Flight flight) throws IOException {
+
+        if (!isSiteWide) {
+            renderFeed(request, response, weblog, false, feedRequest,
+                    cacheKey, flight, null);
+            return;
         }
 
+        // track what site-wide feeds show, as for site-wide pages
+        try (RenderDependencies dependencies = RenderDependencies.start()) {
+            RenderDependencies.recordWeblogContents(weblog);
+            renderFeed(request, response, weblog, true, feedRequest,
+                    cacheKey, flight, dependencies);
+        }
+    }
+
+
+    /**
+     * @param dependencies what the feed depends on, tracked as it renders,
+     *                     or null if they are not tracked.
+     */
+    private void renderFeed(HttpServletRequest request,
+            HttpServletResponse response, Weblog weblog, boolean isSiteWide,
+            WeblogFeedRequest feedRequest, String cacheKey,
+            RenderCoalescer.Flight flight, RenderDependencies dependencies)
+            throws IOException {
+
         // validation. make sure that request input makes sense.
         boolean invalid = false;
         if (feedRequest.getLocale() != null
@@ -326,19 +429,27 @@ public class FeedServlet extends HttpServlet {
 
         // post rendering process
 
-        // flush rendered content to response
-        log.debug("Flushing response output");
-        response.setContentLength(rendererOutput.getContent().length);
-        response.getOutputStream().write(rendererOutput.getContent());
-
-        // cache rendered content. only cache if user is not logged in?
+        // cache rendered content first, so any compressed copies made
+        // at cache-put time can be used for this response too
         log.debug("PUT " + cacheKey);
+        boolean cached;
         if (isSiteWide) {
-            siteWideCache.put(cacheKey, rendererOutput);
+            cached = siteWideCache.put(cacheKey, rendererOutput, dependencies);
         } else {
             weblogFeedCache.put(cacheKey, rendererOutput);
+            cached = true;
         }
 
+        // waiting requests don't need to wait for us to send it, unless
+        // it was out of date before it was done and they must render it
+        if (flight != null) {
+            flight.complete(cached ? rendererOutput : null);
+        }
+
+        // flush rendered content to response
+        log.debug("Flushing response output");
+        ContentEncodingUtil.writeContent(request, response, rendererOutput);
+
         log.debug("Exiting");
     }
 
@@ -36,6 +36,7 @@ import org.apache.roller.weblogger.business.MediaFileManager;
 import org.apache.roller.weblogger.business.WebloggerFactory;
 import org.apache.roller.weblogger.pojos.MediaFile;
 import org.apache.roller.weblogger.pojos.Weblog;
+import org.apache.roller.weblogger.ui.rendering.util.ETagUtil;
 import org.apache.roller.weblogger.ui.rendering.util.ModDateHeaderUtil;
 import org.apache.roller.weblogger.ui.rendering.util.WeblogMediaResourceRequest;
 
@@ -114,6 +115,14 @@ public class MediaResourceServlet extends HttpServlet {
                     resourceRequest.getDeviceType());
         }
 
+        // Respond with 304 Not Modified if the client has this exact file.
+        String eTag = ETagUtil.getETag(resourceRequest.isThumbnail()
+                ? mediaFile.getId() + "-thumb" : mediaFile.getId(),
+                resourceLastMod, mediaFile.getLength());
+        if (ETagUtil.respondIfNoneMatch(request, response, eTag)) {
+            return;
+        }
+
         // set the content type based on whatever is in our web.xml mime defs
         if (resourceRequest.isThumbnail()) {
             response.setContentType("image/png");
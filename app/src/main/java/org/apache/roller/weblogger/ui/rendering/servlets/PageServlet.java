@@ -43,15 +43,21 @@ import org.apache.roller.weblogger.ui.core.RollerContext;
 import org.apache.roller.weblogger.ui.rendering.Renderer;
 import org.apache.roller.weblogger.ui.rendering.RendererManager;
 import org.apache.roller.weblogger.ui.rendering.model.ModelLoader;
+import org.apache.roller.weblogger.ui.rendering.util.ContentEncodingUtil;
+import org.apache.roller.weblogger.ui.rendering.util.DetachedResponse;
 import org.apache.roller.weblogger.ui.rendering.util.InvalidRequestException;
 import org.apache.roller.weblogger.ui.rendering.util.ModDateHeaderUtil;
 import org.apache.roller.weblogger.ui.rendering.util.WeblogEntryCommentForm;
 import org.apache.roller.weblogger.ui.rendering.util.WeblogPageRequest;
+import org.apache.roller.weblogger.ui.rendering.util.cache.RenderCoalescer;
 import org.apache.roller.weblogger.ui.rendering.util.cache.SiteWideCache;
+import org.apache.roller.weblogger.ui.rendering.util.cache.StaleContentRefresher;
 import org.apache.roller.weblogger.ui.rendering.util.cache.WeblogPageCache;
 import org.apache.roller.weblogger.util.BannedwordslistChecker;
 import org.apache.roller.weblogger.util.I18nMessages;
 import org.apache.roller.weblogger.util.cache.CachedContent;
+import org.apache.roller.weblogger.util.cache.RenderDependencies;
+import org.apache.roller.weblogger.util.cache.LazyExpiringCacheEntry;
 
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
@@ -154,6 +160,12 @@ public class PageServlet extends HttpServlet {
             }
         }
 
+        // rendering only reads, so it may read from the replica, except
+        // for posts handled like gets
+        if ("GET".equals(request.getMethod())) {
+            WebloggerFactory.getWeblogger().useReadReplica();
+        }
+
         Weblog weblog;
         boolean isSiteWide;
 
@@ -233,6 +245,7 @@ public class PageServlet extends HttpServlet {
         }
 
         // cached content checking
+        RenderCoalescer.Flight flight = null;
         if ((!this.excludeOwnerPages || !pageRequest.isLoggedIn())
                 && request.getAttribute("skipCache") == null
                 && request.getParameter("skipCache") == null) {
@@ -242,7 +255,67 @@ public class PageServlet extends HttpServlet {
                 cachedContent = (CachedContent) siteWideCache.get(cacheKey);
             } else {
                 cachedContent = (CachedContent) weblogPageCache.get(cacheKey,
-                        lastModified);
+                        weblog, lastModified);
+            }
+
+            if (cachedContent == null) {
+                // recently stale content may be served while it is refreshed
+                LazyExpiringCacheEntry staleEntry;
+                StaleContentRefresher refresher;
+                if (isSiteWide) {
+                    staleEntry = siteWideCache.getStale(cacheKey);
+                    refresher = siteWideCache.getStaleRefresher();
+                } else {
+                    staleEntry = weblogPageCache.getStale(cacheKey, weblog, lastModified);
+                    refresher = weblogPageCache.getStaleRefresher();
+                }
+
+                if (staleEntry != null) {
+                    log.debug("STALE " + cacheKey);
+
+                    // allow for hit counting
+                    if (!isSiteWide
+                            && (pageRequest.isWebsitePageHit() || pageRequest
+                                    .isOtherPageHit())) {
+                        this.processHit(weblog);
+                    }
+
+                    // date the content by when it was rendered, so clients
+                    // don't keep this copy once the fresh one is available
+                    if (!pageRequest.isLoggedIn()) {
+                        response.setDateHeader("Last-Modified",
+                                staleEntry.getTimeCached());
+                    }
+
+                    CachedContent staleContent = (CachedContent) staleEntry.getStaleValue();
+                    response.setContentType(staleContent.getContentType());
+                    ContentEncodingUtil.writeContent(request, response, staleContent);
+
+                    // the client has everything, so refresh on our own time
+                    if (refresher.tryStartRefresh(cacheKey)) {
+                        response.flushBuffer();
+                        try {
+                            renderPage(request, new DetachedResponse(response),
+                                    weblog, isSiteWide, pageRequest, cacheKey,
+                                    null, false);
+                        } finally {
+                            refresher.refreshDone(cacheKey);
+                        }
+                    }
+                    return;
+                }
+
+                log.debug("MISS " + cacheKey);
+
+                // if this page is already being rendered then wait for it
+                if (isSiteWide) {
+                    flight = siteWideCache.getRenderCoalescer().join(cacheKey);
+                } else {
+                    flight = weblogPageCache.getRenderCoalescer().join(cacheKey);
+                }
+                if (!flight.isLeader()) {
+                    cachedContent = flight.await();
+                }
             }
 
             if (cachedContent != null) {
@@ -255,15 +328,59 @@ public class PageServlet extends HttpServlet {
                     this.processHit(weblog);
                 }
 
-                response.setContentLength(cachedContent.getContent().length);
                 response.setContentType(cachedContent.getContentType());
-                response.getOutputStream().write(cachedContent.getContent());
+                ContentEncodingUtil.writeContent(request, response, cachedContent);
                 return;
-            } else {
-                log.debug("MISS " + cacheKey);
             }
         }
 
+        try {
+            renderPage(request, response, weblog, isSiteWide, pageRequest,
+                    cacheKey, flight, true);
+        } finally {
+            // let anyone waiting on us know we are done, even if we failed
+            if (flight != null) {
+                flight.complete(null);
+            }
+        }
+
+        log.debug("Exiting");
+    }
+
+    /**
+     * Render a page which was not found in the cache, and cache it unless
+     * caching is not allowed for this request.
+     *
+     * @param flight the coalesced render we lead, or null if not coalescing.
+     * @param countHit false if the hit was already counted, as when stale
+     *                 content is being refreshed.
+     */
+    private void renderPage(HttpServletRequest request,
+            HttpServletResponse response, Weblog weblog, boolean isSiteWide,
+            WeblogPageRequest pageRequest, String cacheKey,
+            RenderCoalescer.Flight flight, boolean countHit) throws IOException {
+
+        // track what pages show as they are rendered, so a change to a
+        // weblog only expires the pages it could show up on.  anything of
+        // the site-wide weblog itself may be shown on all site-wide pages.
+        try (RenderDependencies dependencies = RenderDependencies.start()) {
+            if (isSiteWide) {
+                RenderDependencies.recordWeblogContents(weblog);
+            }
+            renderPage(request, response, weblog, isSiteWide, pageRequest,
+                    cacheKey, flight, countHit, dependencies);
+        }
+    }
+
+    /**
+     * @param dependencies what the page depends on, tracked as it renders.
+     */
+    private void renderPage(HttpServletRequest request,
+            HttpServletResponse response, Weblog weblog, boolean isSiteWide,
+            WeblogPageRequest pageRequest, String cacheKey,
+            RenderCoalescer.Flight flight, boolean countHit,
+            RenderDependencies dependencies) throws IOException {
+
         log.debug("Looking for template to use for rendering");
 
         // figure out what template to use
@@ -412,7 +529,7 @@ public class PageServlet extends HttpServlet {
         }
 
         // allow for hit counting
-        if (!isSiteWide
+        if (countHit && !isSiteWide
                 && (pageRequest.isWebsitePageHit() || pageRequest
                         .isOtherPageHit())) {
             this.processHit(weblog);
@@ -525,27 +642,35 @@ public class PageServlet extends HttpServlet {
         }
 
         // post rendering process
-        // flush rendered content to response
-        log.debug("Flushing response output");
-        response.setContentType(contentType);
-        response.setContentLength(rendererOutput.getContent().length);
-        response.getOutputStream().write(rendererOutput.getContent());
-
-        // cache rendered content. only cache if user is not logged in?
+        // cache rendered content first, so any compressed copies made
+        // at cache-put time can be used for this response too.
+        // only cache if user is not logged in?
         if ((!this.excludeOwnerPages || !pageRequest.isLoggedIn())
                 && request.getAttribute("skipCache") == null) {
             log.debug("PUT " + cacheKey);
 
             // put it in the right cache
+            boolean cached;
             if (isSiteWide) {
-                siteWideCache.put(cacheKey, rendererOutput);
+                cached = siteWideCache.put(cacheKey, rendererOutput, dependencies);
             } else {
-                weblogPageCache.put(cacheKey, rendererOutput);
+                cached = weblogPageCache.put(cacheKey, rendererOutput, dependencies);
+            }
+
+            // waiting requests don't need to wait for us to send it, unless
+            // it was out of date before it was done and they must render it
+            if (flight != null) {
+                flight.complete(cached ? rendererOutput : null);
             }
         } else {
             log.debug("SKIPPED " + cacheKey);
         }
 
+        // flush rendered content to response
+        log.debug("Flushing response output");
+        response.setContentType(contentType);
+        ContentEncodingUtil.writeContent(request, response, rendererOutput);
+
         log.debug("Exiting");
     }
 
@@ -79,6 +79,9 @@ public class PlanetFeedServlet extends HttpServlet {
 
         log.debug("Entering");
 
+        // rendering only reads, so it may read from the replica
+        WebloggerFactory.getWeblogger().useReadReplica();
+
         PlanetManager planet = WebloggerFactory.getWeblogger()
                 .getPlanetManager();
 
@@ -124,8 +127,8 @@ public class PlanetFeedServlet extends HttpServlet {
                 + this.generateKey(planetRequest);
         CachedContent entry = (CachedContent) planetCache.get(cacheKey);
         if (entry != null) {
-            response.setContentLength(entry.getContent().length);
-            response.getOutputStream().write(entry.getContent());
+            response.setContentLength(entry.getLength());
+            entry.writeTo(response.getOutputStream());
             return;
         }
 
@@ -37,6 +37,7 @@ import org.apache.roller.weblogger.pojos.MediaFile;
 import org.apache.roller.weblogger.pojos.ThemeResource;
 import org.apache.roller.weblogger.pojos.Weblog;
 import org.apache.roller.weblogger.pojos.WeblogTheme;
+import org.apache.roller.weblogger.ui.rendering.util.ETagUtil;
 import org.apache.roller.weblogger.ui.rendering.util.ModDateHeaderUtil;
 import org.apache.roller.weblogger.ui.rendering.util.WeblogResourceRequest;
 
@@ -98,19 +99,17 @@ public class ResourceServlet extends HttpServlet {
         log.debug("Resource requested [" + resourceRequest.getResourcePath()
                 + "]");
 
-        long resourceLastMod = 0;
-        InputStream resourceStream = null;
+        ThemeResource themeResource = null;
+        MediaFile mediaFile = null;
+        long resourceLastMod;
+        String eTag;
 
         // first see if resource comes from weblog's shared theme
         try {
             WeblogTheme weblogTheme = weblog.getTheme();
             if (weblogTheme != null) {
-                ThemeResource resource = weblogTheme
+                themeResource = weblogTheme
                         .getResource(resourceRequest.getResourcePath());
-                if (resource != null) {
-                    resourceLastMod = resource.getLastModified();
-                    resourceStream = resource.getInputStream();
-                }
             }
         } catch (Exception ex) {
             // hmmm, some kind of error getting theme. that's an error.
@@ -118,21 +117,19 @@ public class ResourceServlet extends HttpServlet {
                 response.reset();
             }
             response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-            if(resourceStream != null) {
-                resourceStream.close();
-            }
             return;
         }
 
         // if not from theme then see if resource is in weblog's upload dir
-        if (resourceStream == null) {
+        if (themeResource == null) {
             try {
                 MediaFileManager mmgr = WebloggerFactory.getWeblogger()
                         .getMediaFileManager();
-                MediaFile mf = mmgr.getMediaFileByOriginalPath(weblog,
+                mediaFile = mmgr.getMediaFileByOriginalPath(weblog,
                         resourceRequest.getResourcePath());
-                resourceLastMod = mf.getLastModified();
-                resourceStream = mf.getInputStream();
+                resourceLastMod = mediaFile.getLastModified();
+                eTag = ETagUtil.getETag(mediaFile.getId(), resourceLastMod,
+                        mediaFile.getLength());
 
             } catch (Exception ex) {
                 // still not found? then we don't have it, 404.
@@ -141,11 +138,12 @@ public class ResourceServlet extends HttpServlet {
                 }
                 log.debug("Unable to get resource", ex);
                 response.sendError(HttpServletResponse.SC_NOT_FOUND);
-                if(resourceStream != null) {
-                    resourceStream.close();
-                }
                 return;
             }
+        } else {
+            resourceLastMod = themeResource.getLastModified();
+            eTag = ETagUtil.getETag(themeResource.getPath(), resourceLastMod,
+                    themeResource.getLength());
         }
 
         // Respond with 304 Not Modified if it is not modified.
@@ -158,6 +156,25 @@ public class ResourceServlet extends HttpServlet {
                     resourceRequest.getDeviceType());
         }
 
+        // Respond with 304 Not Modified if the client has this exact file,
+        // checked before opening the resource so a 304 costs no file access.
+        if (ETagUtil.respondIfNoneMatch(request, response, eTag)) {
+            return;
+        }
+
+        InputStream resourceStream;
+        try {
+            resourceStream = (themeResource != null)
+                    ? themeResource.getInputStream() : mediaFile.getInputStream();
+        } catch (Exception ex) {
+            log.error("Unable to open resource " + resourceRequest.getResourcePath(), ex);
+            if (!response.isCommitted()) {
+                response.reset();
+            }
+            response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            return;
+        }
+
         // set the content type based on whatever is in our web.xml mime defs
         response.setContentType(this.context.getMimeType(resourceRequest
                 .getResourcePath()));
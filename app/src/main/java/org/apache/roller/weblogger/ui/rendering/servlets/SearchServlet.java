@@ -86,6 +86,9 @@ public class SearchServlet extends HttpServlet {
 
         log.debug("Entering");
 
+        // rendering only reads, so it may read from the replica
+        WebloggerFactory.getWeblogger().useReadReplica();
+
         Weblog weblog;
         WeblogSearchRequest searchRequest;
 
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.ui.rendering.util;
+
+import java.io.IOException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.roller.weblogger.util.cache.CachedContent;
+
+
+/**
+ * Utility class for sending CachedContent to a client, using one of its
+ * pre-compressed copies when the client accepts that encoding, or no body
+ * at all when the client already has the content.
+ */
+public final class ContentEncodingUtil {
+
+    private static final Log log = LogFactory.getLog(ContentEncodingUtil.class);
+
+
+    private ContentEncodingUtil() {
+    }
+
+
+    /**
+     * Write the given content to the response, setting the Content-Length,
+     * Content-Encoding, Vary and ETag headers to match the variant sent.
+     *
+     * If the request's If-None-Match header matches that variant a 304 (NOT
+     * MODIFIED) response is sent instead, without a body.
+     *
+     * The content type is left alone, callers are expected to have set it.
+     */
+    public static void writeContent(HttpServletRequest request,
+            HttpServletResponse response, CachedContent content) throws IOException {
+
+        String encoding = null;
+        if (content.hasEncoding(CachedContent.ENCODING_GZIP)) {
+            // the response differs by encoding, whichever one we pick
+            response.addHeader("Vary", "Accept-Encoding");
+            encoding = chooseEncoding(request.getHeader("Accept-Encoding"));
+        }
+
+        if (ETagUtil.respondIfNoneMatch(request, response, ETagUtil.getETag(content, encoding))) {
+            return;
+        }
+
+        if (encoding != null) {
+            log.debug("Sending " + encoding + " encoded content");
+            response.setHeader("Content-Encoding", encoding);
+        }
+
+        response.setContentLength(content.getLength(encoding));
+        content.writeTo(response.getOutputStream(), encoding);
+    }
+
+
+    /**
+     * Pick the encoding to use for the given Accept-Encoding header, or null
+     * to send the content uncompressed.  Gzip wins when both are acceptable
+     * with the same quality.
+     */
+    public static String chooseEncoding(String acceptEncoding) {
+
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return null;
+        }
+
+        float gzip = -1;
+        float deflate = -1;
+        float wildcard = -1;
+
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String coding = params[0].trim().toLowerCase();
+
+            float quality = 1;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        quality = Float.parseFloat(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+
+            if (CachedContent.ENCODING_GZIP.equals(coding) || "x-gzip".equals(coding)) {
+                gzip = quality;
+            } else if (CachedContent.ENCODING_DEFLATE.equals(coding)) {
+                deflate = quality;
+            } else if ("*".equals(coding)) {
+                wildcard = quality;
+            }
+        }
+
+        // anything not listed is covered by the wildcard, if there is one
+        if (gzip < 0) {
+            gzip = wildcard;
+        }
+        if (deflate < 0) {
+            deflate = wildcard;
+        }
+
+        if (gzip > 0 && gzip >= deflate) {
+            return CachedContent.ENCODING_GZIP;
+        } else if (deflate > 0) {
+            return CachedContent.ENCODING_DEFLATE;
+        }
+        return null;
+    }
+
+}
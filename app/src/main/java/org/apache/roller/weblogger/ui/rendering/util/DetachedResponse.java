@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.ui.rendering.util;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+
+/**
+ * A response which has come loose from the client it belongs to.
+ *
+ * Used to render content after the real response has already been sent, such
+ * as when refreshing stale cached content.  Headers, status codes and output
+ * written to it are all quietly thrown away.
+ */
+public class DetachedResponse extends HttpServletResponseWrapper {
+
+    private final ServletOutputStream outputStream = new ServletOutputStream() {
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            // never blocks, nothing to listen for
+        }
+
+        @Override
+        public void write(int b) {
+            // discarded
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            // discarded
+        }
+    };
+
+    private final PrintWriter writer = new PrintWriter(Writer.nullWriter());
+
+
+    public DetachedResponse(HttpServletResponse response) {
+        super(response);
+    }
+
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() {
+        return writer;
+    }
+
+    @Override
+    public boolean isCommitted() {
+        return false;
+    }
+
+    @Override
+    public void reset() {
+        // nothing was sent
+    }
+
+    @Override
+    public void resetBuffer() {
+        // nothing was sent
+    }
+
+    @Override
+    public void flushBuffer() {
+        // nowhere to flush to
+    }
+
+    @Override
+    public void sendError(int sc) {
+        // the client already has its response
+    }
+
+    @Override
+    public void sendError(int sc, String msg) {
+        // the client already has its response
+    }
+
+    @Override
+    public void sendRedirect(String location) {
+        // the client already has its response
+    }
+
+    @Override
+    public void setStatus(int sc) {
+        // the client already has its response
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        // the client already has its response
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        // the client already has its response
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+        // the client already has its response
+    }
+
+    @Override
+    public void addDateHeader(String name, long date) {
+        // the client already has its response
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        // the client already has its response
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        // the client already has its response
+    }
+
+    @Override
+    public void setContentType(String type) {
+        // the client already has its response
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        // the client already has its response
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        // the client already has its response
+    }
+
+    @Override
+    public void setCharacterEncoding(String charset) {
+        // the client already has its response
+    }
+
+}
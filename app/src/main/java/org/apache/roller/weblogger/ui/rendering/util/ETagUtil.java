@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.ui.rendering.util;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.roller.weblogger.util.cache.CachedContent;
+
+
+/**
+ * Utility class for entity tag (ETag / If-None-Match) handling.
+ *
+ * Unlike Last-Modified, which is tied to the last change anywhere in a
+ * weblog, these tags only change when the bytes sent to the client change.
+ */
+public final class ETagUtil {
+
+    private static final Log log = LogFactory.getLog(ETagUtil.class);
+
+
+    private ETagUtil() {
+    }
+
+
+    /**
+     * Strong entity tag for the given cached content, sent with the given
+     * content encoding (or null when sent uncompressed).  Each encoding is a
+     * different representation, so each one gets its own tag.
+     */
+    public static String getETag(CachedContent content, String encoding) {
+        StringBuilder eTag = new StringBuilder(32);
+        eTag.append('"').append(content.getContentHash());
+        if (encoding != null) {
+            eTag.append('-').append(encoding);
+        }
+        return eTag.append('"').toString();
+    }
+
+
+    /**
+     * Strong entity tag for a stored file, from its identity, modification
+     * time and length, the same way most web servers tag static files.
+     */
+    public static String getETag(String identity, long lastModified, long length) {
+        return '"' + Integer.toHexString(identity.hashCode())
+                + '-' + Long.toHexString(lastModified)
+                + '-' + Long.toHexString(length) + '"';
+    }
+
+
+    /**
+     * Set the ETag header and, for GET and HEAD requests whose If-None-Match
+     * header matches it, set the response status to 304 (NOT MODIFIED).
+     *
+     * @return true if a 304 was sent and no body should be written.
+     */
+    public static boolean respondIfNoneMatch(HttpServletRequest request,
+            HttpServletResponse response, String eTag) {
+
+        response.setHeader("ETag", eTag);
+
+        String method = request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return false;
+        }
+
+        if (matches(request.getHeader("If-None-Match"), eTag)) {
+            if (log.isDebugEnabled()) {
+                log.debug("NOT MODIFIED (etag) " + request.getRequestURL());
+            }
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return true;
+        }
+        return false;
+    }
+
+
+    /**
+     * Weak comparison of an If-None-Match header against an entity tag, as
+     * required for If-None-Match by RFC 7232.
+     */
+    static boolean matches(String ifNoneMatch, String eTag) {
+
+        if (ifNoneMatch == null || ifNoneMatch.isEmpty()) {
+            return false;
+        }
+
+        String opaqueTag = stripWeak(eTag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if ("*".equals(tag) || opaqueTag.equals(stripWeak(tag))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    private static String stripWeak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+}
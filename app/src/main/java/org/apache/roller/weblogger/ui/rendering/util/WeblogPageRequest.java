@@ -30,6 +30,7 @@ import org.apache.roller.weblogger.pojos.ThemeTemplate;
 import org.apache.roller.weblogger.pojos.WeblogCategory;
 import org.apache.roller.weblogger.pojos.WeblogEntry;
 import org.apache.roller.weblogger.pojos.WeblogTemplate;
+import org.apache.roller.weblogger.util.PageCursor;
 import org.apache.roller.weblogger.util.URLUtilities;
 import org.apache.roller.weblogger.util.Utilities;
 
@@ -60,6 +61,7 @@ public class WeblogPageRequest extends WeblogRequest {
     private String weblogDate = null;
     private List<String> tags = null;
     private int pageNum = 0;
+    private PageCursor pageCursor = null;
     private Map<String, String[]> customParams = Collections.emptyMap();
 
     // heavyweight attributes
@@ -246,6 +248,11 @@ public class WeblogPageRequest extends WeblogRequest {
             }
         }
 
+        // as are the after and before cursors, paging falls back on the
+        // page number if they are invalid
+        this.pageCursor = PageCursor.parse(request.getParameter(PageCursor.AFTER_PARAM),
+                request.getParameter(PageCursor.BEFORE_PARAM));
+
         // build customParams Map, we remove built-in params because we only
         // want this map to represent params defined by the template author
         customParams = new HashMap<>(request.getParameterMap());
@@ -254,6 +261,8 @@ public class WeblogPageRequest extends WeblogRequest {
         customParams.remove("date");
         customParams.remove("cat");
         customParams.remove("page");
+        customParams.remove(PageCursor.AFTER_PARAM);
+        customParams.remove(PageCursor.BEFORE_PARAM);
         customParams.remove("tags");
 
         if (log.isDebugEnabled()) {
@@ -264,6 +273,7 @@ public class WeblogPageRequest extends WeblogRequest {
             log.debug("tags = " + this.tags);
             log.debug("weblogPage = " + this.weblogPageName);
             log.debug("pageNum = " + this.pageNum);
+            log.debug("pageCursor = " + this.pageCursor);
         }
     }
 
@@ -325,6 +335,14 @@ public class WeblogPageRequest extends WeblogRequest {
         this.pageNum = pageNum;
     }
 
+    public PageCursor getPageCursor() {
+        return pageCursor;
+    }
+
+    public void setPageCursor(PageCursor pageCursor) {
+        this.pageCursor = pageCursor;
+    }
+
     public Map<String, String[]> getCustomParams() {
         return customParams;
     }
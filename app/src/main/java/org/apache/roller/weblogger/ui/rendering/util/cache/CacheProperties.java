@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.ui.rendering.util.cache;
+
+import java.util.Map;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+
+/**
+ * Reads the settings shared by the rendered content caches from the
+ * properties of one cache, with the "id" property naming the cache.
+ */
+final class CacheProperties {
+
+    private static final Log log = LogFactory.getLog(CacheProperties.class);
+
+    // how many renders of stale content may be refreshed at the same time
+    private static final int DEFAULT_STALE_MAX_REFRESHES = 2;
+
+
+    private CacheProperties() {
+        // static utility
+    }
+
+
+    /**
+     * Get a whole number setting, or the default if it is unset or invalid.
+     */
+    static long parseLong(Map<String, String> cacheProps, String name, long defaultValue) {
+        String value = cacheProps.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            log.warn("Invalid "+name+" for "+cacheProps.get("id"), e);
+            return defaultValue;
+        }
+    }
+
+
+    static int parseInt(Map<String, String> cacheProps, String name, int defaultValue) {
+        long value = parseLong(cacheProps, name, defaultValue);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            log.warn("Invalid "+name+" for "+cacheProps.get("id"));
+            return defaultValue;
+        }
+        return (int) value;
+    }
+
+
+    /**
+     * Coalescer for renders of a cache, which only waits if the cache is
+     * enabled and coalesceMaxWait is set.
+     */
+    static RenderCoalescer newRenderCoalescer(Map<String, String> cacheProps, boolean cacheEnabled) {
+        long maxWait = cacheEnabled ? parseLong(cacheProps, "coalesceMaxWait", 0) : 0;
+        return new RenderCoalescer(cacheProps.get("id")+".coalescing", maxWait);
+    }
+
+
+    /**
+     * Refresher of stale content of a cache, which is only enabled if the
+     * cache is and staleWhileRevalidate is set.
+     */
+    static StaleContentRefresher newStaleContentRefresher(Map<String, String> cacheProps,
+            boolean cacheEnabled) {
+        long maxStaleness = cacheEnabled ? parseLong(cacheProps, "staleWhileRevalidate", 0) : 0;
+        int maxRefreshes = parseInt(cacheProps, "staleMaxRefreshes", DEFAULT_STALE_MAX_REFRESHES);
+        return new StaleContentRefresher(cacheProps.get("id")+".stale", maxStaleness, maxRefreshes);
+    }
+
+}
@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.ui.rendering.util.cache;
+
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.roller.weblogger.config.WebloggerConfig;
+import org.apache.roller.weblogger.pojos.User;
+import org.apache.roller.weblogger.pojos.Weblog;
+import org.apache.roller.weblogger.pojos.WeblogBookmark;
+import org.apache.roller.weblogger.pojos.WeblogBookmarkFolder;
+import org.apache.roller.weblogger.pojos.WeblogCategory;
+import org.apache.roller.weblogger.pojos.WeblogEntry;
+import org.apache.roller.weblogger.pojos.WeblogEntryComment;
+import org.apache.roller.weblogger.pojos.WeblogEntryDayCount;
+import org.apache.roller.weblogger.pojos.WeblogTemplate;
+import org.apache.roller.weblogger.util.cache.Cache;
+import org.apache.roller.weblogger.util.cache.CacheHandler;
+import org.apache.roller.weblogger.util.cache.CacheManager;
+
+
+/**
+ * Cache for the entry counts by day of a weblog month shown by calendars.
+ *
+ * Cached months of a weblog are keyed by a generation of the weblog, which
+ * any change to one of its entries moves on, so they expire together without
+ * having to be found.  Saving an entry as a draft may unpublish it, so every
+ * change to an entry counts.  Weblogs share a fixed number of generations by
+ * hash of their id, so that no more are kept as weblogs come and go, at the
+ * cost of now and then expiring the months of another weblog too.
+ */
+public final class CalendarCache implements CacheHandler {
+    
+    private static final Log log = LogFactory.getLog(CalendarCache.class);
+    
+    // a unique identifier for this cache, this is used as the prefix for
+    // roller config properties that apply to this cache
+    public static final String CACHE_ID = "cache.calendar";
+    
+    // keep cached content
+    private boolean cacheEnabled = true;
+    private Cache contentCache = null;
+    
+    // generations shared by weblogs, by hash of weblog id
+    private static final int GENERATIONS = 1024;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATIONS);
+    
+    // reference to our singleton instance
+    private static final CalendarCache singletonInstance = new CalendarCache();
+    
+    
+    private CalendarCache() {
+        
+        cacheEnabled = WebloggerConfig.getBooleanProperty(CACHE_ID+".enabled");
+        
+        Map<String, String> cacheProps = new HashMap<>();
+        cacheProps.put("id", CACHE_ID);
+        Enumeration<Object> allProps = WebloggerConfig.keys();
+        String prop;
+        while(allProps.hasMoreElements()) {
+            prop = (String) allProps.nextElement();
+            
+            // we are only interested in props for this cache
+            if(prop.startsWith(CACHE_ID+".")) {
+                cacheProps.put(prop.substring(CACHE_ID.length()+1), 
+                        WebloggerConfig.getProperty(prop));
+            }
+        }
+        
+        log.info(cacheProps);
+        
+        if (cacheEnabled) {
+            contentCache = CacheManager.constructCache(this, cacheProps);
+        } else {
+            log.warn("Caching has been DISABLED");
+        }
+    }
+    
+    
+    public static CalendarCache getInstance() {
+        return singletonInstance;
+    }
+    
+    
+    @SuppressWarnings("unchecked")
+    public Map<Date, WeblogEntryDayCount> get(String key) {
+        
+        if (!cacheEnabled) {
+            return null;
+        }
+        
+        Object entry = contentCache.get(key);
+        
+        if(entry == null) {
+            log.debug("MISS "+key);
+        } else {
+            log.debug("HIT "+key);
+        }
+        
+        return (Map<Date, WeblogEntryDayCount>) entry;
+    }
+    
+    
+    public void put(String key, Map<Date, WeblogEntryDayCount> value) {
+        
+        if (!cacheEnabled) {
+            return;
+        }
+        
+        contentCache.put(key, value);
+        log.debug("PUT "+key);
+    }
+    
+    
+    public void clear() {
+        
+        if (!cacheEnabled) {
+            return;
+        }
+        
+        contentCache.clear();
+        log.debug("CLEAR");
+    }
+    
+    
+    /**
+     * Generate a cache key for the counts of a weblog month.
+     *
+     * @param month The month as a 6 char YYYYMM string.
+     */
+    public String generateKey(Weblog weblog, String month, String catName, String locale) {
+        
+        StringBuilder key = new StringBuilder();
+        key.append(CACHE_ID).append(':');
+        key.append(weblog.getHandle());
+        key.append('/').append(generations.get(generation(weblog)));
+        key.append('/').append(month);
+        if (catName != null) {
+            key.append("/cat=").append(catName);
+        }
+        if (locale != null) {
+            key.append("/locale=").append(locale);
+        }
+        return key.toString();
+    }
+    
+    
+    // expire all months of a weblog
+    private void expire(Weblog weblog) {
+        
+        if (!cacheEnabled || weblog == null) {
+            return;
+        }
+        
+        generations.incrementAndGet(generation(weblog));
+        log.debug("EXPIRE "+weblog.getHandle());
+    }
+    
+    
+    private static int generation(Weblog weblog) {
+        String id = weblog.getId();
+        return (id != null) ? Math.floorMod(id.hashCode(), GENERATIONS) : 0;
+    }
+    
+    
+    /**
+     * An entry has changed.
+     */
+    @Override
+    public void invalidate(WeblogEntry entry) {
+        expire(entry.getWebsite());
+    }
+    
+    
+    /**
+     * A weblog has changed, maybe its time zone.
+     */
+    @Override
+    public void invalidate(Weblog website) {
+        expire(website);
+    }
+    
+    
+    @Override
+    public void invalidate(WeblogBookmark bookmark) {
+        // ignored
+    }
+    
+    
+    @Override
+    public void invalidate(WeblogBookmarkFolder folder) {
+        // ignored
+    }
+    
+    
+    @Override
+    public void invalidate(WeblogEntryComment comment) {
+        // ignored
+    }
+    
+    
+    @Override
+    public void invalidate(User user) {
+        // ignored
+    }
+    
+    
+    /**
+     * A category has changed, maybe its name.
+     */
+    @Override
+    public void invalidate(WeblogCategory category) {
+        expire(category.getWeblog());
+    }
+    
+    
+    @Override
+    public void invalidate(WeblogTemplate template) {
+        // ignored
+    }
+    
+}
@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.ui.rendering.util.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.roller.weblogger.util.cache.CachedContent;
+
+
+/**
+ * Coalesces concurrent renders of the same cache key.
+ *
+ * When a popular page drops out of the cache every request for it misses at
+ * once.  Rather than have each of them load models and render the page, the
+ * first request to miss becomes the leader and renders it, while the others
+ * wait a bounded amount of time for the leader's content.  A follower whose
+ * leader fails or takes too long simply renders the page itself.
+ *
+ * Usage ...
+ *
+ *   Flight flight = coalescer.join(key);
+ *   if (!flight.isLeader()) {
+ *       content = flight.await();
+ *   }
+ *   if (content == null) {
+ *       try {
+ *           content = render();
+ *           flight.complete(content);
+ *       } finally {
+ *           flight.complete(null);
+ *       }
+ *   }
+ */
+public final class RenderCoalescer {
+
+    private static final Log log = LogFactory.getLog(RenderCoalescer.class);
+
+    private final String id;
+
+    // how long followers wait for a leader, in milliseconds
+    private final long maxWait;
+
+    private final ConcurrentHashMap<String, Flight> flights = new ConcurrentHashMap<>();
+
+    // for metrics
+    private final LongAdder renders = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+
+    /**
+     * @param maxWait how long followers wait for a leader in milliseconds,
+     *                zero or less to never coalesce
+     */
+    public RenderCoalescer(String id, long maxWait) {
+        this.id = id;
+        this.maxWait = Math.max(0, maxWait);
+    }
+
+
+    public String getId() {
+        return id;
+    }
+
+
+    /**
+     * Join the render of the given key, becoming its leader if nobody else
+     * is rendering it right now.  The leader must always complete() the
+     * flight it gets back, even when rendering fails.
+     */
+    public Flight join(String key) {
+
+        Flight flight = new Flight(key);
+        if (maxWait > 0) {
+            Flight existing = flights.putIfAbsent(key, flight);
+            if (existing != null) {
+                return existing;
+            }
+        }
+
+        renders.increment();
+        return flight;
+    }
+
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("maxWait", maxWait);
+        stats.put("inFlight", flights.size());
+        stats.put("renders", renders.sum());
+        stats.put("rendersSaved", coalesced.sum());
+        stats.put("timeouts", timeouts.sum());
+        stats.put("failures", failures.sum());
+        return stats;
+    }
+
+
+    /**
+     * A render of one key, shared by its leader and any followers.
+     */
+    public final class Flight {
+
+        private final String key;
+        private final Thread leader = Thread.currentThread();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile CachedContent content = null;
+
+        private Flight(String key) {
+            this.key = key;
+        }
+
+        /**
+         * True if the calling thread is responsible for rendering.
+         */
+        public boolean isLeader() {
+            return leader == Thread.currentThread();
+        }
+
+        /**
+         * Wait for the leader to finish rendering.
+         *
+         * @return the leader's content, or null if the leader failed or did
+         *         not finish in time, in which case the caller should render
+         *         the content itself.
+         */
+        public CachedContent await() {
+            try {
+                if (!done.await(maxWait, TimeUnit.MILLISECONDS)) {
+                    log.debug("TIMEOUT waiting for " + key);
+                    timeouts.increment();
+                    return null;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+
+            CachedContent result = content;
+            if (result != null) {
+                log.debug("COALESCED " + key);
+                coalesced.increment();
+            } else {
+                failures.increment();
+            }
+            return result;
+        }
+
+        /**
+         * Called by the leader once rendering is over, with the rendered
+         * content or null if nothing usable was rendered.  Only the first
+         * call counts, and calls by followers are ignored.
+         */
+        public void complete(CachedContent rendered) {
+            if (!isLeader() || done.getCount() == 0) {
+                return;
+            }
+            this.content = rendered;
+            flights.remove(key, this);
+            done.countDown();
+        }
+    }
+
+}
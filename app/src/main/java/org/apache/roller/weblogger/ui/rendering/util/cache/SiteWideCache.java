@@ -24,12 +24,14 @@ import java.util.Arrays;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.roller.util.RollerConstants;
+import org.apache.roller.weblogger.WebloggerException;
+import org.apache.roller.weblogger.business.WebloggerFactory;
 import org.apache.roller.weblogger.config.WebloggerConfig;
-import org.apache.roller.weblogger.config.WebloggerRuntimeConfig;
 import org.apache.roller.weblogger.pojos.WeblogBookmark;
 import org.apache.roller.weblogger.pojos.WeblogEntryComment;
 import org.apache.roller.weblogger.pojos.WeblogBookmarkFolder;
@@ -44,11 +46,19 @@ import org.apache.roller.weblogger.util.Utilities;
 import org.apache.roller.weblogger.util.cache.Cache;
 import org.apache.roller.weblogger.util.cache.CacheHandler;
 import org.apache.roller.weblogger.util.cache.CacheManager;
+import org.apache.roller.weblogger.util.cache.DependencyIndex;
 import org.apache.roller.weblogger.util.cache.ExpiringCacheEntry;
+import org.apache.roller.weblogger.util.cache.LazyExpiringCacheEntry;
+import org.apache.roller.weblogger.util.cache.RenderDependencies;
 
 
 /**
  * Cache for site-wide weblog content.
+ *
+ * Site-wide content can show anything from any weblog, so rather than
+ * expiring all of it on every change the cache keeps what each piece of
+ * content was rendered from, and a change only expires the content it
+ * could have affected.
  */
 public final class SiteWideCache implements CacheHandler {
     
@@ -62,8 +72,24 @@ public final class SiteWideCache implements CacheHandler {
     private boolean cacheEnabled = true;
     private Cache contentCache = null;
     
+    // lets concurrent misses on the same key share one render
+    private RenderCoalescer renderCoalescer = null;
+    
+    // lets stale content be served while it is re-rendered
+    private StaleContentRefresher staleRefresher = null;
+    
+    // what each piece of cached content depends on
+    private DependencyIndex dependencies = null;
+    
     // keep a cached version of last expired time
     private ExpiringCacheEntry lastUpdateTime = null;
+    
+    // when cached content last went stale
+    private volatile long lastInvalidated = 0;
+    
+    // true until content restored from a snapshot has been checked against
+    // changes made to weblogs since it was cached
+    private volatile boolean checkRestored = false;
 
     // reference to our singleton instance
     private static final SiteWideCache singletonInstance = new SiteWideCache();
@@ -91,9 +117,31 @@ public final class SiteWideCache implements CacheHandler {
         
         if(cacheEnabled) {
             contentCache = CacheManager.constructCache(this, cacheProps);
+            checkRestored = "true".equals(cacheProps.get("snapshot"));
+            
+            int size = CacheProperties.parseInt(cacheProps, "size", 100);
+            // size is only a hint for caches bounded by bytes, so keys are
+            // kept for as long as the cache holds their content
+            dependencies = new DependencyIndex(2 * size, () -> contentCache.entries().keySet());
+            
+            // nothing is known about restored content, so any change expires it
+            for (String key : contentCache.entries().keySet()) {
+                dependencies.put(key, RenderDependencies.everything());
+            }
         } else {
             log.warn("Caching has been DISABLED");
         }
+        
+        renderCoalescer = CacheProperties.newRenderCoalescer(cacheProps, cacheEnabled);
+        staleRefresher = CacheProperties.newStaleContentRefresher(cacheProps, cacheEnabled);
+        
+        if (cacheEnabled) {
+            CacheManager.registerStats(CACHE_ID+".dependencies", dependencies::getStats);
+            CacheManager.registerStats(renderCoalescer.getId(), renderCoalescer::getStats);
+            if (staleRefresher.isEnabled()) {
+                CacheManager.registerStats(staleRefresher.getId(), staleRefresher::getStats);
+            }
+        }
     }
     
     
@@ -108,26 +156,100 @@ public final class SiteWideCache implements CacheHandler {
             return null;
         }
         
-        Object entry = contentCache.get(key);
+        Object entry = null;
         
-        if(entry == null) {
-            log.debug("MISS "+key);
+        LazyExpiringCacheEntry lazyEntry = (LazyExpiringCacheEntry) contentCache.get(key);
+        if(lazyEntry != null) {
+            RenderDependencies keyDependencies = dependencies.get(key);
+            if (keyDependencies != null && keyDependencies.getInvalidated() == 0) {
+                entry = lazyEntry.getValue(getLastInvalidated());
+            }
+            
+            if(entry != null) {
+                log.debug("HIT "+key);
+            } else {
+                log.debug("HIT-EXPIRED "+key);
+            }
+            
         } else {
-            log.debug("HIT "+key);
+            log.debug("MISS "+key);
         }
         
         return entry;
     }
     
     
+    /**
+     * Get an entry which is no longer fresh but may still be served while it
+     * is refreshed, or null if there is none or stale content is not allowed.
+     * Only meant to be called after get() came back empty.
+     */
+    public LazyExpiringCacheEntry getStale(String key) {
+        
+        if (!cacheEnabled || !staleRefresher.isEnabled()) {
+            return null;
+        }
+        
+        RenderDependencies keyDependencies = dependencies.get(key);
+        if (keyDependencies == null) {
+            return null;
+        }
+        
+        LazyExpiringCacheEntry lazyEntry = (LazyExpiringCacheEntry) contentCache.get(key);
+        long invalidated = Math.max(getLastInvalidated(), keyDependencies.getInvalidated());
+        if (staleRefresher.isServable(lazyEntry, invalidated)) {
+            log.debug("HIT-STALE "+key);
+            return lazyEntry;
+        }
+        return null;
+    }
+    
+    
+    /**
+     * Coalescer for concurrent renders of content which missed this cache.
+     */
+    public RenderCoalescer getRenderCoalescer() {
+        return renderCoalescer;
+    }
+    
+    
+    /**
+     * Refresher deciding when stale content from this cache may be served.
+     */
+    public StaleContentRefresher getStaleRefresher() {
+        return staleRefresher;
+    }
+    
+    
+    /**
+     * Cache content which could depend on anything.
+     */
     public void put(String key, Object value) {
+        put(key, value, RenderDependencies.everything());
+    }
+    
+    
+    /**
+     * Cache content along with what it depends on, unless something it
+     * depends on changed while it was being rendered.
+     *
+     * @return true if the content was cached
+     */
+    public boolean put(String key, Object value, RenderDependencies keyDependencies) {
         
         if (!cacheEnabled) {
-            return;
+            return false;
+        }
+        
+        if (keyDependencies.getInvalidated() != 0) {
+            log.debug("SKIPPED-INVALIDATED "+key);
+            return false;
         }
         
-        contentCache.put(key, value);
+        dependencies.put(key, keyDependencies);
+        contentCache.put(key, new LazyExpiringCacheEntry(value));
         log.debug("PUT "+key);
+        return true;
     }
 
     
@@ -138,6 +260,7 @@ public final class SiteWideCache implements CacheHandler {
         }
         
         contentCache.remove(key);
+        dependencies.remove(key);
         log.debug("REMOVE "+key);
     }
     
@@ -149,6 +272,7 @@ public final class SiteWideCache implements CacheHandler {
         }
         
         contentCache.clear();
+        dependencies.clear();
         this.lastUpdateTime = null;
         log.debug("CLEAR");
     }
@@ -234,6 +358,9 @@ public final class SiteWideCache implements CacheHandler {
         // add page number when applicable
         if(pageRequest.getWeblogAnchor() == null) {
             key.append("/page=").append(pageRequest.getPageNum());
+            if (pageRequest.getPageCursor() != null) {
+                key.append('/').append(pageRequest.getPageCursor());
+            }
         }
         
         // add login state
@@ -315,8 +442,7 @@ public final class SiteWideCache implements CacheHandler {
             return;
         }
         
-        this.contentCache.clear();
-        this.lastUpdateTime = null;
+        expire(dependencies.invalidate(entry));
     }
     
     
@@ -330,8 +456,7 @@ public final class SiteWideCache implements CacheHandler {
             return;
         }
         
-        this.contentCache.clear();
-        this.lastUpdateTime = null;
+        expire(dependencies.invalidate(website));
     }
     
     
@@ -340,9 +465,12 @@ public final class SiteWideCache implements CacheHandler {
      */
     @Override
     public void invalidate(WeblogBookmark bookmark) {
-        if(WebloggerRuntimeConfig.isSiteWideWeblog(bookmark.getWebsite().getHandle())) {
-            invalidate(bookmark.getWebsite());
+        
+        if (!cacheEnabled) {
+            return;
         }
+        
+        expire(dependencies.invalidateSettings(bookmark.getWebsite()));
     }
     
     
@@ -351,9 +479,12 @@ public final class SiteWideCache implements CacheHandler {
      */
     @Override
     public void invalidate(WeblogBookmarkFolder folder) {
-        if(WebloggerRuntimeConfig.isSiteWideWeblog(folder.getWeblog().getHandle())) {
-            invalidate(folder.getWeblog());
+        
+        if (!cacheEnabled) {
+            return;
         }
+        
+        expire(dependencies.invalidateSettings(folder.getWeblog()));
     }
     
     
@@ -362,9 +493,12 @@ public final class SiteWideCache implements CacheHandler {
      */
     @Override
     public void invalidate(WeblogEntryComment comment) {
-        if(WebloggerRuntimeConfig.isSiteWideWeblog(comment.getWeblogEntry().getWebsite().getHandle())) {
-            invalidate(comment.getWeblogEntry().getWebsite());
+        
+        if (!cacheEnabled) {
+            return;
         }
+        
+        expire(dependencies.invalidate(comment));
     }
     
     
@@ -382,9 +516,13 @@ public final class SiteWideCache implements CacheHandler {
      */
     @Override
     public void invalidate(WeblogCategory category) {
-        if(WebloggerRuntimeConfig.isSiteWideWeblog(category.getWeblog().getHandle())) {
-            invalidate(category.getWeblog());
+        
+        if (!cacheEnabled) {
+            return;
         }
+        
+        // entries are listed and shown by category name
+        expire(dependencies.invalidate(category.getWeblog()));
     }
     
     
@@ -393,9 +531,60 @@ public final class SiteWideCache implements CacheHandler {
      */
     @Override
     public void invalidate(WeblogTemplate template) {
-        if(WebloggerRuntimeConfig.isSiteWideWeblog(template.getWeblog().getHandle())) {
-            invalidate(template.getWeblog());
+        
+        if (!cacheEnabled) {
+            return;
         }
+        
+        expire(dependencies.invalidateSettings(template.getWeblog()));
+    }
+    
+    
+    /**
+     * What content restored from a snapshot depends on isn't known, so it
+     * is only good if no weblog has changed since it was cached.
+     * That is checked once, when the cache is first used, because this
+     * cache may be constructed before the weblogger is ready.
+     */
+    private long getLastInvalidated() {
+        
+        if (checkRestored) {
+            synchronized (this) {
+                if (checkRestored) {
+                    try {
+                        Date lastModified = WebloggerFactory.getWeblogger()
+                                .getWeblogManager().getWeblogsLastModified();
+                        if (lastModified != null && lastModified.getTime() > lastInvalidated) {
+                            lastInvalidated = lastModified.getTime();
+                        }
+                    } catch (WebloggerException e) {
+                        log.warn("Unable to check restored content, dropping it", e);
+                        contentCache.clear();
+                    }
+                    checkRestored = false;
+                }
+            }
+        }
+        return lastInvalidated;
+    }
+    
+    
+    /**
+     * Content under the given keys has been affected by a change.  Normally
+     * that means removing it, but when stale content may be served it is
+     * only left marked invalidated, to be replaced as it is requested.
+     * Any change may affect content which isn't cached, so the site-wide
+     * last modified time is reset whatever the keys.
+     */
+    private void expire(List<String> keys) {
+        
+        if (!staleRefresher.isEnabled()) {
+            for (String key : keys) {
+                this.contentCache.remove(key);
+            }
+        }
+        this.lastUpdateTime = null;
+        log.debug("EXPIRED "+keys.size()+" keys");
     }
     
     
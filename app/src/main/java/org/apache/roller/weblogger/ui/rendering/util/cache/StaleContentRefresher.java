@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.ui.rendering.util.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.roller.util.RollerConstants;
+import org.apache.roller.weblogger.util.cache.LazyExpiringCacheEntry;
+
+
+/**
+ * Stale-while-revalidate support for the rendered content caches.
+ *
+ * When enabled, content which went stale no more than maxStaleness seconds
+ * ago may still be served while it is being refreshed, so visitors don't have
+ * to wait for a render right after a weblog changes.  Only one refresh per
+ * key and a bounded number of refreshes overall may run at any time, and
+ * once content is older than maxStaleness it is treated as a plain miss.
+ */
+public final class StaleContentRefresher {
+
+    private static final Log log = LogFactory.getLog(StaleContentRefresher.class);
+
+    private final String id;
+
+    // how long after going stale content may still be served, in millis
+    private final long maxStaleness;
+
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final Semaphore refreshSlots;
+    private final int maxRefreshes;
+
+    // for metrics
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder refreshesSkipped = new LongAdder();
+
+
+    /**
+     * @param maxStaleness seconds content may be served after going stale,
+     *                     zero or less to never serve stale content
+     * @param maxRefreshes how many refreshes may run at the same time
+     */
+    public StaleContentRefresher(String id, long maxStaleness, int maxRefreshes) {
+        this.id = id;
+        this.maxStaleness = Math.max(0, maxStaleness) * RollerConstants.SEC_IN_MS;
+        this.maxRefreshes = Math.max(1, maxRefreshes);
+        this.refreshSlots = new Semaphore(this.maxRefreshes);
+    }
+
+
+    public String getId() {
+        return id;
+    }
+
+
+    public boolean isEnabled() {
+        return maxStaleness > 0;
+    }
+
+
+    /**
+     * True if the given entry is stale, but went stale recently enough to
+     * be served while it is refreshed.
+     *
+     * @param lastInvalidated the time the content of the entry went stale.
+     */
+    public boolean isServable(LazyExpiringCacheEntry entry, long lastInvalidated) {
+
+        if (!isEnabled() || entry == null || !entry.isInvalid(lastInvalidated)) {
+            return false;
+        }
+
+        if (System.currentTimeMillis() - lastInvalidated > maxStaleness) {
+            return false;
+        }
+
+        staleHits.increment();
+        return true;
+    }
+
+
+    /**
+     * Claim the refresh of the given key.  Callers which get true back must
+     * call refreshDone() once finished, whether the refresh worked or not.
+     *
+     * @return false if the key is already being refreshed or too many
+     *         refreshes are running.
+     */
+    public boolean tryStartRefresh(String key) {
+
+        if (!refreshing.add(key)) {
+            return false;
+        }
+
+        if (!refreshSlots.tryAcquire()) {
+            refreshing.remove(key);
+            refreshesSkipped.increment();
+            log.debug("too many refreshes, not refreshing " + key);
+            return false;
+        }
+
+        refreshes.increment();
+        return true;
+    }
+
+
+    public void refreshDone(String key) {
+        if (refreshing.remove(key)) {
+            refreshSlots.release();
+        }
+    }
+
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("maxStaleness", maxStaleness / RollerConstants.SEC_IN_MS);
+        stats.put("maxRefreshes", maxRefreshes);
+        stats.put("refreshing", refreshing.size());
+        stats.put("staleHits", staleHits.sum());
+        stats.put("refreshes", refreshes.sum());
+        stats.put("refreshesSkipped", refreshesSkipped.sum());
+        return stats;
+    }
+
+}
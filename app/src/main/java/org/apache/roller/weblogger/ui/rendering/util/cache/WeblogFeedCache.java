@@ -49,6 +49,12 @@ public final class WeblogFeedCache {
     private boolean cacheEnabled = true;
     private Cache contentCache = null;
     
+    // lets concurrent misses on the same key share one render
+    private RenderCoalescer renderCoalescer = null;
+    
+    // lets stale content be served while it is re-rendered
+    private StaleContentRefresher staleRefresher = null;
+    
     // reference to our singleton instance
     private static final WeblogFeedCache singletonInstance = new WeblogFeedCache();
     
@@ -79,6 +85,16 @@ public final class WeblogFeedCache {
         } else {
             log.warn("Caching has been DISABLED");
         }
+        
+        renderCoalescer = CacheProperties.newRenderCoalescer(cacheProps, cacheEnabled);
+        staleRefresher = CacheProperties.newStaleContentRefresher(cacheProps, cacheEnabled);
+        
+        if (cacheEnabled) {
+            CacheManager.registerStats(renderCoalescer.getId(), renderCoalescer::getStats);
+            if (staleRefresher.isEnabled()) {
+                CacheManager.registerStats(staleRefresher.getId(), staleRefresher::getStats);
+            }
+        }
     }
     
     
@@ -114,6 +130,42 @@ public final class WeblogFeedCache {
     }
     
     
+    /**
+     * Get an entry which is no longer fresh but may still be served while it
+     * is refreshed, or null if there is none or stale content is not allowed.
+     * Only meant to be called after get() came back empty.
+     */
+    public LazyExpiringCacheEntry getStale(String key, long lastModified) {
+        
+        if (!cacheEnabled || !staleRefresher.isEnabled()) {
+            return null;
+        }
+        
+        LazyExpiringCacheEntry lazyEntry = (LazyExpiringCacheEntry) contentCache.get(key);
+        if (staleRefresher.isServable(lazyEntry, lastModified)) {
+            log.debug("HIT-STALE "+key);
+            return lazyEntry;
+        }
+        return null;
+    }
+    
+    
+    /**
+     * Coalescer for concurrent renders of content which missed this cache.
+     */
+    public RenderCoalescer getRenderCoalescer() {
+        return renderCoalescer;
+    }
+    
+    
+    /**
+     * Refresher deciding when stale content from this cache may be served.
+     */
+    public StaleContentRefresher getStaleRefresher() {
+        return staleRefresher;
+    }
+    
+    
     public void put(String key, Object value) {
         
         if (!cacheEnabled) {
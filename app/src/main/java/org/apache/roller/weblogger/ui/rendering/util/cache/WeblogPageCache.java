@@ -23,21 +23,44 @@ import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.roller.util.RollerConstants;
 import org.apache.roller.weblogger.config.WebloggerConfig;
+import org.apache.roller.weblogger.pojos.User;
+import org.apache.roller.weblogger.pojos.Weblog;
+import org.apache.roller.weblogger.pojos.WeblogBookmark;
+import org.apache.roller.weblogger.pojos.WeblogBookmarkFolder;
+import org.apache.roller.weblogger.pojos.WeblogCategory;
+import org.apache.roller.weblogger.pojos.WeblogEntry;
+import org.apache.roller.weblogger.pojos.WeblogEntryComment;
+import org.apache.roller.weblogger.pojos.WeblogTemplate;
 import org.apache.roller.weblogger.ui.rendering.util.WeblogPageRequest;
 import org.apache.roller.weblogger.util.Utilities;
 import org.apache.roller.weblogger.util.cache.Cache;
+import org.apache.roller.weblogger.util.cache.CacheHandler;
 import org.apache.roller.weblogger.util.cache.CacheManager;
+import org.apache.roller.weblogger.util.cache.DependencyIndex;
 import org.apache.roller.weblogger.util.cache.LazyExpiringCacheEntry;
+import org.apache.roller.weblogger.util.cache.RenderDependencies;
 
 
 /**
  * Cache for weblog page content.
+ *
+ * The last modified time of a weblog changes with anything in it, so rather
+ * than expiring every page of a weblog whenever it changes the cache keeps
+ * what each page was rendered from, and a change it is told about only
+ * expires the pages it could have affected.  Pages the cache knows nothing
+ * about are still checked against the weblog last modified time, as are all
+ * pages of a weblog which has changed since the cache was last told about
+ * a change to it.
  */
-public final class WeblogPageCache {
+public final class WeblogPageCache implements CacheHandler {
     
     private static final Log log = LogFactory.getLog(WeblogPageCache.class);
     
@@ -49,6 +72,25 @@ public final class WeblogPageCache {
     private boolean cacheEnabled = true;
     private Cache contentCache = null;
     
+    // lets concurrent misses on the same key share one render
+    private RenderCoalescer renderCoalescer = null;
+    
+    // lets stale content be served while it is re-rendered
+    private StaleContentRefresher staleRefresher = null;
+    
+    // what each page depends on
+    private DependencyIndex dependencies = null;
+    
+    // when the cache was last told about a change to each weblog, by id.
+    // changes made before startup can't have affected anything rendered
+    // since, so that is the time for weblogs not heard about yet.
+    private final Map<String, Long> lastNotified = new ConcurrentHashMap<>();
+    private final long started = System.currentTimeMillis();
+    
+    // hits, and those the weblog last modified time alone would have expired
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder dependencyHits = new LongAdder();
+    
     // reference to our singleton instance
     private static final WeblogPageCache singletonInstance = new WeblogPageCache();
     
@@ -74,10 +116,26 @@ public final class WeblogPageCache {
         log.info(cacheProps);
         
         if (cacheEnabled) {
-            contentCache = CacheManager.constructCache(null, cacheProps);
+            contentCache = CacheManager.constructCache(this, cacheProps);
+            
+            int size = CacheProperties.parseInt(cacheProps, "size", 400);
+            // size is only a hint for caches bounded by bytes, so keys are
+            // kept for as long as the cache holds their content
+            dependencies = new DependencyIndex(2 * size, () -> contentCache.entries().keySet());
         } else {
             log.warn("Caching has been DISABLED");
         }
+        
+        renderCoalescer = CacheProperties.newRenderCoalescer(cacheProps, cacheEnabled);
+        staleRefresher = CacheProperties.newStaleContentRefresher(cacheProps, cacheEnabled);
+        
+        if (cacheEnabled) {
+            CacheManager.registerStats(CACHE_ID+".dependencies", this::getDependencyStats);
+            CacheManager.registerStats(renderCoalescer.getId(), renderCoalescer::getStats);
+            if (staleRefresher.isEnabled()) {
+                CacheManager.registerStats(staleRefresher.getId(), staleRefresher::getStats);
+            }
+        }
     }
     
     
@@ -86,7 +144,13 @@ public final class WeblogPageCache {
     }
     
     
-    public Object get(String key, long lastModified) {
+    /**
+     * Get cached content if it is still fresh.
+     *
+     * @param weblog the weblog the content belongs to.
+     * @param lastModified when the weblog was last modified.
+     */
+    public Object get(String key, Weblog weblog, long lastModified) {
         
         if (!cacheEnabled) {
             return null;
@@ -96,9 +160,13 @@ public final class WeblogPageCache {
         
         LazyExpiringCacheEntry lazyEntry = (LazyExpiringCacheEntry) this.contentCache.get(key);
         if(lazyEntry != null) {
-            entry = lazyEntry.getValue(lastModified);
+            entry = lazyEntry.getValue(getLastInvalidated(key, weblog, lastModified));
             
             if(entry != null) {
+                hits.increment();
+                if (lazyEntry.isInvalid(lastModified)) {
+                    dependencyHits.increment();
+                }
                 log.debug("HIT "+key);
             } else {
                 log.debug("HIT-EXPIRED "+key);
@@ -112,17 +180,81 @@ public final class WeblogPageCache {
     }
     
     
+    /**
+     * Get an entry which is no longer fresh but may still be served while it
+     * is refreshed, or null if there is none or stale content is not allowed.
+     * Only meant to be called after get() came back empty.
+     */
+    public LazyExpiringCacheEntry getStale(String key, Weblog weblog, long lastModified) {
+        
+        if (!cacheEnabled || !staleRefresher.isEnabled()) {
+            return null;
+        }
+        
+        LazyExpiringCacheEntry lazyEntry = (LazyExpiringCacheEntry) contentCache.get(key);
+        if (staleRefresher.isServable(lazyEntry, getLastInvalidated(key, weblog, lastModified))) {
+            log.debug("HIT-STALE "+key);
+            return lazyEntry;
+        }
+        return null;
+    }
+    
+    
+    /**
+     * Coalescer for concurrent renders of content which missed this cache.
+     */
+    public RenderCoalescer getRenderCoalescer() {
+        return renderCoalescer;
+    }
+    
+    
+    /**
+     * Refresher deciding when stale content from this cache may be served.
+     */
+    public StaleContentRefresher getStaleRefresher() {
+        return staleRefresher;
+    }
+    
+    
+    /**
+     * Cache content which is only as fresh as its weblog last modified time.
+     */
     public void put(String key, Object value) {
         
         if (!cacheEnabled) {
             return;
         }
         
+        dependencies.remove(key);
         contentCache.put(key, new LazyExpiringCacheEntry(value));
         log.debug("PUT "+key);
     }
     
     
+    /**
+     * Cache content along with what it depends on, unless something it
+     * depends on changed while it was being rendered.
+     *
+     * @return true if the content was cached
+     */
+    public boolean put(String key, Object value, RenderDependencies keyDependencies) {
+        
+        if (!cacheEnabled) {
+            return false;
+        }
+        
+        if (keyDependencies.getInvalidated() != 0) {
+            log.debug("SKIPPED-INVALIDATED "+key);
+            return false;
+        }
+        
+        dependencies.put(key, keyDependencies);
+        contentCache.put(key, new LazyExpiringCacheEntry(value));
+        log.debug("PUT "+key);
+        return true;
+    }
+    
+    
     public void remove(String key) {
         
         if (!cacheEnabled) {
@@ -130,6 +262,7 @@ public final class WeblogPageCache {
         }
         
         contentCache.remove(key);
+        dependencies.remove(key);
         log.debug("REMOVE "+key);
     }
     
@@ -141,6 +274,7 @@ public final class WeblogPageCache {
         }
         
         contentCache.clear();
+        dependencies.clear();
         log.debug("CLEAR");
     }
     
@@ -205,6 +339,9 @@ public final class WeblogPageCache {
         // add page number when applicable
         if(pageRequest.getWeblogAnchor() == null) {
             key.append("/page=").append(pageRequest.getPageNum());
+            if (pageRequest.getPageCursor() != null) {
+                key.append('/').append(pageRequest.getPageCursor());
+            }
         }
         
         // add login state
@@ -240,4 +377,157 @@ public final class WeblogPageCache {
 
         return Utilities.toBase64(string.toString().substring(1).getBytes());
     }
+    
+    
+    /**
+     * When the content cached under a key went stale, or zero if it hasn't.
+     */
+    private long getLastInvalidated(String key, Weblog weblog, long lastModified) {
+        
+        RenderDependencies keyDependencies = dependencies.get(key);
+        if (keyDependencies == null
+                || lastModified > lastNotified.getOrDefault(weblog.getId(), started)) {
+            return lastModified;
+        }
+        return keyDependencies.getInvalidated();
+    }
+    
+    
+    private Map<String, Object> getDependencyStats() {
+        Map<String, Object> stats = dependencies.getStats();
+        long hitCount = hits.sum();
+        long dependencyHitCount = dependencyHits.sum();
+        stats.put("hits", hitCount);
+        stats.put("dependencyHits", dependencyHitCount);
+        stats.put("dependencyHitRatio", (hitCount > 0)
+                ? (double) dependencyHitCount / hitCount * RollerConstants.PERCENT_100 : 0.0);
+        return stats;
+    }
+    
+    
+    /**
+     * Expire the given keys, now that something in the given weblog changed.
+     * Keys are only marked invalidated in the index so that their content
+     * may still be served stale while it is refreshed.
+     */
+    private void expire(Weblog weblog, List<String> keys) {
+        
+        lastNotified.put(weblog.getId(), System.currentTimeMillis());
+        if (!staleRefresher.isEnabled()) {
+            for (String key : keys) {
+                contentCache.remove(key);
+            }
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("EXPIRED "+keys.size()+" keys of "+weblog.getHandle());
+        }
+    }
+    
+    
+    /**
+     * A weblog entry has changed.
+     */
+    @Override
+    public void invalidate(WeblogEntry entry) {
+        
+        if (!cacheEnabled) {
+            return;
+        }
+        
+        expire(entry.getWebsite(), dependencies.invalidate(entry));
+    }
+    
+    
+    /**
+     * A weblog has changed.
+     */
+    @Override
+    public void invalidate(Weblog website) {
+        
+        if (!cacheEnabled) {
+            return;
+        }
+        
+        expire(website, dependencies.invalidate(website));
+    }
+    
+    
+    /**
+     * A bookmark has changed.
+     */
+    @Override
+    public void invalidate(WeblogBookmark bookmark) {
+        
+        if (!cacheEnabled) {
+            return;
+        }
+        
+        expire(bookmark.getWebsite(), dependencies.invalidateSettings(bookmark.getWebsite()));
+    }
+    
+    
+    /**
+     * A folder has changed.
+     */
+    @Override
+    public void invalidate(WeblogBookmarkFolder folder) {
+        
+        if (!cacheEnabled) {
+            return;
+        }
+        
+        expire(folder.getWeblog(), dependencies.invalidateSettings(folder.getWeblog()));
+    }
+    
+    
+    /**
+     * A comment has changed.
+     */
+    @Override
+    public void invalidate(WeblogEntryComment comment) {
+        
+        if (!cacheEnabled) {
+            return;
+        }
+        
+        expire(comment.getWeblogEntry().getWebsite(), dependencies.invalidate(comment));
+    }
+    
+    
+    /**
+     * The page cache ignores user changes.
+     */
+    @Override
+    public void invalidate(User user) {
+        // ignored
+    }
+    
+    
+    /**
+     * A category has changed.
+     */
+    @Override
+    public void invalidate(WeblogCategory category) {
+        
+        if (!cacheEnabled) {
+            return;
+        }
+        
+        expire(category.getWeblog(), dependencies.invalidate(category.getWeblog()));
+    }
+    
+    
+    /**
+     * A weblog template has changed.
+     */
+    @Override
+    public void invalidate(WeblogTemplate template) {
+        
+        if (!cacheEnabled) {
+            return;
+        }
+        
+        expire(template.getWeblog(), dependencies.invalidateSettings(template.getWeblog()));
+    }
+    
 }
@@ -40,6 +40,7 @@ import org.apache.roller.weblogger.ui.struts2.pagers.CommentsPager;
 import org.apache.roller.weblogger.ui.struts2.util.KeyValueObject;
 import org.apache.roller.weblogger.util.cache.CacheManager;
 import org.apache.roller.weblogger.ui.struts2.util.UIAction;
+import org.apache.roller.weblogger.util.PageCursor;
 import org.apache.roller.weblogger.util.Utilities;
 import org.apache.struts2.convention.annotation.AllowedMethods;
 import org.apache.struts2.interceptor.ServletRequestAware;
@@ -110,12 +111,27 @@ public class GlobalCommentManagement extends UIAction implements ServletRequestA
             csc.setEndDate(getBean().getEndDate());
             csc.setStatus(getBean().getStatus());
             csc.setReverseChrono(true);
-            csc.setOffset(getBean().getPage() * COUNT);
-            csc.setMaxResults(COUNT+1);
+            PageCursor cursor = getBean().getPageCursor();
+            if (cursor == null) {
+                csc.setOffset(getBean().getPage() * COUNT);
+                csc.setMaxResults(COUNT+1);
+            } else if (cursor.isBefore()) {
+                // the closest comments come first going back up
+                csc.setSeek(cursor.getTime(), cursor.getId());
+                csc.setReverseChrono(false);
+                csc.setMaxResults(COUNT);
+            } else {
+                csc.setSeek(cursor.getTime(), cursor.getId());
+                csc.setMaxResults(COUNT+1);
+            }
 
             List<WeblogEntryComment> rawComments = wmgr.getComments(csc);
             comments = new ArrayList<>();
             comments.addAll(rawComments);   
+            if (!csc.isReverseChrono()) {
+                Collections.reverse(comments);
+                hasMore = true;
+            }
             
             if(!comments.isEmpty()) {
                 if(comments.size() > COUNT) {
@@ -133,7 +149,14 @@ public class GlobalCommentManagement extends UIAction implements ServletRequestA
         
         // build comments pager
         String baseUrl = buildBaseUrl();
-        setPager(new CommentsPager(baseUrl, getBean().getPage(), comments, hasMore));
+        PageCursor prevCursor = null;
+        PageCursor nextCursor = null;
+        if (getFirstComment() != null) {
+            prevCursor = PageCursor.before(getFirstComment().getPostTime(), getFirstComment().getId());
+            nextCursor = PageCursor.after(getLastComment().getPostTime(), getLastComment().getId());
+        }
+        setPager(new CommentsPager(baseUrl, getBean().getPage(), comments, hasMore,
+                prevCursor, nextCursor));
     }
     
     
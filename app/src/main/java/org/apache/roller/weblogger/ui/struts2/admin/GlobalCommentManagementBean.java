@@ -27,6 +27,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.roller.util.DateUtil;
 import org.apache.roller.weblogger.pojos.WeblogEntryComment;
 import org.apache.roller.weblogger.pojos.WeblogEntryComment.ApprovalStatus;
+import org.apache.roller.weblogger.util.PageCursor;
 import org.apache.roller.weblogger.util.Utilities;
 
 
@@ -40,6 +41,9 @@ public class GlobalCommentManagementBean {
     private String endDateString = null;
     private String approvedString = "ALL";
     private int page = 0;
+    // cursors of the page, see PageCursor
+    private String after = null;
+    private String before = null;
     
     private String[] spamComments = new String[0];
     private String[] deleteComments = new String[0];
@@ -159,6 +163,29 @@ public class GlobalCommentManagementBean {
         this.page = page;
     }
 
+    public String getAfter() {
+        return after;
+    }
+
+    public void setAfter(String after) {
+        this.after = after;
+    }
+
+    public String getBefore() {
+        return before;
+    }
+
+    public void setBefore(String before) {
+        this.before = before;
+    }
+
+    /**
+     * Position of the page requested, or null to page by number.
+     */
+    public PageCursor getPageCursor() {
+        return (page > 0) ? PageCursor.parse(after, before) : null;
+    }
+
     public String getStartDateString() {
         return startDateString;
     }
@@ -46,6 +46,7 @@ import org.apache.roller.weblogger.util.cache.CacheManager;
 import org.apache.roller.weblogger.ui.struts2.util.UIAction;
 import org.apache.roller.weblogger.util.I18nMessages;
 import org.apache.roller.weblogger.util.MailUtil;
+import org.apache.roller.weblogger.util.PageCursor;
 import org.apache.roller.weblogger.util.Utilities;
 import org.apache.struts2.convention.annotation.AllowedMethods;
 
@@ -106,12 +107,27 @@ public class Comments extends UIAction {
             }
 
             CommentSearchCriteria csc = getCommentSearchCriteria();
-            csc.setOffset(getBean().getPage() * COUNT);
-            csc.setMaxResults(COUNT + 1);
+            PageCursor cursor = getBean().getPageCursor();
+            if (cursor == null) {
+                csc.setOffset(getBean().getPage() * COUNT);
+                csc.setMaxResults(COUNT + 1);
+            } else if (cursor.isBefore()) {
+                // the closest comments come first going back up
+                csc.setSeek(cursor.getTime(), cursor.getId());
+                csc.setReverseChrono(false);
+                csc.setMaxResults(COUNT);
+            } else {
+                csc.setSeek(cursor.getTime(), cursor.getId());
+                csc.setMaxResults(COUNT + 1);
+            }
 
             List<WeblogEntryComment> rawComments = wmgr.getComments(csc);
             comments = new ArrayList<>();
             comments.addAll(rawComments);
+            if (!csc.isReverseChrono()) {
+                Collections.reverse(comments);
+                hasMore = true;
+            }
             if (!comments.isEmpty()) {
                 if (comments.size() > COUNT) {
                     comments.remove(comments.size() - 1);
@@ -129,8 +145,14 @@ public class Comments extends UIAction {
 
         // build comments pager
         String baseUrl = buildBaseUrl();
-        setPager(new CommentsPager(baseUrl, getBean().getPage(), comments,
-                hasMore));
+        PageCursor prevCursor = null;
+        PageCursor nextCursor = null;
+        if (getFirstComment() != null) {
+            prevCursor = PageCursor.before(getFirstComment().getPostTime(), getFirstComment().getId());
+            nextCursor = PageCursor.after(getLastComment().getPostTime(), getLastComment().getId());
+        }
+        setPager(new CommentsPager(baseUrl, getBean().getPage(), comments, hasMore,
+                prevCursor, nextCursor));
     }
 
     // use the action data to build a url representing this action, including
@@ -272,6 +294,9 @@ public class Comments extends UIAction {
 
             List<WeblogEntryComment> flushList = new ArrayList<>();
 
+            // entries which had comments deleted
+            Set<WeblogEntry> deletedFromList = new HashSet<>();
+
             // if search is enabled, we will need to re-index all entries with
             // comments that have been approved, so build a list of those
             // entries
@@ -289,7 +314,7 @@ public class Comments extends UIAction {
                     // make sure comment is tied to action weblog
                     if (getActionWeblog().equals(
                             deleteComment.getWeblogEntry().getWebsite())) {
-                        flushList.add(deleteComment);
+                        deletedFromList.add(deleteComment.getWeblogEntry());
                         reindexList.add(deleteComment.getWeblogEntry());
                         wmgr.removeComment(deleteComment);
                     }
@@ -358,9 +383,15 @@ public class Comments extends UIAction {
 
             WebloggerFactory.getWeblogger().flush();
 
-            // notify caches of changes by flushing whole site because we can't
-            // invalidate deleted comment objects (JPA nulls the fields out).
-            CacheManager.invalidate(getActionWeblog());
+            // notify caches of changes, by entry for deleted comments because
+            // we can't invalidate deleted comment objects (JPA nulls the
+            // fields out).
+            for (WeblogEntryComment comment : flushList) {
+                CacheManager.invalidate(comment);
+            }
+            for (WeblogEntry entry : deletedFromList) {
+                CacheManager.invalidate(entry);
+            }
 
             // if required, send notification for all comments changed
             if (MailUtil.isMailConfigured()) {
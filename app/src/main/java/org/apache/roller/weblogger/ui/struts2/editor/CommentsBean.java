@@ -27,6 +27,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.roller.util.DateUtil;
 import org.apache.roller.weblogger.pojos.WeblogEntryComment;
 import org.apache.roller.weblogger.pojos.WeblogEntryComment.ApprovalStatus;
+import org.apache.roller.weblogger.util.PageCursor;
 import org.apache.roller.weblogger.util.Utilities;
 
 
@@ -41,6 +42,9 @@ public class CommentsBean {
     private String endDateString = null;
     private String approvedString = "ALL";
     private int page = 0;
+    // cursors of the page, see PageCursor
+    private String after = null;
+    private String before = null;
     
     private String[] approvedComments = new String[0];
     private String[] spamComments = new String[0];
@@ -169,6 +173,29 @@ public class CommentsBean {
         this.page = page;
     }
 
+    public String getAfter() {
+        return after;
+    }
+
+    public void setAfter(String after) {
+        this.after = after;
+    }
+
+    public String getBefore() {
+        return before;
+    }
+
+    public void setBefore(String before) {
+        this.before = before;
+    }
+
+    /**
+     * Position of the page requested, or null to page by number.
+     */
+    public PageCursor getPageCursor() {
+        return (page > 0) ? PageCursor.parse(after, before) : null;
+    }
+
     public String getStartDateString() {
         return startDateString;
     }
@@ -20,6 +20,7 @@ package org.apache.roller.weblogger.ui.struts2.editor;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,6 +37,7 @@ import org.apache.roller.weblogger.pojos.WeblogPermission;
 import org.apache.roller.weblogger.ui.struts2.pagers.EntriesPager;
 import org.apache.roller.weblogger.ui.struts2.util.KeyValueObject;
 import org.apache.roller.weblogger.ui.struts2.util.UIAction;
+import org.apache.roller.weblogger.util.PageCursor;
 import org.apache.struts2.convention.annotation.AllowedMethods;
 
 
@@ -85,6 +87,7 @@ public class Entries extends UIAction {
         
         List<WeblogEntry> entries = null;
         boolean hasMore = false;
+        boolean seekable = false;
         try {
             String status = getBean().getStatus();
             
@@ -98,11 +101,33 @@ public class Entries extends UIAction {
             wesc.setStatus("ALL".equals(status) ? null : WeblogEntry.PubStatus.valueOf(status));
             wesc.setText(getBean().getText());
             wesc.setSortBy(getBean().getSortBy());
-            wesc.setOffset(getBean().getPage() * COUNT);
-            wesc.setMaxResults(COUNT + 1);
+
+            // seek past the entry a page link came from when entries of this
+            // query all have a time to sort by, otherwise skip by page number
+            seekable = WeblogEntrySearchCriteria.SortBy.UPDATE_TIME.equals(wesc.getSortBy())
+                    || WeblogEntry.PubStatus.PUBLISHED.equals(wesc.getStatus())
+                    || WeblogEntry.PubStatus.SCHEDULED.equals(wesc.getStatus());
+            PageCursor cursor = seekable ? getBean().getPageCursor() : null;
+            boolean before = cursor != null && cursor.isBefore();
+            if (cursor == null) {
+                wesc.setOffset(getBean().getPage() * COUNT);
+                wesc.setMaxResults(COUNT + 1);
+            } else if (before) {
+                // the closest entries come first going back up
+                wesc.setSeek(cursor.getTime(), cursor.getId());
+                wesc.setSortOrder(WeblogEntrySearchCriteria.SortOrder.ASCENDING);
+                wesc.setMaxResults(COUNT);
+            } else {
+                wesc.setSeek(cursor.getTime(), cursor.getId());
+                wesc.setMaxResults(COUNT + 1);
+            }
             List<WeblogEntry> rawEntries = wmgr.getWeblogEntries(wesc);
             entries = new ArrayList<>();
             entries.addAll(rawEntries);
+            if (before) {
+                Collections.reverse(entries);
+                hasMore = true;
+            }
             if (!entries.isEmpty()) {
                 log.debug("query found "+rawEntries.size()+" results");
                 
@@ -121,12 +146,28 @@ public class Entries extends UIAction {
         
         // build entries pager
         String baseUrl = buildBaseUrl();
-        setPager(new EntriesPager(baseUrl, getBean().getPage(), entries, hasMore));
+        PageCursor prevCursor = null;
+        PageCursor nextCursor = null;
+        if (seekable && getFirstEntry() != null) {
+            prevCursor = PageCursor.before(getSortTime(getFirstEntry()), getFirstEntry().getId());
+            nextCursor = PageCursor.after(getSortTime(getLastEntry()), getLastEntry().getId());
+        }
+        setPager(new EntriesPager(baseUrl, getBean().getPage(), entries, hasMore,
+                prevCursor, nextCursor));
                 
         return LIST;
     }
     
     
+    // time of an entry by which the list is sorted
+    private Date getSortTime(WeblogEntry entry) {
+        if (WeblogEntrySearchCriteria.SortBy.UPDATE_TIME.equals(getBean().getSortBy())) {
+            return entry.getUpdateTime();
+        }
+        return entry.getPubTime();
+    }
+    
+    
     // use the action data to build a url representing this action, including query data
     private String buildBaseUrl() {
         
@@ -24,6 +24,7 @@ import java.util.Date;
 import java.util.List;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.roller.weblogger.pojos.WeblogEntrySearchCriteria;
+import org.apache.roller.weblogger.util.PageCursor;
 import org.apache.roller.weblogger.util.Utilities;
 
 
@@ -40,6 +41,9 @@ public class EntriesBean {
     private String status = "ALL";
     private WeblogEntrySearchCriteria.SortBy sortBy = WeblogEntrySearchCriteria.SortBy.UPDATE_TIME;
     private int page = 0;
+    // cursors of the page, see PageCursor
+    private String after = null;
+    private String before = null;
     
     
     public EntriesBean() {
@@ -123,6 +127,29 @@ public class EntriesBean {
         this.page = page;
     }
 
+    public String getAfter() {
+        return after;
+    }
+
+    public void setAfter(String after) {
+        this.after = after;
+    }
+
+    public String getBefore() {
+        return before;
+    }
+
+    public void setBefore(String before) {
+        this.before = before;
+    }
+
+    /**
+     * Position of the page requested, or null to page by number.
+     */
+    public PageCursor getPageCursor() {
+        return (page > 0) ? PageCursor.parse(after, before) : null;
+    }
+
     public String getEndDateString() {
         return endDateString;
     }
@@ -22,6 +22,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.apache.roller.weblogger.pojos.WeblogEntryComment;
+import org.apache.roller.weblogger.util.PageCursor;
 import org.apache.roller.weblogger.util.URLUtilities;
 
 
@@ -42,12 +43,24 @@ public class CommentsPager {
     // are there more items?
     private final boolean moreItems;
     
+    // cursors of the previous and next pages, or null to page by number
+    private final PageCursor prevCursor;
+    private final PageCursor nextCursor;
+    
     
     public CommentsPager(String url, int page, List<WeblogEntryComment> comments, boolean hasMore) {
+        this(url, page, comments, hasMore, null, null);
+    }
+    
+    
+    public CommentsPager(String url, int page, List<WeblogEntryComment> comments, boolean hasMore,
+            PageCursor prevCursor, PageCursor nextCursor) {
         this.baseUrl = url;
         this.pageNum = page;
         this.items = comments;
         this.moreItems = hasMore;
+        this.prevCursor = prevCursor;
+        this.nextCursor = nextCursor;
     }
     
     
@@ -56,6 +69,9 @@ public class CommentsPager {
             int nextPage = pageNum + 1;
             Map<String, String> params = new HashMap<>();
             params.put("bean.page", ""+nextPage);
+            if (nextCursor != null) {
+                params.put("bean." + nextCursor.getParamName(), nextCursor.getParamValue());
+            }
             return createURL(baseUrl, params);
         }
         return null;
@@ -67,6 +83,10 @@ public class CommentsPager {
             int prevPage = pageNum - 1;
             Map<String, String> params = new HashMap<>();
             params.put("bean.page", ""+prevPage);
+            // no cursor back to the first page
+            if (prevCursor != null && prevPage > 0) {
+                params.put("bean." + prevCursor.getParamName(), prevCursor.getParamValue());
+            }
             return createURL(baseUrl, params);
         }
         return null;
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.util;
+
+import java.util.Date;
+import org.apache.commons.lang3.StringUtils;
+
+
+/**
+ * Position of a pager in a list of entries or comments ordered by time and
+ * then id, so the next or previous page can be found by seeking past the
+ * last or first item shown instead of skipping an offset.
+ *
+ * In urls a cursor is the "after" or "before" param, with the time in
+ * milliseconds and the id of the item separated by an underscore.  Pagers
+ * keep sending the page number too, which is used if the cursor is missing
+ * or invalid.
+ */
+public final class PageCursor {
+
+    public static final String AFTER_PARAM = "after";
+    public static final String BEFORE_PARAM = "before";
+
+    private final Date time;
+    private final String id;
+    private final boolean before;
+
+
+    private PageCursor(Date time, String id, boolean before) {
+        this.time = time;
+        this.id = id;
+        this.before = before;
+    }
+
+
+    /**
+     * Cursor for the page following the given item, or null if the item
+     * has no time to seek by.
+     */
+    public static PageCursor after(Date time, String id) {
+        return (time != null && id != null) ? new PageCursor(new Date(time.getTime()), id, false) : null;
+    }
+
+
+    /**
+     * Cursor for the page preceding the given item, or null if the item
+     * has no time to seek by.
+     */
+    public static PageCursor before(Date time, String id) {
+        return (time != null && id != null) ? new PageCursor(new Date(time.getTime()), id, true) : null;
+    }
+
+
+    /**
+     * Parse a cursor from the values of the after and before params.
+     *
+     * @return The cursor, or null if neither param holds a valid one.
+     */
+    public static PageCursor parse(String after, String before) {
+        if (after != null) {
+            return parse(after, false);
+        } else if (before != null) {
+            return parse(before, true);
+        }
+        return null;
+    }
+
+
+    private static PageCursor parse(String value, boolean before) {
+        int split = value.indexOf('_');
+        if (split < 1 || split == value.length() - 1) {
+            return null;
+        }
+        String millis = value.substring(0, split);
+        if (!StringUtils.isNumeric(millis) || millis.length() > 18) {
+            return null;
+        }
+        return new PageCursor(new Date(Long.parseLong(millis)), value.substring(split + 1), before);
+    }
+
+
+    /**
+     * Time of the item to seek past.
+     */
+    public Date getTime() {
+        return new Date(time.getTime());
+    }
+
+
+    /**
+     * Id of the item to seek past, which orders items of the same time.
+     */
+    public String getId() {
+        return id;
+    }
+
+
+    /**
+     * True if the page wanted precedes the item, false if it follows it.
+     */
+    public boolean isBefore() {
+        return before;
+    }
+
+
+    public String getParamName() {
+        return before ? BEFORE_PARAM : AFTER_PARAM;
+    }
+
+
+    public String getParamValue() {
+        return time.getTime() + "_" + id;
+    }
+
+
+    /**
+     * Add this cursor to the query string of a url.
+     */
+    public String appendTo(String url) {
+        if (url == null) {
+            return null;
+        }
+        return url + (url.indexOf('?') < 0 ? '?' : '&')
+                + getParamName() + "=" + URLUtilities.encode(getParamValue());
+    }
+
+
+    @Override
+    public String toString() {
+        return getParamName() + "=" + getParamValue();
+    }
+
+}
@@ -18,6 +18,7 @@
 
 package org.apache.roller.weblogger.util.cache;
 
+import java.util.Collections;
 import java.util.Map;
 
 
@@ -61,4 +62,14 @@ public interface Cache {
      */
     Map<String, Object> getStats();
     
+    
+    /**
+     * get a copy of all the entries in the cache, without counting as a hit
+     * on any of them.  a cache which can't list its entries may return an
+     * empty map, in which case it can't be snapshotted.
+     */
+    default Map<String, Object> entries() {
+        return Collections.emptyMap();
+    }
+    
 }
@@ -18,6 +18,7 @@
 
 package org.apache.roller.weblogger.util.cache;
 
+import org.apache.roller.weblogger.pojos.RuntimeConfigProperty;
 import org.apache.roller.weblogger.pojos.WeblogBookmark;
 import org.apache.roller.weblogger.pojos.WeblogEntryComment;
 import org.apache.roller.weblogger.pojos.WeblogBookmarkFolder;
@@ -55,4 +56,12 @@ public interface CacheHandler {
 
     void invalidate(WeblogTemplate template);
     
+    /**
+     * A runtime configuration property changed.  Rendered content may depend
+     * on any property, so most handlers leave it to the code changing
+     * properties to clear caches as needed.
+     */
+    default void invalidate(RuntimeConfigProperty property) {
+    }
+    
 }
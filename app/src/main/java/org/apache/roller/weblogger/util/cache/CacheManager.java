@@ -18,16 +18,29 @@
 
 package org.apache.roller.weblogger.util.cache;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.Set;
+import java.util.function.Supplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import org.apache.commons.logging.Log;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.LogFactory;
 import org.apache.roller.weblogger.config.WebloggerConfig;
 import org.apache.roller.weblogger.pojos.WeblogBookmark;
 import org.apache.roller.weblogger.pojos.WeblogEntryComment;
 import org.apache.roller.weblogger.pojos.WeblogBookmarkFolder;
+import org.apache.roller.weblogger.pojos.RuntimeConfigProperty;
 import org.apache.roller.weblogger.pojos.User;
 import org.apache.roller.weblogger.pojos.WeblogCategory;
 import org.apache.roller.weblogger.pojos.WeblogEntry;
@@ -65,6 +78,15 @@ public final class CacheManager {
     // a map of all registered caches
     private static final Map<String, Cache> caches = new HashMap<>();
     
+    // stats from things which work alongside caches but aren't caches
+    private static final Map<String, Supplier<Map<String, Object>>> extraStats = new HashMap<>();
+    
+    // files to snapshot caches to on shutdown, by cache id
+    private static final Map<String, Path> snapshotFiles = new HashMap<>();
+    
+    // names of the cache MBeans we registered
+    private static final List<ObjectName> mbeanNames = new CopyOnWriteArrayList<>();
+    
     
     static {
         // lookup what cache factory we want to use
@@ -130,6 +152,16 @@ public final class CacheManager {
      * use for the whole system, but override it in certain places where they
      * see fit.  It also allows users to write their own caching modifications
      * and have them used only by specific caches.
+     *
+     * Supplying a "precompress" property of "true" makes the cache keep gzip
+     * and deflate encoded copies of any CachedContent put into it.
+     *
+     * Supplying a "snapshot" property of "true" makes the cached content
+     * survive restarts, by writing it to the cache.snapshotDir on shutdown
+     * and restoring it into the cache here.
+     *
+     * Every cache is measured, and its metrics are included in its stats
+     * and registered as an MXBean unless cache.jmx.enabled is false.
      */
     public static Cache constructCache(CacheHandler handler, Map<String, String> properties) {
         
@@ -161,7 +193,20 @@ public final class CacheManager {
             cache = cacheFactory.constructCache(properties);
         }
         
+        // keep compressed copies of cached content, whatever the cache impl
+        if(cache != null && properties != null && "true".equals(properties.get("precompress"))) {
+            cache = new PrecompressingCache(cache);
+        }
+        
+        if(cache != null && properties != null && "true".equals(properties.get("snapshot"))) {
+            restoreSnapshot(cache);
+        }
+        
         if(cache != null) {
+            InstrumentedCache instrumented = new InstrumentedCache(cache);
+            registerMBean(instrumented);
+            cache = instrumented;
+            
             caches.put(cache.getId(), cache);
             
             // register the handler for this new cache
@@ -195,6 +240,20 @@ public final class CacheManager {
     }
     
     
+    /**
+     * Register a source of stats to be reported along with those of the
+     * registered caches, such as helpers which work alongside a cache.
+     */
+    public static void registerStats(String id, Supplier<Map<String, Object>> stats) {
+        
+        log.debug("Registering stats "+id);
+        
+        if(id != null && stats != null) {
+            extraStats.put(id, stats);
+        }
+    }
+    
+    
     public static void invalidate(WeblogEntry entry) {
         
         log.debug("invalidating entry = "+entry.getAnchor());
@@ -264,6 +323,14 @@ public final class CacheManager {
             handler.invalidate(template);
         }
     }
+    
+    
+    public static void invalidate(RuntimeConfigProperty property) {
+        log.debug("invalidating property = " + property.getName());
+        for (CacheHandler handler : cacheHandlers) {
+            handler.invalidate(property);
+        }
+    }
 
     
     /**
@@ -290,25 +357,115 @@ public final class CacheManager {
     /**
      * Compile stats from all registered caches.
      *
-     * This is basically a hacky version of instrumentation which is being
-     * thrown in because we don't have a full instrumentation strategy yet.
-     * This is here with the full expectation that it will be replaced by
-     * something a bit more elaborate, like JMX.
+     * The stats of each cache include the same metrics which are available
+     * through JMX, see CacheMetricsMXBean.
      */
     public static Map<String, Map<String, Object>> getStats() {
         Map<String, Map<String, Object>> allStats = new HashMap<>();
         for (Cache cache : caches.values()) {
             allStats.put(cache.getId(), cache.getStats());
         }
+        for (Map.Entry<String, Supplier<Map<String, Object>>> stats : extraStats.entrySet()) {
+            allStats.put(stats.getKey(), stats.getValue().get());
+        }
         return allStats;
     }
     
     
     /**
      * Place to do any cleanup tasks for cache system.
+     *
+     * Caches constructed with snapshot=true are written out here.
      */
     public static void shutdown() {
-        // no-op
+        
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : mbeanNames) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException e) {
+                log.debug("Unable to unregister "+name, e);
+            }
+        }
+        mbeanNames.clear();
+        
+        for (Map.Entry<String, Path> snapshot : snapshotFiles.entrySet()) {
+            Cache cache = caches.get(snapshot.getKey());
+            Path file = snapshot.getValue();
+            try {
+                Files.createDirectories(file.getParent());
+                int count = CacheSnapshot.write(cache, file);
+                log.info("Wrote "+count+" entries of cache "+cache.getId()+" to "+file);
+            } catch (IOException e) {
+                log.error("Unable to write snapshot of cache "+cache.getId()+" to "+file, e);
+            }
+        }
+    }
+    
+    
+    /**
+     * Register the metrics of a cache with the platform MBean server,
+     * replacing those of any cache with the same id from an earlier
+     * deployment in this JVM.
+     */
+    private static void registerMBean(InstrumentedCache cache) {
+        
+        if(!WebloggerConfig.getBooleanProperty("cache.jmx.enabled", true)) {
+            return;
+        }
+        
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("org.apache.roller.weblogger:type=Cache,name="
+                    + ObjectName.quote(cache.getId()));
+            if(server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(cache, name);
+            mbeanNames.add(name);
+        } catch (JMException e) {
+            log.warn("Unable to register MBean for cache "+cache.getId(), e);
+        }
+    }
+    
+    
+    /**
+     * Restore the snapshot written by the last shutdown, if any, into the
+     * given cache, and remember to write a new one at the next shutdown.
+     *
+     * The snapshot file is removed once restored so that it can't be
+     * restored again after a crash, when it would be more out of date.
+     */
+    private static void restoreSnapshot(Cache cache) {
+        
+        String dir = WebloggerConfig.getProperty("cache.snapshotDir");
+        if(StringUtils.isEmpty(dir)) {
+            log.warn("No cache.snapshotDir set, not snapshotting cache "+cache.getId());
+            return;
+        }
+        
+        Path file = Paths.get(dir, cache.getId()+".snapshot");
+        snapshotFiles.put(cache.getId(), file);
+        
+        if(!Files.exists(file)) {
+            return;
+        }
+        
+        try {
+            Map<String, LazyExpiringCacheEntry> entries = CacheSnapshot.read(file);
+            for (Map.Entry<String, LazyExpiringCacheEntry> entry : entries.entrySet()) {
+                cache.put(entry.getKey(), entry.getValue());
+            }
+            log.info("Restored "+entries.size()+" entries of cache "+cache.getId()+" from "+file);
+        } catch (IOException e) {
+            log.error("Unable to restore snapshot of cache "+cache.getId()+" from "+file, e);
+        } finally {
+            try {
+                Files.delete(file);
+            } catch (IOException e) {
+                log.warn("Unable to remove cache snapshot "+file, e);
+            }
+        }
     }
     
 }
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.util.cache;
+
+import java.util.Map;
+
+
+/**
+ * Management interface for the metrics of a single cache, registered with
+ * the platform MBean server as org.apache.roller.weblogger:type=Cache,name=id
+ *
+ * Latencies are in microseconds.  Counters are reset when the cache is
+ * cleared.
+ */
+public interface CacheMetricsMXBean {
+
+    String getId();
+
+    long getHits();
+
+    long getMisses();
+
+    /** Percentage of gets which were hits. */
+    double getHitRatio();
+
+    long getPuts();
+
+    long getRemoves();
+
+    /** Entries dropped to make room for others, if the cache reports it. */
+    long getEvictions();
+
+    /** Entries dropped because they timed out, if the cache reports it. */
+    long getExpirations();
+
+    long getEntries();
+
+    /** Bytes of rendered content held, including encoded copies. */
+    long getBytes();
+
+    double getGetLatencyP50();
+
+    double getGetLatencyP95();
+
+    double getGetLatencyP99();
+
+    double getPutLatencyP50();
+
+    double getPutLatencyP95();
+
+    double getPutLatencyP99();
+
+    /**
+     * Bytes held per key prefix, which is the weblog handle for the weblog
+     * page and feed caches, for the prefixes holding the most bytes.
+     */
+    Map<String, Long> getBytesByWeblog();
+
+    /**
+     * Entries held per key prefix, for the prefixes holding the most bytes.
+     */
+    Map<String, Long> getEntriesByWeblog();
+
+}
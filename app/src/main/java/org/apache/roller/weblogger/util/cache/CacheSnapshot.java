@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.util.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+
+/**
+ * Writes the rendered content of a cache to a file, and reads it back.
+ *
+ * Only CachedContent wrapped in a LazyExpiringCacheEntry is written, along
+ * with its encoded copies and the time it was cached, so that restored
+ * entries expire lazily against the current last modified times just like
+ * the entries they were written from.
+ *
+ * Snapshots are read by memory mapping the file, and restored content stays
+ * in the mapping until it is needed, so reading even a large snapshot is
+ * quick and doesn't add to the heap.
+ */
+final class CacheSnapshot {
+
+    // "RCS" plus a format version
+    private static final int MAGIC = 0x52435301;
+
+    // marks each entry, and the end of the snapshot
+    private static final byte ENTRY = 1;
+    private static final byte END = 0;
+
+
+    private CacheSnapshot() {
+    }
+
+
+    /**
+     * Write the cached content of the given cache to the given file,
+     * replacing the file only once the whole snapshot has been written.
+     *
+     * @return the number of entries written
+     */
+    static int write(Cache cache, Path file) throws IOException {
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        int count = 0;
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+
+            out.writeInt(MAGIC);
+            for (Map.Entry<String, Object> entry : cache.entries().entrySet()) {
+                if (!(entry.getValue() instanceof LazyExpiringCacheEntry)) {
+                    continue;
+                }
+                LazyExpiringCacheEntry lazyEntry = (LazyExpiringCacheEntry) entry.getValue();
+                if (!(lazyEntry.getStaleValue() instanceof CachedContent)) {
+                    continue;
+                }
+                CachedContent content = (CachedContent) lazyEntry.getStaleValue();
+
+                out.writeByte(ENTRY);
+                writeString(out, entry.getKey());
+                writeString(out, content.getContentType());
+                out.writeLong(lazyEntry.getTimeCached());
+                writeContent(out, content, null);
+                writeContent(out, content, CachedContent.ENCODING_GZIP);
+                writeContent(out, content, CachedContent.ENCODING_DEFLATE);
+                count++;
+            }
+            out.writeByte(END);
+        }
+
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+
+    /**
+     * Read the entries of a snapshot, in the order they were written.
+     *
+     * @throws IOException if the file can't be read or isn't a whole snapshot
+     */
+    static Map<String, LazyExpiringCacheEntry> read(Path file) throws IOException {
+
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // the mapping outlives the channel
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        Map<String, LazyExpiringCacheEntry> entries = new LinkedHashMap<>();
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a cache snapshot: " + file);
+            }
+            while (buffer.get() == ENTRY) {
+                String key = readString(buffer);
+                String contentType = readString(buffer);
+                long timeCached = buffer.getLong();
+                ByteBuffer content = readContent(buffer);
+                ByteBuffer gzip = readContent(buffer);
+                ByteBuffer deflate = readContent(buffer);
+
+                entries.put(key, new LazyExpiringCacheEntry(
+                        CachedContent.restore(content, gzip, deflate, contentType), timeCached));
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Truncated cache snapshot: " + file, e);
+        }
+        return entries;
+    }
+
+
+    private static void writeString(DataOutputStream out, String str) throws IOException {
+        if (str == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = str.getBytes(UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        } else if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+
+    private static void writeContent(DataOutputStream out, CachedContent content,
+            String encoding) throws IOException {
+        if (encoding != null && !content.hasEncoding(encoding)) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(content.getLength(encoding));
+            content.writeTo(out, encoding);
+        }
+    }
+
+
+    /**
+     * Slice the next piece of content out of the buffer, without copying it.
+     */
+    private static ByteBuffer readContent(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        ByteBuffer content = buffer.slice();
+        content.limit(length);
+        buffer.position(buffer.position() + length);
+        // content lengths are taken from buffer capacities
+        return content.slice();
+    }
+
+}
@@ -3,9 +3,22 @@ package org.apache.roller.weblogger.util.cache;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.roller.util.RollerConstants;
@@ -14,16 +27,52 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
  * A utility class for storing cached content written to a java.io.Writer.
+ *
+ * Once closed the content may be moved out of the java heap into a direct
+ * buffer by a cache which wants to keep large amounts of rendered content
+ * around without growing the heap.  Callers which only need to send the
+ * content somewhere should use getLength() and writeTo() so that works
+ * without copying the content back onto the heap.
+ *
+ * A closed CachedContent may also carry gzip and deflate encoded copies of
+ * its content, made once by encodeVariants() so that cache hits can be
+ * served compressed without compressing the content on every request.
+ *
+ * A hash of the content is computed once it is closed, which can be used as
+ * a strong entity tag for conditional requests.
  */
 public class CachedContent implements AutoCloseable, Serializable {
     
     private static final Log log = LogFactory.getLog(CachedContent.class);
     
-    // the byte array we use to maintain the cached content
-    private byte[] content = new byte[0];
+    public static final String ENCODING_GZIP = "gzip";
+    public static final String ENCODING_DEFLATE = "deflate";
+    
+    // not worth compressing anything smaller than this
+    private static final int MIN_ENCODE_LENGTH = 512;
+    
+    // always serialize the content as a byte array, wherever it lives
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("content", byte[].class),
+        new ObjectStreamField("contentType", String.class)
+    };
+    
+    // the byte array we use to maintain the cached content, null once the
+    // content has been moved off heap
+    private volatile byte[] content = new byte[0];
+    
+    // read-only direct buffer holding the content when kept off heap
+    private transient volatile ByteBuffer offHeapContent = null;
+    
+    // hash of the content, computed when it is closed
+    private transient volatile String contentHash = null;
+    
+    // pre-encoded copies of the content, if any were made
+    private transient volatile ByteBuffer gzipContent = null;
+    private transient volatile ByteBuffer deflateContent = null;
     
     // content-type of data in byte array
-    private final String contentType;
+    private String contentType;
     
     // Use a byte array output stream to cached the output bytes
     private transient ByteArrayOutputStream outstream = null;
@@ -49,16 +98,217 @@ public class CachedContent implements AutoCloseable, Serializable {
         this.contentType = contentType;
     }
     
+    // already closed content, restored from buffers
+    private CachedContent(ByteBuffer content, ByteBuffer gzip, ByteBuffer deflate,
+            String contentType) {
+        this.offHeapContent = content.asReadOnlyBuffer();
+        this.content = null;
+        this.gzipContent = (gzip != null) ? gzip.asReadOnlyBuffer() : null;
+        this.deflateContent = (deflate != null) ? deflate.asReadOnlyBuffer() : null;
+        this.contentType = contentType;
+    }
+    
+    
+    /**
+     * Restore closed content, along with any encoded copies of it, from
+     * buffers which are used as they are rather than copied, such as the
+     * memory mapped file of a cache snapshot.
+     */
+    static CachedContent restore(ByteBuffer content, ByteBuffer gzip, ByteBuffer deflate,
+            String contentType) {
+        return new CachedContent(content, gzip, deflate, contentType);
+    }
+    
     
     /**
      * Get the content cached in this object as a byte array.  If you convert
      * this back to a string yourself, be sure to re-encode in "UTF-8".
      *
+     * If the content has been moved off heap this returns a fresh copy, so
+     * prefer writeTo() when all you want is to send the content somewhere.
+     *
      * NOTE: the content is only a representation of the data written to the
      *       enclosed Writer up until the last call to flush().
      */
     public byte[] getContent() {
-        return this.content;
+        byte[] bytes = this.content;
+        if (bytes != null) {
+            return bytes;
+        }
+        ByteBuffer buffer = this.offHeapContent.duplicate();
+        bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+    
+    
+    /**
+     * Get the number of bytes of content cached in this object.
+     */
+    public int getLength() {
+        byte[] bytes = this.content;
+        return (bytes != null) ? bytes.length : this.offHeapContent.capacity();
+    }
+    
+    
+    /**
+     * Write the content cached in this object to the given stream.
+     *
+     * Off heap content is streamed from its direct buffer, so it is never
+     * copied back onto the heap as a whole.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        byte[] bytes = this.content;
+        if (bytes != null) {
+            out.write(bytes);
+        } else {
+            write(out, this.offHeapContent.duplicate());
+        }
+    }
+    
+    
+    /**
+     * Get a hash of the content cached in this object, suitable for use as
+     * a strong entity tag.  Computed once, when the content is closed.
+     */
+    public String getContentHash() {
+        String hash = this.contentHash;
+        if (hash == null) {
+            hash = computeHash(getContent());
+            this.contentHash = hash;
+        }
+        return hash;
+    }
+    
+    
+    /**
+     * True if an encoded copy of the content exists for the given encoding.
+     */
+    public boolean hasEncoding(String encoding) {
+        return getEncoded(encoding) != null;
+    }
+    
+    
+    /**
+     * Get the number of bytes of content for the given encoding, where a
+     * null encoding means the raw content.
+     */
+    public int getLength(String encoding) {
+        if (encoding == null) {
+            return getLength();
+        }
+        ByteBuffer encoded = getEncoded(encoding);
+        return (encoded != null) ? encoded.capacity() : 0;
+    }
+    
+    
+    /**
+     * Write the content for the given encoding to the given stream, where a
+     * null encoding means the raw content.
+     *
+     * @throws IllegalArgumentException if there is no such encoded copy
+     */
+    public void writeTo(OutputStream out, String encoding) throws IOException {
+        if (encoding == null) {
+            writeTo(out);
+            return;
+        }
+        ByteBuffer encoded = getEncoded(encoding);
+        if (encoded == null) {
+            throw new IllegalArgumentException("No content for encoding " + encoding);
+        }
+        write(out, encoded.duplicate());
+    }
+    
+    
+    /**
+     * Total number of bytes held by this object, including encoded copies.
+     */
+    public long getStoredLength() {
+        return (long) getLength() + getLength(ENCODING_GZIP) + getLength(ENCODING_DEFLATE);
+    }
+    
+    
+    /**
+     * Make gzip and deflate encoded copies of the content.  Does nothing if
+     * the content is too small, isn't text or doesn't get any smaller.  Only
+     * allowed once the content has been closed.
+     *
+     * @throws IllegalStateException if called before close()
+     */
+    public void encodeVariants() {
+        
+        if(this.outstream != null) {
+            throw new IllegalStateException("Cannot encodeVariants() before a close()!");
+        }
+        
+        if (this.gzipContent != null || getLength() < MIN_ENCODE_LENGTH || !isCompressible()) {
+            return;
+        }
+        
+        byte[] raw = getContent();
+        try {
+            ByteArrayOutputStream gzipped = new ByteArrayOutputStream(raw.length / 4);
+            try (OutputStream gzip = new GZIPOutputStream(gzipped)) {
+                gzip.write(raw);
+            }
+            ByteArrayOutputStream deflated = new ByteArrayOutputStream(raw.length / 4);
+            try (OutputStream deflate = new DeflaterOutputStream(deflated)) {
+                deflate.write(raw);
+            }
+            
+            if (gzipped.size() < raw.length) {
+                this.deflateContent = store(deflated.toByteArray());
+                this.gzipContent = store(gzipped.toByteArray());
+            }
+        } catch (IOException e) {
+            // can't happen with in memory streams, just serve uncompressed
+            log.warn("Unable to compress content", e);
+        }
+        
+        log.debug("ENCODED " + raw.length + " -> gzip " + getLength(ENCODING_GZIP)
+                + ", deflate " + getLength(ENCODING_DEFLATE));
+    }
+    
+    
+    /**
+     * True if the content of this object is kept outside of the java heap.
+     */
+    public boolean isOffHeap() {
+        return this.content == null;
+    }
+    
+    
+    /**
+     * Move the content of this object into a direct buffer, releasing the
+     * heap copy.  Only allowed once the content has been closed.
+     *
+     * @throws IllegalStateException if called before close()
+     */
+    void moveOffHeap() {
+        
+        if(this.outstream != null) {
+            throw new IllegalStateException("Cannot moveOffHeap() before a close()!");
+        }
+        
+        byte[] bytes = this.content;
+        if (bytes == null) {
+            return;
+        }
+        
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+        buffer.flip();
+        
+        // publish the buffer before dropping the array so readers
+        // always find one of the two
+        this.offHeapContent = buffer.asReadOnlyBuffer();
+        this.content = null;
+        
+        if (this.gzipContent != null) {
+            this.deflateContent = toDirect(this.deflateContent);
+            this.gzipContent = toDirect(this.gzipContent);
+        }
     }
     
     
@@ -69,7 +319,7 @@ public class CachedContent implements AutoCloseable, Serializable {
      *       enclosed Writer up until the last call to flush().
      */
     public String getContentAsString() {
-        return new String(this.content, UTF_8);
+        return new String(getContent(), UTF_8);
     }
     
     
@@ -121,9 +371,102 @@ public class CachedContent implements AutoCloseable, Serializable {
             }
             this.outstream.close();
             this.outstream = null;
+            
+            this.contentHash = computeHash(this.content);
         }
         
         log.debug("CLOSED");
     }
     
+    
+    /**
+     * Find the CachedContent stored in a cache value, either directly or
+     * wrapped in one of the cache entry classes.
+     */
+    static CachedContent fromCacheValue(Object value) {
+        
+        Object item = value;
+        if (item instanceof LazyExpiringCacheEntry) {
+            item = ((LazyExpiringCacheEntry) item).getValue(0);
+        } else if (item instanceof ExpiringCacheEntry) {
+            item = ((ExpiringCacheEntry) item).getValue();
+        }
+        
+        return (item instanceof CachedContent) ? (CachedContent) item : null;
+    }
+    
+    
+    private static String computeHash(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            // 128 bits is plenty to tell versions of a page apart
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16));
+        } catch (NoSuchAlgorithmException e) {
+            // every java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    
+    private ByteBuffer getEncoded(String encoding) {
+        if (ENCODING_GZIP.equals(encoding)) {
+            return this.gzipContent;
+        } else if (ENCODING_DEFLATE.equals(encoding)) {
+            return this.deflateContent;
+        }
+        return null;
+    }
+    
+    
+    private boolean isCompressible() {
+        // feeds don't set a content type, but they are always xml
+        if (this.contentType == null) {
+            return true;
+        }
+        String type = this.contentType.toLowerCase();
+        return type.startsWith("text/") || type.contains("xml")
+                || type.contains("json") || type.contains("javascript");
+    }
+    
+    
+    private ByteBuffer store(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+        return isOffHeap() ? toDirect(buffer) : buffer;
+    }
+    
+    
+    private static ByteBuffer toDirect(ByteBuffer buffer) {
+        if (buffer.isDirect()) {
+            return buffer;
+        }
+        ByteBuffer direct = ByteBuffer.allocateDirect(buffer.capacity());
+        direct.put(buffer.duplicate());
+        direct.flip();
+        return direct.asReadOnlyBuffer();
+    }
+    
+    
+    private static void write(OutputStream out, ByteBuffer buffer) throws IOException {
+        // don't close the channel, that would close the stream too
+        WritableByteChannel channel = Channels.newChannel(out);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+    
+    
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("content", getContent());
+        fields.put("contentType", this.contentType);
+        out.writeFields();
+    }
+    
+    
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        this.content = (byte[]) fields.get("content", new byte[0]);
+        this.contentType = (String) fields.get("contentType", null);
+    }
+    
 }
@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.util.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import org.apache.roller.util.RollerConstants;
+import org.apache.roller.weblogger.pojos.Weblog;
+import org.apache.roller.weblogger.pojos.WeblogEntry;
+import org.apache.roller.weblogger.pojos.WeblogEntryComment;
+
+
+/**
+ * The dependencies of the content in one cache, by cache key.
+ *
+ * Caches put the dependencies recorded while rendering content here when
+ * they cache it, and ask which keys a change affects when they are told
+ * about it.  Affected keys are marked invalidated before they are returned,
+ * as are renders still running which the change affects, so content which
+ * was out of date before it was cached can be recognised.
+ *
+ * The index isn't told when the cache drops content, so once it holds more
+ * keys than expected it drops those the cache no longer holds.  Given no way
+ * to list what the cache holds, it drops the oldest keys instead.  Either
+ * way a cache should not trust content whose key is missing from the index.
+ */
+public final class DependencyIndex {
+
+    private final int maxKeys;
+
+    // the keys the cache holds, or null if they can't be listed
+    private final Supplier<Set<String>> cachedKeys;
+
+    // how many keys to hold before dropping those no longer cached
+    private int sweepAt;
+
+    // insertion ordered, so the oldest keys are dropped first
+    private final Map<String, RenderDependencies> dependencies = new LinkedHashMap<>();
+
+    // weblogs which were not listed site-wide when last seen changing
+    private final Set<String> unlistedWeblogs = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder keysChecked = new LongAdder();
+    private final LongAdder keysInvalidated = new LongAdder();
+
+
+    /**
+     * @param maxKeys how many keys to hold dependencies for, which should
+     *                be comfortably more than the cache holds.
+     */
+    public DependencyIndex(int maxKeys) {
+        this(maxKeys, null);
+    }
+
+
+    /**
+     * @param maxKeys    how many keys the cache is expected to hold, which
+     *                   is only a hint when it is bounded by other means.
+     * @param cachedKeys lists the keys the cache holds, so that no key is
+     *                   dropped while its content may still be served.
+     */
+    public DependencyIndex(int maxKeys, Supplier<Set<String>> cachedKeys) {
+        this.maxKeys = maxKeys;
+        this.cachedKeys = cachedKeys;
+        this.sweepAt = maxKeys;
+    }
+
+
+    public synchronized void put(String key, RenderDependencies keyDependencies) {
+        dependencies.remove(key);
+        dependencies.put(key, keyDependencies);
+        if (dependencies.size() <= sweepAt) {
+            return;
+        }
+        Set<String> cached = (cachedKeys != null) ? cachedKeys.get() : Set.of();
+        if (!cached.isEmpty()) {
+            // the key just put may not be cached yet
+            dependencies.keySet().removeIf(k -> !k.equals(key) && !cached.contains(k));
+            sweepAt = Math.max(maxKeys, 2 * dependencies.size());
+        } else {
+            Iterator<String> oldest = dependencies.keySet().iterator();
+            while (dependencies.size() > maxKeys) {
+                oldest.next();
+                oldest.remove();
+            }
+        }
+    }
+
+
+    /**
+     * Get the dependencies of the content cached under a key, or null if
+     * they are not known.
+     */
+    public synchronized RenderDependencies get(String key) {
+        return dependencies.get(key);
+    }
+
+
+    public synchronized void remove(String key) {
+        dependencies.remove(key);
+    }
+
+
+    public synchronized void clear() {
+        dependencies.clear();
+    }
+
+
+    public synchronized int size() {
+        return dependencies.size();
+    }
+
+
+    /**
+     * An entry has changed.
+     *
+     * @return the keys whose content the change affects.
+     */
+    public List<String> invalidate(WeblogEntry entry) {
+        return invalidate(dependency -> dependency.isAffectedBy(entry));
+    }
+
+
+    /**
+     * A comment has changed.
+     *
+     * @return the keys whose content the change affects.
+     */
+    public List<String> invalidate(WeblogEntryComment comment) {
+        return invalidate(dependency -> dependency.isAffectedBy(comment));
+    }
+
+
+    /**
+     * Anything in a weblog may have changed.
+     *
+     * @return the keys whose content the change affects.
+     */
+    public List<String> invalidate(Weblog weblog) {
+
+        // hiding a weblog changes site-wide content as much as showing one,
+        // so a weblog counts as listed unless it is known it wasn't before
+        boolean listed;
+        if (Boolean.TRUE.equals(weblog.getVisible())) {
+            unlistedWeblogs.remove(weblog.getId());
+            listed = true;
+        } else {
+            listed = unlistedWeblogs.add(weblog.getId());
+        }
+        return invalidate(dependency -> dependency.isAffectedBy(weblog, listed));
+    }
+
+
+    /**
+     * The settings of a weblog have changed, such as a template, bookmark
+     * or folder.
+     *
+     * @return the keys whose content the change affects.
+     */
+    public List<String> invalidateSettings(Weblog weblog) {
+        return invalidate(dependency -> dependency.isAffectedBySettings(weblog));
+    }
+
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        long checked = keysChecked.sum();
+        long invalidated = keysInvalidated.sum();
+        stats.put("keys", size());
+        stats.put("invalidations", invalidations.sum());
+        stats.put("keysChecked", checked);
+        stats.put("keysInvalidated", invalidated);
+        stats.put("keysSpared", checked - invalidated);
+        stats.put("invalidatedRatio", (checked > 0)
+                ? (double) invalidated / checked * RollerConstants.PERCENT_100 : 0.0);
+        return stats;
+    }
+
+
+    private List<String> invalidate(Predicate<RenderDependencies> affected) {
+
+        for (RenderDependencies rendering : RenderDependencies.getRendering()) {
+            if (affected.test(rendering)) {
+                rendering.invalidate();
+            }
+        }
+
+        List<String> keys = new ArrayList<>();
+        synchronized (this) {
+            for (Map.Entry<String, RenderDependencies> entry : dependencies.entrySet()) {
+                if (affected.test(entry.getValue())) {
+                    entry.getValue().invalidate();
+                    keys.add(entry.getKey());
+                }
+            }
+            keysChecked.add(dependencies.size());
+        }
+        invalidations.increment();
+        keysInvalidated.add(keys.size());
+        return keys;
+    }
+
+}
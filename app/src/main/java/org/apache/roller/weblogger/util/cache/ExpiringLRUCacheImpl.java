@@ -18,6 +18,8 @@
 
 package org.apache.roller.weblogger.util.cache;
 
+import java.util.Iterator;
+import java.util.Map;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.roller.util.RollerConstants;
@@ -86,10 +88,33 @@ public class ExpiringLRUCacheImpl extends LRUCacheImpl {
                 log.debug("EXPIRED ["+key+"]");
                 hits--;
                 super.remove(key);
+                removes--;
+                expirations++;
             }
         }
         
         return value;
     }
     
+    
+    /**
+     * Get a copy of all the unexpired entries in the cache, unwrapped.
+     */
+    @Override
+    public synchronized Map<String, Object> entries() {
+        
+        Map<String, Object> entries = super.entries();
+        Iterator<Map.Entry<String, Object>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Object> entry = it.next();
+            Object value = ((ExpiringCacheEntry) entry.getValue()).getValue();
+            if (value != null) {
+                entry.setValue(value);
+            } else {
+                it.remove();
+            }
+        }
+        return entries;
+    }
+    
 }
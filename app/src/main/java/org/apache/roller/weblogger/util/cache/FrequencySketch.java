@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.util.cache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * A probabilistic estimate of how often a key has been seen recently.
+ *
+ * This is a Count-Min sketch with four 4-bit counters per key packed into
+ * an array of longs, as described by the TinyLFU paper.  Once the number of
+ * recorded accesses reaches the sample size all counters are halved, so that
+ * the sketch favors keys which have been popular lately over keys which were
+ * popular a long time ago.
+ *
+ * Counters are updated with CAS operations so the sketch can be shared by
+ * all threads using a cache without any locking.  A reset which races with
+ * an increment may lose that increment, which is harmless for an estimate.
+ */
+class FrequencySketch {
+
+    private static final long[] SEED = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+        0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private static final int MAX_COUNT = 15;
+
+    private final AtomicLongArray table;
+    private final int tableMask;
+    private final int sampleSize;
+    private final AtomicInteger size = new AtomicInteger();
+
+
+    FrequencySketch(int maxsize) {
+        int capacity = ceilingPowerOfTwo(Math.max(16, maxsize));
+        this.table = new AtomicLongArray(capacity);
+        this.tableMask = capacity - 1;
+        this.sampleSize = 10 * Math.max(1, maxsize);
+    }
+
+
+    /**
+     * Estimate how many times the given key has been seen, up to 15.
+     */
+    int frequency(Object key) {
+
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int count = (int) ((table.get(index) >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+
+    /**
+     * Record an access to the given key.
+     */
+    void increment(Object key) {
+
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+
+        if (added && size.incrementAndGet() >= sampleSize) {
+            reset();
+        }
+    }
+
+
+    private boolean incrementAt(int index, int counter) {
+
+        int offset = counter << 2;
+        long mask = 0xfL << offset;
+        while (true) {
+            long current = table.get(index);
+            if (((current & mask) >>> offset) == MAX_COUNT) {
+                return false;
+            }
+            if (table.compareAndSet(index, current, current + (1L << offset))) {
+                return true;
+            }
+        }
+    }
+
+
+    /**
+     * Age all counters by halving them.
+     */
+    private void reset() {
+
+        // only one thread needs to do the aging
+        int current = size.get();
+        if (current < sampleSize || !size.compareAndSet(current, current / 2)) {
+            return;
+        }
+
+        for (int i = 0; i < table.length(); i++) {
+            long value;
+            do {
+                value = table.get(i);
+            } while (!table.compareAndSet(i, value, (value >>> 1) & RESET_MASK));
+        }
+    }
+
+
+    private int indexOf(int hash, int depth) {
+        long h = (hash + SEED[depth]) * SEED[depth];
+        h += (h >>> 32);
+        return ((int) h) & tableMask;
+    }
+
+
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+
+
+    private static int ceilingPowerOfTwo(int x) {
+        return 1 << (Integer.SIZE - Integer.numberOfLeadingZeros(x - 1));
+    }
+
+}
@@ -0,0 +1,298 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.util.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.roller.util.RollerConstants;
+
+
+/**
+ * A cache wrapper which measures the cache it wraps.
+ *
+ * The CacheManager wraps every cache it constructs in one of these, so all
+ * caches report the same metrics whatever their implementation, both through
+ * getStats() and as an MXBean.  Hits, misses and latencies are counted here,
+ * evictions and expirations are taken from the stats of the wrapped cache
+ * when it reports them, and entry counts and sizes are found by walking the
+ * entries of the wrapped cache, at most once a second.
+ */
+class InstrumentedCache implements Cache, CacheMetricsMXBean {
+
+    // how many key prefixes to break usage down by
+    private static final int TOP_PREFIXES = 20;
+
+    // how long to reuse a walk of the entries for, in milliseconds
+    private static final long USAGE_MAX_AGE = RollerConstants.SEC_IN_MS;
+
+    private final Cache cache;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder removes = new LongAdder();
+    private final LatencyHistogram getLatency = new LatencyHistogram();
+    private final LatencyHistogram putLatency = new LatencyHistogram();
+
+    private volatile Usage usage = null;
+
+
+    InstrumentedCache(Cache cache) {
+        this.cache = cache;
+    }
+
+
+    @Override
+    public String getId() {
+        return cache.getId();
+    }
+
+
+    @Override
+    public void put(String key, Object value) {
+        long start = System.nanoTime();
+        cache.put(key, value);
+        putLatency.record(System.nanoTime() - start);
+        puts.increment();
+    }
+
+
+    @Override
+    public Object get(String key) {
+        long start = System.nanoTime();
+        Object value = cache.get(key);
+        getLatency.record(System.nanoTime() - start);
+        if (value != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return value;
+    }
+
+
+    @Override
+    public void remove(String key) {
+        cache.remove(key);
+        removes.increment();
+    }
+
+
+    @Override
+    public void clear() {
+        cache.clear();
+        hits.reset();
+        misses.reset();
+        puts.reset();
+        removes.reset();
+        getLatency.reset();
+        putLatency.reset();
+        usage = null;
+    }
+
+
+    @Override
+    public Map<String, Object> entries() {
+        return cache.entries();
+    }
+
+
+    @Override
+    public Map<String, Object> getStats() {
+
+        Map<String, Object> stats = cache.getStats();
+        stats.put("hits", getHits());
+        stats.put("misses", getMisses());
+        stats.put("hitRatio", getHitRatio());
+        stats.put("puts", getPuts());
+        stats.put("removes", getRemoves());
+        stats.put("evictions", getEvictions());
+        stats.put("expirations", getExpirations());
+        stats.put("entries", getEntries());
+        stats.put("bytes", getBytes());
+        stats.put("getLatencyP50", getGetLatencyP50());
+        stats.put("getLatencyP95", getGetLatencyP95());
+        stats.put("getLatencyP99", getGetLatencyP99());
+        stats.put("putLatencyP50", getPutLatencyP50());
+        stats.put("putLatencyP95", getPutLatencyP95());
+        stats.put("putLatencyP99", getPutLatencyP99());
+        stats.put("bytesByWeblog", getBytesByWeblog());
+        return stats;
+    }
+
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return (total > 0) ? (double) hitCount / total * RollerConstants.PERCENT_100 : 0;
+    }
+
+    @Override
+    public long getPuts() {
+        return puts.sum();
+    }
+
+    @Override
+    public long getRemoves() {
+        return removes.sum();
+    }
+
+    @Override
+    public long getEvictions() {
+        return getCacheStat("evictions");
+    }
+
+    @Override
+    public long getExpirations() {
+        return getCacheStat("expirations");
+    }
+
+    @Override
+    public long getEntries() {
+        return getUsage().entries;
+    }
+
+    @Override
+    public long getBytes() {
+        return getUsage().bytes;
+    }
+
+    @Override
+    public double getGetLatencyP50() {
+        return getLatency.getPercentile(50);
+    }
+
+    @Override
+    public double getGetLatencyP95() {
+        return getLatency.getPercentile(95);
+    }
+
+    @Override
+    public double getGetLatencyP99() {
+        return getLatency.getPercentile(99);
+    }
+
+    @Override
+    public double getPutLatencyP50() {
+        return putLatency.getPercentile(50);
+    }
+
+    @Override
+    public double getPutLatencyP95() {
+        return putLatency.getPercentile(95);
+    }
+
+    @Override
+    public double getPutLatencyP99() {
+        return putLatency.getPercentile(99);
+    }
+
+    @Override
+    public Map<String, Long> getBytesByWeblog() {
+        return getUsage().bytesByPrefix;
+    }
+
+    @Override
+    public Map<String, Long> getEntriesByWeblog() {
+        return getUsage().entriesByPrefix;
+    }
+
+
+    /**
+     * The prefix of a key which usage is broken down by, the first segment
+     * of the key after the cache id, e.g. the handle in
+     * cache.weblogpage:handle/entry/anchor
+     */
+    static String prefixOf(String key) {
+        int start = key.indexOf(':') + 1;
+        int end = key.indexOf('/', start);
+        return (end < 0) ? key.substring(start) : key.substring(start, end);
+    }
+
+
+    private long getCacheStat(String name) {
+        Object value = cache.getStats().get(name);
+        return (value instanceof Number) ? ((Number) value).longValue() : 0;
+    }
+
+
+    private Usage getUsage() {
+        Usage current = usage;
+        if (current == null || System.currentTimeMillis() - current.time > USAGE_MAX_AGE) {
+            current = new Usage(cache.entries());
+            usage = current;
+        }
+        return current;
+    }
+
+
+    /**
+     * What the entries of the cache added up to at some point in time.
+     */
+    private static final class Usage {
+
+        private final long time = System.currentTimeMillis();
+        private final long entries;
+        private final long bytes;
+        private final Map<String, Long> bytesByPrefix = new LinkedHashMap<>();
+        private final Map<String, Long> entriesByPrefix = new LinkedHashMap<>();
+
+        Usage(Map<String, Object> cached) {
+
+            // prefix -> {entries, bytes}
+            Map<String, long[]> byPrefix = new HashMap<>();
+            long totalBytes = 0;
+            for (Map.Entry<String, Object> entry : cached.entrySet()) {
+                CachedContent content = CachedContent.fromCacheValue(entry.getValue());
+                long size = (content != null) ? content.getStoredLength() : 0;
+                long[] counts = byPrefix.computeIfAbsent(prefixOf(entry.getKey()), k -> new long[2]);
+                counts[0]++;
+                counts[1] += size;
+                totalBytes += size;
+            }
+            this.entries = cached.size();
+            this.bytes = totalBytes;
+
+            List<Map.Entry<String, long[]>> sorted = new ArrayList<>(byPrefix.entrySet());
+            sorted.sort((a, b) -> a.getValue()[1] != b.getValue()[1]
+                    ? Long.compare(b.getValue()[1], a.getValue()[1])
+                    : Long.compare(b.getValue()[0], a.getValue()[0]));
+            for (Map.Entry<String, long[]> prefix : sorted.subList(0, Math.min(TOP_PREFIXES, sorted.size()))) {
+                entriesByPrefix.put(prefix.getKey(), prefix.getValue()[0]);
+                bytesByPrefix.put(prefix.getKey(), prefix.getValue()[1]);
+            }
+        }
+    }
+
+}
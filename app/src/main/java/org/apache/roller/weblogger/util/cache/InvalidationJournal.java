@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.util.cache;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+
+/**
+ * Reads and writes cache invalidations in the roller_cacheinvalidation table,
+ * which is shared by all the nodes of a cluster.
+ *
+ * Plain JDBC is used rather than JPA so that the journal can be written and
+ * polled from a background thread without touching the persistence session
+ * of the thread, or the shared cache.
+ */
+public class InvalidationJournal {
+
+    public static final String TYPE_ENTRY = "entry";
+    public static final String TYPE_WEBLOG = "weblog";
+    public static final String TYPE_BOOKMARK = "bookmark";
+    public static final String TYPE_FOLDER = "folder";
+    public static final String TYPE_COMMENT = "comment";
+    public static final String TYPE_USER = "user";
+    public static final String TYPE_CATEGORY = "category";
+    public static final String TYPE_TEMPLATE = "template";
+    public static final String TYPE_PROPERTY = "property";
+
+    private static final String INSERT_SQL =
+            "insert into roller_cacheinvalidation "
+            + "(id, node, eventtime, objecttype, objectid, handle) values (?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_SQL =
+            "select id, node, eventtime, objecttype, objectid, handle "
+            + "from roller_cacheinvalidation where eventtime >= ? order by eventtime";
+
+    private static final String PURGE_SQL =
+            "delete from roller_cacheinvalidation where eventtime < ?";
+
+
+    /**
+     * Where the journal gets its database connections from, normally the
+     * DatabaseProvider of the weblogger.
+     */
+    public interface ConnectionSource {
+        Connection getConnection() throws SQLException;
+    }
+
+
+    private final ConnectionSource connections;
+
+
+    public InvalidationJournal(ConnectionSource connections) {
+        this.connections = connections;
+    }
+
+
+    /**
+     * Write the given invalidations to the journal in a single batch.
+     */
+    public void append(List<Invalidation> invalidations) throws SQLException {
+
+        if (invalidations.isEmpty()) {
+            return;
+        }
+
+        try (Connection con = connections.getConnection()) {
+            boolean autoCommit = con.getAutoCommit();
+            con.setAutoCommit(false);
+            try (PreparedStatement stmt = con.prepareStatement(INSERT_SQL)) {
+                for (Invalidation inv : invalidations) {
+                    stmt.setString(1, inv.getId());
+                    stmt.setString(2, inv.getNode());
+                    stmt.setTimestamp(3, new Timestamp(inv.getTime()));
+                    stmt.setString(4, inv.getType());
+                    stmt.setString(5, inv.getObjectId());
+                    stmt.setString(6, inv.getHandle());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                con.commit();
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+
+    /**
+     * Read all invalidations recorded at or after the given time, oldest first.
+     */
+    public List<Invalidation> readSince(long time) throws SQLException {
+
+        List<Invalidation> invalidations = new ArrayList<>();
+        try (Connection con = connections.getConnection();
+             PreparedStatement stmt = con.prepareStatement(SELECT_SQL)) {
+            stmt.setTimestamp(1, new Timestamp(time));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    invalidations.add(new Invalidation(
+                            rs.getString(1),
+                            rs.getString(2),
+                            rs.getTimestamp(3).getTime(),
+                            rs.getString(4),
+                            rs.getString(5),
+                            rs.getString(6)));
+                }
+            }
+        }
+        return invalidations;
+    }
+
+
+    /**
+     * Delete all invalidations recorded before the given time.
+     *
+     * @return the number of invalidations deleted
+     */
+    public int purge(long before) throws SQLException {
+
+        try (Connection con = connections.getConnection();
+             PreparedStatement stmt = con.prepareStatement(PURGE_SQL)) {
+            stmt.setTimestamp(1, new Timestamp(before));
+            int purged = stmt.executeUpdate();
+            if (!con.getAutoCommit()) {
+                con.commit();
+            }
+            return purged;
+        }
+    }
+
+
+    /**
+     * A single invalidation of an object by one node of the cluster.
+     */
+    public static final class Invalidation {
+
+        private final String id;
+        private final String node;
+        private final long time;
+        private final String type;
+        private final String objectId;
+        private final String handle;
+
+        public Invalidation(String node, String type, String objectId, String handle) {
+            this(UUID.randomUUID().toString(), node, System.currentTimeMillis(),
+                    type, objectId, handle);
+        }
+
+        public Invalidation(String id, String node, long time,
+                String type, String objectId, String handle) {
+            this.id = id;
+            this.node = node;
+            this.time = time;
+            this.type = type;
+            this.objectId = objectId;
+            this.handle = handle;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        /** The node which made the invalidation. */
+        public String getNode() {
+            return node;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        /** One of the TYPE_* constants. */
+        public String getType() {
+            return type;
+        }
+
+        public String getObjectId() {
+            return objectId;
+        }
+
+        /** Handle of the weblog the object belongs to, null for users and properties. */
+        public String getHandle() {
+            return handle;
+        }
+
+        @Override
+        public String toString() {
+            return type + ":" + objectId + "@" + handle;
+        }
+    }
+
+}
@@ -0,0 +1,322 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.util.cache;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.roller.util.RollerConstants;
+import org.apache.roller.weblogger.business.runnable.ContinuousWorkerThread;
+import org.apache.roller.weblogger.business.runnable.Job;
+import org.apache.roller.weblogger.business.runnable.WorkerThread;
+import org.apache.roller.weblogger.pojos.RuntimeConfigProperty;
+import org.apache.roller.weblogger.pojos.User;
+import org.apache.roller.weblogger.pojos.Weblog;
+import org.apache.roller.weblogger.pojos.WeblogBookmark;
+import org.apache.roller.weblogger.pojos.WeblogBookmarkFolder;
+import org.apache.roller.weblogger.pojos.WeblogCategory;
+import org.apache.roller.weblogger.pojos.WeblogEntry;
+import org.apache.roller.weblogger.pojos.WeblogEntryComment;
+import org.apache.roller.weblogger.pojos.WeblogTemplate;
+import org.apache.roller.weblogger.util.cache.InvalidationJournal.Invalidation;
+
+
+/**
+ * Shares cache invalidations between the nodes of a cluster through an
+ * InvalidationJournal.
+ *
+ * Invalidations made on this node are queued up and written to the journal in
+ * batches by a background worker, which also reads back the invalidations
+ * made by other nodes since its last poll and hands them to a Replayer to be
+ * applied locally.  Invalidations made while replaying are not journaled
+ * again.
+ *
+ * Each poll looks back a little further than the previous one, to pick up
+ * invalidations written late by other nodes or stamped by a slightly slow
+ * clock, and skips those it has already replayed.
+ */
+public class JournalingCacheHandler implements CacheHandler {
+
+    private static final Log log = LogFactory.getLog(JournalingCacheHandler.class);
+
+    /**
+     * Applies invalidations made by other nodes to the caches of this node.
+     */
+    public interface Replayer {
+        void replay(List<Invalidation> invalidations) throws Exception;
+    }
+
+
+    private final InvalidationJournal journal;
+    private final Replayer replayer;
+
+    // identifies this node in the journal
+    private final String nodeId = UUID.randomUUID().toString();
+
+    // how far back each poll looks beyond the previous one, in milliseconds
+    private final long lookback;
+
+    // how long invalidations are kept in the journal, in milliseconds
+    private final long retention;
+
+    // invalidations made locally, waiting to be written
+    private final ConcurrentLinkedQueue<Invalidation> pending = new ConcurrentLinkedQueue<>();
+
+    // ids of the remote invalidations replayed within the lookback window
+    private final Map<String, Long> replayed = new LinkedHashMap<>();
+
+    // set on the worker thread while it replays
+    private final ThreadLocal<Boolean> replaying = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private long lastPoll = System.currentTimeMillis();
+    private long lastPurge = 0;
+
+    private WorkerThread worker = null;
+
+    // for metrics
+    private final LongAdder written = new LongAdder();
+    private final LongAdder replays = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+
+    /**
+     * @param lookback how far back each poll looks beyond the previous one,
+     *                 in milliseconds
+     * @param retention how long invalidations are kept in the journal, in
+     *                  milliseconds
+     */
+    public JournalingCacheHandler(InvalidationJournal journal, Replayer replayer,
+            long lookback, long retention) {
+        this.journal = journal;
+        this.replayer = replayer;
+        this.lookback = lookback;
+        this.retention = Math.max(retention, lookback * 2);
+    }
+
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+
+    /**
+     * Start a worker which syncs with the journal at the given interval.
+     */
+    public synchronized void start(long interval) {
+        if (worker == null) {
+            worker = new ContinuousWorkerThread("CacheJournalPoller", new SyncJob(), interval);
+            worker.start();
+        }
+    }
+
+
+    /**
+     * Stop the worker, writing out any invalidations still queued up.
+     */
+    public synchronized void shutdown() {
+
+        if (worker != null) {
+            log.info("stopping worker " + worker.getName());
+            worker.interrupt();
+            try {
+                worker.join(RollerConstants.GRACEFUL_SHUTDOWN_WAIT_IN_MILLISECONDS);
+            } catch (InterruptedException e) {
+                log.debug(e.getMessage(), e);
+            }
+            worker = null;
+        }
+
+        write();
+    }
+
+
+    /**
+     * Write out local invalidations, then replay those made by other nodes
+     * since the last sync.
+     */
+    public synchronized void sync() {
+
+        write();
+
+        long now = System.currentTimeMillis();
+        List<Invalidation> remote = new ArrayList<>();
+        try {
+            for (Invalidation inv : journal.readSince(lastPoll - lookback)) {
+                if (!nodeId.equals(inv.getNode()) && !replayed.containsKey(inv.getId())) {
+                    replayed.put(inv.getId(), inv.getTime());
+                    remote.add(inv);
+                }
+            }
+            lastPoll = now;
+        } catch (SQLException e) {
+            errors.increment();
+            log.error("Error reading cache invalidation journal", e);
+            return;
+        }
+
+        // forget invalidations which have dropped out of the lookback window
+        Iterator<Long> times = replayed.values().iterator();
+        while (times.hasNext()) {
+            if (times.next() < lastPoll - lookback) {
+                times.remove();
+            }
+        }
+
+        if (!remote.isEmpty()) {
+            log.debug("Replaying " + remote.size() + " remote invalidations");
+            replaying.set(Boolean.TRUE);
+            try {
+                replayer.replay(remote);
+                replays.add(remote.size());
+            } catch (Exception e) {
+                errors.increment();
+                log.error("Error replaying cache invalidations", e);
+            } finally {
+                replaying.set(Boolean.FALSE);
+            }
+        }
+
+        if (now - lastPurge > retention) {
+            try {
+                int purged = journal.purge(now - retention);
+                log.debug("Purged " + purged + " old invalidations from journal");
+                lastPurge = now;
+            } catch (SQLException e) {
+                errors.increment();
+                log.error("Error purging cache invalidation journal", e);
+            }
+        }
+    }
+
+
+    private void write() {
+
+        List<Invalidation> batch = new ArrayList<>();
+        Invalidation inv;
+        while ((inv = pending.poll()) != null) {
+            batch.add(inv);
+        }
+
+        if (!batch.isEmpty()) {
+            try {
+                journal.append(batch);
+                written.add(batch.size());
+            } catch (SQLException e) {
+                errors.increment();
+                log.error("Error writing cache invalidation journal, will retry", e);
+                pending.addAll(batch);
+            }
+        }
+    }
+
+
+    private void record(String type, String objectId, Weblog weblog) {
+        if (!replaying.get() && objectId != null) {
+            pending.add(new Invalidation(nodeId, type, objectId,
+                    weblog != null ? weblog.getHandle() : null));
+        }
+    }
+
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("pending", pending.size());
+        stats.put("written", written.sum());
+        stats.put("replayed", replays.sum());
+        stats.put("errors", errors.sum());
+        return stats;
+    }
+
+
+    @Override
+    public void invalidate(WeblogEntry entry) {
+        record(InvalidationJournal.TYPE_ENTRY, entry.getId(), entry.getWebsite());
+    }
+
+    @Override
+    public void invalidate(Weblog website) {
+        record(InvalidationJournal.TYPE_WEBLOG, website.getId(), website);
+    }
+
+    @Override
+    public void invalidate(WeblogBookmark bookmark) {
+        record(InvalidationJournal.TYPE_BOOKMARK, bookmark.getId(), bookmark.getWebsite());
+    }
+
+    @Override
+    public void invalidate(WeblogBookmarkFolder folder) {
+        record(InvalidationJournal.TYPE_FOLDER, folder.getId(), folder.getWeblog());
+    }
+
+    @Override
+    public void invalidate(WeblogEntryComment comment) {
+        WeblogEntry entry = comment.getWeblogEntry();
+        record(InvalidationJournal.TYPE_COMMENT, comment.getId(),
+                entry != null ? entry.getWebsite() : null);
+    }
+
+    @Override
+    public void invalidate(User user) {
+        record(InvalidationJournal.TYPE_USER, user.getId(), null);
+    }
+
+    @Override
+    public void invalidate(WeblogCategory category) {
+        record(InvalidationJournal.TYPE_CATEGORY, category.getId(), category.getWeblog());
+    }
+
+    @Override
+    public void invalidate(WeblogTemplate template) {
+        record(InvalidationJournal.TYPE_TEMPLATE, template.getId(), template.getWeblog());
+    }
+
+    @Override
+    public void invalidate(RuntimeConfigProperty property) {
+        record(InvalidationJournal.TYPE_PROPERTY, property.getName(), null);
+    }
+
+
+    private class SyncJob implements Job {
+
+        @Override
+        public void execute() {
+            sync();
+        }
+
+        @Override
+        public void input(Map<String, Object> input) {
+            // no-op
+        }
+
+        @Override
+        public Map<String, Object> output() {
+            return null;
+        }
+    }
+
+}
@@ -31,13 +31,14 @@ import org.apache.roller.util.RollerConstants;
 public class LRUCacheImpl implements Cache {
     
     private final String id;
-    private final Map<String, Object> cache;
+    private final LRULinkedHashMap<String, Object> cache;
     
     // for metrics
     protected double hits = 0;
     protected double misses = 0;
     protected double puts = 0;
     protected double removes = 0;
+    protected double expirations = 0;
     protected Date startTime = new Date();
     
     
@@ -108,10 +109,20 @@ public class LRUCacheImpl implements Cache {
         misses = 0;
         puts = 0;
         removes = 0;
+        expirations = 0;
+        cache.evictions = 0;
         startTime = new Date();
     }
     
     
+    @Override
+    public synchronized Map<String, Object> entries() {
+        
+        // iterating an access ordered map doesn't change its order
+        return new LinkedHashMap<>(this.cache);
+    }
+    
+    
     @Override
     public Map<String, Object> getStats() {
         
@@ -121,6 +132,8 @@ public class LRUCacheImpl implements Cache {
         stats.put("misses", this.misses);
         stats.put("puts", this.puts);
         stats.put("removes", this.removes);
+        stats.put("evictions", this.cache.evictions);
+        stats.put("expirations", this.expirations);
         
         // calculate efficiency
         if((misses - removes) > 0) {
@@ -135,6 +148,7 @@ public class LRUCacheImpl implements Cache {
     // David Flanaghan: http://www.davidflanagan.com/blog/000014.html
     private static class LRULinkedHashMap<K, V> extends LinkedHashMap<K, V> {
         protected int maxsize;
+        protected long evictions = 0;
         
         public LRULinkedHashMap(int maxsize) {
             super(maxsize * 4 / 3 + 1, 0.75f, true);
@@ -143,7 +157,11 @@ public class LRUCacheImpl implements Cache {
         
         @Override
         protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
-            return this.size() > this.maxsize;
+            if (this.size() > this.maxsize) {
+                evictions++;
+                return true;
+            }
+            return false;
         }
     }
     
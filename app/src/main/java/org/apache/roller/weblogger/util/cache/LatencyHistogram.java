@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.util.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * A lock free histogram of latencies, precise to within 25%.
+ *
+ * Each power of two nanoseconds is split into four buckets, which is plenty
+ * to tell a cache hit from a render and costs one LongAdder increment per
+ * recorded latency.
+ */
+final class LatencyHistogram {
+
+    // covers up to 2^42 ns, a little over an hour, larger values share the last bucket
+    private static final int BUCKETS = 4 + 41 * 4;
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+
+
+    LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+
+    void record(long nanos) {
+        counts[bucketOf(Math.max(0, nanos))].increment();
+    }
+
+
+    long getCount() {
+        long total = 0;
+        for (LongAdder count : counts) {
+            total += count.sum();
+        }
+        return total;
+    }
+
+
+    /**
+     * Get the given percentile of the recorded latencies, in microseconds,
+     * or zero if nothing has been recorded.
+     *
+     * @param percentile between 0 and 100
+     */
+    double getPercentile(double percentile) {
+
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts[i].sum();
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank && snapshot[i] > 0) {
+                return upperBoundOf(i) / 1000.0;
+            }
+        }
+        return upperBoundOf(BUCKETS - 1) / 1000.0;
+    }
+
+
+    void reset() {
+        for (LongAdder count : counts) {
+            count.reset();
+        }
+    }
+
+
+    static int bucketOf(long nanos) {
+        if (nanos < 4) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (exponent - 2)) & 3;
+        return Math.min(BUCKETS - 1, 4 + (exponent - 2) * 4 + sub);
+    }
+
+
+    /**
+     * The smallest latency too large for the given bucket, in nanoseconds.
+     */
+    static long upperBoundOf(int bucket) {
+        if (bucket < 4) {
+            return bucket + 1;
+        }
+        int exponent = (bucket - 4) / 4 + 2;
+        int sub = (bucket - 4) % 4;
+        return (long) (4 + sub + 1) << (exponent - 2);
+    }
+
+}
@@ -54,6 +54,16 @@ public class LazyExpiringCacheEntry implements Serializable {
     }
     
     
+    /**
+     * Recreate an entry cached at the given time, such as one restored from
+     * a cache snapshot.
+     */
+    public LazyExpiringCacheEntry(Object item, long timeCached) {
+        this.value = item;
+        this.timeCached = timeCached;
+    }
+    
+    
     /**
      * Retrieve the value of this cache entry if it is still "fresh".
      *
@@ -68,6 +78,15 @@ public class LazyExpiringCacheEntry implements Serializable {
     }
     
     
+    /**
+     * Retrieve the value of this cache entry whether it is "fresh" or not,
+     * for callers which are willing to serve stale content for a while.
+     */
+    public Object getStaleValue() {
+        return this.value;
+    }
+    
+    
     /**
      * Determine if this cache entry has expired.
      */
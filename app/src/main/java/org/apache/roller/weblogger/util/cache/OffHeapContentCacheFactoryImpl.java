@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.util.cache;
+
+import java.util.Map;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.roller.util.RollerConstants;
+
+
+/**
+ * Roller byte budgeted, off heap rendered content cache factory.
+ *
+ * Understands the following cache properties ...
+ *
+ *   maxBytes - total number of content bytes the cache may hold (default 32MB)
+ *   size     - number of entries we expect to hold, used for sizing only
+ *   timeout  - entry timeout in seconds
+ *   offHeap  - set to false to keep the content on the heap (default true)
+ */
+public class OffHeapContentCacheFactoryImpl implements CacheFactory {
+
+    private static final Log log = LogFactory.getLog(OffHeapContentCacheFactoryImpl.class);
+
+
+    // protected so only the CacheManager can instantiate us
+    protected OffHeapContentCacheFactoryImpl() {}
+
+
+    /**
+     * Construct a new instance of a Roller off heap content cache.
+     */
+    @Override
+    public Cache constructCache(Map<String, ?> properties) {
+
+        long maxBytes = 32L * RollerConstants.ONE_MB_IN_BYTES;
+        int size = 100;
+        long timeout = 0;
+        String id = "unknown";
+
+        String maxBytesString = (String) properties.get("maxBytes");
+        if (maxBytesString != null) {
+            try {
+                maxBytes = Long.parseLong(maxBytesString);
+            } catch(Exception e) {
+                log.warn("invalid maxBytes property", e);
+            }
+        }
+
+        String sizeString = (String) properties.get("size");
+        if (sizeString != null) {
+            try {
+                size = Integer.parseInt(sizeString);
+            } catch(Exception e) {
+                log.warn("invalid size property", e);
+            }
+        }
+
+        String timeoutString = (String) properties.get("timeout");
+        if (timeoutString != null) {
+            try {
+                timeout = Long.parseLong(timeoutString);
+            } catch(Exception e) {
+                log.warn("invalid timeout property", e);
+            }
+        }
+
+        boolean offHeap = !"false".equals(properties.get("offHeap"));
+
+        String cacheId = (String) properties.get("id");
+        if(cacheId != null) {
+            id = cacheId;
+        }
+
+        Cache cache = new OffHeapContentCacheImpl(id, maxBytes, size, timeout, offHeap);
+
+        log.debug("new cache constructed. maxBytes=" + maxBytes + ", size=" + size
+                + ", timeout=" + timeout + ", offHeap=" + offHeap);
+
+        return cache;
+    }
+
+}
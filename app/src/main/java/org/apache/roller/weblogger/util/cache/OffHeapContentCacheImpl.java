@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.util.cache;
+
+import java.util.Map;
+
+
+/**
+ * A cache for rendered content which is bounded by the number of bytes it
+ * holds rather than by the number of entries.
+ *
+ * CachedContent values, either stored directly or wrapped in one of the
+ * cache entry classes, are moved into direct buffers along with any encoded
+ * copies when they are put in the cache, so large pages don't add to the
+ * heap or to GC work.  Any other kind of value is stored as is and counted
+ * as a small fixed size.
+ *
+ * Direct buffers are released when their CachedContent is garbage collected,
+ * so -XX:MaxDirectMemorySize should leave some headroom above maxBytes.
+ */
+public class OffHeapContentCacheImpl extends TinyLFUCacheImpl {
+
+    // rough per entry overhead of key, node and wrappers on the heap
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final boolean offHeap;
+
+
+    protected OffHeapContentCacheImpl(String id, long maxBytes, int expectedSize,
+            long timeout, boolean offHeap) {
+
+        super(id, maxBytes, expectedSize, timeout);
+        this.offHeap = offHeap;
+    }
+
+
+    /**
+     * Store an entry in the cache, moving rendered content off heap first.
+     */
+    @Override
+    public void put(String key, Object value) {
+
+        CachedContent content = CachedContent.fromCacheValue(value);
+        if (offHeap && content != null) {
+            content.moveOffHeap();
+        }
+
+        super.put(key, value);
+    }
+
+
+    @Override
+    protected long weigh(String key, Object value) {
+
+        long weight = ENTRY_OVERHEAD + 2L * key.length();
+
+        CachedContent content = CachedContent.fromCacheValue(value);
+        if (content != null) {
+            weight += content.getStoredLength();
+        }
+        return weight;
+    }
+
+
+    @Override
+    public Map<String, Object> getStats() {
+
+        Map<String, Object> stats = super.getStats();
+        stats.remove("maxSize");
+        stats.put("bytes", getWeightedSize());
+        stats.put("maxBytes", getMaxWeight());
+        stats.put("offHeap", offHeap);
+        return stats;
+    }
+
+}
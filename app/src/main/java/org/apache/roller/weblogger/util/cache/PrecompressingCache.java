@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.util.cache;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.roller.util.RollerConstants;
+
+
+/**
+ * A cache wrapper which makes gzip and deflate encoded copies of any
+ * CachedContent put into it, so that they are compressed only once.
+ *
+ * The CacheManager wraps a cache in one of these when the cache is
+ * constructed with the property precompress=true.  The stats of the wrapped
+ * cache are extended with the number of raw and compressed bytes put.
+ */
+class PrecompressingCache implements Cache {
+
+    private final Cache cache;
+
+    private final LongAdder rawBytes = new LongAdder();
+    private final LongAdder gzipBytes = new LongAdder();
+    private final LongAdder deflateBytes = new LongAdder();
+
+
+    PrecompressingCache(Cache cache) {
+        this.cache = cache;
+    }
+
+
+    @Override
+    public String getId() {
+        return cache.getId();
+    }
+
+
+    @Override
+    public void put(String key, Object value) {
+
+        CachedContent content = CachedContent.fromCacheValue(value);
+        if (content != null) {
+            content.encodeVariants();
+
+            rawBytes.add(content.getLength());
+            if (content.hasEncoding(CachedContent.ENCODING_GZIP)) {
+                gzipBytes.add(content.getLength(CachedContent.ENCODING_GZIP));
+                deflateBytes.add(content.getLength(CachedContent.ENCODING_DEFLATE));
+            } else {
+                // stored uncompressed, so count it as such
+                gzipBytes.add(content.getLength());
+                deflateBytes.add(content.getLength());
+            }
+        }
+
+        cache.put(key, value);
+    }
+
+
+    @Override
+    public Object get(String key) {
+        return cache.get(key);
+    }
+
+
+    @Override
+    public void remove(String key) {
+        cache.remove(key);
+    }
+
+
+    @Override
+    public void clear() {
+        cache.clear();
+        rawBytes.reset();
+        gzipBytes.reset();
+        deflateBytes.reset();
+    }
+
+
+    @Override
+    public Map<String, Object> entries() {
+        return cache.entries();
+    }
+
+
+    @Override
+    public Map<String, Object> getStats() {
+
+        Map<String, Object> stats = cache.getStats();
+
+        long raw = rawBytes.sum();
+        long gzip = gzipBytes.sum();
+        stats.put("rawBytesPut", raw);
+        stats.put("gzipBytesPut", gzip);
+        stats.put("deflateBytesPut", deflateBytes.sum());
+        if (raw > 0) {
+            stats.put("gzipRatio", (double) gzip / raw * RollerConstants.PERCENT_100);
+        }
+
+        return stats;
+    }
+
+}
@@ -0,0 +1,469 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.util.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.roller.weblogger.pojos.Weblog;
+import org.apache.roller.weblogger.pojos.WeblogEntry;
+import org.apache.roller.weblogger.pojos.WeblogEntryComment;
+import org.apache.roller.weblogger.pojos.WeblogEntryTag;
+
+
+/**
+ * What a piece of rendered content depends on.
+ *
+ * A render is tracked by calling start() before it and close() after it,
+ * on the same thread.  While it runs the wrappers, pagers and models it
+ * uses record what they read through the static record methods, which do
+ * nothing when no render is being tracked.  A cache can then keep the
+ * dependencies alongside the content and, when something changes, ask
+ * whether the content could have been affected.
+ *
+ * Answers err on the side of yes.  Content nothing was recorded for, such
+ * as content put without dependencies, depends on everything.
+ */
+public final class RenderDependencies implements AutoCloseable {
+
+    // the render being tracked on each thread, if any
+    private static final ThreadLocal<RenderDependencies> CURRENT = new ThreadLocal<>();
+
+    // renders not yet closed, so changes made while they run can reach them
+    private static final Set<RenderDependencies> RENDERING = ConcurrentHashMap.newKeySet();
+
+    private final boolean everything;
+
+    // weblogs whose settings, templates, bookmarks or categories were shown
+    private final Set<String> weblogs = new HashSet<>();
+
+    // weblogs anything at all may have been shown from
+    private final Set<String> weblogContents = new HashSet<>();
+
+    // entries which were shown, and the weblogs they belong to
+    private final Set<String> entries = new HashSet<>();
+    private final Set<String> entryWeblogs = new HashSet<>();
+
+    // queries for entries which were made
+    private final List<EntryQuery> entryQueries = new ArrayList<>();
+
+    // weblogs whose comments were listed or counted, and whether site-wide
+    // comments were
+    private final Set<String> comments = new HashSet<>();
+    private boolean siteComments = false;
+
+    // weblogs whose tags were counted, and whether site-wide tags were
+    private final Set<String> tagStats = new HashSet<>();
+    private boolean siteTagStats = false;
+
+    // whether weblogs themselves were listed or counted
+    private boolean weblogList = false;
+
+    // when the content was invalidated, zero while it is current
+    private volatile long invalidated = 0;
+
+
+    private RenderDependencies(boolean everything) {
+        this.everything = everything;
+    }
+
+
+    /**
+     * Start tracking a render on this thread.  The caller must close() the
+     * returned dependencies once it is done with them.
+     */
+    public static RenderDependencies start() {
+        RenderDependencies dependencies = new RenderDependencies(false);
+        CURRENT.set(dependencies);
+        RENDERING.add(dependencies);
+        return dependencies;
+    }
+
+
+    /**
+     * Dependencies for content which could depend on anything.
+     */
+    public static RenderDependencies everything() {
+        return new RenderDependencies(true);
+    }
+
+
+    /**
+     * Stop tracking the render.
+     */
+    @Override
+    public void close() {
+        RENDERING.remove(this);
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+    }
+
+
+    /**
+     * The renders which have been started but not closed yet.
+     */
+    static Collection<RenderDependencies> getRendering() {
+        return RENDERING;
+    }
+
+
+    //------------------------------------------------------------- Recording
+
+    /**
+     * The settings of a weblog were used, its name, templates, bookmarks,
+     * categories and so on.
+     */
+    public static void recordWeblog(Weblog weblog) {
+        RenderDependencies dependencies = CURRENT.get();
+        if (dependencies != null && weblog != null) {
+            dependencies.addWeblog(weblog.getId());
+        }
+    }
+
+
+    /**
+     * Anything in a weblog may have been used.
+     */
+    public static void recordWeblogContents(Weblog weblog) {
+        RenderDependencies dependencies = CURRENT.get();
+        if (dependencies != null && weblog != null) {
+            dependencies.addWeblogContents(weblog.getId());
+        }
+    }
+
+
+    /**
+     * An entry was shown.
+     */
+    public static void recordEntry(WeblogEntry entry) {
+        RenderDependencies dependencies = CURRENT.get();
+        if (dependencies != null && entry != null) {
+            dependencies.addEntry(entry.getId(), entry.getWebsite().getId());
+        }
+    }
+
+
+    /**
+     * Entries were queried for.  Anything which is null doesn't limit the
+     * query.  The query results should be recorded with recordEntry().
+     *
+     * @param weblog weblog queried, or null for the entries of all visible weblogs.
+     * @param category name of the category queried.
+     * @param tags the query matched entries with any of these tags.
+     * @param startDate earliest publication time queried.
+     * @param endDate latest publication time queried.
+     */
+    public static void recordEntryQuery(Weblog weblog, String category,
+            Collection<String> tags, Date startDate, Date endDate) {
+        RenderDependencies dependencies = CURRENT.get();
+        if (dependencies != null) {
+            dependencies.addEntryQuery(new EntryQuery(
+                    (weblog != null) ? weblog.getId() : null, false, false,
+                    category, tags, startDate, endDate));
+        }
+    }
+
+
+    /**
+     * Entries of any weblog, visible or not, were queried for, such as to
+     * count them.
+     *
+     * @param pinnedOnly true if only entries pinned to the main page were.
+     */
+    public static void recordAllEntriesQuery(boolean pinnedOnly) {
+        RenderDependencies dependencies = CURRENT.get();
+        if (dependencies != null) {
+            dependencies.addEntryQuery(new EntryQuery(
+                    null, true, pinnedOnly, null, null, null, null));
+        }
+    }
+
+
+    /**
+     * Comments were listed or counted.
+     *
+     * @param weblog weblog whose comments were, or null for site-wide comments.
+     */
+    public static void recordComments(Weblog weblog) {
+        RenderDependencies dependencies = CURRENT.get();
+        if (dependencies != null) {
+            dependencies.addComments((weblog != null) ? weblog.getId() : null);
+        }
+    }
+
+
+    /**
+     * Tags were counted, such as for a tag cloud.
+     *
+     * @param weblog weblog whose tags were, or null for site-wide tags.
+     */
+    public static void recordTagStats(Weblog weblog) {
+        RenderDependencies dependencies = CURRENT.get();
+        if (dependencies != null) {
+            dependencies.addTagStats((weblog != null) ? weblog.getId() : null);
+        }
+    }
+
+
+    /**
+     * Weblogs were listed or counted.
+     */
+    public static void recordWeblogList() {
+        RenderDependencies dependencies = CURRENT.get();
+        if (dependencies != null) {
+            dependencies.setWeblogList();
+        }
+    }
+
+
+    private synchronized void addWeblog(String weblogId) {
+        weblogs.add(weblogId);
+    }
+
+    private synchronized void addWeblogContents(String weblogId) {
+        weblogContents.add(weblogId);
+    }
+
+    private synchronized void addEntry(String entryId, String weblogId) {
+        entries.add(entryId);
+        entryWeblogs.add(weblogId);
+    }
+
+    private synchronized void addEntryQuery(EntryQuery query) {
+        if (!entryQueries.contains(query)) {
+            entryQueries.add(query);
+        }
+    }
+
+    private synchronized void addComments(String weblogId) {
+        if (weblogId != null) {
+            comments.add(weblogId);
+        } else {
+            siteComments = true;
+        }
+    }
+
+    private synchronized void addTagStats(String weblogId) {
+        if (weblogId != null) {
+            tagStats.add(weblogId);
+        } else {
+            siteTagStats = true;
+        }
+    }
+
+    private synchronized void setWeblogList() {
+        weblogList = true;
+    }
+
+
+    //-------------------------------------------------------------- Matching
+
+    /**
+     * Could a change to this entry affect the content?
+     */
+    public synchronized boolean isAffectedBy(WeblogEntry entry) {
+
+        String weblogId = entry.getWebsite().getId();
+        if (everything || weblogContents.contains(weblogId) || entries.contains(entry.getId())) {
+            return true;
+        }
+        for (EntryQuery query : entryQueries) {
+            if (query.matches(entry)) {
+                return true;
+            }
+        }
+
+        // removing an entry removes its comments
+        if (siteComments || comments.contains(weblogId)) {
+            return true;
+        }
+        return (siteTagStats || tagStats.contains(weblogId)) && mayHaveChangedTags(entry);
+    }
+
+
+    /**
+     * Could a change to this comment affect the content?
+     */
+    public synchronized boolean isAffectedBy(WeblogEntryComment comment) {
+
+        WeblogEntry entry = comment.getWeblogEntry();
+        String weblogId = entry.getWebsite().getId();
+        return everything || weblogContents.contains(weblogId) || entries.contains(entry.getId())
+                || siteComments || comments.contains(weblogId);
+    }
+
+
+    /**
+     * Could a change to the settings of this weblog, such as a template,
+     * bookmark or folder, affect the content?
+     */
+    public synchronized boolean isAffectedBySettings(Weblog weblog) {
+        return everything || weblogs.contains(weblog.getId()) || weblogContents.contains(weblog.getId());
+    }
+
+
+    /**
+     * Could a change to anything in this weblog affect the content?
+     *
+     * @param listed true if the weblog is, or may have been until this
+     *               change, one whose entries are listed site-wide.
+     */
+    public synchronized boolean isAffectedBy(Weblog weblog, boolean listed) {
+
+        String weblogId = weblog.getId();
+        if (everything || weblogs.contains(weblogId) || weblogContents.contains(weblogId)
+                || entryWeblogs.contains(weblogId) || comments.contains(weblogId)
+                || tagStats.contains(weblogId) || siteComments) {
+            return true;
+        }
+        for (EntryQuery query : entryQueries) {
+            if (weblogId.equals(query.weblogId) || query.weblogId == null && (listed || query.allWeblogs)) {
+                return true;
+            }
+        }
+        return listed && (weblogList || siteTagStats);
+    }
+
+
+    /**
+     * Mark content with these dependencies as invalidated, now.
+     */
+    public void invalidate() {
+        if (invalidated == 0) {
+            invalidated = System.currentTimeMillis();
+        }
+    }
+
+
+    /**
+     * When content with these dependencies was invalidated, or zero if it
+     * hasn't been.
+     */
+    public long getInvalidated() {
+        return invalidated;
+    }
+
+
+    /**
+     * Whether saving the entry may have changed tag counts.  Tags added or
+     * removed since the entry was loaded are still known when the change is
+     * announced, and publishing or unpublishing changes the counts of all
+     * its tags.
+     */
+    private static boolean mayHaveChangedTags(WeblogEntry entry) {
+        return !entry.getTags().isEmpty() || !entry.getAddedTags().isEmpty()
+                || !entry.getRemovedTags().isEmpty() || Boolean.TRUE.equals(entry.getRefreshAggregates());
+    }
+
+
+    /**
+     * A query for entries.  Entries outside the query can't change its
+     * results, unless they were among the results, which are recorded apart.
+     */
+    private static final class EntryQuery {
+
+        private final String weblogId;
+        private final boolean allWeblogs;
+        private final boolean pinnedOnly;
+        private final String category;
+        private final Set<String> tags;
+        private final long startTime;
+        private final long endTime;
+
+        EntryQuery(String weblogId, boolean allWeblogs, boolean pinnedOnly, String category,
+                Collection<String> tags, Date startDate, Date endDate) {
+            this.weblogId = weblogId;
+            this.allWeblogs = allWeblogs;
+            this.pinnedOnly = pinnedOnly;
+            // site-wide queries aren't limited by category
+            this.category = (weblogId != null) ? category : null;
+            this.tags = (tags != null && !tags.isEmpty()) ? new HashSet<>(tags) : null;
+            this.startTime = (startDate != null) ? startDate.getTime() : Long.MIN_VALUE;
+            this.endTime = (endDate != null) ? endDate.getTime() : Long.MAX_VALUE;
+        }
+
+        boolean matches(WeblogEntry entry) {
+
+            Weblog weblog = entry.getWebsite();
+            if (weblogId != null) {
+                if (!weblogId.equals(weblog.getId())) {
+                    return false;
+                }
+            } else if (!allWeblogs && !Boolean.TRUE.equals(weblog.getVisible())) {
+                return false;
+            }
+            if (pinnedOnly && !Boolean.TRUE.equals(entry.getPinnedToMain())) {
+                return false;
+            }
+            if (category != null && (entry.getCategory() == null
+                    || !category.equals(entry.getCategory().getName()))) {
+                return false;
+            }
+            if (tags != null && !hasAnyTag(entry)) {
+                return false;
+            }
+            if (entry.getPubTime() != null) {
+                long pubTime = entry.getPubTime().getTime();
+                if (pubTime < startTime || pubTime > endTime) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean hasAnyTag(WeblogEntry entry) {
+            for (WeblogEntryTag tag : entry.getTags()) {
+                if (tags.contains(tag.getName())) {
+                    return true;
+                }
+            }
+            for (WeblogEntryTag tag : entry.getRemovedTags()) {
+                if (tags.contains(tag.getName())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof EntryQuery)) {
+                return false;
+            }
+            EntryQuery that = (EntryQuery) other;
+            return allWeblogs == that.allWeblogs && pinnedOnly == that.pinnedOnly
+                    && startTime == that.startTime && endTime == that.endTime
+                    && Objects.equals(weblogId, that.weblogId)
+                    && Objects.equals(category, that.category)
+                    && Objects.equals(tags, that.tags);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(weblogId, category, tags, startTime, endTime);
+        }
+    }
+
+}
@@ -0,0 +1,457 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.util.cache;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.roller.util.RollerConstants;
+
+
+/**
+ * A concurrent cache using a W-TinyLFU eviction policy.
+ *
+ * Lookups go straight to a ConcurrentHashMap and never block.  Eviction order
+ * is kept in a number of independently locked stripes, each made up of a
+ * small LRU "window" which new entries go into and a larger LRU "main" area.
+ * When the window overflows its eldest entry has to compete with the eldest
+ * entry of the main area, and a shared frequency sketch decides which of the
+ * two is worth keeping.  This keeps one-hit wonders (crawlers walking old
+ * archive pages) from flushing popular content out of the cache.
+ *
+ * Readers only try to update recency order, so a busy stripe lock never
+ * makes a cache hit wait.  Entries may optionally expire after a timeout.
+ *
+ * Capacity is measured in weight units.  Every entry weighs 1 unless a
+ * subclass overrides weigh(), which allows caches bounded by something other
+ * than the number of entries, such as the number of bytes cached.
+ */
+public class TinyLFUCacheImpl implements Cache {
+
+    private static final Log log = LogFactory.getLog(TinyLFUCacheImpl.class);
+
+    // don't make stripes smaller than this
+    private static final int MIN_STRIPE_SIZE = 16;
+
+    // percentage of each stripe given to the admission window
+    private static final int WINDOW_PERCENT = 1;
+
+    private final String id;
+    private final long maxWeight;
+    private final long timeout;
+
+    private final ConcurrentHashMap<String, Node> data;
+    private final Stripe[] stripes;
+    private final FrequencySketch sketch;
+
+    // for metrics
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder removes = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private volatile Date startTime = new Date();
+
+
+    protected TinyLFUCacheImpl(String id, int maxsize) {
+
+        this(id, maxsize, 0);
+    }
+
+
+    protected TinyLFUCacheImpl(String id, int maxsize, long timeout) {
+
+        this(id, maxsize, maxsize, timeout);
+    }
+
+
+    /**
+     * @param maxWeight total weight of all entries the cache may hold
+     * @param expectedSize roughly how many entries we expect to hold, used
+     *                     to size the frequency sketch and the stripes
+     * @param timeout entry timeout in seconds, zero or less for none
+     */
+    protected TinyLFUCacheImpl(String id, long maxWeight, int expectedSize, long timeout) {
+
+        this.id = id;
+        this.maxWeight = Math.max(1, maxWeight);
+        int entries = Math.max(1, expectedSize);
+
+        // timeout is specified in seconds; zero or less means never expire
+        this.timeout = (timeout > 0) ? timeout * RollerConstants.SEC_IN_MS : 0;
+
+        this.data = new ConcurrentHashMap<>(entries * 4 / 3 + 1);
+        this.sketch = new FrequencySketch(entries);
+
+        // enough stripes to spread the cpus out, as long as they stay useful
+        int stripeCount = 1;
+        int cpus = Runtime.getRuntime().availableProcessors();
+        while (stripeCount < cpus && stripeCount * 2 * MIN_STRIPE_SIZE <= entries) {
+            stripeCount <<= 1;
+        }
+
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            long capacity = this.maxWeight / stripeCount + ((i < this.maxWeight % stripeCount) ? 1 : 0);
+            this.stripes[i] = new Stripe(capacity);
+        }
+
+        log.debug("cache " + id + " using " + stripeCount + " stripes");
+    }
+
+
+    @Override
+    public String getId() {
+        return this.id;
+    }
+
+
+    /**
+     * Store an entry in the cache.
+     */
+    @Override
+    public void put(String key, Object value) {
+
+        long weight = Math.max(1, weigh(key, value));
+        Node node = new Node(key, value, weight,
+                (timeout > 0) ? System.currentTimeMillis() + timeout : 0);
+        sketch.increment(key);
+
+        Stripe stripe = stripeFor(key);
+        stripe.lock.lock();
+        try {
+            stripe.unlink(key);
+            if (weight > stripe.capacity) {
+                // would never fit, so don't let it flush everything else
+                log.debug("TOO LARGE [" + key + "] weight=" + weight);
+                data.remove(key);
+                evictions.increment();
+            } else {
+                data.put(key, node);
+                stripe.window.put(key, node);
+                stripe.windowWeight += weight;
+                stripe.evict();
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+
+        puts.increment();
+    }
+
+
+    /**
+     * Retrieve an entry from the cache.
+     *
+     * If the entry has expired then we return null, just as if the entry
+     * wasn't found.
+     */
+    @Override
+    public Object get(String key) {
+
+        Node node = data.get(key);
+
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+
+        Stripe stripe = stripeFor(key);
+
+        if (node.hasExpired()) {
+            log.debug("EXPIRED [" + key + "]");
+            stripe.lock.lock();
+            try {
+                if (data.remove(key, node)) {
+                    stripe.unlink(key);
+                    expirations.increment();
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+            misses.increment();
+            return null;
+        }
+
+        sketch.increment(key);
+
+        // only reorder when nobody else holds the stripe, losing a bit
+        // of recency information is better than making readers wait
+        if (stripe.lock.tryLock()) {
+            try {
+                if (stripe.window.get(key) == null) {
+                    stripe.main.get(key);
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+
+        hits.increment();
+        return node.value;
+    }
+
+
+    @Override
+    public void remove(String key) {
+
+        Stripe stripe = stripeFor(key);
+        stripe.lock.lock();
+        try {
+            data.remove(key);
+            stripe.unlink(key);
+        } finally {
+            stripe.lock.unlock();
+        }
+
+        removes.increment();
+    }
+
+
+    @Override
+    public void clear() {
+
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                for (String key : stripe.window.keySet()) {
+                    data.remove(key);
+                }
+                for (String key : stripe.main.keySet()) {
+                    data.remove(key);
+                }
+                stripe.window.clear();
+                stripe.main.clear();
+                stripe.windowWeight = 0;
+                stripe.mainWeight = 0;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+
+        // clear metrics
+        hits.reset();
+        misses.reset();
+        puts.reset();
+        removes.reset();
+        evictions.reset();
+        expirations.reset();
+        startTime = new Date();
+    }
+
+
+    @Override
+    public Map<String, Object> entries() {
+
+        Map<String, Object> entries = new LinkedHashMap<>();
+        for (Node node : data.values()) {
+            if (!node.hasExpired()) {
+                entries.put(node.key, node.value);
+            }
+        }
+        return entries;
+    }
+
+
+    @Override
+    public Map<String, Object> getStats() {
+
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long removeCount = removes.sum();
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("startTime", this.startTime);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("puts", puts.sum());
+        stats.put("removes", removeCount);
+        stats.put("evictions", evictions.sum());
+        stats.put("expirations", expirations.sum());
+        stats.put("size", data.size());
+        stats.put("maxSize", maxWeight);
+
+        // calculate efficiency
+        if ((missCount - removeCount) > 0) {
+            double efficiency = (double) hitCount / (missCount + hitCount);
+            stats.put("efficiency", efficiency * RollerConstants.PERCENT_100);
+        }
+
+        return stats;
+    }
+
+
+    /**
+     * How much of the cache capacity the given entry uses.
+     */
+    protected long weigh(String key, Object value) {
+        return 1;
+    }
+
+
+    /**
+     * Current total weight of all entries in the cache.
+     */
+    protected long getWeightedSize() {
+        long total = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                total += stripe.windowWeight + stripe.mainWeight;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return total;
+    }
+
+
+    protected long getMaxWeight() {
+        return maxWeight;
+    }
+
+
+    private Stripe stripeFor(String key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return stripes[h & (stripes.length - 1)];
+    }
+
+
+    private static final class Node {
+
+        private final String key;
+        private final Object value;
+        private final long weight;
+        private final long expiresAt;
+
+        Node(String key, Object value, long weight, long expiresAt) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean hasExpired() {
+            return expiresAt > 0 && expiresAt < System.currentTimeMillis();
+        }
+    }
+
+
+    /**
+     * One independently locked slice of the eviction order.  All fields are
+     * guarded by the stripe lock, and all writes to a key in the shared data
+     * map happen while holding the lock of the stripe that key belongs to.
+     */
+    private final class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LinkedHashMap<String, Node> window = new LinkedHashMap<>(16, 0.75f, true);
+        private final LinkedHashMap<String, Node> main = new LinkedHashMap<>(16, 0.75f, true);
+        private final long capacity;
+        private final long windowCapacity;
+        private final long mainCapacity;
+        private long windowWeight = 0;
+        private long mainWeight = 0;
+
+        Stripe(long capacity) {
+            this.capacity = Math.max(1, capacity);
+            this.windowCapacity = Math.max(1, this.capacity * WINDOW_PERCENT / RollerConstants.PERCENT_100);
+            this.mainCapacity = Math.max(0, this.capacity - windowCapacity);
+        }
+
+        /**
+         * Forget about a key, if we know it.
+         */
+        void unlink(String key) {
+            Node node = window.remove(key);
+            if (node != null) {
+                windowWeight -= node.weight;
+            }
+            node = main.remove(key);
+            if (node != null) {
+                mainWeight -= node.weight;
+            }
+        }
+
+        /**
+         * Move entries which fell out of the window into the main area,
+         * evicting whichever of candidate and victims are used less often.
+         * The newest entry always stays in the window, even when it is
+         * heavier than the window, so it gets a chance to be used again.
+         */
+        void evict() {
+
+            while (windowWeight > windowCapacity && window.size() > 1) {
+                Iterator<Node> windowOrder = window.values().iterator();
+                Node candidate = windowOrder.next();
+                windowOrder.remove();
+                windowWeight -= candidate.weight;
+
+                if (mainWeight + candidate.weight <= mainCapacity) {
+                    main.put(candidate.key, candidate);
+                    mainWeight += candidate.weight;
+                    continue;
+                }
+
+                Node victim = main.isEmpty() ? null : main.values().iterator().next();
+                if (victim == null || sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+                    data.remove(candidate.key, candidate);
+                    evictions.increment();
+                    continue;
+                }
+
+                // candidate wins, make room for it in main
+                main.put(candidate.key, candidate);
+                mainWeight += candidate.weight;
+                Iterator<Node> mainOrder = main.values().iterator();
+                while (mainWeight > mainCapacity && mainOrder.hasNext()) {
+                    Node eldest = mainOrder.next();
+                    if (eldest == candidate) {
+                        break;
+                    }
+                    mainOrder.remove();
+                    mainWeight -= eldest.weight;
+                    data.remove(eldest.key, eldest);
+                    evictions.increment();
+                }
+            }
+
+            // an oversized newest entry in the window still has to fit
+            // within the capacity of the stripe as a whole
+            Iterator<Node> mainOrder = main.values().iterator();
+            while (windowWeight + mainWeight > capacity && mainOrder.hasNext()) {
+                Node eldest = mainOrder.next();
+                mainOrder.remove();
+                mainWeight -= eldest.weight;
+                data.remove(eldest.key, eldest);
+                evictions.increment();
+            }
+        }
+    }
+
+}
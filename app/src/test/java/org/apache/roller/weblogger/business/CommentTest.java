@@ -30,6 +30,7 @@ import java.io.StringWriter;
 import java.util.List;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -191,6 +192,59 @@ public class CommentTest  {
     }
     
     
+    /**
+     * Test that approved comment counts follow comments being added,
+     * approved, unapproved and removed, and get counted if not known.
+     */
+    @Test
+    public void testCommentCounts() throws Exception {
+        
+        WeblogEntryManager mgr = WebloggerFactory.getWeblogger().getWeblogEntryManager();
+        
+        testEntry = TestUtils.getManagedWeblogEntry(testEntry);
+        WeblogEntryComment comment1 = TestUtils.setupComment("comment1", testEntry);
+        WeblogEntryComment comment2 = TestUtils.setupComment("comment2", testEntry);
+        TestUtils.endSession(true);
+        
+        assertEquals(2, TestUtils.getManagedWeblogEntry(testEntry).getCommentCount());
+        assertEquals(2, TestUtils.getManagedWebsite(testWeblog).getCommentCount());
+        
+        // unapproving one comment, twice, counts once
+        comment1 = mgr.getComment(comment1.getId());
+        comment1.setStatus(ApprovalStatus.PENDING);
+        mgr.saveComment(comment1);
+        mgr.saveComment(comment1);
+        TestUtils.endSession(true);
+        
+        assertEquals(1, TestUtils.getManagedWeblogEntry(testEntry).getCommentCount());
+        assertEquals(1, TestUtils.getManagedWebsite(testWeblog).getCommentCount());
+        
+        // removing a comment which isn't approved doesn't change counts
+        TestUtils.teardownComment(comment1.getId());
+        TestUtils.endSession(true);
+        assertEquals(1, TestUtils.getManagedWeblogEntry(testEntry).getCommentCount());
+        
+        // counts not known, as after upgrading, get counted by the backfill
+        testEntry = TestUtils.getManagedWeblogEntry(testEntry);
+        testEntry.setApprovedCommentCount(null);
+        testEntry.getWebsite().setApprovedCommentCount(null);
+        TestUtils.endSession(true);
+        
+        assertEquals(1, TestUtils.getManagedWeblogEntry(testEntry).getCommentCount());
+        assertEquals(2, mgr.backfillCommentCounts(10));
+        TestUtils.endSession(true);
+        assertEquals(0, mgr.backfillCommentCounts(10));
+        
+        testEntry = TestUtils.getManagedWeblogEntry(testEntry);
+        assertEquals(Integer.valueOf(1), testEntry.getApprovedCommentCount());
+        assertEquals(Long.valueOf(1), testEntry.getWebsite().getApprovedCommentCount());
+        
+        TestUtils.teardownComment(comment2.getId());
+        TestUtils.endSession(true);
+        assertEquals(0, TestUtils.getManagedWeblogEntry(testEntry).getCommentCount());
+    }
+    
+    
     /**
      * Test that when deleting parent objects of a comment that everything
      * down the chain is properly deleted as well.  i.e. deleting an entry
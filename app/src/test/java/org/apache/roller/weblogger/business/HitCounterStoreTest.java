@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.business;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test HitCounterStore.
+ */
+public class HitCounterStoreTest {
+
+    @Test
+    public void testDrain() {
+
+        HitCounterStore store = new HitCounterStore();
+        store.increment("blog1");
+        store.increment("blog1");
+        store.increment("blog2");
+        assertEquals(2, store.get("blog1"));
+
+        Map<String, Long> hits = store.drain();
+        assertEquals(2, hits.size());
+        assertEquals(2L, hits.get("blog1"));
+        assertEquals(1L, hits.get("blog2"));
+
+        // drained counters start again from zero and aren't reported
+        assertEquals(0, store.get("blog1"));
+        store.increment("blog2");
+        hits = store.drain();
+        assertEquals(1, hits.size());
+        assertEquals(1L, hits.get("blog2"));
+        assertTrue(store.drain().isEmpty());
+    }
+
+
+    @Test
+    public void testNoHitsLostWhileDraining() throws Exception {
+
+        HitCounterStore store = new HitCounterStore();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            pool.execute(() -> {
+                for (int i = 0; i < 100000; i++) {
+                    store.increment("blog" + (i % 3));
+                }
+            });
+        }
+
+        long total = 0;
+        while (!pool.isTerminated()) {
+            for (long count : store.drain().values()) {
+                total += count;
+            }
+            pool.shutdown();
+            pool.awaitTermination(1, TimeUnit.MILLISECONDS);
+        }
+        for (long count : store.drain().values()) {
+            total += count;
+        }
+        assertEquals(400000, total);
+    }
+
+}
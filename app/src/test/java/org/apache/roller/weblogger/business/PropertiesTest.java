@@ -21,6 +21,7 @@ package org.apache.roller.weblogger.business;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.roller.weblogger.TestUtils;
+import org.apache.roller.weblogger.config.WebloggerRuntimeConfig;
 import org.apache.roller.weblogger.pojos.RuntimeConfigProperty;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -71,6 +72,7 @@ public class PropertiesTest  {
         prop = mgr.getProperty("site.name");
         assertNotNull(prop);
         assertEquals("testtest", prop.getValue());
+        assertEquals("testtest", WebloggerRuntimeConfig.getProperty("site.name"));
         
         // get all properties
         Map<String, RuntimeConfigProperty> props = mgr.getProperties();
@@ -90,6 +92,21 @@ public class PropertiesTest  {
         assertNotNull(props);
         assertEquals("foofoo", props.get("site.name").getValue());
         assertEquals("blahblah", props.get("site.description").getValue());
+        assertEquals("foofoo", WebloggerRuntimeConfig.getProperty("site.name"));
+        assertEquals("blahblah", WebloggerRuntimeConfig.getProperty("site.description"));
+        
+        // typed values follow too
+        prop = mgr.getProperty("site.newsfeeds.defaultEntries");
+        String defaultEntries = prop.getValue();
+        prop.setValue("12");
+        mgr.saveProperty(prop);
+        TestUtils.endSession(true);
+        assertEquals(12, WebloggerRuntimeConfig.getIntProperty("site.newsfeeds.defaultEntries"));
+        
+        prop = mgr.getProperty("site.newsfeeds.defaultEntries");
+        prop.setValue(defaultEntries);
+        mgr.saveProperty(prop);
+        TestUtils.endSession(true);
     }
     
 }
@@ -73,6 +73,7 @@ public class UserTest  {
         // make sure test user does not exist
         user = mgr.getUserByUserName(testUser.getUserName());
         assertNull(user);
+        assertTrue(mgr.getUsersByUserNames(List.of(testUser.getUserName())).isEmpty());
         
         // add test user
         mgr.addUser(testUser);
@@ -150,6 +151,11 @@ public class UserTest  {
         assertNotNull(user);
         assertEquals(testUser.getUserName(), user.getUserName());
         
+        // lookup of several by username, ignoring unknown ones
+        List<User> users3 = mgr.getUsersByUserNames(List.of(testUser.getUserName(), "userTestNobody"));
+        assertEquals(1, users3.size());
+        assertEquals(testUser.getUserName(), users3.get(0).getUserName());
+        
         // make sure disable users are not returned
         user.setEnabled(Boolean.FALSE);
         mgr.saveUser(user);
@@ -299,6 +299,17 @@ public class WeblogEntryTest  {
         entryMap = mgr.getWeblogEntryStringMap(wesc8);
         assertNotNull(entryMap);
         assertTrue(entryMap.keySet().size() > 1);
+        
+        // get day counts, which cover the same days and all the entries
+        Map<Date, WeblogEntryDayCount> dayCounts = mgr.getWeblogEntryDayCounts(wesc8);
+        assertEquals(entryMap.keySet(), dayCounts.keySet());
+        int total = 0;
+        for (Map.Entry<Date, WeblogEntryDayCount> dayCount : dayCounts.entrySet()) {
+            assertEquals(entryMap.get(dayCount.getKey()), dayCount.getValue().getDateString());
+            assertNotNull(dayCount.getValue().getFirstAnchor());
+            total += dayCount.getValue().getCount();
+        }
+        assertEquals(mgr.getWeblogEntries(wesc8).size(), total);
                 
         // teardown our test entries
         TestUtils.teardownWeblogEntry(entry1.getId());
@@ -928,8 +939,66 @@ public class WeblogEntryTest  {
         TestUtils.endSession(true);
     }
 
-  
-    
+
+    /**
+     * Test that saving entries together counts their tags like saving them
+     * one by one would.
+     */
+    @Test
+    public void testSaveWeblogEntriesTagAggregates() throws Exception {
+
+        Weblog testWeblog2 = TestUtils.setupWeblog("entryTestWeblog2",
+                testUser);
+        testWeblog = TestUtils.getManagedWebsite(testWeblog);
+        testUser = TestUtils.getManagedUser(testUser);
+
+        WeblogEntryManager mgr = WebloggerFactory.getWeblogger().getWeblogEntryManager();
+
+        WeblogEntry entry1 = TestUtils.setupWeblogEntry("entry1", testWeblog, testUser);
+        entry1.addTag("one");
+        entry1.addTag("two");
+        WeblogEntry entry2 = TestUtils.setupWeblogEntry("entry2", testWeblog, testUser);
+        entry2.addTag("one");
+        WeblogEntry entry3 = TestUtils.setupWeblogEntry("entry3", testWeblog2, testUser);
+        entry3.addTag("one");
+        entry3.addTag("three");
+        mgr.saveWeblogEntries(List.of(entry1, entry2, entry3));
+
+        TestUtils.endSession(true);
+
+        Map<String, Integer> weblogCounts = new HashMap<>();
+        for (TagStat stat : mgr.getTags(testWeblog, null, null, 0, -1)) {
+            weblogCounts.put(stat.getName(), stat.getCount());
+        }
+        assertEquals(Map.of("one", 2, "two", 1), weblogCounts);
+
+        Map<String, Integer> siteCounts = new HashMap<>();
+        for (TagStat stat : mgr.getTags(null, null, null, 0, -1)) {
+            siteCounts.put(stat.getName(), stat.getCount());
+        }
+        assertEquals(Map.of("one", 3, "two", 1, "three", 1), siteCounts);
+
+        // removing tags from several entries drops the counts that reach zero
+        entry1 = TestUtils.getManagedWeblogEntry(entry1);
+        entry1.setTagsAsString("");
+        entry3 = TestUtils.getManagedWeblogEntry(entry3);
+        entry3.setTagsAsString("");
+        mgr.saveWeblogEntries(List.of(entry1, entry3));
+
+        TestUtils.endSession(true);
+
+        List<TagStat> tags = mgr.getTags(null, null, null, 0, -1);
+        assertEquals(1, tags.size());
+        assertEquals("one", tags.get(0).getName());
+        assertEquals(1, tags.get(0).getCount());
+        assertEquals(0, mgr.getTags(testWeblog2, null, null, 0, -1).size());
+
+        TestUtils.teardownWeblog(testWeblog2.getId());
+        TestUtils.endSession(true);
+    }
+
+
+
     /**
      * Test that we can add and remove entry attributes for an entry.
      */
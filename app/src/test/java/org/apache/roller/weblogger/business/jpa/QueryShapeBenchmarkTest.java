@@ -0,0 +1,129 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one or more
+*  contributor license agreements.  The ASF licenses this file to You
+* under the Apache License, Version 2.0 (the "License"); you may not
+* use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.  For additional information regarding
+* copyright in this work, please see the NOTICE file in the top level
+* directory of this distribution.
+*/
+
+package org.apache.roller.weblogger.business.jpa;
+
+import java.sql.Timestamp;
+import java.util.List;
+import jakarta.persistence.TypedQuery;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.roller.weblogger.TestUtils;
+import org.apache.roller.weblogger.business.WebloggerFactory;
+import org.apache.roller.weblogger.pojos.User;
+import org.apache.roller.weblogger.pojos.Weblog;
+import org.apache.roller.weblogger.pojos.WeblogEntry;
+import org.apache.roller.weblogger.pojos.WeblogEntry.PubStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Micro-benchmark of running a query built from search criteria as a new
+ * dynamic query each time, against reusing the query registered for its
+ * shape.  Timings are logged rather than asserted, as they depend on the
+ * machine running the tests.
+ *
+ * Tagged as a benchmark, so it only runs when asked for, e.g.
+ * mvn test -Dtest=QueryShapeBenchmarkTest -Dsurefire.excludedGroups=
+ */
+@Tag("benchmark")
+public class QueryShapeBenchmarkTest {
+
+    public static Log log = LogFactory.getLog(QueryShapeBenchmarkTest.class);
+
+    // as getWeblogEntries builds it for the latest entries of all weblogs
+    private static final String QUERY = "SELECT e FROM WeblogEntry e WHERE e.website.visible = ?1"
+            + " AND e.pubTime <= ?2 AND e.status = ?3"
+            + " ORDER BY e.pubTime DESC, e.id DESC";
+
+    private static final int ENTRIES = 20;
+    private static final int WARMUP = 2000;
+    private static final int RUNS = 5000;
+
+    private User testUser = null;
+    private Weblog testWeblog = null;
+    private JPAPersistenceStrategy strategy = null;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        // make sure the database is there
+        TestUtils.setupWeblogger();
+
+        testUser = TestUtils.setupUser("queryShapeUser");
+        testWeblog = TestUtils.setupWeblog("queryShapeWeblog", testUser);
+        for (int i = 0; i < ENTRIES; i++) {
+            TestUtils.setupWeblogEntry("queryShapeEntry" + i, testWeblog, testUser);
+        }
+        TestUtils.endSession(true);
+
+        // the same persistence unit the weblogger runs queries with
+        strategy = ((JPAWebloggerImpl) WebloggerFactory.getWeblogger()).getStrategy();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        TestUtils.teardownWeblog(testWeblog.getId());
+        TestUtils.teardownUser(testUser.getUserName());
+        TestUtils.endSession(true);
+    }
+
+    @Test
+    public void testTemplateQuery() throws Exception {
+
+        List<WeblogEntry> dynamic = run(false);
+        List<WeblogEntry> template = run(true);
+        assertEquals(10, dynamic.size());
+        assertEquals(dynamic, template);
+
+        for (int i = 0; i < WARMUP; i++) {
+            run(false);
+            run(true);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            run(false);
+        }
+        long dynamicNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            run(true);
+        }
+        long templateNanos = System.nanoTime() - start;
+
+        log.info(String.format("dynamic query %.1fus, template query %.1fus per run",
+                dynamicNanos / 1000.0 / RUNS, templateNanos / 1000.0 / RUNS));
+    }
+
+    private List<WeblogEntry> run(boolean template) throws Exception {
+        TypedQuery<WeblogEntry> query = template
+                ? strategy.getTemplateQuery(QUERY, WeblogEntry.class)
+                : strategy.getDynamicQuery(QUERY, WeblogEntry.class);
+        query.setParameter(1, Boolean.TRUE);
+        query.setParameter(2, new Timestamp(System.currentTimeMillis()));
+        query.setParameter(3, PubStatus.PUBLISHED);
+        query.setMaxResults(10);
+        return query.getResultList();
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one or more
+*  contributor license agreements.  The ASF licenses this file to You
+* under the Apache License, Version 2.0 (the "License"); you may not
+* use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.  For additional information regarding
+* copyright in this work, please see the NOTICE file in the top level
+* directory of this distribution.
+*/
+
+package org.apache.roller.weblogger.business.jpa;
+
+import java.util.Properties;
+import org.apache.roller.weblogger.pojos.RuntimeConfigProperty;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test routing of reads to the read replica, with two embedded databases
+ * standing in for the primary and its replica.  Nothing is replicated
+ * between them, so which one a read went to shows in what it finds.
+ */
+public class ReadReplicaTest {
+
+    private static final String NAME = "replicaTestProperty";
+
+    private JPAPersistenceStrategy strategy = null;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        strategy = null;
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (strategy != null) {
+            strategy.release();
+            strategy.shutdown();
+        }
+    }
+
+    @Test
+    public void testReadsFromReplica() throws Exception {
+
+        strategy = newStrategy("reads", 0);
+        strategy.store(new RuntimeConfigProperty(NAME, "primary"));
+        strategy.flush();
+        strategy.release();
+
+        // sessions read from the primary unless told otherwise
+        assertNotNull(strategy.load(RuntimeConfigProperty.class, NAME));
+        strategy.release();
+
+        strategy.useReadReplica();
+        assertNull(strategy.load(RuntimeConfigProperty.class, NAME));
+        strategy.release();
+
+        // release ends reading from the replica
+        assertNotNull(strategy.load(RuntimeConfigProperty.class, NAME));
+        strategy.release();
+    }
+
+    @Test
+    public void testWritesGoToPrimary() throws Exception {
+
+        strategy = newStrategy("writes", 0);
+        strategy.useReadReplica();
+        assertNull(strategy.load(RuntimeConfigProperty.class, NAME));
+        strategy.store(new RuntimeConfigProperty(NAME, "primary"));
+        strategy.flush();
+
+        // and the rest of the session reads from the primary too
+        assertNotNull(strategy.load(RuntimeConfigProperty.class, NAME));
+        strategy.release();
+
+        assertNotNull(strategy.load(RuntimeConfigProperty.class, NAME));
+        strategy.release();
+    }
+
+    @Test
+    public void testLagTolerance() throws Exception {
+
+        strategy = newStrategy("lag", 600);
+
+        // no change seen yet
+        strategy.useReadReplica();
+        assertNull(strategy.load(RuntimeConfigProperty.class, NAME));
+        strategy.release();
+
+        strategy.store(new RuntimeConfigProperty(NAME, "primary"));
+        strategy.flush();
+        strategy.release();
+
+        // the replica may not have the change yet
+        strategy.useReadReplica();
+        assertNotNull(strategy.load(RuntimeConfigProperty.class, NAME));
+        strategy.release();
+    }
+
+    private JPAPersistenceStrategy newStrategy(String test, int lagTolerance) throws Exception {
+        return new JPAPersistenceStrategy(
+                getProperties(test + "Primary"), getProperties(test + "Replica"), lagTolerance);
+    }
+
+    private static Properties getProperties(String database) {
+        Properties props = new Properties();
+        props.setProperty("jakarta.persistence.jdbc.driver", "org.apache.derby.jdbc.EmbeddedDriver");
+        props.setProperty("jakarta.persistence.jdbc.url", "jdbc:derby:memory:" + database + ";create=true");
+        props.setProperty("eclipselink.ddl-generation", "create-tables");
+        props.setProperty("eclipselink.logging.level", "WARNING");
+        return props;
+    }
+
+}
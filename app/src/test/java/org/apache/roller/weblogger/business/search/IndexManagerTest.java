@@ -20,6 +20,7 @@ package org.apache.roller.weblogger.business.search;
 import java.sql.Timestamp;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.roller.util.RollerConstants;
@@ -30,6 +31,9 @@ import org.apache.roller.weblogger.pojos.User;
 import org.apache.roller.weblogger.pojos.Weblog;
 import org.apache.roller.weblogger.pojos.WeblogCategory;
 import org.apache.roller.weblogger.pojos.WeblogEntry;
+import org.apache.roller.weblogger.pojos.WeblogEntry.PubStatus;
+import org.apache.roller.weblogger.pojos.wrapper.WeblogEntryWrapper;
+import org.apache.roller.weblogger.util.cache.CacheManager;
 import org.instancio.Instancio;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -37,6 +41,7 @@ import org.junit.jupiter.api.Test;
 
 import static org.apache.roller.weblogger.ui.rendering.model.SearchResultsModel.RESULTS_PER_PAGE;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Test Search Manager business layer operations.
@@ -89,14 +94,64 @@ public class IndexManagerTest {
         try {
             SearchResultList result = indexManager.search("Enterprise",
                 testWeblog.getHandle(), null, testWeblog.getLocale(), 0, RESULTS_PER_PAGE,
-                WebloggerFactory.getWeblogger().getUrlStrategy());
+                WebloggerFactory.getWeblogger().getUrlStrategy(), IndexManager.ResultsMode.ENTRIES);
             assertEquals(2, result.getResults().size());
 
             result = indexManager.search("Tholian",
                 testWeblog.getHandle(), null, testWeblog.getLocale(), 0, RESULTS_PER_PAGE,
-                WebloggerFactory.getWeblogger().getUrlStrategy());
+                WebloggerFactory.getWeblogger().getUrlStrategy(), IndexManager.ResultsMode.ENTRIES);
             assertEquals(1, result.getResults().size());
 
+            // the same results, made up of what the index keeps
+            result = indexManager.search("Tholian",
+                testWeblog.getHandle(), null, testWeblog.getLocale(), 0, RESULTS_PER_PAGE,
+                WebloggerFactory.getWeblogger().getUrlStrategy(), IndexManager.ResultsMode.INDEX);
+            assertEquals(1, result.getResults().size());
+            WeblogEntryWrapper hit = result.getResults().get(0);
+            assertEquals(entries.get(0).getId(), hit.getId());
+            assertEquals("The Tholian Web", hit.getTitle());
+            assertEquals(entries.get(0).getAnchor(), hit.getAnchor());
+            assertEquals(entries.get(0).getPubTime(), hit.getPubTime());
+            assertEquals("General", hit.getCategory().getName());
+            assertTrue(hit.getSummary().startsWith("When the Enterprise"));
+
+        } finally {
+            for (WeblogEntry entry : entries) {
+                indexManager.removeEntryIndexOperation(TestUtils.getManagedWeblogEntry(entry));
+            }
+            indexManager.removeWeblogIndex(testWeblog);
+        }
+    }
+
+    @Test
+    public void testRebuildIndex() throws Exception {
+
+        IndexManager indexManager = WebloggerFactory.getWeblogger().getIndexManager();
+        WeblogEntryManager entryManager = WebloggerFactory.getWeblogger().getWeblogEntryManager();
+
+        List<WeblogEntry> entries = createWeblogEntries(testWeblog, indexManager, entryManager);
+
+        try {
+            long before = System.currentTimeMillis();
+            indexManager.rebuildWeblogIndex();
+
+            // wait for the rebuild in the background to replace the index
+            Map<String, Object> rebuild = Collections.emptyMap();
+            for (int i = 0; i < 120; i++) {
+                Thread.sleep(500);
+                rebuild = CacheManager.getStats().getOrDefault("search.rebuild", Collections.emptyMap());
+                if ("done".equals(rebuild.get("state")) && (Long) rebuild.get("started") >= before) {
+                    break;
+                }
+            }
+            assertEquals("done", rebuild.get("state"));
+            assertTrue((Long) rebuild.get("indexed") >= 2);
+
+            SearchResultList result = indexManager.search("Enterprise",
+                testWeblog.getHandle(), null, testWeblog.getLocale(), 0, RESULTS_PER_PAGE,
+                WebloggerFactory.getWeblogger().getUrlStrategy(), IndexManager.ResultsMode.ENTRIES);
+            assertEquals(2, result.getResults().size());
+
         } finally {
             for (WeblogEntry entry : entries) {
                 indexManager.removeEntryIndexOperation(TestUtils.getManagedWeblogEntry(entry));
@@ -117,6 +172,8 @@ public class IndexManagerTest {
 
         entries.get(0).setTitle("The Tholian Web");
         entries.get(0).setPubTime(new Timestamp(System.currentTimeMillis()));
+        entries.get(0).setStatus(PubStatus.PUBLISHED);
+        entries.get(0).setSummary(null);
         entries.get(0).setText(
             "When the Enterprise attempts to ascertain the fate of the  "
                 +"U.S.S. Defiant which vanished 3 weeks ago, the warp engines  "
@@ -126,6 +183,7 @@ public class IndexManagerTest {
 
         entries.get(1).setTitle("A Piece of the Action");
         entries.get(1).setPubTime(new Timestamp(System.currentTimeMillis()));
+        entries.get(1).setStatus(PubStatus.PUBLISHED);
         entries.get(1).setText(
             "The crew of the Enterprise attempts to make contact with "
                 +"the inhabitants of planet Sigma Iotia II, and Uhura puts Kirk "
@@ -0,0 +1,71 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one or more
+*  contributor license agreements.  The ASF licenses this file to You
+* under the Apache License, Version 2.0 (the "License"); you may not
+* use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.  For additional information regarding
+* copyright in this work, please see the NOTICE file in the top level
+* directory of this distribution.
+*/
+
+package org.apache.roller.weblogger.business.search.lucene;
+
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test collapsing and batching of index updates, without an indexer thread.
+ */
+public class IndexUpdateQueueTest {
+
+    @Test
+    public void testCoalescing() throws Exception {
+
+        IndexUpdateQueue queue = new IndexUpdateQueue(null, null, 10, 2);
+        queue.add("a", false);
+        queue.add("b", true);
+        queue.add("a", false);
+        queue.add("b", false);
+        queue.add("c", false);
+        queue.add("a", true);
+
+        Map<String, Object> stats = queue.getStats();
+        assertEquals(3, stats.get("pending"));
+        assertEquals(3L, stats.get("coalesced"));
+
+        // in the order first queued, the last update of each winning
+        Map<String, Boolean> batch = queue.nextBatch();
+        assertEquals(List.of("a", "b"), List.copyOf(batch.keySet()));
+        assertTrue(batch.get("a"));
+        assertFalse(batch.get("b"));
+
+        batch = queue.nextBatch();
+        assertEquals(Map.of("c", Boolean.FALSE), batch);
+        assertTrue(queue.nextBatch().isEmpty());
+        assertEquals(0, queue.getStats().get("pending"));
+    }
+
+    @Test
+    public void testRemoveThenAdd() throws Exception {
+
+        // as queued for an entry commented on, which must stay searchable
+        IndexUpdateQueue queue = new IndexUpdateQueue(null, null, 10, 10);
+        queue.add("a", true);
+        queue.add("a", false);
+
+        assertEquals(Map.of("a", Boolean.FALSE), queue.nextBatch());
+        assertEquals(1L, queue.getStats().get("coalesced"));
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one or more
+*  contributor license agreements.  The ASF licenses this file to You
+* under the Apache License, Version 2.0 (the "License"); you may not
+* use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.  For additional information regarding
+* copyright in this work, please see the NOTICE file in the top level
+* directory of this distribution.
+*/
+
+package org.apache.roller.weblogger.business.search.lucene;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test caching of search results by query and version of the index.
+ */
+public class SearchResultsCacheTest {
+
+    @Test
+    public void testKeyedByIndexVersion() throws Exception {
+
+        SearchResultsCache cache = new SearchResultsCache();
+
+        try (ByteBuffersDirectory directory = new ByteBuffersDirectory();
+             IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()))) {
+
+            writer.addDocument(doc("a"));
+            SearcherManager searchers = new SearcherManager(writer, null);
+            searchers.addListener(cache);
+
+            IndexSearcher searcher = searchers.acquire();
+            String key = cache.generateKey(searcher, " star   trek ", "h", "General", null);
+            assertEquals(key, cache.generateKey(searcher, "star trek", "h", "general", null));
+            assertNotEquals(key, cache.generateKey(searcher, "star trek", "h", null, null));
+
+            TopFieldDocs found = searcher.search(
+                    new TermQuery(new Term(FieldConstants.ID, "a")), 10, Sort.INDEXORDER);
+            assertNull(cache.get(key, Sort.INDEXORDER.getSort()));
+            cache.put(key, found);
+
+            TopFieldDocs cached = cache.get(key, Sort.INDEXORDER.getSort());
+            assertNotNull(cached);
+            assertEquals(found.totalHits, cached.totalHits);
+            assertEquals(found.scoreDocs[0].doc, cached.scoreDocs[0].doc);
+            searchers.release(searcher);
+
+            // a change to the index, once refreshed, drops what was found
+            writer.addDocument(doc("b"));
+            searchers.maybeRefresh();
+            assertNull(cache.get(key, Sort.INDEXORDER.getSort()));
+
+            searcher = searchers.acquire();
+            assertNotEquals(key, cache.generateKey(searcher, "star trek", "h", "General", null));
+            searchers.release(searcher);
+            searchers.close();
+        }
+    }
+
+    @Test
+    public void testKeyPartsDontCollide() throws Exception {
+
+        SearchResultsCache cache = new SearchResultsCache();
+
+        try (ByteBuffersDirectory directory = new ByteBuffersDirectory();
+             IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()))) {
+
+            writer.addDocument(doc("a"));
+            SearcherManager searchers = new SearcherManager(writer, null);
+            IndexSearcher searcher = searchers.acquire();
+
+            // a site-wide search for a term that looks like a scoped one
+            assertNotEquals(cache.generateKey(searcher, "foo", "bar", null, null),
+                    cache.generateKey(searcher, "foo/handle=bar", null, null, null));
+            assertNotEquals(cache.generateKey(searcher, "foo", "bar", null, null),
+                    cache.generateKey(searcher, "foo/handle=3:bar", null, null, null));
+            assertNotEquals(cache.generateKey(searcher, "foo", null, "bar", null),
+                    cache.generateKey(searcher, "foo/cat=bar", null, null, null));
+            assertNotEquals(cache.generateKey(searcher, "foo", "h", null, "en"),
+                    cache.generateKey(searcher, "foo", "h/locale=en", null, null));
+
+            searchers.release(searcher);
+            searchers.close();
+        }
+    }
+
+    private static Document doc(String id) {
+        Document doc = new Document();
+        doc.add(new StringField(FieldConstants.ID, id, Field.Store.YES));
+        return doc;
+    }
+
+}
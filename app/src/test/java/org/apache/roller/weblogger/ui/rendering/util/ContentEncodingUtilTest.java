@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.ui.rendering.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.zip.GZIPInputStream;
+import org.apache.roller.weblogger.util.cache.CachedContent;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test content encoding negotiation and pre-compressed cached content.
+ */
+public class ContentEncodingUtilTest {
+
+    @Test
+    public void testChooseEncoding() {
+        assertNull(ContentEncodingUtil.chooseEncoding(null));
+        assertNull(ContentEncodingUtil.chooseEncoding(""));
+        assertNull(ContentEncodingUtil.chooseEncoding("identity"));
+        assertEquals("gzip", ContentEncodingUtil.chooseEncoding("gzip, deflate, br"));
+        assertEquals("gzip", ContentEncodingUtil.chooseEncoding("GZIP"));
+        assertEquals("deflate", ContentEncodingUtil.chooseEncoding("deflate"));
+        assertEquals("deflate", ContentEncodingUtil.chooseEncoding("gzip;q=0.5, deflate"));
+        assertNull(ContentEncodingUtil.chooseEncoding("gzip;q=0, deflate;q=0"));
+        assertEquals("gzip", ContentEncodingUtil.chooseEncoding("*"));
+        assertEquals("deflate", ContentEncodingUtil.chooseEncoding("gzip;q=0, *"));
+    }
+
+    @Test
+    public void testEncodeVariants() throws Exception {
+        CachedContent content = new CachedContent(1024, "text/html; charset=utf-8");
+        for (int i = 0; i < 200; i++) {
+            content.getCachedWriter().print("<p>hello world</p>\n");
+        }
+        content.flush();
+        content.close();
+        content.encodeVariants();
+
+        assertTrue(content.hasEncoding(CachedContent.ENCODING_GZIP));
+        assertTrue(content.hasEncoding(CachedContent.ENCODING_DEFLATE));
+        assertTrue(content.getLength(CachedContent.ENCODING_GZIP) < content.getLength());
+
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        content.writeTo(gzipped, CachedContent.ENCODING_GZIP);
+        assertEquals(content.getLength(CachedContent.ENCODING_GZIP), gzipped.size());
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped.toByteArray()))) {
+            assertArrayEquals(content.getContent(), in.readAllBytes());
+        }
+    }
+
+    @Test
+    public void testSmallContentNotEncoded() throws Exception {
+        CachedContent content = new CachedContent(64, "text/html");
+        content.getCachedWriter().print("tiny");
+        content.flush();
+        content.close();
+        content.encodeVariants();
+
+        assertFalse(content.hasEncoding(CachedContent.ENCODING_GZIP));
+        assertEquals(4, content.getLength(null));
+    }
+
+    @Test
+    public void testETags() throws Exception {
+        CachedContent content = new CachedContent(64, "text/html");
+        content.getCachedWriter().print("<p>hello world</p>");
+        content.flush();
+        content.close();
+
+        CachedContent same = new CachedContent(64, "text/html");
+        same.getCachedWriter().print("<p>hello world</p>");
+        same.flush();
+        same.close();
+
+        String eTag = ETagUtil.getETag(content, null);
+        assertEquals(eTag, ETagUtil.getETag(same, null));
+        assertNotEquals(eTag, ETagUtil.getETag(content, CachedContent.ENCODING_GZIP));
+
+        assertTrue(ETagUtil.matches(eTag, eTag));
+        assertTrue(ETagUtil.matches("\"other\", W/" + eTag, eTag));
+        assertTrue(ETagUtil.matches("*", eTag));
+        assertFalse(ETagUtil.matches(null, eTag));
+        assertFalse(ETagUtil.matches("\"other\"", eTag));
+    }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.ui.rendering.util.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test CacheProperties.
+ */
+public class CachePropertiesTest {
+
+    @Test
+    public void testParse() {
+        Map<String, String> props = new HashMap<>();
+        props.put("id", "cache.test");
+        props.put("size", "250");
+        props.put("coalesceMaxWait", "soon");
+        props.put("staleMaxRefreshes", "99999999999");
+
+        assertEquals(250, CacheProperties.parseInt(props, "size", 100));
+        assertEquals(7L, CacheProperties.parseLong(props, "timeout", 7));
+
+        // invalid values fall back to the default
+        assertEquals(0L, CacheProperties.parseLong(props, "coalesceMaxWait", 0));
+        assertEquals(2, CacheProperties.parseInt(props, "staleMaxRefreshes", 2));
+    }
+
+    @Test
+    public void testStaleContentRefresher() {
+        Map<String, String> props = new HashMap<>();
+        props.put("id", "cache.test");
+        props.put("staleWhileRevalidate", "30");
+
+        StaleContentRefresher refresher = CacheProperties.newStaleContentRefresher(props, true);
+        assertEquals("cache.test.stale", refresher.getId());
+        assertTrue(refresher.isEnabled());
+
+        // nothing stale is served from a disabled cache
+        assertFalse(CacheProperties.newStaleContentRefresher(props, false).isEnabled());
+    }
+
+}
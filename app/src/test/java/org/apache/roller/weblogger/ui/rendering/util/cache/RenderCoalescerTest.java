@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.ui.rendering.util.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.roller.weblogger.util.cache.CachedContent;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test RenderCoalescer.
+ */
+public class RenderCoalescerTest {
+
+    @Test
+    public void testConcurrentMissesRenderOnce() throws Exception {
+        final RenderCoalescer coalescer = new RenderCoalescer("test", 10000);
+        final AtomicInteger renders = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<CachedContent>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                RenderCoalescer.Flight flight = coalescer.join("key");
+                CachedContent content = null;
+                if (!flight.isLeader()) {
+                    content = flight.await();
+                }
+                if (content == null) {
+                    try {
+                        // give everyone else time to join
+                        Thread.sleep(200);
+                        renders.incrementAndGet();
+                        content = render("hello");
+                        flight.complete(content);
+                    } finally {
+                        flight.complete(null);
+                    }
+                }
+                return content;
+            }));
+        }
+        start.countDown();
+
+        for (Future<CachedContent> result : results) {
+            assertEquals("hello", result.get(10, TimeUnit.SECONDS).getContentAsString());
+        }
+        pool.shutdown();
+
+        assertEquals(1, renders.get());
+        assertEquals(1L, coalescer.getStats().get("renders"));
+        assertEquals(7L, coalescer.getStats().get("rendersSaved"));
+        assertEquals(0, coalescer.getStats().get("inFlight"));
+    }
+
+    @Test
+    public void testFailedLeader() throws Exception {
+        RenderCoalescer coalescer = new RenderCoalescer("test", 10000);
+
+        RenderCoalescer.Flight flight = coalescer.join("key");
+        assertTrue(flight.isLeader());
+        flight.complete(null);
+
+        // followers of a failed render get nothing and render themselves
+        assertNull(flight.await());
+        assertEquals(1L, coalescer.getStats().get("failures"));
+
+        // and the next miss starts a new render
+        assertNotSame(flight, coalescer.join("key"));
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        final RenderCoalescer coalescer = new RenderCoalescer("test", 50);
+        coalescer.join("key");
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        Future<CachedContent> follower = pool.submit(() -> coalescer.join("key").await());
+        assertNull(follower.get(10, TimeUnit.SECONDS));
+        pool.shutdown();
+
+        assertEquals(1L, coalescer.getStats().get("timeouts"));
+    }
+
+    @Test
+    public void testDisabled() {
+        RenderCoalescer coalescer = new RenderCoalescer("test", 0);
+        assertTrue(coalescer.join("key").isLeader());
+        assertTrue(coalescer.join("key").isLeader());
+        assertEquals(0, coalescer.getStats().get("inFlight"));
+    }
+
+    private static CachedContent render(String text) throws Exception {
+        CachedContent content = new CachedContent(64, "text/html");
+        content.getCachedWriter().print(text);
+        content.flush();
+        content.close();
+        return content;
+    }
+
+}
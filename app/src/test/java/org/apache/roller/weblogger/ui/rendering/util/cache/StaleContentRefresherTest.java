@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.ui.rendering.util.cache;
+
+import org.apache.roller.weblogger.util.cache.LazyExpiringCacheEntry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test StaleContentRefresher.
+ */
+public class StaleContentRefresherTest {
+
+    @Test
+    public void testServable() throws Exception {
+        StaleContentRefresher refresher = new StaleContentRefresher("test", 30, 2);
+        LazyExpiringCacheEntry entry = new LazyExpiringCacheEntry("content");
+        long now = System.currentTimeMillis();
+
+        // fresh content isn't stale content
+        assertFalse(refresher.isServable(entry, entry.getTimeCached() - 1));
+
+        // recently stale content is fine, but not once too old
+        assertTrue(refresher.isServable(entry, now + 1));
+        assertFalse(refresher.isServable(entry, now - 31000));
+        assertFalse(refresher.isServable(null, now + 1));
+
+        assertEquals(1L, refresher.getStats().get("staleHits"));
+
+        // disabled
+        assertFalse(new StaleContentRefresher("test", 0, 2).isServable(entry, now + 1));
+    }
+
+    @Test
+    public void testBoundedRefreshes() {
+        StaleContentRefresher refresher = new StaleContentRefresher("test", 30, 2);
+
+        assertTrue(refresher.tryStartRefresh("a"));
+        assertFalse(refresher.tryStartRefresh("a"));
+        assertTrue(refresher.tryStartRefresh("b"));
+        assertFalse(refresher.tryStartRefresh("c"));
+
+        refresher.refreshDone("a");
+        assertTrue(refresher.tryStartRefresh("c"));
+
+        assertEquals(3L, refresher.getStats().get("refreshes"));
+        assertEquals(1L, refresher.getStats().get("refreshesSkipped"));
+        assertEquals(2, refresher.getStats().get("refreshing"));
+    }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.util;
+
+import java.util.Date;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test PageCursor.
+ */
+public class PageCursorTest {
+
+    @Test
+    public void testRoundTrip() {
+        PageCursor after = PageCursor.after(new Date(1234), "a_b");
+        assertEquals("after=1234_a_b", after.toString());
+
+        PageCursor parsed = PageCursor.parse(after.getParamValue(), null);
+        assertFalse(parsed.isBefore());
+        assertEquals(1234, parsed.getTime().getTime());
+        assertEquals("a_b", parsed.getId());
+
+        PageCursor before = PageCursor.parse(null, "99_x");
+        assertTrue(before.isBefore());
+        assertEquals("http://host/page?page=2&before=99_x", before.appendTo("http://host/page?page=2"));
+        assertEquals("http://host/page?before=99_x", before.appendTo("http://host/page"));
+
+        // nothing to seek by without a time
+        assertNull(PageCursor.after(null, "id"));
+    }
+
+    @Test
+    public void testInvalid() {
+        assertNull(PageCursor.parse(null, null));
+        assertNull(PageCursor.parse("1234", null));
+        assertNull(PageCursor.parse("_id", null));
+        assertNull(PageCursor.parse("1234_", null));
+        assertNull(PageCursor.parse("-1_id", null));
+        assertNull(PageCursor.parse(null, "99999999999999999999_id"));
+    }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.util.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test CacheSnapshot.
+ */
+public class CacheSnapshotTest {
+
+    private Path tempDir;
+
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("snapshot");
+    }
+
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(tempDir.toFile());
+    }
+
+
+    @Test
+    public void testWriteAndRestore() throws IOException {
+
+        Cache cache = new PrecompressingCache(new ExpiringLRUCacheImpl("test", 10, 60));
+
+        StringBuilder page = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            page.append("<p>Hello snapshot</p>\n");
+        }
+        CachedContent big = content(page.toString(), "text/html");
+        CachedContent small = content("tiny", null);
+
+        cache.put("big", new LazyExpiringCacheEntry(big, 1000));
+        cache.put("small", new LazyExpiringCacheEntry(small, 2000));
+        cache.put("other", "not rendered content");
+
+        Path file = tempDir.resolve("test.snapshot");
+        assertEquals(2, CacheSnapshot.write(cache, file));
+
+        Map<String, LazyExpiringCacheEntry> entries = CacheSnapshot.read(file);
+        assertEquals(2, entries.size());
+
+        LazyExpiringCacheEntry restored = entries.get("big");
+        assertEquals(1000, restored.getTimeCached());
+        assertNull(restored.getValue(1001), "restored entry did not expire lazily");
+        CachedContent content = (CachedContent) restored.getValue(999);
+        assertTrue(content.isOffHeap());
+        assertEquals("text/html", content.getContentType());
+        assertEquals(page.toString(), content.getContentAsString());
+        assertEquals(big.getContentHash(), content.getContentHash());
+        assertTrue(content.hasEncoding(CachedContent.ENCODING_GZIP));
+
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        content.writeTo(gzip, CachedContent.ENCODING_GZIP);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        big.writeTo(expected, CachedContent.ENCODING_GZIP);
+        assertArrayEquals(expected.toByteArray(), gzip.toByteArray());
+
+        content = (CachedContent) entries.get("small").getValue(0);
+        assertNull(content.getContentType());
+        assertEquals("tiny", content.getContentAsString());
+        assertFalse(content.hasEncoding(CachedContent.ENCODING_GZIP));
+
+        // restored content can go back into a cache and out again
+        Cache restoredCache = new TinyLFUCacheImpl("restored", 10);
+        restoredCache.put("big", restored);
+        assertEquals(1, CacheSnapshot.write(restoredCache, file));
+        assertEquals(page.toString(), ((CachedContent) CacheSnapshot.read(file)
+                .get("big").getValue(0)).getContentAsString());
+    }
+
+
+    @Test
+    public void testTruncatedSnapshot() throws IOException {
+
+        Cache cache = new TinyLFUCacheImpl("test", 10);
+        cache.put("key", new LazyExpiringCacheEntry(content("some content", "text/plain")));
+
+        Path file = tempDir.resolve("test.snapshot");
+        CacheSnapshot.write(cache, file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 5));
+
+        assertThrows(IOException.class, () -> CacheSnapshot.read(file));
+    }
+
+
+    private static CachedContent content(String text, String contentType) throws IOException {
+        CachedContent content = new CachedContent(0, contentType);
+        content.getCachedWriter().print(text);
+        content.close();
+        return content;
+    }
+
+}
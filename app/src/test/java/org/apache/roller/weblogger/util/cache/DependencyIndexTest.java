@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.util.cache;
+
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.roller.weblogger.pojos.Weblog;
+import org.apache.roller.weblogger.pojos.WeblogBookmarkFolder;
+import org.apache.roller.weblogger.pojos.WeblogEntry;
+import org.apache.roller.weblogger.pojos.WeblogEntryComment;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test DependencyIndex and RenderDependencies.
+ */
+public class DependencyIndexTest {
+
+    @Test
+    public void testSiteWideInvalidation() {
+
+        Weblog listed = weblog(true);
+        Weblog hidden = weblog(false);
+        WeblogEntry shown = entry(listed);
+
+        DependencyIndex index = new DependencyIndex(10);
+
+        // a front page listing recent entries of all weblogs
+        try (RenderDependencies dependencies = RenderDependencies.start()) {
+            RenderDependencies.recordEntryQuery(null, null, null, null, null);
+            RenderDependencies.recordEntry(shown);
+            index.put("front", dependencies);
+        }
+        // a page showing a weblog's bookmarks, and comments site-wide
+        try (RenderDependencies dependencies = RenderDependencies.start()) {
+            RenderDependencies.recordWeblog(hidden);
+            RenderDependencies.recordComments(null);
+            index.put("about", dependencies);
+        }
+
+        // new entries of hidden weblogs aren't listed site-wide, but their
+        // removal could take comments away
+        assertEquals(List.of("about"), index.invalidate(entry(hidden)));
+        assertEquals(List.of("front", "about"), index.invalidate(entry(listed)));
+
+        // the shown entry matters wherever it is
+        shown.setWebsite(hidden);
+        assertTrue(index.invalidate(shown).contains("front"));
+
+        // only the bookmarks page shows hidden's settings
+        WeblogBookmarkFolder folder = new WeblogBookmarkFolder();
+        folder.setWeblog(hidden);
+        assertEquals(List.of("about"), index.invalidateSettings(folder.getWeblog()));
+        assertTrue(index.invalidateSettings(listed).isEmpty());
+
+        WeblogEntryComment comment = new WeblogEntryComment();
+        comment.setWeblogEntry(entry(hidden));
+        assertEquals(List.of("about"), index.invalidate(comment));
+
+        assertTrue(index.get("front").getInvalidated() > 0);
+        assertEquals(6L, index.getStats().get("invalidations"));
+    }
+
+
+    @Test
+    public void testWeblogVisibility() {
+
+        Weblog weblog = weblog(false);
+        DependencyIndex index = new DependencyIndex(10);
+        try (RenderDependencies dependencies = RenderDependencies.start()) {
+            RenderDependencies.recordEntryQuery(null, null, null, null, null);
+            index.put("front", dependencies);
+        }
+
+        // the first change may be the weblog being hidden, the second can't
+        assertEquals(List.of("front"), index.invalidate(weblog));
+        try (RenderDependencies dependencies = RenderDependencies.start()) {
+            index.put("front", dependencies);
+        }
+        assertTrue(index.invalidate(weblog).isEmpty());
+
+        // but being shown again can
+        weblog.setVisible(Boolean.TRUE);
+        index.put("front", dependenciesOfEntryQuery());
+        assertEquals(List.of("front"), index.invalidate(weblog));
+    }
+
+
+    @Test
+    public void testWeblogPages() {
+
+        Weblog weblog = weblog(true);
+        WeblogEntry old = entry(weblog);
+        old.setPubTime(new Timestamp(1000));
+        WeblogEntry recent = entry(weblog);
+
+        DependencyIndex index = new DependencyIndex(10);
+
+        // the page of a month, and the home page
+        try (RenderDependencies dependencies = RenderDependencies.start()) {
+            RenderDependencies.recordWeblog(weblog);
+            RenderDependencies.recordEntryQuery(weblog, null, null,
+                    new Date(0), new Date(2000));
+            RenderDependencies.recordEntry(old);
+            index.put("month", dependencies);
+        }
+        try (RenderDependencies dependencies = RenderDependencies.start()) {
+            RenderDependencies.recordWeblog(weblog);
+            RenderDependencies.recordEntryQuery(weblog, null, null, null, null);
+            RenderDependencies.recordEntry(recent);
+            index.put("home", dependencies);
+        }
+
+        // a comment on an old entry only shows on the month page
+        WeblogEntryComment comment = new WeblogEntryComment();
+        comment.setWeblogEntry(old);
+        assertEquals(List.of("month"), index.invalidate(comment));
+
+        // new entries only show on the home page
+        assertEquals(List.of("home"), index.invalidate(entry(weblog)));
+        assertTrue(index.invalidate(entry(weblog(true))).isEmpty());
+
+        // settings show on both
+        assertEquals(List.of("month", "home"), index.invalidateSettings(weblog));
+    }
+
+
+    @Test
+    public void testChangesWhileRendering() {
+
+        Weblog weblog = weblog(true);
+        DependencyIndex index = new DependencyIndex(2);
+
+        try (RenderDependencies dependencies = RenderDependencies.start()) {
+            RenderDependencies.recordWeblogContents(weblog);
+            index.invalidate(entry(weblog));
+            assertTrue(dependencies.getInvalidated() > 0);
+        }
+
+        // nothing is recorded without a render being tracked
+        RenderDependencies.recordWeblog(weblog);
+
+        // content with no dependencies recorded depends on everything
+        index.put("a", RenderDependencies.everything());
+        index.put("b", RenderDependencies.everything());
+        index.put("c", RenderDependencies.everything());
+        assertNull(index.get("a"), "oldest key kept beyond the limit");
+        assertEquals(List.of("b", "c"), index.invalidate(entry(weblog(false))));
+    }
+
+
+    @Test
+    public void testMoreCachedThanExpected() {
+
+        // a cache bounded by bytes may hold many more entries than its size
+        Set<String> cached = new HashSet<>();
+        DependencyIndex index = new DependencyIndex(2, () -> cached);
+        for (int i = 0; i < 10; i++) {
+            index.put("k" + i, RenderDependencies.everything());
+            cached.add("k" + i);
+        }
+        assertEquals(10, index.size());
+        assertNotNull(index.get("k0"), "key dropped while its content is cached");
+        assertEquals(10, index.invalidate(entry(weblog(true))).size());
+
+        // once the cache lets content go, so does the index
+        cached.removeIf(key -> !key.equals("k9"));
+        for (int i = 10; i < 30; i++) {
+            index.put("k" + i, RenderDependencies.everything());
+            cached.add("k" + i);
+        }
+        assertNull(index.get("k0"));
+        assertNotNull(index.get("k9"));
+        assertNotNull(index.get("k29"));
+        assertTrue(index.size() <= 21);
+    }
+
+
+    private static RenderDependencies dependenciesOfEntryQuery() {
+        try (RenderDependencies dependencies = RenderDependencies.start()) {
+            RenderDependencies.recordEntryQuery(null, null, null, null, null);
+            return dependencies;
+        }
+    }
+
+    private static Weblog weblog(boolean visible) {
+        Weblog weblog = new Weblog();
+        weblog.setVisible(visible);
+        return weblog;
+    }
+
+    private static WeblogEntry entry(Weblog weblog) {
+        WeblogEntry entry = new WeblogEntry();
+        entry.setWebsite(weblog);
+        entry.setPubTime(new Timestamp(System.currentTimeMillis()));
+        return entry;
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.util.cache;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test InstrumentedCache and LatencyHistogram.
+ */
+public class InstrumentedCacheTest {
+
+    @Test
+    public void testMetrics() throws Exception {
+
+        InstrumentedCache cache = new InstrumentedCache(new ExpiringLRUCacheImpl("test", 2, 60));
+
+        cache.put("cache.test:blog1/a", new LazyExpiringCacheEntry(content(1000)));
+        cache.put("cache.test:blog1/b", new LazyExpiringCacheEntry(content(500)));
+        assertNotNull(cache.get("cache.test:blog1/a"));
+        assertNull(cache.get("cache.test:blog2/a"));
+
+        // evicts blog1/b, the least recently used
+        cache.put("cache.test:blog2/a", new LazyExpiringCacheEntry(content(100)));
+
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(50.0, cache.getHitRatio(), 0.001);
+        assertEquals(3, cache.getPuts());
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.getEntries());
+        assertEquals(1100, cache.getBytes());
+        assertTrue(cache.getGetLatencyP99() > 0);
+        assertTrue(cache.getPutLatencyP50() > 0);
+
+        Map<String, Long> bytes = cache.getBytesByWeblog();
+        assertEquals("blog1", bytes.keySet().iterator().next());
+        assertEquals(1000L, bytes.get("blog1"));
+        assertEquals(100L, bytes.get("blog2"));
+        assertEquals(1L, cache.getEntriesByWeblog().get("blog2"));
+
+        Map<String, Object> stats = cache.getStats();
+        assertEquals(1L, stats.get("hits"));
+        assertEquals(1100L, stats.get("bytes"));
+
+        // check it can be served as an MXBean
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("org.apache.roller.weblogger.test:type=Cache,name=test");
+        server.registerMBean(cache, name);
+        try {
+            assertEquals(1100L, server.getAttribute(name, "Bytes"));
+            assertNotNull(server.getAttribute(name, "BytesByWeblog"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+
+        cache.clear();
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getEntries());
+        assertEquals(0.0, cache.getGetLatencyP50());
+    }
+
+
+    @Test
+    public void testLatencyHistogram() {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(100, histogram.getCount());
+
+        // within the 25% precision of the buckets
+        assertEquals(50, histogram.getPercentile(50), 50 * 0.25);
+        assertEquals(99, histogram.getPercentile(99), 99 * 0.25);
+
+        for (long nanos : new long[] {0, 3, 4, 7, 1000, 123456789}) {
+            int bucket = LatencyHistogram.bucketOf(nanos);
+            assertTrue(nanos < LatencyHistogram.upperBoundOf(bucket));
+            assertTrue(bucket == 0 || nanos >= LatencyHistogram.upperBoundOf(bucket - 1));
+        }
+    }
+
+
+    private static CachedContent content(int length) throws IOException {
+        CachedContent content = new CachedContent(length);
+        for (int i = 0; i < length; i++) {
+            content.getCachedWriter().print('x');
+        }
+        content.close();
+        return content;
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.util.cache;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.roller.weblogger.pojos.Weblog;
+import org.apache.roller.weblogger.pojos.WeblogEntry;
+import org.apache.roller.weblogger.util.cache.InvalidationJournal.Invalidation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test JournalingCacheHandler against an in-memory Derby journal.
+ */
+public class JournalingCacheHandlerTest {
+
+    private static final String URL = "jdbc:derby:memory:journaltest;create=true";
+
+    private InvalidationJournal journal;
+
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        try (Connection con = DriverManager.getConnection(URL);
+             Statement stmt = con.createStatement()) {
+            try {
+                stmt.executeUpdate("drop table roller_cacheinvalidation");
+            } catch (SQLException e) {
+                // first run, nothing to drop
+            }
+            stmt.executeUpdate("create table roller_cacheinvalidation ("
+                    + " id varchar(48) not null primary key,"
+                    + " node varchar(48) not null,"
+                    + " eventtime timestamp not null,"
+                    + " objecttype varchar(16) not null,"
+                    + " objectid varchar(48) not null,"
+                    + " handle varchar(255))");
+        }
+        journal = new InvalidationJournal(() -> DriverManager.getConnection(URL));
+    }
+
+
+    @Test
+    public void testReplayAcrossNodes() throws Exception {
+
+        List<Invalidation> replayedA = new ArrayList<>();
+        List<Invalidation> replayedB = new ArrayList<>();
+        JournalingCacheHandler nodeA = new JournalingCacheHandler(journal, replayedA::addAll, 60000, 3600000);
+        JournalingCacheHandler nodeB = new JournalingCacheHandler(journal, replayedB::addAll, 60000, 3600000);
+
+        Weblog weblog = new Weblog();
+        weblog.setHandle("blog1");
+        WeblogEntry entry = new WeblogEntry();
+        entry.setWebsite(weblog);
+
+        nodeA.invalidate(entry);
+        nodeA.invalidate(weblog);
+        nodeA.sync();
+        assertTrue(replayedA.isEmpty(), "node replayed its own invalidations");
+
+        nodeB.sync();
+        assertEquals(2, replayedB.size());
+        // both were made in the same instant, so may come back in any order
+        Invalidation entryInv = replayedB.get(0);
+        Invalidation weblogInv = replayedB.get(1);
+        if (!InvalidationJournal.TYPE_ENTRY.equals(entryInv.getType())) {
+            entryInv = replayedB.get(1);
+            weblogInv = replayedB.get(0);
+        }
+        assertEquals(InvalidationJournal.TYPE_ENTRY, entryInv.getType());
+        assertEquals(entry.getId(), entryInv.getObjectId());
+        assertEquals("blog1", entryInv.getHandle());
+        assertEquals(InvalidationJournal.TYPE_WEBLOG, weblogInv.getType());
+        assertEquals(weblog.getId(), weblogInv.getObjectId());
+
+        // overlapping polls must not replay the same invalidation twice
+        nodeB.sync();
+        assertEquals(2, replayedB.size());
+
+        assertEquals(2L, nodeA.getStats().get("written"));
+        assertEquals(2L, nodeB.getStats().get("replayed"));
+    }
+
+
+    @Test
+    public void testReplayIsNotJournaled() throws Exception {
+
+        Weblog weblog = new Weblog();
+        weblog.setHandle("blog2");
+
+        List<JournalingCacheHandler> nodeB = new ArrayList<>();
+        // node B invalidates locally while replaying, as the CacheManager would
+        nodeB.add(new JournalingCacheHandler(journal, invs -> nodeB.get(0).invalidate(weblog), 60000, 3600000));
+        List<Invalidation> replayedA = new ArrayList<>();
+        JournalingCacheHandler nodeA = new JournalingCacheHandler(journal, replayedA::addAll, 60000, 3600000);
+
+        nodeA.invalidate(weblog);
+        nodeA.sync();
+        nodeB.get(0).sync();
+        nodeB.get(0).sync();
+
+        assertEquals(0L, nodeB.get(0).getStats().get("written"));
+        nodeA.sync();
+        assertTrue(replayedA.isEmpty());
+        assertEquals(1, journal.readSince(0).size());
+
+        assertEquals(1, journal.purge(System.currentTimeMillis() + 1000));
+        assertTrue(journal.readSince(0).isEmpty());
+    }
+
+}
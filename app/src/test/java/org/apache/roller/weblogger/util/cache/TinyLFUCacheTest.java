@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  The ASF licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.  For additional information regarding
+ * copyright in this work, please see the NOTICE file in the top level
+ * directory of this distribution.
+ */
+
+package org.apache.roller.weblogger.util.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test TinyLFUCacheImpl.
+ */
+public class TinyLFUCacheTest {
+
+    @Test
+    public void testPutGetRemove() {
+        TinyLFUCacheImpl cache = new TinyLFUCacheImpl("test", 100);
+
+        cache.put("key1", "string1");
+        cache.put("key2", "string2");
+        assertEquals("string1", cache.get("key1"));
+        assertEquals("string2", cache.get("key2"));
+        assertNull(cache.get("key3"));
+
+        cache.put("key1", "string1b");
+        assertEquals("string1b", cache.get("key1"));
+
+        cache.remove("key1");
+        assertNull(cache.get("key1"));
+
+        cache.clear();
+        assertNull(cache.get("key2"));
+        assertEquals(0, cache.getStats().get("size"));
+    }
+
+    @Test
+    public void testSizeBound() {
+        TinyLFUCacheImpl cache = new TinyLFUCacheImpl("test", 50);
+
+        for (int i = 0; i < 1000; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+
+        Map<String, Object> stats = cache.getStats();
+        assertTrue((Integer) stats.get("size") <= 50);
+        assertEquals(1000L, stats.get("puts"));
+        assertTrue((Long) stats.get("evictions") >= 950L);
+    }
+
+    @Test
+    public void testFrequentKeysSurviveScan() {
+        TinyLFUCacheImpl cache = new TinyLFUCacheImpl("test", 100);
+
+        // a small set of popular entries
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 20; i++) {
+                if (cache.get("hot" + i) == null) {
+                    cache.put("hot" + i, "value");
+                }
+            }
+        }
+
+        // followed by a long scan of keys that are only seen once
+        for (int i = 0; i < 500; i++) {
+            cache.put("cold" + i, "value");
+        }
+
+        int survivors = 0;
+        for (int i = 0; i < 20; i++) {
+            if (cache.get("hot" + i) != null) {
+                survivors++;
+            }
+        }
+        assertTrue(survivors >= 15, "only " + survivors + " popular entries survived");
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        TinyLFUCacheImpl cache = new TinyLFUCacheImpl("test", 100, 1);
+
+        cache.put("key1", "string1");
+        assertNotNull(cache.get("key1"));
+
+        Thread.sleep(1100);
+        assertNull(cache.get("key1"));
+        assertEquals(1L, cache.getStats().get("expirations"));
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        final TinyLFUCacheImpl cache = new TinyLFUCacheImpl("test", 200);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            final int seed = t;
+            pool.submit(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    String key = "key" + ((i * 31 + seed) % 500);
+                    if (cache.get(key) == null) {
+                        cache.put(key, key);
+                    }
+                    if (i % 100 == 0) {
+                        cache.remove(key);
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        Map<String, Object> stats = cache.getStats();
+        assertTrue((Integer) stats.get("size") <= 200);
+        assertEquals(80000L, (Long) stats.get("hits") + (Long) stats.get("misses"));
+    }
+
+    @Test
+    public void testFactory() {
+        Map<String, String> props = new HashMap<>();
+        props.put("id", "cache.test");
+        props.put("size", "10");
+        props.put("timeout", "60");
+
+        Cache cache = new TinyLFUCacheFactoryImpl().constructCache(props);
+        assertEquals("cache.test", cache.getId());
+        assertEquals(10L, cache.getStats().get("maxSize"));
+    }
+
+    @Test
+    public void testOffHeapByteBudget() throws Exception {
+        OffHeapContentCacheImpl cache = new OffHeapContentCacheImpl("test", 64 * 1024, 100, 0, true);
+
+        for (int i = 0; i < 100; i++) {
+            CachedContent content = new CachedContent(1024, "text/html");
+            for (int j = 0; j < 1000; j++) {
+                content.getCachedWriter().print('x');
+            }
+            content.flush();
+            content.close();
+            cache.put("key" + i, new LazyExpiringCacheEntry(content));
+        }
+
+        Map<String, Object> stats = cache.getStats();
+        assertTrue((Long) stats.get("bytes") <= 64 * 1024);
+        assertTrue((Integer) stats.get("size") < 100);
+
+        LazyExpiringCacheEntry entry = (LazyExpiringCacheEntry) cache.get("key99");
+        assertNotNull(entry);
+        CachedContent content = (CachedContent) entry.getValue(0);
+        assertTrue(content.isOffHeap());
+        assertEquals(1000, content.getLength());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        content.writeTo(out);
+        assertEquals(1000, out.size());
+        assertEquals(content.getContentAsString(), out.toString("UTF-8"));
+    }
+
+}